@@ -0,0 +1,216 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingServer;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+
+import javax.net.ServerSocketFactory;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loopback peers and helpers shared by the benchmarks, every benchmark run against 127.0.0.1 only
+ */
+final class BenchmarkSupport {
+    static final String HOST = "127.0.0.1";
+    static final long TIMEOUT_IN_MS = 10 * 1000;
+
+    private BenchmarkSupport() {
+    }
+
+    static int freePort() throws IOException {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+
+    static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Benchmark operation timed out", e);
+        }
+    }
+
+    static ChannelingSocket connect(ChannelingSocket socket, int port) throws Exception {
+        CompletableFuture<ChannelingSocket> connected = new CompletableFuture<>();
+        socket.withConnect(HOST, port).when(Channeling.whenConnected)
+                .then(connected::complete, (sc, e) -> connected.completeExceptionally(e));
+        return await(connected);
+    }
+
+    /**
+     * Write the whole request then read until the response buffer is full, buffers are given ready to use
+     */
+    static void exchange(ChannelingSocket socket, ByteBuffer request, ByteBuffer response) throws Exception {
+        CompletableFuture<ChannelingSocket> done = new CompletableFuture<>();
+        socket.withWrite(request).when(Channeling.whenNoMoreToWrite)
+                .then(sc -> readFully(sc, response, done), (sc, e) -> done.completeExceptionally(e));
+        await(done);
+    }
+
+    private static void readFully(ChannelingSocket socket, ByteBuffer response, CompletableFuture<ChannelingSocket> done) {
+        socket.read(response, sc -> {
+            if (sc.getLastProcessedBytes() < 0) {
+                done.completeExceptionally(new EOFException("Peer closed with " + response.remaining() + " bytes missing"));
+            } else if (response.hasRemaining()) {
+                readFully(sc, response, done);
+            } else {
+                done.complete(sc);
+            }
+        }, (sc, e) -> done.completeExceptionally(e));
+    }
+
+    /**
+     * Keep-alive ChannelingServer answering every request with the same text body, returned once it accept connections
+     */
+    static ChannelingServer startServer(Channeling channeling, int port, int bodySize) throws Exception {
+        StringBuilder body = new StringBuilder(bodySize);
+        for (int i = 0; i < bodySize; i++) {
+            body.append((char) ('a' + i % 26));
+        }
+        String content = body.toString();
+        ChannelingServer server = new ChannelingServer(channeling, HOST, port);
+        server.setKeepAlive(true);
+        server.setMaxKeepAliveRequests(0);
+        Thread listener = new Thread(() -> server.listen((request, callback) -> {
+            HttpResponseMessage response = new HttpResponseMessage();
+            response.setCode(200);
+            response.setStatusText("OK");
+            response.addHeader("Content-Type", "text/plain");
+            response.setContent(content);
+            callback.write(response, StandardCharsets.UTF_8, sc -> {
+            });
+        }), "benchmark-server");
+        listener.setDaemon(true);
+        listener.start();
+        for (int i = 0; ; i++) {
+            try (Socket probe = new Socket(HOST, port)) {
+                return server;
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    static void close(ChannelingSocket socket) throws Exception {
+        CompletableFuture<ChannelingSocket> closed = new CompletableFuture<>();
+        socket.close(closed::complete, (sc, e) -> closed.completeExceptionally(e));
+        await(closed);
+    }
+
+    /**
+     * Server context with the self signed certificate shipped in channeling-core
+     */
+    static SSLContext serverContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = BenchmarkSupport.class.getResourceAsStream("/keystore.jks")) {
+            if (in == null) {
+                throw new IllegalStateException("keystore.jks not found in classpath");
+            }
+            keyStore.load(in, "password".toCharArray());
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, "password".toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, new SecureRandom());
+        return sslContext;
+    }
+
+    /**
+     * Client context trusting any certificate, loopback only
+     */
+    static SSLContext clientContext() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        }}, new SecureRandom());
+        return sslContext;
+    }
+
+    /**
+     * Blocking echo peer, one thread per connection, so only the Channeling side is measured as non blocking
+     */
+    static final class EchoServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+
+        EchoServer(SSLContext sslContext) throws IOException {
+            ServerSocketFactory factory = sslContext == null ? ServerSocketFactory.getDefault() : sslContext.getServerSocketFactory();
+            this.serverSocket = factory.createServerSocket(0, 50, InetAddress.getByName(HOST));
+            Thread acceptor = new Thread(this::accept, "echo-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    socket.setTcpNoDelay(true);
+                    Thread echo = new Thread(() -> echo(socket), "echo-" + socket.getPort());
+                    echo.setDaemon(true);
+                    echo.start();
+                } catch (IOException e) {
+                    // Closed
+                }
+            }
+        }
+
+        private static void echo(Socket socket) {
+            try (Socket s = socket; InputStream in = s.getInputStream(); OutputStream out = s.getOutputStream()) {
+                byte[] buff = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buff)) != -1) {
+                    out.write(buff, 0, read);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // Client gone
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
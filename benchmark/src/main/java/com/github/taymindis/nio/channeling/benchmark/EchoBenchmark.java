@@ -0,0 +1,81 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLContext;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback echo through ChannelRunner (plain) and ChannelSSLRunner (tls), one message written then read back whole.
+ * Throughput in bytes is operations multiplied by the message size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EchoBenchmark {
+    @Param({"plain", "tls"})
+    public String transport;
+
+    @Param({"64", "16384", "262144"})
+    public int messageSize;
+
+    private BenchmarkSupport.EchoServer echoServer;
+    private Channeling channeling;
+    private ChannelingSocket socket;
+    private ByteBuffer request, response;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        boolean tls = "tls".equals(transport);
+        echoServer = new BenchmarkSupport.EchoServer(tls ? BenchmarkSupport.serverContext() : null);
+        channeling = Channeling.startNewChanneling(1, BenchmarkSupport.TIMEOUT_IN_MS, BenchmarkSupport.TIMEOUT_IN_MS);
+        if (tls) {
+            channeling.enableSSL(1);
+            SSLContext clientContext = BenchmarkSupport.clientContext();
+            socket = channeling.wrapSSL(clientContext, BenchmarkSupport.HOST, echoServer.getPort(), null);
+        } else {
+            socket = channeling.wrap(null);
+        }
+        BenchmarkSupport.connect(socket, echoServer.getPort());
+        byte[] message = new byte[messageSize];
+        Arrays.fill(message, (byte) 'x');
+        request = ByteBuffer.wrap(message);
+        response = ByteBuffer.allocate(messageSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.close(socket);
+        channeling.shutdownNow();
+        echoServer.close();
+    }
+
+    @Benchmark
+    public int roundTrip(LatencyRecorder latency) throws Exception {
+        long start = System.nanoTime();
+        request.clear();
+        response.clear();
+        BenchmarkSupport.exchange(socket, request, response);
+        latency.record(start);
+        return response.position();
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingConnectionPool;
+import com.github.taymindis.nio.channeling.ChannelingServer;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequest;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HttpSingleRequest end to end against a local ChannelingServer, client and server run on their own Channeling.
+ * newConnection connect and close for every request, pooled reuse keep-alive connections of a ChannelingConnectionPool.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpClientBenchmark {
+    @Param({"128", "65536"})
+    public int bodySize;
+
+    private Channeling serverChanneling, clientChanneling;
+    private ChannelingServer server;
+    private ChannelingConnectionPool connectionPool;
+    private int port;
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        serverChanneling = Channeling.startNewChanneling(2, BenchmarkSupport.TIMEOUT_IN_MS, BenchmarkSupport.TIMEOUT_IN_MS);
+        clientChanneling = Channeling.startNewChanneling(2, BenchmarkSupport.TIMEOUT_IN_MS, BenchmarkSupport.TIMEOUT_IN_MS);
+        port = BenchmarkSupport.freePort();
+        server = BenchmarkSupport.startServer(serverChanneling, port, bodySize);
+        connectionPool = new ChannelingConnectionPool(clientChanneling);
+        message = "GET /bench HTTP/1.1\r\nHost: " + BenchmarkSupport.HOST + ":" + port + "\r\n\r\n";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connectionPool.close();
+        server.stop();
+        clientChanneling.shutdownNow();
+        serverChanneling.shutdownNow();
+    }
+
+    @Benchmark
+    public int newConnection(LatencyRecorder latency) throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        new HttpSingleRequest(clientChanneling.wrap(null), BenchmarkSupport.HOST, port,
+                "GET /bench HTTP/1.1\r\nHost: " + BenchmarkSupport.HOST + ":" + port + "\r\nConnection: close\r\n\r\n")
+                .execute(callback(future));
+        int length = BenchmarkSupport.await(future).getBodyBytes().getLength();
+        latency.record(start);
+        return length;
+    }
+
+    @Benchmark
+    public int pooled(LatencyRecorder latency) throws Exception {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        connectionPool.lease(BenchmarkSupport.HOST, port, null, socket ->
+                new HttpSingleRequest(connectionPool, socket, BenchmarkSupport.HOST, port, message, 1024)
+                        .execute(callback(future)), (socket, e) -> future.completeExceptionally(e));
+        int length = BenchmarkSupport.await(future).getBodyBytes().getLength();
+        latency.record(start);
+        return length;
+    }
+
+    private static HttpSingleRequestCallback callback(CompletableFuture<HttpResponse> future) {
+        return new HttpSingleRequestCallback() {
+            @Override
+            public void accept(HttpResponse response, Object attachment) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(Exception e, ChannelingSocket socket) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+}
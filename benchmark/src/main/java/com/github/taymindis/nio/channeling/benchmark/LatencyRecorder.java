@@ -0,0 +1,77 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of every measured operation in a HdrHistogram, warmup is not recorded. Once the trial is done the percentile
+ * distribution in microseconds is printed and written to {@code <channeling.hdr.dir>/<benchmark>[-param=value].hgrm},
+ * default directory is target/hdr, so runs can be compared or plotted with the HdrHistogram tools.
+ */
+@State(Scope.Benchmark)
+public class LatencyRecorder {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final Histogram histogram = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private volatile boolean recording;
+    private String name;
+
+    @Setup(Level.Trial)
+    public void setupTrial(BenchmarkParams params) {
+        StringBuilder builder = new StringBuilder(params.getBenchmark());
+        for (String key : params.getParamsKeys()) {
+            builder.append('-').append(key).append('=').append(params.getParam(key));
+        }
+        name = builder.toString();
+        histogram.reset();
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration(IterationParams params) {
+        recording = params.getType() == IterationType.MEASUREMENT;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} taken before the operation
+     */
+    public void record(long startNanos) {
+        if (recording) {
+            histogram.recordValue(Math.min(System.nanoTime() - startNanos, HIGHEST_TRACKABLE_NANOS));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws IOException {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        System.out.printf("%n%s latency (us) p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f count=%d%n", name,
+                micros(50), micros(90), micros(99), micros(99.9), histogram.getMaxValue() / 1000.0,
+                histogram.getTotalCount());
+        File dir = new File(System.getProperty("channeling.hdr.dir", "target/hdr"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Unable to create " + dir);
+        }
+        try (PrintStream out = new PrintStream(new FileOutputStream(new File(dir, name + ".hgrm")))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private double micros(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+}
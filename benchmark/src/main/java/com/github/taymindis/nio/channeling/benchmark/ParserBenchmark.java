@@ -0,0 +1,123 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.http.ContentEncodingType;
+import com.github.taymindis.nio.channeling.http.HttpBodyDecoder;
+import com.github.taymindis.nio.channeling.http.HttpChunkedDecoder;
+import com.github.taymindis.nio.channeling.http.HttpRequestParser;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Parsers and decoders on in-memory bytes, no socket involved
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+    private static final byte[] REQUEST = ("POST /api/v1/orders?id=42 HTTP/1.1\r\n" +
+            "Host: localhost:8080\r\n" +
+            "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/96.0 Safari/537.36\r\n" +
+            "Accept: application/json, text/plain, */*\r\n" +
+            "Accept-Encoding: gzip, deflate, br\r\n" +
+            "Accept-Language: en-US,en;q=0.9\r\n" +
+            "Content-Type: application/json\r\n" +
+            "Cookie: session=0123456789abcdef; theme=dark\r\n" +
+            "Connection: keep-alive\r\n" +
+            "Content-Length: 20\r\n" +
+            "\r\n" +
+            "{\"item\":\"abc\",\"q\":1}").getBytes(StandardCharsets.US_ASCII);
+
+    private static final String RESPONSE_HEAD = "HTTP/1.1 200 OK\r\n" +
+            "Date: Mon, 27 Jul 2009 12:28:53 GMT\r\n" +
+            "Server: Apache\r\n" +
+            "Last-Modified: Wed, 22 Jul 2009 19:15:56 GMT\r\n" +
+            "Content-Type: application/json; charset=utf-8\r\n" +
+            "Cache-Control: no-cache\r\n" +
+            "Transfer-Encoding: chunked\r\n" +
+            "Connection: keep-alive\r\n\r\n";
+
+    private byte[] content, chunked, gzip;
+    private final HttpRequestParser requestParser = new HttpRequestParser();
+    private final HttpChunkedDecoder chunkedDecoder = new HttpChunkedDecoder();
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        content = new byte[64 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ("{\"id\":1,\"name\":\"item\"},".charAt(i % 23));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < content.length; i += 4096) {
+            int length = Math.min(4096, content.length - i);
+            out.writeBytes((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(content, i, length);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        chunked = out.toByteArray();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(compressed)) {
+            gzipOut.write(content);
+        }
+        gzip = compressed.toByteArray();
+    }
+
+    @Benchmark
+    public String requestParser() throws IOException {
+        requestParser.writeBytes(ByteBuffer.wrap(REQUEST));
+        if (!requestParser.parse()) {
+            throw new IllegalStateException("Request not parsed");
+        }
+        String path = requestParser.getPath();
+        requestParser.reset();
+        return path;
+    }
+
+    @Benchmark
+    public Map<String, String> responseHeaders() {
+        HttpResponse response = new HttpResponse();
+        response.setHeaders(RESPONSE_HEAD);
+        return response.getHeaderAsMap();
+    }
+
+    @Benchmark
+    public int chunkedDecoder() throws IOException {
+        int[] decoded = {0};
+        chunkedDecoder.reset();
+        chunkedDecoder.decode(ByteBuffer.wrap(chunked), data -> decoded[0] += data.remaining());
+        return decoded[0];
+    }
+
+    @Benchmark
+    public int gzipBodyDecoder() throws IOException {
+        int[] decoded = {0};
+        HttpBodyDecoder decoder = new HttpBodyDecoder(false, ContentEncodingType.GZIP);
+        decoder.decode(ByteBuffer.wrap(gzip), (bytes, offset, length) -> {
+            decoded[0] += length;
+            return true;
+        });
+        decoder.finish();
+        return decoded[0];
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.ChannelingWaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the ChannelingProcessor loop per event: one byte ping pong against a blocking echo peer, once through
+ * Channeling (a write then a read event) and once on a plain blocking SocketChannel. The difference between both is
+ * what the worker loop, task queue and callbacks cost for two events.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessorLoopBenchmark {
+    @Param({"busySpin", "sleeping", "spinThenYield", "blocking"})
+    public String waitStrategy;
+
+    private BenchmarkSupport.EchoServer echoServer;
+    private Channeling channeling;
+    private ChannelingSocket socket;
+    private SocketChannel blockingChannel;
+    private final ByteBuffer ping = ByteBuffer.allocate(1);
+    private final ByteBuffer pong = ByteBuffer.allocate(1);
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        echoServer = new BenchmarkSupport.EchoServer(null);
+        channeling = Channeling.startNewChanneling(1, ChannelingWaitStrategy.of(waitStrategy),
+                BenchmarkSupport.TIMEOUT_IN_MS, BenchmarkSupport.TIMEOUT_IN_MS);
+        socket = BenchmarkSupport.connect(channeling.wrap(null), echoServer.getPort());
+        blockingChannel = SocketChannel.open(new InetSocketAddress(BenchmarkSupport.HOST, echoServer.getPort()));
+        blockingChannel.socket().setTcpNoDelay(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkSupport.close(socket);
+        blockingChannel.close();
+        channeling.shutdownNow();
+        echoServer.close();
+    }
+
+    @Benchmark
+    public byte channelingPingPong(LatencyRecorder latency) throws Exception {
+        long start = System.nanoTime();
+        ping.clear();
+        pong.clear();
+        BenchmarkSupport.exchange(socket, ping, pong);
+        latency.record(start);
+        return pong.get(0);
+    }
+
+    @Benchmark
+    public byte blockingPingPong() throws Exception {
+        ping.clear();
+        pong.clear();
+        while (ping.hasRemaining()) {
+            blockingChannel.write(ping);
+        }
+        while (pong.hasRemaining()) {
+            if (blockingChannel.read(pong) < 0) {
+                throw new IllegalStateException("Echo peer closed");
+            }
+        }
+        return pong.get(0);
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.taymindis.nio.channeling.benchmark;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second of ChannelingServer over keep-alive connections, each benchmark thread is one client with its
+ * own blocking connection, use -t to add concurrent clients.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ServerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"128", "262144"})
+        public int bodySize;
+
+        @Param({"2"})
+        public int workers;
+
+        private Channeling channeling;
+        private ChannelingServer server;
+        int port;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            channeling = Channeling.startNewChanneling(workers, BenchmarkSupport.TIMEOUT_IN_MS, BenchmarkSupport.TIMEOUT_IN_MS);
+            port = BenchmarkSupport.freePort();
+            server = BenchmarkSupport.startServer(channeling, port, bodySize);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stop();
+            channeling.shutdownNow();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private static final byte[] REQUEST = ("GET /bench HTTP/1.1\r\nHost: " + BenchmarkSupport.HOST + "\r\n" +
+                "User-Agent: channeling-benchmark\r\nAccept: */*\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+        private final byte[] buff = new byte[64 * 1024];
+        private int start, end;
+
+        @Setup(Level.Trial)
+        public void setup(Server server) throws IOException {
+            socket = new Socket(BenchmarkSupport.HOST, server.port);
+            socket.setTcpNoDelay(true);
+            in = socket.getInputStream();
+            out = socket.getOutputStream();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            socket.close();
+        }
+
+        /**
+         * @return body length read, the whole response is consumed
+         */
+        int get() throws IOException {
+            out.write(REQUEST);
+            out.flush();
+            int bodyStart;
+            while ((bodyStart = indexOfBody()) < 0) {
+                fill();
+            }
+            long contentLength = contentLength(new String(buff, start, bodyStart - start, StandardCharsets.ISO_8859_1));
+            start = bodyStart;
+            long remaining = contentLength;
+            while (remaining > 0) {
+                if (start == end) {
+                    fill();
+                }
+                int consumed = (int) Math.min(remaining, end - start);
+                start += consumed;
+                remaining -= consumed;
+            }
+            return (int) contentLength;
+        }
+
+        /**
+         * @return index right after the blank line ending the head, -1 if not read yet, lines may end with LF only
+         */
+        private int indexOfBody() {
+            for (int i = start; i + 1 < end; i++) {
+                if (buff[i] == '\n') {
+                    if (buff[i + 1] == '\n') {
+                        return i + 2;
+                    }
+                    if (buff[i + 1] == '\r' && i + 2 < end && buff[i + 2] == '\n') {
+                        return i + 3;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private void fill() throws IOException {
+            if (start == end) {
+                start = end = 0;
+            } else if (end == buff.length) {
+                System.arraycopy(buff, start, buff, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            int read = in.read(buff, end, buff.length - end);
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            end += read;
+        }
+
+        private static long contentLength(String head) throws IOException {
+            for (String line : head.split("\r?\n")) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                    return Long.parseLong(line.substring("content-length:".length()).trim());
+                }
+            }
+            throw new IOException("Response without Content-Length: " + head);
+        }
+    }
+
+    @Benchmark
+    public int keepAliveGet(Client client, LatencyRecorder latency) throws IOException {
+        long start = System.nanoTime();
+        int length = client.get();
+        latency.record(start);
+        return length;
+    }
+}
@@ -65,9 +65,7 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
 
         if (isSSL) {
             sslContext = getEndpoint().getSslContext();
-            if (!engine.hasSSL()) {
-                engine.enableSSL(channelingEndpoint.getNumSSLWorker());
-            }
+            ChannelingHttpComponent.enableSSL(engine, channelingEndpoint);
         }
         if (sslContext != null) {
             channelingServer = new ChannelingServer(engine, sslContext, host, port);
@@ -87,6 +85,10 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
         channelingServer.setOnWriteError(this);
 
         channelingServer.setReadBody(channelingEndpoint.isReadBody());
+        channelingServer.setKeepAlive(channelingEndpoint.isKeepAlive());
+        if (channelingEndpoint.isCompressResponse()) {
+            channelingServer.setResponseCompression(new ResponseCompression());
+        }
 
         if (channelingEndpoint.getComponent().getVHostRequestListener() != null) {
             vhostProducerTemplate = channelingEndpoint.getCamelContext().createFluentProducerTemplate();
@@ -217,14 +219,16 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
             if (obj instanceof ChannelingBytes) {
                 ChannelingBytes bytes = (ChannelingBytes) obj;
                 if (isLastStream) {
-                    callback.streamWrite(ByteBuffer.wrap(bytes.getBuff(), bytes.getOffset(), bytes.getLength()), this::channelClose);
+                    callback.streamWrite(ByteBuffer.wrap(bytes.getBuff(), bytes.getOffset(), bytes.getLength()), sc -> channelClose(callback, sc));
+                    callback.end();
                 } else {
                     callback.streamWrite(ByteBuffer.wrap(bytes.getBuff(), bytes.getOffset(), bytes.getLength()), this::channelIdle);
                 }
             } else if (obj instanceof byte[]) {
                 byte[] chunked = (byte[]) obj;
                 if (isLastStream) {
-                    callback.streamWrite(ByteBuffer.wrap(chunked), this::channelClose);
+                    callback.streamWrite(ByteBuffer.wrap(chunked), sc -> channelClose(callback, sc));
+                    callback.end();
                 } else {
                     callback.streamWrite(ByteBuffer.wrap(chunked), this::channelIdle);
                 }
@@ -240,9 +244,11 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
         // Do Nothing
     }
 
-    private void channelClose(ChannelingSocket socket) {
-        socket.close(s -> {
-        });
+    private void channelClose(ResponseCallback callback, ChannelingSocket socket) {
+        if (!callback.isKeepAlive()) {
+            socket.close(s -> {
+            });
+        }
     }
 
     private void serviceUnavailable(ResponseCallback callback, int code, String statusText, String content) {
@@ -255,7 +261,7 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
             responseMessage.addHeader("Server", CHANNELING_VERSION);
             responseMessage.addHeader("Content-Length", String.valueOf(content.length()));
         }
-        callback.write(responseMessage, null, this::closeSocket);
+        callback.write(responseMessage, null, sc -> closeSocket(callback, sc));
     }
 
     private void sendResponse(ResponseCallback callBack, Exchange camelExchange) {
@@ -274,7 +280,7 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
             LOG.trace("No payload to send as reply for exchange: {}", camelExchange);
 //            String contentType = (String) camelExchange.getIn().getHeader("Content-Type", MimeMappings.DEFAULT_MIME_MAPPINGS.get("txt"), String.class);
 //            responseMessage.addHeader(Exchange.CONTENT_TYPE, contentType);
-            callBack.write(responseMessage, null, this::closeSocket);
+            callBack.write(responseMessage, null, sc -> closeSocket(callBack, sc));
         } else {
             Charset charset = camelExchange.getProperty(Exchange.HTTP_CHARACTER_ENCODING, Charset.class);
 
@@ -326,7 +332,7 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
 
             callBack.write(responseMessage, charset, sc -> {
                 if (responseMessage.isDone()) {
-                    closeSocket(sc);
+                    closeSocket(callBack, sc);
                 }
             });
 //            }
@@ -334,9 +340,11 @@ public class ChannelingConsumer extends DefaultConsumer implements Suspendable,
         }
     }
 
-    private void closeSocket(ChannelingSocket socket) {
-        socket.close(sc -> {
-        });
+    private void closeSocket(ResponseCallback callback, ChannelingSocket socket) {
+        if (!callback.isKeepAlive()) {
+            socket.close(sc -> {
+            });
+        }
     }
 
 
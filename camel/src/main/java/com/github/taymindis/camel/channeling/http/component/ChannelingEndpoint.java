@@ -17,6 +17,7 @@
 package com.github.taymindis.camel.channeling.http.component;
 
 import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingConnectionPool;
 import com.github.taymindis.nio.channeling.ChannelingPlugin;
 import com.github.taymindis.nio.channeling.ChannelingProxy;
 import org.apache.camel.*;
@@ -59,6 +60,18 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     @UriParam
     private Integer numSSLWorker = 1;
 
+    @UriParam(label = "advanced", defaultValue = "pool", enums = "inline,pool,workStealing")
+    private String sslTaskExecution = "pool";
+
+    @UriParam(label = "advanced", defaultValue = "blocking", enums = "busySpin,sleeping,spinThenYield,blocking")
+    private String waitStrategy = "blocking";
+
+    @UriParam(label = "advanced", defaultValue = "inline", enums = "inline,pool,virtualThreads")
+    private String callbackExecution = "inline";
+
+    @UriParam(label = "advanced", defaultValue = "16")
+    private Integer numCallbackWorker = 16;
+
     @UriParam(defaultValue = "false")
     private boolean shutdownImmediately;
 
@@ -84,6 +97,13 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     private long readTimeout;
     @UriParam(label = "producer")
     private CookieHandler cookieHandler;
+    @UriParam(label = "producer", defaultValue = "false",
+            description = "If true, connections to the backend are pooled and reused once response fully consumed")
+    private boolean reuseConnection;
+    @UriParam(label = "producer",
+            description = "Time in MS a pooled connection is kept idle, half of readTimeout by default, must be shorter than it")
+    private Long connectionIdleTimeout;
+    private ChannelingConnectionPool connectionPool;
 
 
     @UriParam(
@@ -113,6 +133,14 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     @UriParam(label = "consumer", defaultValue = "true")
     private boolean readBody;
 
+    @UriParam(label = "consumer", defaultValue = "false",
+            description = "If true, HTTP/1.1 connections are kept open for next requests")
+    private boolean keepAlive;
+
+    @UriParam(label = "consumer", defaultValue = "false",
+            description = "If true, responses are gzip or deflate compressed when client accept it")
+    private boolean compressResponse;
+
     public ChannelingEndpoint(String endpointUri, ChannelingHttpComponent component, URI httpUri) {
         super(endpointUri, component);
         this.httpUri = httpUri;
@@ -191,7 +219,7 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     }
 
     /**
-     * Max Request can call per host for the endpoint
+     * Max Request can call per host for the endpoint, also the max pooled connections per host when reuseConnection enabled
      */
     public void setMaxRequestPerHost(Integer maxRequestPerHost) {
         this.maxRequestPerHost = maxRequestPerHost;
@@ -221,6 +249,51 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
         this.numSSLWorker = numSSLWorker;
     }
 
+    public String getSslTaskExecution() {
+        return sslTaskExecution;
+    }
+
+    /**
+     * Where SSL delegated task run, inline on the worker, on a bounded pool or a work stealing pool of numSSLWorker threads
+     */
+    public void setSslTaskExecution(String sslTaskExecution) {
+        this.sslTaskExecution = sslTaskExecution;
+    }
+
+    public String getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * How the worker wait when there is no event, busySpin, sleeping, spinThenYield or blocking
+     */
+    public void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public String getCallbackExecution() {
+        return callbackExecution;
+    }
+
+    /**
+     * Where the io callbacks run, inline on the worker, on a bounded pool of numCallbackWorker threads or on virtual
+     * threads (JDK 21+, otherwise the pool). Offload it when the route block, such as synchronous processors
+     */
+    public void setCallbackExecution(String callbackExecution) {
+        this.callbackExecution = callbackExecution;
+    }
+
+    public Integer getNumCallbackWorker() {
+        return numCallbackWorker;
+    }
+
+    /**
+     * Set how many threads run the io callbacks when callbackExecution is pool
+     */
+    public void setNumCallbackWorker(Integer numCallbackWorker) {
+        this.numCallbackWorker = numCallbackWorker;
+    }
+
     public List<ChannelingPlugin> getPlugins() {
         return plugins;
     }
@@ -265,6 +338,40 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
         this.readTimeout = readTimeout;
     }
 
+    public boolean isReuseConnection() {
+        return reuseConnection;
+    }
+
+    /**
+     * Keep connections to the backend open and reuse them for next requests, follow redirect request is not pooled
+     */
+    public void setReuseConnection(boolean reuseConnection) {
+        this.reuseConnection = reuseConnection;
+    }
+
+    public Long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    /**
+     * Time in MS a pooled connection is kept idle, half of readTimeout by default, must be shorter than it
+     */
+    public void setConnectionIdleTimeout(Long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+
+    /**
+     * @return connection pool shared by producers of this endpoint, null if reuseConnection disabled
+     */
+    public synchronized ChannelingConnectionPool getConnectionPool() {
+        if (connectionPool == null && reuseConnection) {
+            connectionPool = new ChannelingConnectionPool(engine,
+                    maxRequestPerHost == null ? 0 : maxRequestPerHost, connectionIdleTimeout == null ?
+                    ChannelingConnectionPool.defaultIdleTimeoutInMs(engine) : connectionIdleTimeout);
+        }
+        return connectionPool;
+    }
+
     @Override
     public HeaderFilterStrategy getHeaderFilterStrategy() {
         return headerFilterStrategy;
@@ -418,6 +525,12 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     @Override
     protected void doStop() throws Exception {
         super.doStop();
+        synchronized (this) {
+            if (connectionPool != null) {
+                connectionPool.close();
+                connectionPool = null;
+            }
+        }
         // ensure client is closed when stopping
         if (engine != null) {
            if(shutdownImmediately) {
@@ -444,4 +557,20 @@ public class ChannelingEndpoint extends DefaultEndpoint implements AsyncEndpoint
     public void setReadBody(boolean readBody) {
         this.readBody = readBody;
     }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public boolean isCompressResponse() {
+        return compressResponse;
+    }
+
+    public void setCompressResponse(boolean compressResponse) {
+        this.compressResponse = compressResponse;
+    }
 }
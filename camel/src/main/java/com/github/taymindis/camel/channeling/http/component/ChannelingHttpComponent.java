@@ -1,8 +1,11 @@
 package com.github.taymindis.camel.channeling.http.component;
 
 import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingCallbackExecutor;
 import com.github.taymindis.nio.channeling.ChannelingPlugin;
 import com.github.taymindis.nio.channeling.ChannelingProxy;
+import com.github.taymindis.nio.channeling.ChannelingSSLTaskExecutor;
+import com.github.taymindis.nio.channeling.ChannelingWaitStrategy;
 import com.github.taymindis.nio.channeling.http.RequestListener;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Endpoint;
@@ -51,6 +54,17 @@ public class ChannelingHttpComponent extends HeaderFilterStrategyComponent imple
     private Integer worker = 1;
     @Metadata(label = "advanced", description = "Number of worker processing SSL Delegated Task")
     private Integer numSSLWorker = 1;
+    @Metadata(label = "advanced", defaultValue = "pool", enums = "inline,pool,workStealing",
+            description = "Where SSL Delegated Task run, inline on the worker, on a bounded pool or a work stealing pool of numSSLWorker threads")
+    private String sslTaskExecution = "pool";
+    @Metadata(label = "advanced", defaultValue = "blocking", enums = "busySpin,sleeping,spinThenYield,blocking",
+            description = "How the worker wait when there is no event, busySpin pins a core per worker, sleeping is the legacy peekPerNano")
+    private String waitStrategy = "blocking";
+    @Metadata(label = "advanced", defaultValue = "inline", enums = "inline,pool,virtualThreads",
+            description = "Where the io callbacks run, inline on the worker, on a bounded pool of numCallbackWorker threads or on virtual threads, offload it when the route block")
+    private String callbackExecution = "inline";
+    @Metadata(label = "advanced", description = "Number of threads running the io callbacks when callbackExecution is pool")
+    private Integer numCallbackWorker = 16;
 
     @Metadata(label = "advanced")
     private Integer connectionTimeout = 3000;
@@ -104,6 +118,10 @@ public class ChannelingHttpComponent extends HeaderFilterStrategyComponent imple
         endpoint.setSslContextParameters(ssl);
         endpoint.setSSL(isSSLEndpoint);
         endpoint.setNumSSLWorker(numSSLWorker);
+        endpoint.setSslTaskExecution(sslTaskExecution);
+        endpoint.setWaitStrategy(getWaitStrategy());
+        endpoint.setCallbackExecution(callbackExecution);
+        endpoint.setNumCallbackWorker(numCallbackWorker);
 
 
         setProperties(endpoint, parameters);
@@ -117,7 +135,7 @@ public class ChannelingHttpComponent extends HeaderFilterStrategyComponent imple
             endpoint.setEngine(this.sharedChanneling);
 
             if(isSSLEndpoint) {
-                this.sharedChanneling.enableSSL(numSSLWorker);
+                enableSSL(this.sharedChanneling, endpoint);
             }
 
         } else {
@@ -147,16 +165,29 @@ public class ChannelingHttpComponent extends HeaderFilterStrategyComponent imple
     }
 
     private Channeling createChanneling(ChannelingEndpoint endpoint, boolean isSSLEndpoint) throws IOException {
-        Channeling channeling = Channeling.startNewChanneling(endpoint.getWorker(), 1,
+        Channeling channeling = Channeling.startNewChanneling(endpoint.getWorker(),
+                ChannelingWaitStrategy.of(endpoint.getWaitStrategy()),
                 endpoint.getConnectionTimeout(), endpoint.getReadTimeout(), endpoint.getPlugins());
 
         if(isSSLEndpoint) {
-            channeling.enableSSL(numSSLWorker);
+            enableSSL(channeling, endpoint);
+        }
+        if (!"inline".equals(endpoint.getCallbackExecution())) {
+            channeling.enableCallbackOffload(ChannelingCallbackExecutor.of(endpoint.getCallbackExecution(), endpoint.getNumCallbackWorker()));
         }
 
         return channeling;
     }
 
+    /**
+     * Every Channeling own its ssl task executor, first ssl endpoint decide it
+     */
+    static void enableSSL(Channeling channeling, ChannelingEndpoint endpoint) {
+        if (!channeling.hasSSL()) {
+            channeling.enableSSL(ChannelingSSLTaskExecutor.of(endpoint.getSslTaskExecution(), endpoint.getNumSSLWorker()));
+        }
+    }
+
     private void managedCachePlugin(ChannelingEndpoint endpoint) {
     }
 
@@ -295,6 +326,38 @@ public class ChannelingHttpComponent extends HeaderFilterStrategyComponent imple
         this.numSSLWorker = numSSLWorker;
     }
 
+    public String getSslTaskExecution() {
+        return sslTaskExecution;
+    }
+
+    public void setSslTaskExecution(String sslTaskExecution) {
+        this.sslTaskExecution = sslTaskExecution;
+    }
+
+    public String getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public void setWaitStrategy(String waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public String getCallbackExecution() {
+        return callbackExecution;
+    }
+
+    public void setCallbackExecution(String callbackExecution) {
+        this.callbackExecution = callbackExecution;
+    }
+
+    public Integer getNumCallbackWorker() {
+        return numCallbackWorker;
+    }
+
+    public void setNumCallbackWorker(Integer numCallbackWorker) {
+        this.numCallbackWorker = numCallbackWorker;
+    }
+
     public Integer getConnectionTimeout() {
         return connectionTimeout;
     }
@@ -18,6 +18,7 @@ package com.github.taymindis.camel.channeling.http.component;
 
 import com.github.taymindis.nio.channeling.Channeling;
 import com.github.taymindis.nio.channeling.ChannelingBytes;
+import com.github.taymindis.nio.channeling.ChannelingConnectionPool;
 import com.github.taymindis.nio.channeling.ChannelingSocket;
 import com.github.taymindis.nio.channeling.http.*;
 import org.apache.camel.Exchange;
@@ -47,10 +48,12 @@ public class ChannelingProducer extends DefaultProducer {
     final private FluentProducerTemplate fluentProducerTemplate;
     final private String callBackRoute;
     final private Boolean hasAfterProxied;
+    final private ChannelingConnectionPool connectionPool;
 
     public ChannelingProducer(ChannelingEndpoint endpoint) {
         super(endpoint);
         this.client = endpoint.getEngine();
+        this.connectionPool = endpoint.getConnectionPool();
         this.callBackRoute = endpoint.getCallbackRoute();
         this.fluentProducerTemplate = callBackRoute == null ? null : endpoint.getCamelContext().createFluentProducerTemplate();
         this.hasAfterProxied = callBackRoute != null;
@@ -88,6 +91,10 @@ public class ChannelingProducer extends DefaultProducer {
             URI httpUri = endpoint.getHttpUri();
             String host = httpUri.getHost();
             int port = httpUri.getPort();
+            if (connectionPool != null && !endpoint.isFollowRedirect()) {
+                processPooledRequest(exchange, host, port < 0 ? (endpoint.isSSL() ? 443 : 80) : port, requestBuilder, binding);
+                return;
+            }
             if (endpoint.isSSL()) {
                 if (port < 0) {
                     port = 443;
@@ -173,6 +180,43 @@ public class ChannelingProducer extends DefaultProducer {
         }
     }
 
+    private void processPooledRequest(Exchange exchange, String host, int port, HttpRequestBuilder requestBuilder,
+                                      ChannelingBinding binding) {
+        ChannelingEndpoint endpoint = getEndpoint();
+        String messageToSend = requestBuilder.toString();
+        LOG.debug("Executing pooled request :::{}", messageToSend);
+
+        connectionPool.lease(endpoint.getChannelingProxy(), endpoint.isSSL() ? endpoint.getSslContext() : null, host, port, exchange,
+                cs -> {
+                    int minInputBufferSize = cs.isSSL() ? cs.getSSLMinimumInputBufferSize() : 1024;
+                    if (endpoint.isUseStreaming()) {
+                        processStreamRequest(exchange,
+                                new HttpStreamRequest(connectionPool, cs, host, port, messageToSend, minInputBufferSize),
+                                requestBuilder, binding);
+                    } else {
+                        processRequest(exchange,
+                                new HttpSingleRequest(connectionPool, cs, host, port, messageToSend, minInputBufferSize),
+                                requestBuilder, binding);
+                    }
+                }, (cs, e) -> {
+                    // Socket may not even be created, exchange is the context anyway
+                    LOG.error(e.getMessage(), e);
+                    if (endpoint.isUseStreaming()) {
+                        exchange.getMessage().setHeader(ChannelingConstant.CH_LAST_STREAM_CHUNKED, true);
+                    }
+                    exchange.setProperty(CHANNELING_REVERSE_PROXIED, Boolean.TRUE);
+                    doFailure(e, exchange, binding, requestBuilder);
+                    Exchange finalExchange = exchange;
+                    if (hasAfterProxied) {
+                        finalExchange = fluentProducerTemplate
+                                .to(callBackRoute)
+                                .withExchange(finalExchange)
+                                .send();
+                    }
+                    tryProxyResponse(finalExchange);
+                });
+    }
+
     private void processStreamRequest(Exchange exchange, HttpRequest streamRequest, HttpRequestBuilder requestBuilder,
                                       ChannelingBinding binding)  {
         exchange.setProperty(CHANNELING_REVERSE_PROXIED, Boolean.TRUE);
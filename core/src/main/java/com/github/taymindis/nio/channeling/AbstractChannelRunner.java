@@ -1,12 +1,96 @@
 package com.github.taymindis.nio.channeling;
 
 import java.net.SocketAddress;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 abstract class AbstractChannelRunner implements ChannelingSocket {
+    /**
+     * Timing wheel slot, only touched by the owning processor
+     */
+    ChannelingTimeoutFeature.Timeout timeout;
+    /**
+     * Worker load accounting, only touched by the owning processor
+     */
+    long pendingWriteBytes;
+    /**
+     * First buffer of the gathering write which still has remaining, only touched by the owning processor
+     */
+    int writeOffset;
+    /**
+     * Bytes written by SSL socket while its encrypted records are still waiting to be flushed, only touched by the owning processor
+     */
+    long unflushedWritten;
+    boolean released;
+    /**
+     * Then callback handed to callback executor and no io task registered since, only touched by the owning processor
+     */
+    boolean offloaded;
+    /**
+     * Created by the owning processor on first offloaded callback
+     */
+    volatile ChannelingCallbackSequencer callbackSequencer;
+    private volatile long readWriteTimeoutInMs = -1;
+    private volatile Executor callbackExecutor;
+
+    static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    /**
+     * Give pooled buffers back once socket closed, invoked by the owning processor after close callback returned
+     */
+    void releaseBuffers() {
+    }
+
+    /**
+     * Send next part of current transfer, invoked by the owning processor when socket is writable
+     *
+     * @return bytes transferred
+     */
+    long doTransfer() throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return true if the io task is triggered by the offloaded callback of this socket, it is queued once the callback returned
+     */
+    boolean holdTask() {
+        ChannelingCallbackSequencer sequencer = callbackSequencer;
+        return sequencer != null && sequencer.holdTask();
+    }
+
+    /**
+     * @return true while an offloaded callback of this socket is queued or running
+     */
+    boolean isCallbackRunning() {
+        ChannelingCallbackSequencer sequencer = callbackSequencer;
+        return offloaded && sequencer != null && sequencer.isBusy();
+    }
+
+    @Override
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    @Override
+    public void setReadWriteTimeout(long readWriteTimeoutInMs) {
+        this.readWriteTimeoutInMs = readWriteTimeoutInMs;
+    }
+
+    @Override
+    public long getReadWriteTimeout() {
+        return readWriteTimeoutInMs;
+    }
+
     @Override
     public Object getContext() {
         throw new UnsupportedOperationException();
@@ -107,6 +191,16 @@ abstract class AbstractChannelRunner implements ChannelingSocket {
 
     }
 
+    @Override
+    public ChannelingSocket withWrite(ByteBuffer... messageBuffers) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ChannelingSocket withTransfer(FileChannel fileChannel, long position, long count) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public ChannelingSocket withClose() {
         throw new UnsupportedOperationException();
@@ -185,6 +279,26 @@ abstract class AbstractChannelRunner implements ChannelingSocket {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then, ErrorCallback errorCallback) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then, ErrorCallback errorCallback) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void close(Then then) {
 
@@ -372,6 +486,21 @@ abstract class AbstractChannelRunner implements ChannelingSocket {
 
     }
 
+    @Override
+    public ByteBuffer[] getCurrWritingBuffers() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getTransferPosition() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getTransferRemaining() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public Then getThen() {
         throw new UnsupportedOperationException();
@@ -390,6 +519,16 @@ abstract class AbstractChannelRunner implements ChannelingSocket {
 
     }
 
+    @Override
+    public String getSSLServerName() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getApplicationProtocol() {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void setLastProcessedBytes(int rt) {
 
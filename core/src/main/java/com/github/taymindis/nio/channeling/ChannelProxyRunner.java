@@ -8,7 +8,12 @@ import java.util.Queue;
 public class ChannelProxyRunner extends ChannelRunner {
     private final ChannelingProxyHandler proxyHandler;
     public ChannelProxyRunner(ChannelingProxy proxy, SocketChannel socketChannel, Object attachment, int bufferSize, Queue<ChannelingSocket> channelQueue) {
-        super(socketChannel, attachment, bufferSize, channelQueue);
+        this(proxy, socketChannel, attachment, bufferSize, channelQueue, ChannelingBufferPool.heap());
+    }
+
+    ChannelProxyRunner(ChannelingProxy proxy, SocketChannel socketChannel, Object attachment, int bufferSize,
+                       Queue<ChannelingSocket> channelQueue, ChannelingBufferPool bufferPool) {
+        super(socketChannel, attachment, bufferSize, channelQueue, bufferPool);
         proxyHandler = new ChannelingProxyHandler(this, proxy);
     }
 
@@ -5,13 +5,24 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.util.Queue;
+import java.util.concurrent.Executor;
 
 public class ChannelProxySSLRunner extends ChannelSSLRunner  {
     private final ChannelingProxySSLHandler proxyHandler;
 
+    /**
+     * Standalone runner without a {@link Channeling}, delegated tasks of the handshake run inline
+     */
     public ChannelProxySSLRunner(ChannelingProxy proxy, SSLEngine sslEngine, int numOfSSLWoker, Object attachment, int buffSize, Queue<ChannelingSocket> channelQueue) throws IOException {
-        super(sslEngine, numOfSSLWoker, attachment, buffSize, channelQueue);
+        this(proxy, sslEngine, ChannelingSSLTaskExecutor.inline(), attachment, buffSize, channelQueue, ChannelingBufferPool.heap(),
+                SSLEngineBuffer.DEFAULT_RECORD_BATCH_SIZE);
+    }
+
+    ChannelProxySSLRunner(ChannelingProxy proxy, SSLEngine sslEngine, Executor sslTaskExecutor, Object attachment, int buffSize,
+                          Queue<ChannelingSocket> channelQueue, ChannelingBufferPool bufferPool, int recordBatchSize) throws IOException {
+        super(sslEngine, sslTaskExecutor, attachment, buffSize, channelQueue, SocketChannel.open(), bufferPool, recordBatchSize);
         proxyHandler = new ChannelingProxySSLHandler(this, proxy);
     }
 
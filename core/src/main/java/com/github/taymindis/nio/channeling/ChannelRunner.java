@@ -1,12 +1,13 @@
 package com.github.taymindis.nio.channeling;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Date;
 import java.util.Queue;
 import java.util.function.Predicate;
 
@@ -19,6 +20,12 @@ class ChannelRunner extends AbstractChannelRunner {
     private ChannelingTask predicateTask;
     private ChannelingTask ioTask;
     private ByteBuffer readBuffer, currWritingBuffer;
+    private ByteBuffer[] currWritingBuffers;
+    private FileChannel transferChannel;
+    private long transferPosition, transferRemaining;
+    private final ChannelingBufferPool bufferPool;
+    // Buffer acquired from pool and owned by this socket, readBuffer may be replaced by caller's buffer
+    private ByteBuffer ownReadBuffer;
     SocketAddress remoteAddress;
     Then then;
     ErrorCallback errorCallback = null;
@@ -40,9 +47,15 @@ class ChannelRunner extends AbstractChannelRunner {
      */
     ChannelRunner(SocketChannel sc, Object context, int bufferSize,
                   Queue<ChannelingSocket> channelRunners) {
+        this(sc, context, bufferSize, channelRunners, ChannelingBufferPool.heap());
+    }
+
+    ChannelRunner(SocketChannel sc, Object context, int bufferSize,
+                  Queue<ChannelingSocket> channelRunners, ChannelingBufferPool bufferPool) {
         this.sc = sc;
         this.context = context;
-        this.readBuffer = ByteBuffer.allocate(bufferSize);
+        this.bufferPool = bufferPool;
+        this.readBuffer = this.ownReadBuffer = bufferPool.acquire(bufferSize);
         this.forRunners = channelRunners;
         this.isEagerRead = false;
         this.removeEagerReadSignal = false;
@@ -179,7 +192,7 @@ class ChannelRunner extends AbstractChannelRunner {
         }
         // set to 0 position to reread everything
         if (length > readBuffer.capacity()) {
-            readBuffer = increaseCapacity(readBuffer, length);
+            readBuffer = growReadBuffer(length);
         }
         readBuffer.clear();
         if (length >= 0) {
@@ -240,10 +253,44 @@ class ChannelRunner extends AbstractChannelRunner {
         }
         // Change back to flip mode, later channeling need to READ from buffer and write to server side
         this.currWritingBuffer = byteBuffer;
+        this.currWritingBuffers = null;
+        this.setIoTask(ChannelingTask.DO_WRITE);
+        return this;
+    }
+
+    @Override
+    public ChannelingSocket withWrite(ByteBuffer... byteBuffers) {
+        if (byteBuffers.length == 0) {
+            throw new IllegalArgumentException("Nothing to write");
+        }
+        then = DEFAULT_CALLBACK;
+        if (errorCallback == null) {
+            errorCallback = DEFAULT_ERRORCALLBACK;
+        }
+        // Last buffer drained means all drained, keep existing predicate on current writing buffer working
+        this.currWritingBuffer = byteBuffers[byteBuffers.length - 1];
+        this.currWritingBuffers = byteBuffers;
+        this.writeOffset = 0;
         this.setIoTask(ChannelingTask.DO_WRITE);
         return this;
     }
 
+    @Override
+    public ChannelingSocket withTransfer(FileChannel fileChannel, long position, long count) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count can't be negative");
+        }
+        then = DEFAULT_CALLBACK;
+        if (errorCallback == null) {
+            errorCallback = DEFAULT_ERRORCALLBACK;
+        }
+        this.transferChannel = fileChannel;
+        this.transferPosition = position;
+        this.transferRemaining = count;
+        this.setIoTask(ChannelingTask.DO_TRANSFER);
+        return this;
+    }
+
     @Override
     public ChannelingSocket withClose() {
         then = DEFAULT_CALLBACK;
@@ -315,6 +362,16 @@ class ChannelRunner extends AbstractChannelRunner {
         withWrite(messageBuffer).when(when).then(then);
     }
 
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then) {
+        withWrite(messageBuffers).then(then);
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then) {
+        withTransfer(fileChannel, position, count).then(then);
+    }
+
     @Override
     public void close(Then then) {
         withClose().then(then);
@@ -385,6 +442,16 @@ class ChannelRunner extends AbstractChannelRunner {
         withWrite(messageBuffer).when(when).then(then, errorCallback);
     }
 
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then, ErrorCallback errorCallback) {
+        withWrite(messageBuffers).then(then, errorCallback);
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then, ErrorCallback errorCallback) {
+        withTransfer(fileChannel, position, count).then(then, errorCallback);
+    }
+
     @Override
     public void close(Then then, ErrorCallback errorCallback) {
         withClose().then(then, errorCallback);
@@ -454,8 +521,10 @@ class ChannelRunner extends AbstractChannelRunner {
     }
 
     private void triggerEvent() {
-        actionTime = new Date().getTime();
-        forRunners.offer(this);
+        actionTime = System.currentTimeMillis();
+        if (!holdTask()) {
+            forRunners.offer(this);
+        }
     }
 
     // Inherit super error call back
@@ -494,6 +563,21 @@ class ChannelRunner extends AbstractChannelRunner {
         return currWritingBuffer;
     }
 
+    @Override
+    public ByteBuffer[] getCurrWritingBuffers() {
+        return currWritingBuffers;
+    }
+
+    @Override
+    public long getTransferPosition() {
+        return transferPosition;
+    }
+
+    @Override
+    public long getTransferRemaining() {
+        return transferRemaining;
+    }
+
     @Override
     public Then getThen() {
         return then;
@@ -504,6 +588,41 @@ class ChannelRunner extends AbstractChannelRunner {
         return errorCallback;
     }
 
+    private ByteBuffer growReadBuffer(int length) {
+        if (readBuffer != ownReadBuffer) {
+            return increaseCapacity(readBuffer, length);
+        }
+        // Content is cleared right after, no need to copy
+        ByteBuffer grown = bufferPool.acquire(length);
+        bufferPool.release(ownReadBuffer);
+        return ownReadBuffer = grown;
+    }
+
+    @Override
+    long doTransfer() throws IOException {
+        if (transferRemaining == 0) {
+            return 0;
+        }
+        long transferred = transferChannel.transferTo(transferPosition, transferRemaining, sc);
+        if (transferred == 0 && transferPosition >= transferChannel.size()) {
+            throw new EOFException("File ended at " + transferPosition + " with " + transferRemaining + " bytes left to transfer");
+        }
+        transferPosition += transferred;
+        transferRemaining -= transferred;
+        return transferred;
+    }
+
+    @Override
+    void releaseBuffers() {
+        if (ownReadBuffer != null) {
+            if (readBuffer == ownReadBuffer) {
+                readBuffer = EMPTY_BUFFER;
+            }
+            bufferPool.release(ownReadBuffer);
+            ownReadBuffer = null;
+        }
+    }
+
     protected static ByteBuffer doubleTheBuffer(ByteBuffer buffer) {
         return increaseCapacity(buffer, buffer.capacity() * 2);
     }
@@ -574,4 +693,14 @@ class ChannelRunner extends AbstractChannelRunner {
     public int getSSLMinimumInputBufferSize() {
         throw new IllegalStateException("SSL is not support for this socket");
     }
+
+    @Override
+    public String getSSLServerName() {
+        return null;
+    }
+
+    @Override
+    public String getApplicationProtocol() {
+        return null;
+    }
 }
@@ -1,17 +1,18 @@
 package com.github.taymindis.nio.channeling;
 
 import javax.net.ssl.SSLEngine;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Date;
 import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 class ChannelSSLRunner extends AbstractChannelRunner {
@@ -24,12 +25,22 @@ class ChannelSSLRunner extends AbstractChannelRunner {
     private ChannelingTask predicateTask;
     private ChannelingTask ioTask;
     private ByteBuffer readBuffer, currWritingBuffer;
+    private ByteBuffer[] currWritingBuffers;
+    private FileChannel transferChannel;
+    private long transferPosition, transferRemaining;
+    // Staging buffer of file transfer, bytes read from file but not written yet stay in it
+    private ByteBuffer transferBuffer;
+    private final ChannelingBufferPool bufferPool;
+    // Buffer acquired from pool and owned by this socket, readBuffer may be replaced by caller's buffer
+    private ByteBuffer ownReadBuffer;
     SocketAddress remoteAddress;
      Then then;
     ErrorCallback errorCallback = null;
     private long actionTime;
     private int lastProcessedBytes;
 
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     static final Then DEFAULT_CALLBACK = sc -> {
         /** Do nothing **/
     };
@@ -37,28 +48,42 @@ class ChannelSSLRunner extends AbstractChannelRunner {
     static final ErrorCallback DEFAULT_ERRORCALLBACK = (sc, e) -> e.printStackTrace();
     private boolean isEagerRead, removeEagerReadSignal;
 
-    private static ThreadPoolExecutor sslThreadPool = null;
-
     /**
      * @param sslEngine sslEngine
      * @param context
      * @descr QSocketchannel is designed to for non block and async queue, client take turn to check result
      * if you want to configuring blocking way, AsynchronousSocketChannel is what you are looking for
      */
-    ChannelSSLRunner(SSLEngine sslEngine, int sslWorker, Object context, int bufferSize,
+    ChannelSSLRunner(SSLEngine sslEngine, Executor sslTaskExecutor, Object context, int bufferSize,
                      Queue<ChannelingSocket> channelRunners) throws IOException {
-        this(sslEngine, sslWorker, context, bufferSize, channelRunners, SocketChannel.open());
+        this(sslEngine, sslTaskExecutor, context, bufferSize, channelRunners, SocketChannel.open());
     }
 
-    ChannelSSLRunner(SSLEngine sslEngine, int sslWorker, Object context, int bufferSize,
+    ChannelSSLRunner(SSLEngine sslEngine, Executor sslTaskExecutor, Object context, int bufferSize,
                      Queue<ChannelingSocket> channelRunners, SocketChannel socketChannel) throws IOException {
-        if (sslThreadPool == null) {
-            sslThreadPool = new ThreadPoolExecutor(sslWorker, sslWorker, 25, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
-        }
-        this.sslsc = new SSLSocketChannel(socketChannel, sslEngine, sslThreadPool);
+        this(sslEngine, sslTaskExecutor, context, bufferSize, channelRunners, socketChannel, ChannelingBufferPool.heap());
+    }
+
+    ChannelSSLRunner(SSLEngine sslEngine, Executor sslTaskExecutor, Object context, int bufferSize,
+                     Queue<ChannelingSocket> channelRunners, SocketChannel socketChannel,
+                     ChannelingBufferPool bufferPool) throws IOException {
+        this(sslEngine, sslTaskExecutor, context, bufferSize, channelRunners, socketChannel, bufferPool,
+                SSLEngineBuffer.DEFAULT_RECORD_BATCH_SIZE);
+    }
+
+    /**
+     * @param sslTaskExecutor run the delegated tasks of the handshake, owned by the wrapping {@link Channeling}
+     * @param recordBatchSize bytes of records wrapped before one socket write and read per socket read
+     */
+    ChannelSSLRunner(SSLEngine sslEngine, Executor sslTaskExecutor, Object context, int bufferSize,
+                     Queue<ChannelingSocket> channelRunners, SocketChannel socketChannel,
+                     ChannelingBufferPool bufferPool, int recordBatchSize) throws IOException {
+        this.sslsc = new SSLSocketChannel(socketChannel, sslEngine, sslTaskExecutor, bufferPool, recordBatchSize);
         this.sc = sslsc.getWrappedSocketChannel();
         this.context = context;
-        this.readBuffer = ByteBuffer.allocate(bufferSize);
+        this.bufferPool = bufferPool;
+        // SSL unwrap require at least session application buffer size, size it once instead of growing on first read
+        this.readBuffer = this.ownReadBuffer = bufferPool.acquire(Math.max(bufferSize, sslsc.getMinApplicationBufferSize()));
         this.forRunners = channelRunners;
         this.isEagerRead = false;
         this.removeEagerReadSignal = false;
@@ -79,6 +104,13 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         return context;
     }
 
+    /**
+     * Count the handshake of this socket to the session cache of its SSLContext
+     */
+    void setSSLSessionCache(ChannelingSSLSessionCache sessionCache) {
+        sslsc.setSessionCache(sessionCache);
+    }
+
     @Override
     public void setContext(Object context) {
         this.context = context;
@@ -169,7 +201,7 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         }
         // set to 0 position to reread everything
         if (length > readBuffer.capacity()) {
-            readBuffer = increaseCapacity(readBuffer, length);
+            readBuffer = growReadBuffer(length);
         }
         readBuffer.clear();
         if (length >= 0) {
@@ -230,10 +262,47 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         }
         // Change back to flip mode, later channeling need to READ from buffer and write to server side
         this.currWritingBuffer = byteBuffer;
+        this.currWritingBuffers = null;
         this.setIoTask(ChannelingTask.DO_WRITE);
         return this;
     }
 
+    @Override
+    public ChannelingSocket withWrite(ByteBuffer... byteBuffers) {
+        if (byteBuffers.length == 0) {
+            throw new IllegalArgumentException("Nothing to write");
+        }
+        then = DEFAULT_CALLBACK;
+        if (errorCallback == null) {
+            errorCallback = DEFAULT_ERRORCALLBACK;
+        }
+        // Last buffer drained means all drained, keep existing predicate on current writing buffer working
+        this.currWritingBuffer = byteBuffers[byteBuffers.length - 1];
+        this.currWritingBuffers = byteBuffers;
+        this.writeOffset = 0;
+        this.setIoTask(ChannelingTask.DO_WRITE);
+        return this;
+    }
+
+    @Override
+    public ChannelingSocket withTransfer(FileChannel fileChannel, long position, long count) {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException("position and count can't be negative");
+        }
+        then = DEFAULT_CALLBACK;
+        if (errorCallback == null) {
+            errorCallback = DEFAULT_ERRORCALLBACK;
+        }
+        this.transferChannel = fileChannel;
+        this.transferPosition = position;
+        this.transferRemaining = count;
+        if (transferBuffer != null) {
+            transferBuffer.clear().flip();
+        }
+        this.setIoTask(ChannelingTask.DO_TRANSFER);
+        return this;
+    }
+
     @Override
     public ChannelingSocket withClose() {
         then = DEFAULT_CALLBACK;
@@ -305,6 +374,16 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         withWrite(messageBuffer).when(when).then(then);
     }
 
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then) {
+        withWrite(messageBuffers).then(then);
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then) {
+        withTransfer(fileChannel, position, count).then(then);
+    }
+
     @Override
     public void close(Then then) {
         withClose().then(then);
@@ -375,6 +454,16 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         withWrite(messageBuffer).when(when).then(then, errorCallback);
     }
 
+    @Override
+    public void write(ByteBuffer[] messageBuffers, Then then, ErrorCallback errorCallback) {
+        withWrite(messageBuffers).then(then, errorCallback);
+    }
+
+    @Override
+    public void transfer(FileChannel fileChannel, long position, long count, Then then, ErrorCallback errorCallback) {
+        withTransfer(fileChannel, position, count).then(then, errorCallback);
+    }
+
     @Override
     public void close(Then then, ErrorCallback errorCallback) {
         withClose().then(then, errorCallback);
@@ -444,8 +533,10 @@ class ChannelSSLRunner extends AbstractChannelRunner {
     }
 
     private void triggerEvent() {
-        actionTime = new Date().getTime();
-        forRunners.offer(this);
+        actionTime = System.currentTimeMillis();
+        if (!holdTask()) {
+            forRunners.offer(this);
+        }
     }
 
     // Inherit super error call back
@@ -484,6 +575,21 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         return currWritingBuffer;
     }
 
+    @Override
+    public ByteBuffer[] getCurrWritingBuffers() {
+        return currWritingBuffers;
+    }
+
+    @Override
+    public long getTransferPosition() {
+        return transferPosition;
+    }
+
+    @Override
+    public long getTransferRemaining() {
+        return transferRemaining;
+    }
+
     @Override
     public Then getThen() {
         return then;
@@ -499,6 +605,87 @@ class ChannelSSLRunner extends AbstractChannelRunner {
         return sslsc.getMinApplicationBufferSize();
     }
 
+    @Override
+    public String getSSLServerName() {
+        return sslsc.getServerName();
+    }
+
+    @Override
+    public String getApplicationProtocol() {
+        String protocol = sslsc.getSSLEngine().getApplicationProtocol();
+        // Empty when ALPN was not negotiated
+        return protocol == null || protocol.isEmpty() ? null : protocol;
+    }
+
+    /**
+     * Server side, select the engine by the server name of ClientHello, see {@link SSLEngineBuffer#setEngineSelector}
+     */
+    void setSSLEngineSelector(Function<String, SSLEngine> engineSelector) {
+        sslsc.setEngineSelector(engineSelector);
+    }
+
+    private ByteBuffer growReadBuffer(int length) {
+        if (readBuffer != ownReadBuffer) {
+            return increaseCapacity(readBuffer, length);
+        }
+        // Content is cleared right after, no need to copy
+        ByteBuffer grown = bufferPool.acquire(length);
+        bufferPool.release(ownReadBuffer);
+        return ownReadBuffer = grown;
+    }
+
+    /**
+     * SSL need the plain bytes to encrypt, file is read in chunks into a pooled direct buffer instead
+     */
+    @Override
+    long doTransfer() throws IOException {
+        if (transferRemaining == 0) {
+            return 0;
+        }
+        if (transferBuffer == null) {
+            transferBuffer = bufferPool.acquire(TRANSFER_BUFFER_SIZE);
+            transferBuffer.flip();
+        }
+        if (!transferBuffer.hasRemaining()) {
+            transferBuffer.clear();
+            if (transferBuffer.remaining() > transferRemaining) {
+                transferBuffer.limit((int) transferRemaining);
+            }
+            int read = transferChannel.read(transferBuffer, transferPosition);
+            transferBuffer.flip();
+            if (read < 0) {
+                throw new EOFException("File ended at " + transferPosition + " with " + transferRemaining + " bytes left to transfer");
+            }
+        }
+        int written = sslsc.write(transferBuffer);
+        if (written < 0) {
+            throw new ClosedChannelException();
+        }
+        transferPosition += written;
+        transferRemaining -= written;
+        if (transferRemaining == 0) {
+            bufferPool.release(transferBuffer);
+            transferBuffer = null;
+        }
+        return written;
+    }
+
+    @Override
+    void releaseBuffers() {
+        if (ownReadBuffer != null) {
+            if (readBuffer == ownReadBuffer) {
+                readBuffer = EMPTY_BUFFER;
+            }
+            bufferPool.release(ownReadBuffer);
+            ownReadBuffer = null;
+        }
+        if (transferBuffer != null) {
+            bufferPool.release(transferBuffer);
+            transferBuffer = null;
+        }
+        sslsc.releaseBuffers();
+    }
+
     protected static ByteBuffer doubleTheBuffer(ByteBuffer buffer) {
         return increaseCapacity(buffer, buffer.capacity() * 2);
     }
@@ -564,10 +751,4 @@ class ChannelSSLRunner extends AbstractChannelRunner {
 
         return bytesCanRead;
     }
-
-    protected static void shutdownSSLService() {
-        if(sslThreadPool != null) {
-            sslThreadPool.shutdownNow();
-        }
-    }
 }
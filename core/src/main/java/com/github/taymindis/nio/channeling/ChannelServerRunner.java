@@ -5,11 +5,11 @@ import javax.net.ssl.SSLEngine;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.function.Predicate;
@@ -18,7 +18,6 @@ class ChannelServerRunner extends AbstractChannelRunner {
 
     private final ServerSocketChannel ssc;
     private final SSLContext sslContext;
-    private final int sslWorker;
     private final int buffSize;
     private Object context;
     private final Queue<ChannelingSocket> forRunners;
@@ -43,20 +42,44 @@ class ChannelServerRunner extends AbstractChannelRunner {
      * @param context        context attachment
      * @param channelRunners runner processor
      */
-    ChannelServerRunner(SSLContext sslContext, int sslWorker, Object context,
+    ChannelServerRunner(SSLContext sslContext, Object context,
                         int buffSize, String hostAddress, int port,
                         Queue<ChannelingSocket> channelRunners) throws IOException {
-        this.ssc = ServerSocketChannel.open();
+        this(sslContext, context, buffSize, openServerSocket(new InetSocketAddress(hostAddress, port), false), channelRunners);
+    }
+
+    /**
+     * @param sslContext     sslContext
+     * @param ssc            bound server socket, may be shared with the other workers
+     * @param context        context attachment
+     * @param channelRunners runner processor
+     */
+    ChannelServerRunner(SSLContext sslContext, Object context,
+                        int buffSize, ServerSocketChannel ssc,
+                        Queue<ChannelingSocket> channelRunners) {
+        this.ssc = ssc;
         this.context = context;
         this.forRunners = channelRunners;
-        this.ssc.socket().bind(new InetSocketAddress(hostAddress, port));
-        this.ssc.configureBlocking(false);
         this.sslContext=sslContext;
         this.isSSL = sslContext != null;
-        this.sslWorker = sslWorker;
         this.buffSize = buffSize;
     }
 
+    static ServerSocketChannel openServerSocket(SocketAddress local, boolean reusePort) throws IOException {
+        ServerSocketChannel ssc = ServerSocketChannel.open();
+        try {
+            if (reusePort) {
+                ssc.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            ssc.socket().bind(local);
+            ssc.configureBlocking(false);
+        } catch (IOException e) {
+            ssc.close();
+            throw e;
+        }
+        return ssc;
+    }
+
     // TODO create start interface
     @Override
     public ChannelingSocket withAccept() {
@@ -102,7 +125,7 @@ class ChannelServerRunner extends AbstractChannelRunner {
     }
 
     private void triggerEvent() {
-        actionTime = new Date().getTime();
+        actionTime = System.currentTimeMillis();
         forRunners.offer(this);
     }
 
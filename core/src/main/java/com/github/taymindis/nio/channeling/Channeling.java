@@ -1,31 +1,46 @@
 package com.github.taymindis.nio.channeling;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.ssl.*;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.security.KeyStore;
 import java.security.SecureRandom;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class Channeling {
     private static final int DEFAULT_PEEK_TIME = -1;
-    private final Queue<ChannelingSocket>[] channelQueues;
+    private final ChannelingQueue[] channelQueues;
+    private final ChannelingProcessor[] processors;
+    private volatile ChannelingWorkerSelector workerSelector = ChannelingWorkerSelector.roundRobin();
+    private volatile ChannelingBufferPool bufferPool = new ChannelingBufferPool();
     private final Map<String, Integer> sslEnginesOrigin;
+    // SSLContext does not override equals, keyed by identity. Only enabled contexts, kept until disabled
+    private final Map<SSLContext, ChannelingSSLSessionCache> sslSessionCaches = new ConcurrentHashMap<>();
+    private final Map<String, SSLContext> defaultSSLContexts = new HashMap<>();
     private final ExecutorService eventRunner;
-    final long connectionTimeoutInMs, readWriteTimeOutInMs;
+    final long connectionTimeoutInMs, readWriteTimeOutInMs, idleTimeoutInMs, timeoutTickInMs;
     final private List<ChannelingPlugin> channelingPlugins;
     boolean noEagerSocket = false;
 
     boolean active = true;
     private final int nWorker;
-    private int numOfSSLWoker = -1;
+    private volatile ChannelingSSLTaskExecutor sslTaskExecutor = null;
+    private volatile ChannelingCallbackExecutor callbackExecutor = null;
+    private final List<ObjectName> metricsMBeans = new ArrayList<>();
+    volatile ChannelingStallDetector stallDetector = null;
+    private volatile int sslRecordBatchSize = SSLEngineBuffer.DEFAULT_RECORD_BATCH_SIZE;
     public static final String CHANNELING_VERSION = "Channeling/2.3.2";
     public static Channeling startNewChanneling() throws IOException {
         return startNewChanneling(1, DEFAULT_PEEK_TIME);
@@ -58,7 +73,47 @@ public class Channeling {
 
     public static Channeling startNewChanneling(int workers, int peekPerNano, long connectionTimeoutInMs,
                                                 long readWriteTimeOutInMs, List<ChannelingPlugin> channelingPlugins) throws IOException {
-        return new Channeling(workers, peekPerNano, connectionTimeoutInMs, readWriteTimeOutInMs, channelingPlugins);
+        return startNewChanneling(workers,
+                peekPerNano > 0 ? ChannelingWaitStrategy.sleeping(peekPerNano) : ChannelingWaitStrategy.busySpin(),
+                connectionTimeoutInMs, readWriteTimeOutInMs, channelingPlugins);
+    }
+
+    public static Channeling startNewChanneling(int workers, ChannelingWaitStrategy waitStrategy,
+                                                long connectionTimeoutInMs, long readWriteTimeOutInMs) throws IOException {
+        return startNewChanneling(workers, waitStrategy, connectionTimeoutInMs, readWriteTimeOutInMs, null);
+    }
+
+    /**
+     * @param workers               number of worker should have run in background
+     * @param waitStrategy          how worker wait when it is idle, see {@link ChannelingWaitStrategy}
+     * @param connectionTimeoutInMs time in milisecond to get timeoutException
+     * @param readWriteTimeOutInMs  time in milisecond to get timeoutException
+     * @param channelingPlugins     extra plugins, nullable
+     * @return Channeling
+     * @throws IOException Throws IO Exception
+     */
+    public static Channeling startNewChanneling(int workers, ChannelingWaitStrategy waitStrategy, long connectionTimeoutInMs,
+                                                long readWriteTimeOutInMs, List<ChannelingPlugin> channelingPlugins) throws IOException {
+        return startNewChanneling(workers, waitStrategy, connectionTimeoutInMs, readWriteTimeOutInMs,
+                readWriteTimeOutInMs, ChannelingTimeoutFeature.DEFAULT_TICK_IN_MS, channelingPlugins);
+    }
+
+    /**
+     * @param workers               number of worker should have run in background
+     * @param waitStrategy          how worker wait when it is idle, see {@link ChannelingWaitStrategy}
+     * @param connectionTimeoutInMs time in milisecond to get timeoutException
+     * @param readWriteTimeOutInMs  time in milisecond to get timeoutException
+     * @param idleTimeoutInMs       time in milisecond a connected socket may stay without io task, 0 to disable
+     * @param timeoutTickInMs       precision of timeouts, timeout fire within one tick after deadline
+     * @param channelingPlugins     extra plugins, nullable
+     * @return Channeling
+     * @throws IOException Throws IO Exception
+     */
+    public static Channeling startNewChanneling(int workers, ChannelingWaitStrategy waitStrategy, long connectionTimeoutInMs,
+                                                long readWriteTimeOutInMs, long idleTimeoutInMs, long timeoutTickInMs,
+                                                List<ChannelingPlugin> channelingPlugins) throws IOException {
+        return new Channeling(workers, waitStrategy, connectionTimeoutInMs, readWriteTimeOutInMs,
+                idleTimeoutInMs, timeoutTickInMs, channelingPlugins);
     }
 
     public static void KeepAlive(ChannelingSocket cs, boolean trueOrFalse) throws IOException {
@@ -72,24 +127,98 @@ public class Channeling {
     }
 
     /**
-     * @param numOfWorker for sslengine delegating task worker
+     * Keep the executor if ssl is already enabled
+     *
+     * @param numOfWorker for sslengine delegating task worker, 0 to run the tasks inline on the worker
      */
-    public void enableSSL(int numOfWorker) {
-        this.numOfSSLWoker = numOfWorker;
+    public synchronized void enableSSL(int numOfWorker) {
+        if (this.sslTaskExecutor == null) {
+            this.sslTaskExecutor = numOfWorker > 0 ? ChannelingSSLTaskExecutor.pool(numOfWorker) : ChannelingSSLTaskExecutor.inline();
+        }
+    }
+
+    /**
+     * @param sslTaskExecutor run sslengine delegated tasks of this instance, shut down with it.
+     *                        A previous executor is shut down once its queued tasks are done
+     */
+    public synchronized void enableSSL(ChannelingSSLTaskExecutor sslTaskExecutor) {
+        ChannelingSSLTaskExecutor previous = this.sslTaskExecutor;
+        this.sslTaskExecutor = Objects.requireNonNull(sslTaskExecutor, "sslTaskExecutor");
+        if (previous != null && previous != sslTaskExecutor) {
+            previous.shutdown();
+        }
     }
 
     public boolean hasSSL() {
-        return this.numOfSSLWoker > 0;
+        return this.sslTaskExecutor != null;
+    }
+
+    public ChannelingSSLTaskExecutor getSSLTaskExecutor() {
+        return sslTaskExecutor;
+    }
+
+    /**
+     * Then callbacks of every socket run on the executor instead of the worker, so blocking work in a callback does
+     * not hold the other sockets of the worker. Workers pick it up on their next loop turn.
+     *
+     * @param callbackExecutor run then callbacks of this instance, shut down with it.
+     *                         A previous executor is shut down once its queued callbacks are done
+     * @see ChannelingSocket#setCallbackExecutor(java.util.concurrent.Executor)
+     */
+    public synchronized void enableCallbackOffload(ChannelingCallbackExecutor callbackExecutor) {
+        ChannelingCallbackExecutor previous = this.callbackExecutor;
+        this.callbackExecutor = Objects.requireNonNull(callbackExecutor, "callbackExecutor");
+        if (previous != null && previous != callbackExecutor) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Run then callbacks on the workers again, the executor is shut down once its queued callbacks are done
+     */
+    public synchronized void disableCallbackOffload() {
+        ChannelingCallbackExecutor previous = this.callbackExecutor;
+        this.callbackExecutor = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * @return callback executor, null if callbacks run on the workers
+     */
+    public ChannelingCallbackExecutor getCallbackExecutor() {
+        return callbackExecutor;
     }
 
-    private Channeling(int workers, int peekPerNano, long connectionTimeoutInMs, long readWriteTimeOutInMs, List<ChannelingPlugin> channelingPlugins) throws IOException {
+    /**
+     * SSL records are wrapped into a network buffer of this size before one socket write, and as many are read per
+     * socket read, memory per SSL socket is twice the size. Only affect sockets wrapped afterward.
+     *
+     * @param sslRecordBatchSize bytes, 0 for one record per syscall
+     */
+    public void setSSLRecordBatchSize(int sslRecordBatchSize) {
+        if (sslRecordBatchSize < 0) {
+            throw new IllegalArgumentException("sslRecordBatchSize must not be negative");
+        }
+        this.sslRecordBatchSize = sslRecordBatchSize;
+    }
+
+    public int getSSLRecordBatchSize() {
+        return sslRecordBatchSize;
+    }
+
+    private Channeling(int workers, ChannelingWaitStrategy waitStrategy, long connectionTimeoutInMs, long readWriteTimeOutInMs,
+                       long idleTimeoutInMs, long timeoutTickInMs, List<ChannelingPlugin> channelingPlugins) throws IOException {
         this.connectionTimeoutInMs = connectionTimeoutInMs;
         this.readWriteTimeOutInMs = readWriteTimeOutInMs;
-        this.channelQueues = new ConcurrentLinkedQueue[workers];
+        this.idleTimeoutInMs = idleTimeoutInMs;
+        this.timeoutTickInMs = timeoutTickInMs;
+        this.channelQueues = new ChannelingQueue[workers];
+        this.processors = new ChannelingProcessor[workers];
         this.sslEnginesOrigin = new HashMap<>();
 
         this.channelingPlugins = new ArrayList<>();
-        this.channelingPlugins.add(new ChannelingTimeoutFeature(connectionTimeoutInMs, readWriteTimeOutInMs));
 
         if (channelingPlugins != null) {
             this.channelingPlugins.addAll(channelingPlugins);
@@ -102,8 +231,10 @@ public class Channeling {
         }
 
         for (int i = 0; i < workers; i++) {
-            channelQueues[i] = new ConcurrentLinkedQueue<>();
-            eventRunner.execute(new ChannelingProcessor(channelQueues[i], this, peekPerNano));
+            ChannelingProcessor processor = new ChannelingProcessor(this, waitStrategy, i);
+            processors[i] = processor;
+            channelQueues[i] = processor.getQueue();
+            eventRunner.execute(processor);
         }
     }
 
@@ -111,13 +242,228 @@ public class Channeling {
         return channelingPlugins;
     }
 
+    /**
+     * @param workerSelector decide which worker a new wrapped socket is assigned to, default is round robin
+     */
+    public void setWorkerSelector(ChannelingWorkerSelector workerSelector) {
+        if (workerSelector == null) {
+            throw new IllegalArgumentException("workerSelector is required");
+        }
+        this.workerSelector = workerSelector;
+    }
+
+    public ChannelingWorkerSelector getWorkerSelector() {
+        return workerSelector;
+    }
+
+    /**
+     * @param bufferPool pool of socket buffers, only affect sockets wrapped afterward.
+     *                   {@link ChannelingBufferPool#heap()} to allocate plain heap buffers without pooling
+     */
+    public void setBufferPool(ChannelingBufferPool bufferPool) {
+        if (bufferPool == null) {
+            throw new IllegalArgumentException("bufferPool is required");
+        }
+        this.bufferPool = bufferPool;
+    }
+
+    public ChannelingBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Bound the client session cache of sslContext, sockets wrapped with it afterward count their handshakes to the
+     * returned cache
+     *
+     * @param sslContext         client context
+     * @param maxSessions        max sessions kept, 0 for unlimited
+     * @param sessionTimeoutInMs time in milisecond a session can be resumed, 0 for unlimited
+     * @return session cache of sslContext, the context is kept by this channeling until
+     * {@link #disableSSLSessionCache(SSLContext)} or shutdown
+     */
+    public ChannelingSSLSessionCache enableSSLSessionCache(SSLContext sslContext, int maxSessions, long sessionTimeoutInMs) {
+        ChannelingSSLSessionCache sessionCache = new ChannelingSSLSessionCache(sslContext, maxSessions, sessionTimeoutInMs);
+        sslSessionCaches.put(sslContext, sessionCache);
+        return sessionCache;
+    }
+
+    /**
+     * Release the context enabled by {@link #enableSSLSessionCache(SSLContext, int, long)}, sockets wrapped afterward
+     * are not counted to the returned cache anymore. The context keep the bounds it was given.
+     *
+     * @param sslContext client context
+     * @return session cache of sslContext, null if not enabled
+     */
+    public ChannelingSSLSessionCache disableSSLSessionCache(SSLContext sslContext) {
+        return sslSessionCaches.remove(sslContext);
+    }
+
+    /**
+     * @return session cache enabled for sslContext, if not enabled a new one with the bounds of the context as is,
+     * not kept by this channeling so a context per endpoint or per request is not held after its sockets are gone
+     */
+    public ChannelingSSLSessionCache getSSLSessionCache(SSLContext sslContext) {
+        ChannelingSSLSessionCache sessionCache = sslSessionCaches.get(sslContext);
+        return sessionCache != null ? sessionCache : new ChannelingSSLSessionCache(sslContext);
+    }
+
+    /**
+     * @return load view of every worker
+     */
+    public ChannelingWorker[] getWorkers() {
+        return Arrays.copyOf(channelQueues, nWorker, ChannelingWorker[].class);
+    }
+
+    /**
+     * Start counting on every worker, processors pick it up on their next loop turn. Disabled by default so the loop
+     * pay nothing but a null check.
+     *
+     * @return metrics of every worker, same instances if already enabled
+     */
+    public synchronized ChannelingWorkerMetrics[] enableMetrics() {
+        for (ChannelingQueue channelQueue : channelQueues) {
+            if (channelQueue.getMetrics() == null) {
+                channelQueue.setMetrics(new ChannelingWorkerMetrics(channelQueue));
+            }
+        }
+        return getMetrics();
+    }
+
+    /**
+     * Stop counting, metrics got before keep their last values
+     */
+    public synchronized void disableMetrics() {
+        unregisterMetricsMBeans();
+        for (ChannelingQueue channelQueue : channelQueues) {
+            channelQueue.setMetrics(null);
+        }
+    }
+
+    /**
+     * @return metrics of every worker, null if not enabled
+     */
+    public ChannelingWorkerMetrics[] getMetrics() {
+        ChannelingWorkerMetrics[] metrics = new ChannelingWorkerMetrics[nWorker];
+        for (int i = 0; i < nWorker; i++) {
+            metrics[i] = channelQueues[i].getMetrics();
+            if (metrics[i] == null) {
+                return null;
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Enable metrics and register every worker to platform MBeanServer as
+     * com.github.taymindis.nio.channeling:type=ChannelingWorker,name=[name],worker=[index], unregistered on shutdown
+     *
+     * @param name distinct name of this channeling
+     */
+    public synchronized void registerMetricsMBeans(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        ChannelingWorkerMetrics[] metrics = enableMetrics();
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ChannelingWorkerMetrics workerMetrics : metrics) {
+                ObjectName objectName = new ObjectName("com.github.taymindis.nio.channeling:type=ChannelingWorker,name="
+                        + ObjectName.quote(name) + ",worker=" + workerMetrics.getWorkerIndex());
+                mBeanServer.registerMBean(workerMetrics, objectName);
+                metricsMBeans.add(objectName);
+            }
+        } catch (JMException e) {
+            unregisterMetricsMBeans();
+            throw new IllegalStateException("Unable to register metrics MBeans of " + name, e);
+        }
+    }
+
+    private synchronized void unregisterMetricsMBeans() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : metricsMBeans) {
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+        metricsMBeans.clear();
+    }
+
+    /**
+     * Log a warning with the worker stack when a then callback run longer than thresholdInMs
+     *
+     * @see #enableStallDetector(long, ChannelingStallListener)
+     */
+    public void enableStallDetector(long thresholdInMs) {
+        enableStallDetector(thresholdInMs, ChannelingStallDetector.LOG_LISTENER);
+    }
+
+    /**
+     * Then callbacks run on the worker thread, a slow one hold every socket of the worker. A watchdog thread sample the
+     * running callback of every worker and report it once when it exceed the threshold. Metrics are enabled as well to
+     * keep the callback time histogram of every worker.
+     *
+     * @param thresholdInMs time in milisecond a callback may run before reported
+     * @param listener      receive the stalls on watchdog thread
+     */
+    public synchronized void enableStallDetector(long thresholdInMs, ChannelingStallListener listener) {
+        if (thresholdInMs <= 0) {
+            throw new IllegalArgumentException("Stall threshold must be positive");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener is required");
+        }
+        enableMetrics();
+        disableStallDetector();
+        stallDetector = new ChannelingStallDetector(processors, thresholdInMs, listener);
+    }
+
+    public synchronized void disableStallDetector() {
+        if (stallDetector != null) {
+            stallDetector.shutdown();
+            stallDetector = null;
+        }
+    }
+
+    int getWorkerCount() {
+        return nWorker;
+    }
+
+    private ChannelingQueue assignWorker(SocketChannel socketChannel) {
+        return assignWorker(socketChannel, -1);
+    }
+
+    /**
+     * @param worker pinned worker index, negative to let worker selector decide
+     */
+    private ChannelingQueue assignWorker(SocketChannel socketChannel, int worker) {
+        ChannelingQueue queue = worker < 0 ? selectWorker(socketChannel) : channelQueues[worker];
+        queue.assigned();
+        return queue;
+    }
+
+    private ChannelingQueue selectWorker(SocketChannel socketChannel) {
+        if (nWorker == 1) {
+            return channelQueues[0];
+        }
+        int tix = workerSelector.select(channelQueues, socketChannel);
+        if (tix < 0 || tix >= nWorker) {
+            throw new IllegalStateException("Worker selector returned out of range worker " + tix);
+        }
+        return channelQueues[tix];
+    }
+
     public ChannelingSocket wrap(SocketChannel socketChannel, Object attachment) {
         return wrap(socketChannel, attachment, 1024);
     }
 
     public ChannelingSocket wrap(SocketChannel socketChannel, Object attachment, int bufferSize) {
-        int tix = (int) (Thread.currentThread().getId() % this.nWorker);
-        return new ChannelRunner(socketChannel, attachment, bufferSize, channelQueues[tix]);
+        return wrap(socketChannel, attachment, bufferSize, -1);
+    }
+
+    ChannelingSocket wrap(SocketChannel socketChannel, Object attachment, int bufferSize, int worker) {
+        return new ChannelRunner(socketChannel, attachment, bufferSize, assignWorker(socketChannel, worker), bufferPool);
     }
 
 
@@ -137,7 +483,7 @@ public class Channeling {
                                     String remoteHandshakeAddress,
                                     int remoteHandshakePort,
                                     Object attachment) throws Exception {
-        SSLContext sslContext = getDefaultSSLContext(protocols); //SSLContext.getInstance("TLSv1.2");
+        SSLContext sslContext = defaultSSLContext(protocols);
         return wrapSSL(sslContext,
                 remoteHandshakeAddress,
                 remoteHandshakePort, attachment);
@@ -147,9 +493,29 @@ public class Channeling {
                                     String remoteHandshakeAddress,
                                     int remoteHandshakePort, Object attachment) throws Exception {
 
-        SSLEngine engine = sslContext.createSSLEngine(remoteHandshakeAddress, remoteHandshakePort);
-        engine.setUseClientMode(true);
-        return wrapSSL(engine, attachment, /*1024 not in use in ssl, ssl using session buffer*/ 1024);
+        ChannelingSSLSessionCache sessionCache = getSSLSessionCache(sslContext);
+        ChannelSSLRunner runner = (ChannelSSLRunner) wrapSSL(sessionCache.createSSLEngine(remoteHandshakeAddress, remoteHandshakePort),
+                attachment, /*1024 not in use in ssl, ssl using session buffer*/ 1024);
+        runner.setSSLSessionCache(sessionCache);
+        return runner;
+    }
+
+    /**
+     * @param applicationProtocols ALPN protocols offered by preference, e.g. "h2", "http/1.1", negotiated one is given by
+     *                             {@link ChannelingSocket#getApplicationProtocol()} once handshake done
+     */
+    public ChannelingSocket wrapSSL(SSLContext sslContext,
+                                    String remoteHandshakeAddress,
+                                    int remoteHandshakePort, Object attachment,
+                                    String... applicationProtocols) throws Exception {
+        ChannelingSSLSessionCache sessionCache = getSSLSessionCache(sslContext);
+        SSLEngine sslEngine = sessionCache.createSSLEngine(remoteHandshakeAddress, remoteHandshakePort);
+        SSLParameters sslParameters = sslEngine.getSSLParameters();
+        sslParameters.setApplicationProtocols(applicationProtocols);
+        sslEngine.setSSLParameters(sslParameters);
+        ChannelSSLRunner runner = (ChannelSSLRunner) wrapSSL(sslEngine, attachment, 1024);
+        runner.setSSLSessionCache(sessionCache);
+        return runner;
     }
 
     public ChannelingSocket wrapSSL(SSLEngine sslEngine, Object attachment, int buffSize) throws Exception {
@@ -157,19 +523,23 @@ public class Channeling {
     }
 
     public ChannelingSocket wrapSSL(SSLEngine sslEngine, Object attachment, int buffSize, SocketChannel socketChannel) throws Exception {
+        return wrapSSL(sslEngine, attachment, buffSize, socketChannel, -1);
+    }
+
+    ChannelingSocket wrapSSL(SSLEngine sslEngine, Object attachment, int buffSize, SocketChannel socketChannel, int worker) throws Exception {
 
-        if (this.numOfSSLWoker < 0) {
+        if (this.sslTaskExecutor == null) {
             throw new Exception("enableSSL is required ...");
         }
 
-        int tix = (int) (Thread.currentThread().getId() % this.nWorker);
+        ChannelingQueue queue = assignWorker(socketChannel, worker);
         // Try resize SSL Engine same tix with the same engine to prevent concurrent issue
         // TODO still apply resize SSL Engine? since it's one for one socket
 //        tix = resideSSLEngine(sslEngine, tix);
         if(socketChannel == null) {
-            return new ChannelSSLRunner(sslEngine, this.numOfSSLWoker, attachment, buffSize, channelQueues[tix]);
+            socketChannel = SocketChannel.open();
         }
-        return new ChannelSSLRunner(sslEngine, this.numOfSSLWoker, attachment, buffSize, channelQueues[tix], socketChannel);
+        return new ChannelSSLRunner(sslEngine, this.sslTaskExecutor, attachment, buffSize, queue, socketChannel, bufferPool, sslRecordBatchSize);
     }
 
     public ChannelingSocket wrapSSLServer(SSLContext sslContext,
@@ -177,12 +547,12 @@ public class Channeling {
                                           String hostAddress,
                                           int port) throws Exception {
 
-        if (sslContext != null && this.numOfSSLWoker < 0) {
+        if (sslContext != null && this.sslTaskExecutor == null) {
             throw new Exception("enableSSL is required ...");
         }
 
-        int tix = (int) (Thread.currentThread().getId() % this.nWorker);
-        return new ChannelServerRunner(sslContext, this.numOfSSLWoker,attachment, 1024, hostAddress, port, channelQueues[tix]);
+        // Listening socket is not a load of the worker, only the accepted sockets are
+        return new ChannelServerRunner(sslContext, attachment, 1024, hostAddress, port, selectWorker(null));
     }
 
     public ChannelingSocket wrapServer(Object attachment,
@@ -191,6 +561,16 @@ public class Channeling {
         return wrapSSLServer(null, attachment, hostAddress, port);
     }
 
+    /**
+     * Acceptor pinned on the given worker, server socket may be shared across acceptors
+     */
+    ChannelingSocket wrapAcceptor(SSLContext sslContext, Object attachment, ServerSocketChannel ssc, int worker) throws Exception {
+        if (sslContext != null && this.sslTaskExecutor == null) {
+            throw new Exception("enableSSL is required ...");
+        }
+        return new ChannelServerRunner(sslContext, attachment, 1024, ssc, channelQueues[worker]);
+    }
+
 
     /***
      Proxy Scope
@@ -206,8 +586,7 @@ public class Channeling {
     }
 
     public ChannelingSocket wrapProxy(ChannelingProxy proxy, SocketChannel socketChannel, Object attachment, int bufferSize) {
-        int tix = (int) (Thread.currentThread().getId() % this.nWorker);
-        return new ChannelProxyRunner(proxy, socketChannel, attachment, bufferSize, channelQueues[tix]);
+        return new ChannelProxyRunner(proxy, socketChannel, attachment, bufferSize, assignWorker(socketChannel), bufferPool);
     }
 
 
@@ -227,7 +606,7 @@ public class Channeling {
                                          String remoteHandshakeAddress,
                                          int remoteHandshakePort,
                                          Object attachment) throws Exception {
-        SSLContext sslContext = getDefaultSSLContext(protocols); //SSLContext.getInstance("TLSv1.2");
+        SSLContext sslContext = defaultSSLContext(protocols);
         return wrapProxySSL(proxy, sslContext,
                 remoteHandshakeAddress,
                 remoteHandshakePort, attachment);
@@ -237,22 +616,25 @@ public class Channeling {
                                          String remoteHandshakeAddress,
                                          int remoteHandshakePort, Object attachment) throws Exception {
 
-        SSLEngine engine = sslContext.createSSLEngine(remoteHandshakeAddress, remoteHandshakePort);
-        engine.setUseClientMode(true);
-        return wrapProxySSL(proxy, engine, attachment, /*1024 not in use in ssl, ssl using session buffer*/ engine.getSession().getApplicationBufferSize());
+        ChannelingSSLSessionCache sessionCache = getSSLSessionCache(sslContext);
+        SSLEngine engine = sessionCache.createSSLEngine(remoteHandshakeAddress, remoteHandshakePort);
+        ChannelSSLRunner runner = (ChannelSSLRunner) wrapProxySSL(proxy, engine, attachment,
+                /*1024 not in use in ssl, ssl using session buffer*/ engine.getSession().getApplicationBufferSize());
+        runner.setSSLSessionCache(sessionCache);
+        return runner;
     }
 
     public ChannelingSocket wrapProxySSL(ChannelingProxy proxy, SSLEngine sslEngine, Object attachment, int buffSize) throws Exception {
 
-        if (this.numOfSSLWoker < 0) {
+        if (this.sslTaskExecutor == null) {
             throw new Exception("enableSSL is required ...");
         }
 
-        int tix = (int) (Thread.currentThread().getId() % this.nWorker);
+        ChannelingQueue worker = assignWorker(null);
         // Try resize SSL Engine same tix with the same engine to prevent concurrent issue
         // TODO still apply resize SSL Engine? since it's one for one socket
 //        tix = resideSSLEngine(sslEngine, tix);
-        return new ChannelProxySSLRunner(proxy, sslEngine, this.numOfSSLWoker, attachment, buffSize, channelQueues[tix]);
+        return new ChannelProxySSLRunner(proxy, sslEngine, this.sslTaskExecutor, attachment, buffSize, worker, bufferPool, sslRecordBatchSize);
     }
 
 
@@ -274,22 +656,46 @@ public class Channeling {
      */
     public void shutdownNow() {
         active = false;
+        unregisterMetricsMBeans();
+        sslSessionCaches.clear();
+        disableStallDetector();
+        wakeupWorkers();
         eventRunner.shutdownNow();
-        ChannelSSLRunner.shutdownSSLService();
+        if (sslTaskExecutor != null) {
+            sslTaskExecutor.shutdownNow();
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+        }
     }
 
     public void shutdown() {
         active = false;
+        unregisterMetricsMBeans();
+        sslSessionCaches.clear();
+        disableStallDetector();
+        wakeupWorkers();
         eventRunner.shutdown();
-        ChannelSSLRunner.shutdownSSLService();
+        if (sslTaskExecutor != null) {
+            sslTaskExecutor.shutdown();
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdown();
+        }
     }
 
+    private void wakeupWorkers() {
+        for (ChannelingQueue channelQueue : channelQueues) {
+            channelQueue.wakeup();
+        }
+    }
 
     public static WhenConnectingStatus whenConnected = connectingStatus -> connectingStatus;
     public static WhenClosingStatus whenClosed = closingStatus -> closingStatus;
     public static WhenReadWriteProcess whenByteConsumed = bytesProcessed -> bytesProcessed > 0;
     public static WhenReadWriteProcess whenBytesWritten = bytesProcessed -> bytesProcessed > 0;
     public static WhenWritingByteBuffer whenNoMoreToWrite = byteBuffer -> !byteBuffer.hasRemaining();
+    public static WhenChannelingSocket whenNoMoreToTransfer = socket -> socket.getTransferRemaining() == 0;
 
 
     protected static TrustManager[] createTrustManagers(String filepath, String keystorePassword) throws Exception {
@@ -311,6 +717,20 @@ public class Channeling {
         return System.getProperty("java.home") + "/lib/security/cacerts".replace('/', File.separatorChar);
     }
 
+    /**
+     * Context per protocol created once, a new context per socket would never resume a session
+     */
+    private SSLContext defaultSSLContext(String protocol) throws Exception {
+        synchronized (defaultSSLContexts) {
+            SSLContext context = defaultSSLContexts.get(protocol);
+            if (context == null) {
+                context = getDefaultSSLContext(protocol);
+                defaultSSLContexts.put(protocol, context);
+            }
+            return context;
+        }
+    }
+
     protected static SSLContext getDefaultSSLContext(String protocol) throws Exception {
         SSLContext context = SSLContext.getInstance(protocol);
         context.init(null,
@@ -0,0 +1,255 @@
+package com.github.taymindis.nio.channeling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of direct buffers in size classes, socket buffers are acquired when wrapped and released by the processor once closed.
+ * Each thread keep a small cache per size class, overflow go to a shared cache so buffers released by workers
+ * can be picked up by the threads which wrap sockets. Empty shared cache is refilled by carving a slab into buffers.
+ * Buffers bigger than {@link #MAX_BUFFER_SIZE} are not pooled.
+ */
+public class ChannelingBufferPool {
+    private static final Logger log = LoggerFactory.getLogger(ChannelingBufferPool.class);
+
+    public static final int MIN_BUFFER_SIZE = 512;
+    public static final int MAX_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_THREAD_CACHE_SIZE = 64;
+    public static final int DEFAULT_SHARED_CACHE_SIZE = 1024;
+    private static final int SMALL_CLASS_LIMIT = 4096;
+    private static final int LARGE_CLASS_STEP = 4096;
+    // 512, 1k, 2k, 4k then every 4k up to 64k, keep SSL packet sized buffer (~16.7k) from doubling
+    private static final int SMALL_CLASSES = 4;
+    private static final int SIZE_CLASSES = SMALL_CLASSES + (MAX_BUFFER_SIZE - SMALL_CLASS_LIMIT) / LARGE_CLASS_STEP;
+    private static final int SLAB_SIZE = 256 * 1024;
+
+    private static final ChannelingBufferPool HEAP = new ChannelingBufferPool(false, 0, 0, false);
+
+    private final boolean pooled;
+    private final int threadCacheSize;
+    private final int sharedCacheSize;
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadCaches;
+    private final ConcurrentLinkedQueue<ByteBuffer>[] sharedCaches;
+    private final AtomicInteger[] sharedCacheCounts;
+    private final Map<ByteBuffer, Throwable> outstanding;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder unpooled = new LongAdder();
+
+    public ChannelingBufferPool() {
+        this(DEFAULT_THREAD_CACHE_SIZE, DEFAULT_SHARED_CACHE_SIZE, Boolean.getBoolean("channeling.bufferPool.leakDetection"));
+    }
+
+    /**
+     * @param threadCacheSize buffers cached per size class per thread
+     * @param sharedCacheSize buffers cached per size class shared by all threads
+     * @param leakDetection   record where every outstanding buffer was acquired, see {@link #reportLeaks()}, costly
+     */
+    public ChannelingBufferPool(int threadCacheSize, int sharedCacheSize, boolean leakDetection) {
+        this(true, threadCacheSize, sharedCacheSize, leakDetection);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ChannelingBufferPool(boolean pooled, int threadCacheSize, int sharedCacheSize, boolean leakDetection) {
+        this.pooled = pooled;
+        this.threadCacheSize = threadCacheSize;
+        this.sharedCacheSize = sharedCacheSize;
+        this.threadCaches = ThreadLocal.withInitial(() -> {
+            ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                caches[i] = new ArrayDeque<>();
+            }
+            return caches;
+        });
+        this.sharedCaches = new ConcurrentLinkedQueue[SIZE_CLASSES];
+        this.sharedCacheCounts = new AtomicInteger[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            sharedCaches[i] = new ConcurrentLinkedQueue<>();
+            sharedCacheCounts[i] = new AtomicInteger();
+        }
+        this.outstanding = leakDetection ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * Plain heap allocation without pooling, the behaviour before pooling was introduced
+     *
+     * @return ChannelingBufferPool
+     */
+    public static ChannelingBufferPool heap() {
+        return HEAP;
+    }
+
+    /**
+     * @param minCapacity minimum capacity required
+     * @return cleared buffer with capacity of at least minCapacity
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new IllegalArgumentException("capacity can't be negative");
+        }
+        acquired.increment();
+        if (!pooled) {
+            return ByteBuffer.allocate(minCapacity);
+        }
+        ByteBuffer buffer;
+        if (minCapacity > MAX_BUFFER_SIZE) {
+            unpooled.increment();
+            allocatedBytes.add(minCapacity);
+            buffer = ByteBuffer.allocateDirect(minCapacity);
+        } else {
+            int sizeClass = sizeClassOf(minCapacity);
+            buffer = threadCaches.get()[sizeClass].pollLast();
+            if (buffer == null && (buffer = sharedCaches[sizeClass].poll()) != null) {
+                sharedCacheCounts[sizeClass].decrementAndGet();
+            }
+            if (buffer == null) {
+                buffer = carveSlab(sizeClass);
+            }
+        }
+        if (outstanding != null) {
+            outstanding.put(buffer, new Throwable("Buffer of " + buffer.capacity() + " bytes acquired here"));
+        }
+        return buffer;
+    }
+
+    /**
+     * Give back a buffer acquired from this pool, the buffer must not be used afterward
+     *
+     * @param buffer buffer to release, ignored if null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        if (outstanding != null && outstanding.remove(buffer) == null) {
+            log.warn("Releasing a buffer which is not outstanding, double release or not acquired from this pool",
+                    new IllegalStateException("Buffer of " + buffer.capacity() + " bytes released here"));
+            return;
+        }
+        released.increment();
+        if (!pooled || !buffer.isDirect() || buffer.capacity() > MAX_BUFFER_SIZE) {
+            return;
+        }
+        int sizeClass = sizeClassOf(buffer.capacity());
+        if (sizeOfClass(sizeClass) != buffer.capacity()) {
+            return;
+        }
+        buffer.clear();
+        ArrayDeque<ByteBuffer> threadCache = threadCaches.get()[sizeClass];
+        if (threadCache.size() < threadCacheSize) {
+            threadCache.offerLast(buffer);
+        } else if (sharedCacheCounts[sizeClass].incrementAndGet() <= sharedCacheSize) {
+            sharedCaches[sizeClass].offer(buffer);
+        } else {
+            // Let GC reclaim it
+            sharedCacheCounts[sizeClass].decrementAndGet();
+        }
+    }
+
+    /**
+     * Carve as many buffers as the shared cache can hold out of one slab, thread caches are only fed by release
+     * so they keep the recently used buffers
+     */
+    private ByteBuffer carveSlab(int sizeClass) {
+        int size = sizeOfClass(sizeClass);
+        int room = Math.max(sharedCacheSize - sharedCacheCounts[sizeClass].get(), 0);
+        int count = Math.min(Math.max(1, SLAB_SIZE / size), room + 1);
+        ByteBuffer slab = ByteBuffer.allocateDirect(size * count);
+        allocatedBytes.add((long) size * count);
+        for (int i = 1; i < count; i++) {
+            slab.limit((i + 1) * size).position(i * size);
+            sharedCacheCounts[sizeClass].incrementAndGet();
+            sharedCaches[sizeClass].offer(slab.slice());
+        }
+        slab.limit(size).position(0);
+        return slab.slice();
+    }
+
+    static int sizeClassOf(int capacity) {
+        if (capacity <= SMALL_CLASS_LIMIT) {
+            int sizeClass = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, MIN_BUFFER_SIZE) - 1) - 9;
+            return Math.max(sizeClass, 0);
+        }
+        return SMALL_CLASSES + (capacity - SMALL_CLASS_LIMIT + LARGE_CLASS_STEP - 1) / LARGE_CLASS_STEP - 1;
+    }
+
+    static int sizeOfClass(int sizeClass) {
+        if (sizeClass < SMALL_CLASSES) {
+            return MIN_BUFFER_SIZE << sizeClass;
+        }
+        return SMALL_CLASS_LIMIT + (sizeClass - SMALL_CLASSES + 1) * LARGE_CLASS_STEP;
+    }
+
+    /**
+     * Log where every outstanding buffer was acquired, only available when leak detection is enabled
+     *
+     * @return number of outstanding buffers, -1 if leak detection disabled
+     */
+    public int reportLeaks() {
+        if (outstanding == null) {
+            return -1;
+        }
+        synchronized (outstanding) {
+            for (Throwable acquiredAt : outstanding.values()) {
+                log.warn("Buffer not released yet", acquiredAt);
+            }
+            return outstanding.size();
+        }
+    }
+
+    public boolean isLeakDetection() {
+        return outstanding != null;
+    }
+
+    public long getAcquired() {
+        return acquired.sum();
+    }
+
+    public long getReleased() {
+        return released.sum();
+    }
+
+    /**
+     * @return buffers acquired and not released yet
+     */
+    public long getOutstanding() {
+        return acquired.sum() - released.sum();
+    }
+
+    /**
+     * @return total direct bytes allocated by this pool, pooled buffers are never freed
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return buffers allocated above {@link #MAX_BUFFER_SIZE} which bypassed the pool
+     */
+    public long getUnpooled() {
+        return unpooled.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelingBufferPool{" +
+                "pooled=" + pooled +
+                ", acquired=" + getAcquired() +
+                ", released=" + getReleased() +
+                ", outstanding=" + getOutstanding() +
+                ", allocatedBytes=" + getAllocatedBytes() +
+                ", unpooled=" + getUnpooled() +
+                '}';
+    }
+}
@@ -23,6 +23,9 @@ public class ChannelingByteWriter {
     }
 
     private void shouldResize(int upComingSize) {
+        if (upComingSize <= capacity - size) {
+            return;
+        }
         while (upComingSize > (capacity - size)) {
             capacity *= 2;
         }
@@ -161,10 +164,44 @@ public class ChannelingByteWriter {
         return size;
     }
 
+    /**
+     * @return backing array, only the first {@link #size()} bytes are written, it is replaced when growing
+     */
+    public byte[] getBuff() {
+        return buffs;
+    }
+
     public void resetRead() {
         readIdx = 0;
     }
 
+    /**
+     * Drop the first bytes and move the rest to the beginning, e.g. request served while the next one already read
+     *
+     * @param length number of bytes to drop
+     */
+    public void discard(int length) {
+        if (length < 0 || length > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        System.arraycopy(buffs, length, buffs, 0, size - length);
+        size -= length;
+        readIdx = Math.max(readIdx - length, 0);
+    }
+
+    /**
+     * Keep only the first bytes, e.g. chunk framing dropped once decoded in place
+     *
+     * @param size number of bytes kept
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.size = size;
+        readIdx = Math.min(readIdx, size);
+    }
+
     private void reset() {
         size = 0;
         readIdx = 0;
@@ -8,14 +8,25 @@ public class ChannelingBytesResult {
     private int offSetOfFirst, limitOfEnd;
     private int readIdx;
     private int totalBytes = -1;
+    // Positions in the stream, still valid after the stream moved its segments
+    private final long startPosition, endPosition;
 
     public ChannelingBytesResult(ChannelingBytesStream stream, byte[][] buffs, int buffIndexStart, int buffIndexEnd, int offSetOfFirst, int limitOfEnd) {
+        this(stream, buffs, buffIndexStart, buffIndexEnd, offSetOfFirst, limitOfEnd,
+                stream.getOrigin() + (long) buffIndexStart * stream.getSegmentSize() + offSetOfFirst,
+                stream.getOrigin() + (long) buffIndexEnd * stream.getSegmentSize() + limitOfEnd);
+    }
+
+    ChannelingBytesResult(ChannelingBytesStream stream, byte[][] buffs, int buffIndexStart, int buffIndexEnd, int offSetOfFirst, int limitOfEnd,
+                          long startPosition, long endPosition) {
         this.stream = stream;
         this.buffs = buffs;
         this.readIdx = this.buffIndexStart = buffIndexStart;
         this.buffIndexEnd = buffIndexEnd;
         this.offSetOfFirst = offSetOfFirst;
         this.limitOfEnd = limitOfEnd;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
     }
 
     public void forEach(ChannelingBytesLoop loop) {
@@ -128,11 +139,7 @@ public class ChannelingBytesResult {
      * @return flipped Result
      */
     public ChannelingBytesResult flipForward() {
-        int flipBuffIndexStart = this.buffIndexEnd,
-                flipBuffIndexEnd = stream.getTotalBuffers() - 1,
-                flipOffSetOfFirst = this.limitOfEnd,
-                flipLimitOfEnd = buffs[flipBuffIndexEnd].length;
-        return new ChannelingBytesResult(stream, buffs, flipBuffIndexStart, flipBuffIndexEnd, flipOffSetOfFirst, flipLimitOfEnd);
+        return stream.resultOf(endPosition, stream.getWritePosition());
     }
 
     /**
@@ -141,11 +148,7 @@ public class ChannelingBytesResult {
      * @return flipped Result
      */
     public ChannelingBytesResult flipBackward() {
-        int flipBuffIndexStart = 0,
-                flipBuffIndexEnd = this.buffIndexStart,
-                flipOffSetOfFirst = 0,
-                flipLimitOfEnd = offSetOfFirst;
-        return new ChannelingBytesResult(stream, buffs, flipBuffIndexStart, flipBuffIndexEnd, flipOffSetOfFirst, flipLimitOfEnd);
+        return stream.resultOf(stream.getReadPosition(), startPosition);
     }
 
     public int getBuffIndexStart() {
@@ -163,6 +166,14 @@ public class ChannelingBytesResult {
     public int getLimitOfEnd() {
         return limitOfEnd;
     }
+
+    long getStartPosition() {
+        return startPosition;
+    }
+
+    long getEndPosition() {
+        return endPosition;
+    }
 }
 
 
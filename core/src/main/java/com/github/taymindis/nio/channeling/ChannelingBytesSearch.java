@@ -0,0 +1,132 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * Search of one {@link ChannelingBytesStream} which resume where it stopped, the partial match at the end of the
+ * written bytes is kept so each call only scan the bytes written since the last call.
+ * A match is returned until it is consumed from the stream, then the next call look for the next match.
+ * Not thread safe, same as the stream.
+ */
+public class ChannelingBytesSearch {
+    private final ChannelingBytesStream stream;
+    private final byte[] bytes;
+    // KMP fallback, length of the longest proper prefix which is also a suffix of bytes[0..i]
+    private final int[] fallback;
+    private final ChannelingBytesLoop scanner = this::scan;
+    private int indexMatch = 0;
+    private long scanned, matchEnd = -1;
+
+    ChannelingBytesSearch(ChannelingBytesStream stream, byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("search bytes can't be empty");
+        }
+        this.stream = stream;
+        this.bytes = bytes;
+        this.fallback = fallbackOf(bytes, false);
+        this.scanned = stream.getReadPosition();
+    }
+
+    static int[] fallbackOf(byte[] bytes, boolean reverse) {
+        int searchByteLen = bytes.length;
+        int[] fallback = new int[searchByteLen];
+        for (int i = 1, k = 0; i < searchByteLen; i++) {
+            byte b = reverse ? bytes[searchByteLen - 1 - i] : bytes[i];
+            while (k > 0 && b != (reverse ? bytes[searchByteLen - 1 - k] : bytes[k])) {
+                k = fallback[k - 1];
+            }
+            if (b == (reverse ? bytes[searchByteLen - 1 - k] : bytes[k])) {
+                k++;
+            }
+            fallback[i] = k;
+        }
+        return fallback;
+    }
+
+    private boolean scan(byte[] byteStream, int offset, int length) {
+        for (int j = offset, len = offset + length; j < len; j++) {
+            byte b = byteStream[j];
+            while (indexMatch > 0 && b != bytes[indexMatch]) {
+                indexMatch = fallback[indexMatch - 1];
+            }
+            if (b == bytes[indexMatch] && ++indexMatch == bytes.length) {
+                scanned += j - offset + 1;
+                matchEnd = scanned;
+                indexMatch = 0;
+                return false;
+            }
+        }
+        scanned += length;
+        return true;
+    }
+
+    /**
+     * One shot scan from the beginning of the range
+     *
+     * @return position after the first match, -1 if not found
+     */
+    long indexOf(long from, long to) {
+        indexMatch = 0;
+        scanned = from;
+        matchEnd = -1;
+        stream.forEach(from, to, scanner);
+        return matchEnd;
+    }
+
+    private long find() {
+        long from = stream.getReadPosition();
+        if (matchEnd != -1) {
+            long matchStart = matchEnd - bytes.length;
+            if (matchStart >= from) {
+                return matchEnd;
+            }
+            // Next match may overlap the consumed one
+            scanned = Math.max(from, matchStart + 1);
+            indexMatch = 0;
+            matchEnd = -1;
+        }
+        if (scanned - indexMatch < from) {
+            // Partial match or scanned bytes were consumed
+            scanned = from;
+            indexMatch = 0;
+        }
+        stream.forEach(scanned, stream.getWritePosition(), scanner);
+        return matchEnd;
+    }
+
+    public ChannelingBytesResult searchBytes(boolean matchAfter, boolean includeSearchBytes) {
+        long end = find();
+        if (end == -1) {
+            return null;
+        }
+        return stream.resultOf(end - bytes.length, bytes.length, matchAfter, includeSearchBytes,
+                stream.getReadPosition(), stream.getWritePosition());
+    }
+
+    /**
+     * @param includeSearchBytes include the search bytes at the end
+     * @return bytes from the read position until the match, null if not found yet
+     */
+    public ChannelingBytesResult searchBytesBefore(boolean includeSearchBytes) {
+        return searchBytes(false, includeSearchBytes);
+    }
+
+    /**
+     * @param includeSearchBytes include the search bytes at the beginning
+     * @return bytes from the match until the write position, null if not found yet
+     */
+    public ChannelingBytesResult searchBytesAfter(boolean includeSearchBytes) {
+        return searchBytes(true, includeSearchBytes);
+    }
+
+    /**
+     * Forget the match and start over from the read position
+     */
+    public void reset() {
+        indexMatch = 0;
+        scanned = stream.getReadPosition();
+        matchEnd = -1;
+    }
+
+    public boolean isFound() {
+        return find() != -1;
+    }
+}
@@ -2,15 +2,28 @@ package com.github.taymindis.nio.channeling;
 
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.util.Arrays;
-
+import java.util.ArrayDeque;
+
+/**
+ * Bytes written are copied into fixed size segments, live segments are kept in buffs[head..tail). Consumed segments
+ * are recycled for the next writes, so a long lived stream only hold what is not consumed yet.
+ * Positions are counted since the stream created and never go back, {@link ChannelingBytesResult} stay valid until
+ * the bytes it covers are consumed or the stream reset.
+ */
 public class ChannelingBytesStream {
 
-    private byte[][] buffs;
-    private int totalBytes = 0, buffCount = 0;
+    public static final int DEFAULT_SEGMENT_SIZE = 4096;
+    public static final int DEFAULT_MAX_FREE_SEGMENTS = 16;
     private static final int DEFAULT_NUM_OF_WRITE = 256;
-    private int capacity, readIdx = 0;
+
+    private byte[][] buffs;
+    private int head = 0, tail = 0, tailLimit = 0;
+    // Position of buffs[head][0], read and write position
+    private long headPosition = 0, readPosition = 0, writePosition = 0;
+    private final int segmentSize, segmentShift;
+    private final ArrayDeque<byte[]> freeSegments = new ArrayDeque<>();
+    private final int maxFreeSegments;
+    private int readIdx = 0;
     private boolean closed = false;
     private ChannelingBytesOverConsumer overWriteConsumer = new ChannelingBytesOverFIFOConsumer() {
         @Override
@@ -24,17 +37,52 @@ public class ChannelingBytesStream {
     }
 
     public ChannelingBytesStream(int numOfWrite) {
-        this.buffs = new byte[numOfWrite][];
-        this.capacity = numOfWrite;
+        this(numOfWrite, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param numOfSegments initial number of segment slots, doubled when live segments fill them
+     * @param segmentSize   size of each segment, power of 2
+     */
+    public ChannelingBytesStream(int numOfSegments, int segmentSize) {
+        this(numOfSegments, segmentSize, DEFAULT_MAX_FREE_SEGMENTS);
+    }
+
+    /**
+     * @param numOfSegments   initial number of segment slots, doubled when live segments fill them
+     * @param segmentSize     size of each segment, power of 2
+     * @param maxFreeSegments consumed segments kept for the next writes, the rest are left to GC
+     */
+    public ChannelingBytesStream(int numOfSegments, int segmentSize, int maxFreeSegments) {
+        if (numOfSegments <= 0) {
+            throw new IllegalArgumentException("numOfSegments must be greater than 0");
+        }
+        if (segmentSize <= 0 || Integer.bitCount(segmentSize) != 1) {
+            throw new IllegalArgumentException("segmentSize must be power of 2");
+        }
+        if (maxFreeSegments < 0) {
+            throw new IllegalArgumentException("maxFreeSegments can't be negative");
+        }
+        this.buffs = new byte[numOfSegments][];
+        this.segmentSize = segmentSize;
+        this.segmentShift = Integer.numberOfTrailingZeros(segmentSize);
+        this.maxFreeSegments = maxFreeSegments;
     }
 
-    private void addBuff(byte[] bytes) {
-        if (buffCount >= capacity) {
-            capacity *= 2;
-            buffs = Arrays.copyOfRange(buffs, 0, capacity);
-//            overWriteConsumer.process(buffs, buffCount++, bytes);
+    private void addSegment() {
+        if (tail == buffs.length) {
+            int live = tail - head;
+            // Consumed slots are reclaimed before growing, copy to a new table so results taken before keep the old one
+            byte[][] newBuffs = new byte[live * 2 > buffs.length ? buffs.length * 2 : buffs.length][];
+            System.arraycopy(buffs, head, newBuffs, 0, live);
+            readIdx -= head;
+            tail = live;
+            head = 0;
+            buffs = newBuffs;
         }
-        buffs[buffCount++] = bytes;
+        byte[] segment = freeSegments.pollLast();
+        buffs[tail++] = segment != null ? segment : new byte[segmentSize];
+        tailLimit = 0;
     }
 
     public void write(byte[] data, int offset, int length) throws IOException {
@@ -43,303 +91,213 @@ public class ChannelingBytesStream {
         } else if (this.closed) {
             throw new IOException("Stream closed");
         }
-        if (data.length == length) {
-            addBuff(data);
-        } else {
-            addBuff(BytesHelper.subBytes(data, offset, offset + length));
+        while (length > 0) {
+            if (tail == head || tailLimit == segmentSize) {
+                addSegment();
+            }
+            int len = Math.min(length, segmentSize - tailLimit);
+            System.arraycopy(data, offset, buffs[tail - 1], tailLimit, len);
+            tailLimit += len;
+            offset += len;
+            length -= len;
+            writePosition += len;
         }
-        totalBytes += length;
     }
 
     public void write(byte[] data) throws IOException {
-        if (this.closed) {
-            throw new IOException("Stream closed");
-        }
-        int len = data.length;
-        if (len > 0) {
-            addBuff(data);
-            totalBytes += len;
-        }
+        write(data, 0, data.length);
     }
 
     public void setOverWriteConsumer(ChannelingBytesOverLIFOConsumer overWriteConsumer) {
         this.overWriteConsumer = overWriteConsumer;
     }
 
+    /**
+     * Discard bytes from the front, fully consumed segments are recycled for the next writes.
+     * Results covering consumed bytes must not be used afterward.
+     *
+     * @param length bytes to discard
+     */
+    public void consume(int length) {
+        if (length < 0 || length > size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        readPosition += length;
+        if (readPosition == writePosition) {
+            releaseSegments();
+            return;
+        }
+        while (readPosition - headPosition >= segmentSize) {
+            recycle(buffs[head]);
+            buffs[head++] = null;
+            headPosition += segmentSize;
+        }
+        if (readIdx < head) {
+            readIdx = head;
+        }
+    }
 
-    public byte[] toByteArray(int limit) throws IOException {
-        if (this.closed) {
-            throw new IOException("Stream closed");
+    /**
+     * Discard bytes until the end of result, such as a message found by {@link #searchBytesBefore(byte[], boolean)}
+     *
+     * @param result result of this stream
+     */
+    public void consumeTo(ChannelingBytesResult result) {
+        long endPosition = result.getEndPosition();
+        if (endPosition > readPosition) {
+            consume((int) (endPosition - readPosition));
         }
-        ByteBuffer buff = ByteBuffer.allocate(limit);
-        int len;
-
-        for (int i = 0; i < buffCount; i++) {
-            byte[] streamByte = buffs[i];
-            len = streamByte.length;
-            if (limit > len) {
-                buff.put(streamByte);
-                limit -= streamByte.length;
-            } else if (limit == 0) {
-                break;
-            } else {
-                buff.put(streamByte, 0, limit);
-                break;
-            }
+    }
+
+    private void releaseSegments() {
+        for (int i = head; i < tail; i++) {
+            recycle(buffs[i]);
+            buffs[i] = null;
         }
+        head = tail = tailLimit = readIdx = 0;
+        headPosition = readPosition = writePosition;
+    }
 
-        return buff.array();
+    private void recycle(byte[] segment) {
+        if (freeSegments.size() < maxFreeSegments) {
+            freeSegments.offerLast(segment);
+        }
     }
 
-    public ChannelingBytesResult searchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes) {
-        byte[] byteStream;
-        int indexMatch = 0, searchByteLen = bytes.length;
-        for (int i = 0, sz = buffCount; i < sz; i++) {
-            byteStream = buffs[i];
-            for (int j = 0, len = byteStream.length; j < len; j++) {
-                RETRY:
-                if (bytes[indexMatch] == byteStream[j]) {
-                    indexMatch++;
-                    j++;
-                    for (; i < sz; i++) {
-                        byteStream = buffs[i];
-                        for (len = byteStream.length; j < len; j++) {
-                            if (bytes[indexMatch++] == byteStream[j]) {
-                                if (indexMatch == searchByteLen) {
-                                    final ChannelingBytesResult bytesResult;
-                                    if (matchAfter) {
-                                        if (includeSearchBytes) {
-                                            if (j < searchByteLen) {
-                                                searchByteLen -= j;
-
-                                                do {
-                                                    i--;
-                                                    searchByteLen -= buffs[i].length;
-                                                } while (searchByteLen > 0);
-
-                                                j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                            } else {
-                                                j -= searchByteLen;
-                                            }
-                                        }
-                                        bytesResult = new ChannelingBytesResult(this, buffs, i, sz - 1, j + 1, buffs[sz - 1].length);
-
-                                    } else {
-                                        if (!includeSearchBytes) {
-                                            if (j < searchByteLen) {
-                                                searchByteLen -= j;
-
-                                                do {
-                                                    i--;
-                                                    searchByteLen -= buffs[i].length;
-                                                } while (searchByteLen > 0);
-
-                                                j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                            } else {
-                                                j -= searchByteLen;
-                                            }
-                                        }
-                                        bytesResult = new ChannelingBytesResult(this, buffs, 0, i, 0, j + 1);
-                                    }
-                                    return bytesResult;
-                                }
-                            } else {
-                                indexMatch = 0;
-                                break RETRY;
-                            }
-                        }
-                        j = 0;
-                    }
-                }
+    private int segmentIndexOf(long position) {
+        return head + (int) ((position - headPosition) >> segmentShift);
+    }
+
+    private int offsetOf(long position) {
+        return (int) ((position - headPosition) & (segmentSize - 1));
+    }
+
+    /**
+     * @return position of buffs[0][0] with the current table, segment i start at origin + i * segmentSize
+     */
+    long getOrigin() {
+        return headPosition - ((long) head << segmentShift);
+    }
+
+    long getReadPosition() {
+        return readPosition;
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    int getFreeSegments() {
+        return freeSegments.size();
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    void forEach(long from, long to, ChannelingBytesLoop channelingBytesLoop) {
+        if (from >= to) {
+            return;
+        }
+        long remaining = to - from;
+        for (int i = segmentIndexOf(from), offset = offsetOf(from); remaining > 0; i++, offset = 0) {
+            int len = (int) Math.min(segmentSize - offset, remaining);
+            if (!channelingBytesLoop.consumer(buffs[i], offset, len)) {
+                return;
             }
+            remaining -= len;
         }
-        return null;
     }
 
+    ChannelingBytesResult resultOf(long start, long end) {
+        start = Math.min(Math.max(start, readPosition), writePosition);
+        end = Math.min(Math.max(end, start), writePosition);
+        if (start == end) {
+            return new ChannelingBytesResult(this, buffs, head, head - 1, 0, 0, start, end);
+        }
+        int endIndex = segmentIndexOf(end - 1);
+        return new ChannelingBytesResult(this, buffs, segmentIndexOf(start), endIndex, offsetOf(start),
+                offsetOf(end - 1) + 1, start, end);
+    }
 
-    public ChannelingBytesResult searchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes, ChannelingBytesResult basedOnResult) {
-        byte[] byteStream;
-        int indexMatch = 0, searchByteLen = bytes.length;
-        int i = basedOnResult.getBuffIndexStart(),
-                buffIndexEnd = basedOnResult.getBuffIndexEnd();
-        boolean onlyOne = i == buffIndexEnd;
-
-        byteStream = buffs[i];
-        for (int j = basedOnResult.getOffSetOfFirst(), len = onlyOne ? basedOnResult.getLimitOfEnd() : byteStream.length;
-             j < len; j++) {
-            RETRY:
-            if (bytes[indexMatch] == byteStream[j]) {
-                indexMatch++;
-                j++;
-                for (len = byteStream.length; j < len; j++) {
-                    if (bytes[indexMatch++] == byteStream[j]) {
-                        if (indexMatch == searchByteLen) {
-                            final ChannelingBytesResult bytesResult;
-                            if (matchAfter) {
-                                if (includeSearchBytes) {
-                                    if (j < searchByteLen) {
-                                        searchByteLen -= j;
-
-                                        do {
-                                            i--;
-                                            searchByteLen -= buffs[i].length;
-                                        } while (searchByteLen > 0);
-
-                                        j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                    } else {
-                                        j -= searchByteLen;
-                                    }
-                                }
-                                bytesResult = new ChannelingBytesResult(this, buffs, i, buffIndexEnd, j + 1, basedOnResult.getLimitOfEnd());
-                            } else {
-                                if (!includeSearchBytes) {
-                                    if (j < searchByteLen) {
-                                        searchByteLen -= j;
-
-                                        do {
-                                            i--;
-                                            searchByteLen -= buffs[i].length;
-                                        } while (searchByteLen > 0);
-
-                                        j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                    } else {
-                                        j -= searchByteLen;
-                                    }
-                                }
-                                bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i,
-                                        basedOnResult.getOffSetOfFirst(), j + 1);
-                            }
-                            return bytesResult;
-                        }
-                    } else {
-                        indexMatch = 0;
-                        break RETRY;
-                    }
-                }
-            }
+    ChannelingBytesResult resultOf(long matchStart, int matchLength, boolean matchAfter, boolean includeSearchBytes,
+                                   long from, long to) {
+        if (matchAfter) {
+            return resultOf(includeSearchBytes ? matchStart : matchStart + matchLength, to);
         }
+        return resultOf(from, includeSearchBytes ? matchStart + matchLength : matchStart);
+    }
 
-        if (onlyOne) {
-            return null;
+    private long lastIndexOf(byte[] bytes, long from, long to) {
+        int searchByteLen = bytes.length, indexMatch = 0;
+        if (to - from < searchByteLen) {
+            return -1;
         }
-        i++;
-
-        for (; i < buffIndexEnd; i++) {
-            byteStream = buffs[i];
-            for (int j = 0, len = byteStream.length; j < len; j++) {
-                RETRY:
-                if (bytes[indexMatch] == byteStream[j]) {
-                    indexMatch++;
-                    j++;
-                    for (; i < buffIndexEnd; i++) {
-                        byteStream = buffs[i];
-                        for (len = byteStream.length; j < len; j++) {
-                            if (bytes[indexMatch++] == byteStream[j]) {
-                                if (indexMatch == searchByteLen) {
-                                    final ChannelingBytesResult bytesResult;
-                                    if (matchAfter) {
-                                        if (includeSearchBytes) {
-                                            if (j < searchByteLen) {
-                                                searchByteLen -= j;
-
-                                                do {
-                                                    i--;
-                                                    searchByteLen -= buffs[i].length;
-                                                } while (searchByteLen > 0);
-
-                                                j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                            } else {
-                                                j -= searchByteLen;
-                                            }
-                                        }
-                                        bytesResult = new ChannelingBytesResult(this, buffs, i, buffIndexEnd, j + 1, basedOnResult.getLimitOfEnd());
-                                    } else {
-                                        if (!includeSearchBytes) {
-                                            if (j < searchByteLen) {
-                                                searchByteLen -= j;
-
-                                                do {
-                                                    i--;
-                                                    searchByteLen -= buffs[i].length;
-                                                } while (searchByteLen > 0);
-
-                                                j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                            } else {
-                                                j -= searchByteLen;
-                                            }
-                                        }
-                                        bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i,
-                                                basedOnResult.getOffSetOfFirst(), j + 1);
-                                    }
-                                    return bytesResult;
-                                }
-                            } else {
-                                indexMatch = 0;
-                                break RETRY;
-                            }
-                        }
-                        j = 0;
-                    }
-                }
+        int[] fallback = ChannelingBytesSearch.fallbackOf(bytes, true);
+        int i = segmentIndexOf(to - 1), j = offsetOf(to - 1);
+        byte[] byteStream = buffs[i];
+        for (long position = to - 1; position >= from; position--) {
+            byte b = byteStream[j];
+            while (indexMatch > 0 && b != bytes[searchByteLen - 1 - indexMatch]) {
+                indexMatch = fallback[indexMatch - 1];
+            }
+            if (b == bytes[searchByteLen - 1 - indexMatch] && ++indexMatch == searchByteLen) {
+                return position;
+            }
+            if (--j < 0 && position > from) {
+                byteStream = buffs[--i];
+                j = segmentSize - 1;
             }
         }
+        return -1;
+    }
 
-        byteStream = buffs[i];
-        for (int j = 0, len = basedOnResult.getLimitOfEnd();
-             j < len; j++) {
-            RETRY:
-            if (bytes[indexMatch] == byteStream[j]) {
-                indexMatch++;
-                j++;
-                for (len = byteStream.length; j < len; j++) {
-                    if (bytes[indexMatch++] == byteStream[j]) {
-                        if (indexMatch == searchByteLen) {
-                            final ChannelingBytesResult bytesResult;
-                            if (matchAfter) {
-                                if (includeSearchBytes) {
-                                    if (j < searchByteLen) {
-                                        searchByteLen -= j;
-
-                                        do {
-                                            i--;
-                                            searchByteLen -= buffs[i].length;
-                                        } while (searchByteLen > 0);
-
-                                        j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                    } else {
-                                        j -= searchByteLen;
-                                    }
-                                }
-                                bytesResult = new ChannelingBytesResult(this, buffs, i, buffIndexEnd, j + 1, basedOnResult.getLimitOfEnd());
-                            } else {
-                                if (!includeSearchBytes) {
-                                    if (j < searchByteLen) {
-                                        searchByteLen -= j;
-
-                                        do {
-                                            i--;
-                                            searchByteLen -= buffs[i].length;
-                                        } while (searchByteLen > 0);
-
-                                        j = buffs[i].length - (searchByteLen + buffs[i].length);
-                                    } else {
-                                        j -= searchByteLen;
-                                    }
-                                }
-                                bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i,
-                                        basedOnResult.getOffSetOfFirst(), j + 1);
-                            }
-                            return bytesResult;
-                        }
-                    } else {
-                        indexMatch = 0;
-                        break RETRY;
-                    }
-                }
-            }
+    /**
+     * Search which remember where it stopped, each call only scan the bytes written since the last call.
+     * Once the match is consumed, the next call look for the next match.
+     *
+     * @param bytes bytes to search
+     * @return ChannelingBytesSearch
+     */
+    public ChannelingBytesSearch newSearch(byte[] bytes) {
+        return new ChannelingBytesSearch(this, bytes);
+    }
+
+    public byte[] toByteArray(int limit) throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
         }
+        byte[] result = new byte[limit];
+        copyTo(result, Math.min(limit, size()));
+        return result;
+    }
+
+    private void copyTo(byte[] result, int length) {
+        final int[] totalWrite = {0};
+        forEach(readPosition, readPosition + length, (bytes, offset, len) -> {
+            System.arraycopy(bytes, offset, result, totalWrite[0], len);
+            totalWrite[0] += len;
+            return true;
+        });
+    }
 
-        return null;
+    public ChannelingBytesResult searchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes) {
+        long matchEnd = new ChannelingBytesSearch(this, bytes).indexOf(readPosition, writePosition);
+        if (matchEnd == -1) {
+            return null;
+        }
+        return resultOf(matchEnd - bytes.length, bytes.length, matchAfter, includeSearchBytes, readPosition, writePosition);
+    }
+
+
+    public ChannelingBytesResult searchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes, ChannelingBytesResult basedOnResult) {
+        long from = Math.max(basedOnResult.getStartPosition(), readPosition),
+                to = Math.min(basedOnResult.getEndPosition(), writePosition);
+        long matchEnd = new ChannelingBytesSearch(this, bytes).indexOf(from, to);
+        if (matchEnd == -1) {
+            return null;
+        }
+        return resultOf(matchEnd - bytes.length, bytes.length, matchAfter, includeSearchBytes, from, to);
     }
 
     public ChannelingBytesResult searchBytesBefore(byte[] bytes, boolean includeSearchBytes) {
@@ -359,199 +317,23 @@ public class ChannelingBytesStream {
     }
 
     public ChannelingBytesResult reverseSearchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes) {
-        byte[] byteStream;
-        int searchByteLen = bytes.length;
-        int indexMatch = searchByteLen - 1;
-        int searchPointI, searchPointJ;
-        for (int i = buffCount - 1; i >= 0; i--) {
-            byteStream = buffs[i];
-            for (int j = byteStream.length - 1; j >= 0; j--) {
-                RETRY:
-                if (bytes[indexMatch] == byteStream[j]) {
-                    searchPointI = i;
-                    searchPointJ = j;
-                    indexMatch--;
-                    j--;
-                    for (; i >= 0; i--) {
-                        byteStream = buffs[i];
-                        for (; j >= 0; j--) {
-                            if (bytes[indexMatch--] == byteStream[j]) {
-                                if (indexMatch < 0) {
-                                    final ChannelingBytesResult bytesResult;
-                                    if (matchAfter) {
-                                        if (includeSearchBytes) {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, i, buffCount - 1, j, buffs[buffCount - 1].length);
-                                        } else {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, searchPointI, buffCount - 1, searchPointJ + 1, buffs[buffCount - 1].length);
-                                        }
-                                    } else {
-                                        if (includeSearchBytes) {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, 0, searchPointI, 0, searchPointJ + 1);
-                                        } else {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, 0, i, 0, j);
-                                        }
-                                    }
-
-                                    return bytesResult;
-                                }
-                            } else {
-                                indexMatch = searchByteLen - 1;
-                                break RETRY;
-                            }
-                        }
-                        if (i != 0) {
-                            j = buffs[i - 1].length - 1;
-                        }
-                    }
-                }
-            }
+        long matchStart = lastIndexOf(bytes, readPosition, writePosition);
+        if (matchStart == -1) {
+            return null;
         }
-        return null;
+        return resultOf(matchStart, bytes.length, matchAfter, includeSearchBytes, readPosition, writePosition);
     }
 
 
     public ChannelingBytesResult reverseSearchBytes(byte[] bytes, boolean matchAfter, boolean includeSearchBytes, ChannelingBytesResult basedOnResult) {
-        byte[] byteStream;
-        int searchByteLen = bytes.length;
-        int indexMatch = searchByteLen - 1;
-        int start = basedOnResult.getBuffIndexStart(),
-                i = basedOnResult.getBuffIndexEnd();
-        boolean onlyOne = start == i;
-        int searchPointI, searchPointJ;
-
-        byteStream = buffs[i];
-        for (int j = basedOnResult.getLimitOfEnd() - 1, minLen = onlyOne ? basedOnResult.getOffSetOfFirst() : 0;
-             j >= minLen; j--) {
-            RETRY:
-            if (bytes[indexMatch] == byteStream[j]) {
-                searchPointI = i;
-                searchPointJ = j;
-                indexMatch--;
-                j--;
-                for (; i >= start; i--) {
-                    byteStream = buffs[i];
-                    for (; j >= 0; j--) {
-                        if (bytes[indexMatch--] == byteStream[j]) {
-                            if (indexMatch < 0) {
-                                final ChannelingBytesResult bytesResult;
-                                if (matchAfter) {
-                                    if (includeSearchBytes) {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, i, basedOnResult.getBuffIndexEnd(), j, basedOnResult.getLimitOfEnd());
-                                    } else {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, searchPointI, basedOnResult.getBuffIndexEnd(), searchPointJ + 1, basedOnResult.getLimitOfEnd());
-                                    }
-                                } else {
-                                    if (includeSearchBytes) {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), searchPointI, basedOnResult.getOffSetOfFirst(), searchPointJ + 1);
-                                    } else {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i, basedOnResult.getOffSetOfFirst(), j);
-                                    }
-                                }
-                                return bytesResult;
-                            }
-                        } else {
-                            indexMatch = searchByteLen - 1;
-                            break RETRY;
-                        }
-                    }
-                    if (i != start) {
-                        j = buffs[i - 1].length - 1;
-                    }
-                }
-            }
-        }
-        if (onlyOne) {
+        long from = Math.max(basedOnResult.getStartPosition(), readPosition),
+                to = Math.min(basedOnResult.getEndPosition(), writePosition);
+        long matchStart = lastIndexOf(bytes, from, to);
+        if (matchStart == -1) {
             // Means not found
             return null;
         }
-        i--;
-
-        for (; i > start; i--) {
-            byteStream = buffs[i];
-            for (int j = byteStream.length - 1; j >= 0; j--) {
-                RETRY:
-                if (bytes[indexMatch] == byteStream[j]) {
-                    searchPointI = i;
-                    searchPointJ = j;
-                    indexMatch--;
-                    j--;
-                    for (; i >= start; i--) {
-                        byteStream = buffs[i];
-                        for (; j >= 0; j--) {
-                            if (bytes[indexMatch--] == byteStream[j]) {
-                                if (indexMatch < 0) {
-                                    final ChannelingBytesResult bytesResult;
-                                    if (matchAfter) {
-                                        if (includeSearchBytes) {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, i, basedOnResult.getBuffIndexEnd(), j, basedOnResult.getLimitOfEnd());
-                                        } else {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, searchPointI, basedOnResult.getBuffIndexEnd(), searchPointJ + 1, basedOnResult.getLimitOfEnd());
-                                        }
-                                    } else {
-                                        if (includeSearchBytes) {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), searchPointI, basedOnResult.getOffSetOfFirst(), searchPointJ + 1);
-                                        } else {
-                                            bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i, basedOnResult.getOffSetOfFirst(), j);
-                                        }
-                                    }
-                                    return bytesResult;
-                                }
-                            } else {
-                                indexMatch = searchByteLen - 1;
-                                break RETRY;
-                            }
-                        }
-                        if (i != start) {
-                            j = buffs[i - 1].length - 1;
-                        }
-                    }
-                }
-            }
-        }
-
-        byteStream = buffs[i];
-        for (int j = byteStream.length - 1, minLen = basedOnResult.getOffSetOfFirst();
-             j >= minLen; j--) {
-            RETRY:
-            if (bytes[indexMatch] == byteStream[j]) {
-                searchPointI = i;
-                searchPointJ = j;
-                indexMatch--;
-                j--;
-                for (; i >= start; i--) {
-                    byteStream = buffs[i];
-                    for (; j >= 0; j--) {
-                        if (bytes[indexMatch--] == byteStream[j]) {
-                            if (indexMatch < 0) {
-                                final ChannelingBytesResult bytesResult;
-                                if (matchAfter) {
-                                    if (includeSearchBytes) {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, i, basedOnResult.getBuffIndexEnd(), j, basedOnResult.getLimitOfEnd());
-                                    } else {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, searchPointI, basedOnResult.getBuffIndexEnd(), searchPointJ + 1, basedOnResult.getLimitOfEnd());
-                                    }
-                                } else {
-                                    if (includeSearchBytes) {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), searchPointI, basedOnResult.getOffSetOfFirst(), searchPointJ + 1);
-                                    } else {
-                                        bytesResult = new ChannelingBytesResult(this, buffs, basedOnResult.getBuffIndexStart(), i, basedOnResult.getOffSetOfFirst(), j);
-                                    }
-                                }
-
-                                return bytesResult;
-                            }
-                        } else {
-                            indexMatch = searchByteLen - 1;
-                            break RETRY;
-                        }
-                    }
-                    if (i != start) {
-                        j = buffs[i - 1].length - 1;
-                    }
-                }
-            }
-        }
-        return null;
+        return resultOf(matchStart, bytes.length, matchAfter, includeSearchBytes, from, to);
     }
 
     public ChannelingBytesResult reverseSearchBytesBefore(byte[] bytes, boolean includeSearchBytes) {
@@ -570,13 +352,23 @@ public class ChannelingBytesStream {
         return reverseSearchBytes(bytes, true, includeSearchBytes, basedOnResult);
     }
 
+    private void readSegment(ChannelingBytes bytes, int i) {
+        int offset = i == head ? (int) (readPosition - headPosition) : 0;
+        int limit = i == tail - 1 ? tailLimit : segmentSize;
+        bytes.setBuff(buffs[i]);
+        bytes.setOffset(offset);
+        bytes.setLength(limit - offset);
+    }
+
+    /**
+     * Read segment by segment from the read position
+     *
+     * @param bytes to set with the next segment
+     * @return false if no more segment
+     */
     public boolean read(ChannelingBytes bytes) {
-        if (readIdx < buffCount) {
-            byte[] buff = buffs[readIdx];
-            bytes.setBuff(buff);
-            bytes.setOffset(0);
-            bytes.setLength(buff.length);
-            readIdx++;
+        if (readIdx < tail) {
+            readSegment(bytes, readIdx++);
             return true;
         }
         return false;
@@ -588,13 +380,9 @@ public class ChannelingBytesStream {
      * @return false if it is last unit or null
      */
     public boolean readUntilLast(ChannelingBytes bytes) {
-        if (readIdx < buffCount) {
-            byte[] buff = buffs[readIdx];
-            bytes.setBuff(buff);
-            bytes.setOffset(0);
-            bytes.setLength(buff.length);
-            readIdx++;
-            return readIdx < buffCount;
+        if (readIdx < tail) {
+            readSegment(bytes, readIdx++);
+            return readIdx < tail;
         }
         bytes.setBuff(null);
         bytes.setOffset(0);
@@ -603,77 +391,53 @@ public class ChannelingBytesStream {
     }
 
     public void forEach(ChannelingBytesLoop channelingBytesLoop) {
-        forEach(channelingBytesLoop, 0, totalBytes);
+        forEach(readPosition, writePosition, channelingBytesLoop);
     }
 
     public void forEach(ChannelingBytesLoop channelingBytesLoop, int offset, int length) {
-        int i = 0;
-        byte[] streamByte;
-        for (; i < buffCount; i++) {
-            streamByte = buffs[i];
-            offset -= streamByte.length;
-            if (offset < 0) {
-                offset += streamByte.length;
-                int len = streamByte.length - offset;
-                if (length > len) {
-                    channelingBytesLoop.consumer(buffs[i], offset, len);
-                    i++;
-                    length -= len;
-                    break;
-                } else {
-                    channelingBytesLoop.consumer(buffs[i], offset, length);
-                    return;
-                }
-            }
-        }
-
-
-        for (; i < buffCount; i++) {
-            streamByte = buffs[i];
-            int len = streamByte.length;
-            if (length > len) {
-                channelingBytesLoop.consumer(buffs[i], offset, len);
-                length = length - len;
-            } else {
-                channelingBytesLoop.consumer(buffs[i], offset, length);
-                return;
-            }
+        if (offset < 0 || length < 0 || offset + length > size()) {
+            throw new IndexOutOfBoundsException();
         }
+        forEach(readPosition + offset, readPosition + offset + length, channelingBytesLoop);
     }
 
     public byte[] toByteArray() throws IOException {
         if (this.closed) {
             throw new IOException("Stream closed");
         }
-        ByteBuffer buff = ByteBuffer.allocate(totalBytes);
-
-        for (int i = 0; i < buffCount; i++) {
-            buff.put(buffs[i]);
-        }
-
-        return buff.array();
+        byte[] result = new byte[size()];
+        copyTo(result, result.length);
+        return result;
     }
 
     public void close() {
         this.closed = true;
     }
 
+    /**
+     * @return number of live segments
+     */
     public int getTotalBuffers() {
-        return buffCount;
+        return tail - head;
     }
 
+    /**
+     * @return bytes written and not consumed yet
+     */
     public int size() {
-        return totalBytes;
+        return (int) (writePosition - readPosition);
     }
 
     public void resetRead() {
-        readIdx = 0;
+        readIdx = head;
     }
 
+    /**
+     * Discard everything written, segments are recycled
+     */
     public void reset() {
-        buffCount = 0;
-        totalBytes = 0;
-        readIdx = 0;
+        readPosition = writePosition;
+        releaseSegments();
     }
 }
 
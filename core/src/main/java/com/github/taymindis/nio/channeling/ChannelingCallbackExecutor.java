@@ -0,0 +1,178 @@
+package com.github.taymindis.nio.channeling;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run the then callbacks of the sockets wrapped by one {@link Channeling} off the event loop, so blocking work in a
+ * callback does not hold the other sockets of the worker. Owned by that instance and shut down with it, see
+ * {@link Channeling#enableCallbackOffload(ChannelingCallbackExecutor)}.
+ * Callbacks of one socket still run one at a time in order, the next io task asked by a callback is handed back to the
+ * owning worker once the callback returned.
+ */
+public class ChannelingCallbackExecutor implements Executor {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final String mode;
+    // Null when inline
+    private final ExecutorService executorService;
+
+    private final LongAdder submittedCallbacks = new LongAdder();
+    private final LongAdder callerRunCallbacks = new LongAdder();
+
+    private ChannelingCallbackExecutor(String mode, ExecutorService executorService) {
+        this.mode = mode;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Run callbacks on the event loop, same as not offloaded. Set on a socket to keep its callbacks inline while the
+     * channeling offload the others.
+     *
+     * @return ChannelingCallbackExecutor
+     */
+    public static ChannelingCallbackExecutor inline() {
+        return new ChannelingCallbackExecutor("inline", null);
+    }
+
+    public static ChannelingCallbackExecutor pool(int threads) {
+        return pool(threads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Fixed pool with bounded queue, once the queue is full the callback run inline on the event loop instead of piling up
+     *
+     * @param threads       number of threads
+     * @param queueCapacity callbacks waiting for a thread
+     * @return ChannelingCallbackExecutor
+     */
+    public static ChannelingCallbackExecutor pool(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than 0");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 25, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory("channeling-callback-" + POOL_SEQ.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return new ChannelingCallbackExecutor("pool", executor);
+    }
+
+    /**
+     * One virtual thread per callback on JDK 21 and later, blocking callbacks cost no platform thread.
+     * Fall back to {@link #pool(int)} of fallbackThreads on older JDK.
+     *
+     * @param fallbackThreads number of threads of the fallback pool
+     * @return ChannelingCallbackExecutor
+     */
+    public static ChannelingCallbackExecutor virtualThreads(int fallbackThreads) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new ChannelingCallbackExecutor("virtualThreads", executor);
+        } catch (ReflectiveOperationException e) {
+            return pool(fallbackThreads);
+        }
+    }
+
+    /**
+     * @param name    inline, pool or virtualThreads
+     * @param threads threads of pool, or of the fallback pool of virtualThreads
+     * @return ChannelingCallbackExecutor
+     */
+    public static ChannelingCallbackExecutor of(String name, int threads) {
+        switch (name) {
+            case "inline":
+                return inline();
+            case "pool":
+                return pool(threads);
+            case "virtualThreads":
+                return virtualThreads(threads);
+            default:
+                throw new IllegalArgumentException("Unknown callback execution " + name);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public void execute(Runnable callback) {
+        submittedCallbacks.increment();
+        if (executorService == null) {
+            callback.run();
+            return;
+        }
+        try {
+            executorService.execute(callback);
+        } catch (RejectedExecutionException e) {
+            if (executorService.isShutdown()) {
+                throw e;
+            }
+            // Queue full, the event loop pay for the callback rather than let the backlog grow
+            callerRunCallbacks.increment();
+            callback.run();
+        }
+    }
+
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    public void shutdownNow() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executorService != null && executorService.isShutdown();
+    }
+
+    public boolean isInline() {
+        return executorService == null;
+    }
+
+    /**
+     * @return inline, pool or virtualThreads, pool if virtual threads are not available
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    public long getSubmittedCallbacks() {
+        return submittedCallbacks.sum();
+    }
+
+    /**
+     * @return callbacks run on the event loop because the pool queue was full
+     */
+    public long getCallerRunCallbacks() {
+        return callerRunCallbacks.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelingCallbackExecutor{mode=" + mode +
+                ", submittedCallbacks=" + getSubmittedCallbacks() +
+                ", callerRunCallbacks=" + getCallerRunCallbacks() + '}';
+    }
+}
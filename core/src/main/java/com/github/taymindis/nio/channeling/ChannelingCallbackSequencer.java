@@ -0,0 +1,79 @@
+package com.github.taymindis.nio.channeling;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Offloaded callbacks of one socket, run one at a time in submitted order. The io task a running callback ask for is
+ * held and handed to the owning worker queue once the callback returned, so the worker never touch the socket while
+ * the callback thread is still changing it.
+ */
+class ChannelingCallbackSequencer {
+    private final AbstractChannelRunner socket;
+    private final ChannelingQueue queue;
+    private final ConcurrentLinkedQueue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile Thread runningThread;
+    private boolean taskHeld;
+
+    ChannelingCallbackSequencer(AbstractChannelRunner socket, ChannelingQueue queue) {
+        this.socket = socket;
+        this.queue = queue;
+    }
+
+    void execute(Executor executor, Runnable callback) {
+        callbacks.offer(callback);
+        if (draining.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Executor shut down, nobody else would run it
+                drain();
+            }
+        }
+    }
+
+    private void drain() {
+        for (; ; ) {
+            runningThread = Thread.currentThread();
+            Runnable callback;
+            while ((callback = callbacks.poll()) != null) {
+                try {
+                    callback.run();
+                } finally {
+                    if (taskHeld) {
+                        taskHeld = false;
+                        queue.offer(socket);
+                    }
+                }
+            }
+            runningThread = null;
+            draining.set(false);
+            if (callbacks.peek() == null || !draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Called by the socket when a new io task is triggered
+     *
+     * @return true if triggered by the running callback, the task is offered once it returned
+     */
+    boolean holdTask() {
+        if (runningThread == Thread.currentThread()) {
+            taskHeld = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true while a callback of the socket is queued or running
+     */
+    boolean isBusy() {
+        return draining.get() || callbacks.peek() != null;
+    }
+}
@@ -0,0 +1,417 @@
+package com.github.taymindis.nio.channeling;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client connections kept open across requests, grouped by route which is host, port, SSL context and proxy.
+ * A leased socket is connected, it is given back by {@link #release} once its response fully consumed or by
+ * {@link #discard} otherwise. Idle sockets are evicted once idle longer than the idle timeout, and checked again on
+ * lease, one closed by peer or having unexpected bytes to read is dropped.
+ * <p>
+ * Idle timeout must be shorter than the idle timeout of the Channeling, the processor close sockets idle longer than it,
+ * it is half of it by default.
+ */
+public class ChannelingConnectionPool {
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 64;
+    // When the Channeling has no idle timeout
+    public static final long DEFAULT_IDLE_TIMEOUT_IN_MS = 30 * 1000;
+
+    private static final Then CLOSE_CALLBACK = sc -> {
+        /** Do nothing **/
+    };
+    private static final ErrorCallback CLOSE_ERRORCALLBACK = (sc, e) -> {
+        /** Closing anyway **/
+    };
+
+    private final Channeling channeling;
+    private final int maxConnectionsPerRoute;
+    private final long idleTimeoutInMs;
+    private final Map<RouteKey, Route> routes = new ConcurrentHashMap<>();
+    private final Map<ChannelingSocket, Lease> leased = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public ChannelingConnectionPool(Channeling channeling) {
+        this(channeling, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, defaultIdleTimeoutInMs(channeling));
+    }
+
+    /**
+     * @return half of the idle timeout of the channeling, {@link #DEFAULT_IDLE_TIMEOUT_IN_MS} if it has none
+     */
+    public static long defaultIdleTimeoutInMs(Channeling channeling) {
+        return channeling.idleTimeoutInMs > 0 ? Math.max(1, channeling.idleTimeoutInMs / 2) : DEFAULT_IDLE_TIMEOUT_IN_MS;
+    }
+
+    /**
+     * @param channeling             channeling to wrap new sockets
+     * @param maxConnectionsPerRoute leased and idle sockets per route, lease wait for a released one beyond it, 0 for unlimited
+     * @param idleTimeoutInMs        time in milisecond a released socket is kept for next lease, shorter than the idle
+     *                               timeout of the channeling
+     */
+    public ChannelingConnectionPool(Channeling channeling, int maxConnectionsPerRoute, long idleTimeoutInMs) {
+        if (idleTimeoutInMs <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be greater than 0");
+        }
+        if (channeling.idleTimeoutInMs > 0 && idleTimeoutInMs >= channeling.idleTimeoutInMs) {
+            // Processor would close the idle sockets first, failing the callbacks of their last request
+            throw new IllegalArgumentException("Idle timeout must be shorter than the idle timeout of channeling "
+                    + channeling.idleTimeoutInMs + "ms");
+        }
+        this.channeling = channeling;
+        this.maxConnectionsPerRoute = Math.max(maxConnectionsPerRoute, 0);
+        this.idleTimeoutInMs = idleTimeoutInMs;
+    }
+
+    public void lease(String host, int port, Object context, Then then, ErrorCallback errorCallback) {
+        lease(null, null, host, port, context, then, errorCallback);
+    }
+
+    public void leaseSSL(SSLContext sslContext, String host, int port, Object context, Then then, ErrorCallback errorCallback) {
+        lease(null, sslContext, host, port, context, then, errorCallback);
+    }
+
+    /**
+     * Lease a connected socket, the idle one released last is preferred. Then callback is invoked by the caller thread
+     * when reusing, or by the worker once connected, or by the thread giving back a socket when lease had to wait.
+     *
+     * @param proxy         proxy to tunnel through, null for direct connection
+     * @param sslContext    context to wrap SSL socket, null for plain socket
+     * @param host          remote host
+     * @param port          remote port
+     * @param context       context set to the leased socket
+     * @param then          invoked with connected socket
+     * @param errorCallback invoked when socket failed to connect, socket is null if it could not even be created
+     */
+    public void lease(ChannelingProxy proxy, SSLContext sslContext, String host, int port, Object context,
+                      Then then, ErrorCallback errorCallback) {
+        if (closed) {
+            errorCallback.error(null, new IllegalStateException("Connection pool is closed"));
+            return;
+        }
+        Route route = routes.computeIfAbsent(new RouteKey(proxy, sslContext, host, port), Route::new);
+        ChannelingSocket socket = null;
+        synchronized (route) {
+            evictIdle(route, System.currentTimeMillis());
+            Idle idle;
+            while ((idle = route.idle.pollLast()) != null) {
+                if (isHealthy(idle.socket)) {
+                    socket = idle.socket;
+                    break;
+                }
+                route.total--;
+                closeQuietly(idle.socket);
+            }
+            if (socket == null) {
+                if (maxConnectionsPerRoute > 0 && route.total >= maxConnectionsPerRoute) {
+                    route.waiters.offer(new Waiter(context, then, errorCallback));
+                    return;
+                }
+                route.total++;
+            }
+        }
+
+        if (socket == null) {
+            connect(route, context, then, errorCallback);
+        } else {
+            handOver(route, socket, context, then);
+        }
+    }
+
+    /**
+     * Give back a socket which response has been fully consumed, it is handed to the next waiting lease or kept idle
+     */
+    public void release(ChannelingSocket socket) {
+        Lease lease = leased.remove(socket);
+        if (lease == null) {
+            closeQuietly(socket);
+            return;
+        }
+        Route route = lease.route;
+        if (closed || !nativeChannel(socket).isOpen()) {
+            closeQuietly(socket);
+            freed(route);
+            return;
+        }
+        Waiter waiter;
+        synchronized (route) {
+            waiter = route.waiters.poll();
+            if (waiter == null) {
+                long now = System.currentTimeMillis();
+                socket.setContext(null);
+                route.idle.offerLast(new Idle(socket, now));
+                evictIdle(route, now);
+                return;
+            }
+        }
+        handOver(route, socket, waiter.context, waiter.then);
+    }
+
+    /**
+     * Close a leased socket which can not be reused, e.g. response not fully consumed or failed, the slot is given to
+     * the next waiting lease
+     */
+    public void discard(ChannelingSocket socket) {
+        if (socket == null) {
+            return;
+        }
+        Lease lease = leased.remove(socket);
+        closeQuietly(socket);
+        if (lease != null) {
+            freed(lease.route);
+        }
+    }
+
+    /**
+     * Discard a leased socket and connect a new one for the same route in place, e.g. reused socket found closed by
+     * peer before any response
+     */
+    public void reconnect(ChannelingSocket socket, Then then, ErrorCallback errorCallback) {
+        Lease lease = leased.remove(socket);
+        closeQuietly(socket);
+        if (lease == null) {
+            errorCallback.error(socket, new IllegalStateException("Socket is not leased from this pool"));
+            return;
+        }
+        connect(lease.route, socket.getContext(), then, errorCallback);
+    }
+
+    /**
+     * @return true if socket has served a previous lease, request on it may fail as peer can close it anytime
+     */
+    public boolean isReused(ChannelingSocket socket) {
+        Lease lease = leased.get(socket);
+        return lease != null && lease.reused;
+    }
+
+    /**
+     * Close sockets of every route idle longer than idle timeout, eviction is otherwise done per route on lease and release
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Route route : routes.values()) {
+            synchronized (route) {
+                evictIdle(route, now);
+            }
+        }
+    }
+
+    /**
+     * Close idle sockets and fail waiting leases, leased sockets are closed once given back
+     */
+    public void close() {
+        closed = true;
+        for (Route route : routes.values()) {
+            ArrayDeque<Waiter> waiters;
+            synchronized (route) {
+                Idle idle;
+                while ((idle = route.idle.pollFirst()) != null) {
+                    route.total--;
+                    closeQuietly(idle.socket);
+                }
+                waiters = new ArrayDeque<>(route.waiters);
+                route.waiters.clear();
+            }
+            for (Waiter waiter : waiters) {
+                waiter.errorCallback.error(null, new IllegalStateException("Connection pool is closed"));
+            }
+        }
+    }
+
+    public int getIdleCount() {
+        int count = 0;
+        for (Route route : routes.values()) {
+            synchronized (route) {
+                count += route.idle.size();
+            }
+        }
+        return count;
+    }
+
+    public int getLeasedCount() {
+        return leased.size();
+    }
+
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    public long getIdleTimeoutInMs() {
+        return idleTimeoutInMs;
+    }
+
+    private void handOver(Route route, ChannelingSocket socket, Object context, Then then) {
+        leased.put(socket, new Lease(route, true));
+        socket.setContext(context);
+        then.callback(socket);
+    }
+
+    /**
+     * Slot of a closed socket go to the next waiting lease
+     */
+    private void freed(Route route) {
+        Waiter waiter;
+        synchronized (route) {
+            waiter = route.waiters.poll();
+            if (waiter == null) {
+                route.total--;
+                return;
+            }
+        }
+        connect(route, waiter.context, waiter.then, waiter.errorCallback);
+    }
+
+    private void connect(Route route, Object context, Then then, ErrorCallback errorCallback) {
+        ChannelingSocket socket;
+        try {
+            socket = route.key.wrap(channeling, context);
+        } catch (Exception e) {
+            freed(route);
+            errorCallback.error(null, e);
+            return;
+        }
+        leased.put(socket, new Lease(route, false));
+        socket.withConnect(route.key.host, route.key.port)
+                .when((WhenConnectingStatus) connectingStatus -> connectingStatus)
+                .then(then, (sc, e) -> {
+                    discard(sc);
+                    errorCallback.error(sc, e);
+                });
+    }
+
+    private void evictIdle(Route route, long now) {
+        Idle idle;
+        while ((idle = route.idle.peekFirst()) != null && now - idle.since >= idleTimeoutInMs) {
+            route.idle.pollFirst();
+            route.total--;
+            closeQuietly(idle.socket);
+        }
+    }
+
+    /**
+     * Idle connection has nothing to say, bytes or end of stream mean it is not usable anymore.
+     * Probe the native channel only, the SSL engine and buffers of the socket belong to its worker, for SSL any record
+     * left unread, e.g. close_notify or a session ticket, drop the connection
+     */
+    private static boolean isHealthy(ChannelingSocket socket) {
+        SocketChannel sc = nativeChannel(socket);
+        if (!sc.isOpen() || !sc.isConnected()) {
+            return false;
+        }
+        try {
+            return sc.read(ByteBuffer.allocate(1)) == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(ChannelingSocket socket) {
+        if (nativeChannel(socket).isOpen()) {
+            socket.close(CLOSE_CALLBACK, CLOSE_ERRORCALLBACK);
+        }
+    }
+
+    private static SocketChannel nativeChannel(ChannelingSocket socket) {
+        if (socket.isSSL()) {
+            return ((SSLSocketChannel) socket.getSocketChannel()).getWrappedSocketChannel();
+        }
+        return socket.getSocketChannel();
+    }
+
+    private static final class RouteKey {
+        private final ChannelingProxy proxy;
+        private final SSLContext sslContext;
+        private final String host;
+        private final int port;
+
+        RouteKey(ChannelingProxy proxy, SSLContext sslContext, String host, int port) {
+            this.proxy = proxy;
+            this.sslContext = sslContext;
+            this.host = host;
+            this.port = port;
+        }
+
+        ChannelingSocket wrap(Channeling channeling, Object context) throws Exception {
+            if (proxy != null) {
+                return sslContext != null ? channeling.wrapProxySSL(proxy, sslContext, host, port, context) :
+                        channeling.wrapProxy(proxy, context);
+            }
+            return sslContext != null ? channeling.wrapSSL(sslContext, host, port, context) : channeling.wrap(context);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RouteKey)) {
+                return false;
+            }
+            RouteKey that = (RouteKey) o;
+            return port == that.port && host.equals(that.host) && sslContext == that.sslContext && sameProxy(proxy, that.proxy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, System.identityHashCode(sslContext),
+                    proxy == null ? null : proxy.getHost(), proxy == null ? 0 : proxy.getPort());
+        }
+
+        private static boolean sameProxy(ChannelingProxy a, ChannelingProxy b) {
+            if (a == b) {
+                return true;
+            }
+            return a != null && b != null && a.getPort() == b.getPort() && Objects.equals(a.getHost(), b.getHost())
+                    && Objects.equals(a.getUserName(), b.getUserName()) && Objects.equals(a.getPassword(), b.getPassword());
+        }
+    }
+
+    private static final class Route {
+        private final RouteKey key;
+        private final ArrayDeque<Idle> idle = new ArrayDeque<>();
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        // Leased, connecting and idle sockets
+        private int total;
+
+        Route(RouteKey key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Idle {
+        private final ChannelingSocket socket;
+        private final long since;
+
+        Idle(ChannelingSocket socket, long since) {
+            this.socket = socket;
+            this.since = since;
+        }
+    }
+
+    private static final class Waiter {
+        private final Object context;
+        private final Then then;
+        private final ErrorCallback errorCallback;
+
+        Waiter(Object context, Then then, ErrorCallback errorCallback) {
+            this.context = context;
+            this.then = then;
+            this.errorCallback = errorCallback;
+        }
+    }
+
+    private static final class Lease {
+        private final Route route;
+        private final boolean reused;
+
+        Lease(Route route, boolean reused) {
+            this.route = route;
+            this.reused = reused;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.taymindis.nio.channeling;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size histogram of nano second durations, bucket i count the values from 2^i to 2^(i+1) - 1 so recording is one
+ * array increment without allocation. Percentiles are reported as the upper bound of the bucket, accurate within 2x.
+ */
+public class ChannelingLatencyHistogram {
+    public static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos duration, negative is taken as 0 and beyond the last bucket is counted in the last bucket
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1);
+        buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        long currentMax;
+        while (nanos > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getMaxInNanos() {
+        return max.get();
+    }
+
+    /**
+     * @return count of every bucket, copied
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return largest value counted in the bucket
+     */
+    public static long getBucketUpperBoundInNanos(int bucket) {
+        if (bucket < 0 || bucket >= BUCKETS) {
+            throw new IllegalArgumentException("Bucket out of range " + bucket);
+        }
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return upper bound of the bucket holding the percentile, capped by max, 0 if nothing recorded
+     */
+    public long getPercentileInNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be from 0 to 100");
+        }
+        long[] counts = getBucketCounts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBoundInNanos(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%dus p99=%dus p999=%dus max=%dus", getCount(),
+                TimeUnit.NANOSECONDS.toMicros(getPercentileInNanos(50)),
+                TimeUnit.NANOSECONDS.toMicros(getPercentileInNanos(99)),
+                TimeUnit.NANOSECONDS.toMicros(getPercentileInNanos(99.9)),
+                TimeUnit.NANOSECONDS.toMicros(getMaxInNanos()));
+    }
+}
@@ -6,22 +6,49 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 class ChannelingProcessor implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(ChannelingProcessor.class);
-    private final Queue<ChannelingSocket> queue;
+    private final ChannelingQueue queue;
     private final Channeling channeling;
     private final Selector nioSelector;
-    private final int peekPerNano;
-
-    ChannelingProcessor(Queue<ChannelingSocket> queue, Channeling channeling, int peekPerNano) throws IOException {
-        this.queue = queue;
+    private final ChannelingWaitStrategy waitStrategy;
+    private final ChannelingTimeoutFeature timeouts;
+    private final Consumer<SelectionKey> selectedKeyHandler = this::handleSelectedKey;
+    private final BiConsumer<ChannelingSocket, TimeoutException> timeoutHandler = this::timeout;
+    private final List<AbstractChannelRunner> closedSockets = new ArrayList<>();
+    // Picked from queue once per turn, null when metrics disabled
+    private ChannelingWorkerMetrics metrics;
+    private boolean stallDetection;
+    private ChannelingCallbackExecutor callbackExecutor;
+    // Io task which completion is being handled, the socket is already idle when its callback run
+    private ChannelingTask dispatchTask;
+    // Callback being run, sampled by stall detector thread
+    private volatile Thread thread;
+    private volatile boolean dispatching;
+    private volatile long dispatchStartNanos;
+    private volatile ChannelingSocket dispatchSocket;
+    private volatile ChannelingTask dispatchingTask;
+    private long reportedStartNanos;
+
+    ChannelingProcessor(Channeling channeling, ChannelingWaitStrategy waitStrategy, int index) throws IOException {
         this.channeling = channeling;
-        this.peekPerNano = peekPerNano;
+        this.waitStrategy = waitStrategy;
         this.nioSelector = initSelector();
+        this.queue = new ChannelingQueue(index, nioSelector);
+        this.timeouts = new ChannelingTimeoutFeature(channeling.connectionTimeoutInMs, channeling.readWriteTimeOutInMs,
+                channeling.idleTimeoutInMs, channeling.timeoutTickInMs);
+    }
+
+    ChannelingQueue getQueue() {
+        return queue;
     }
 
     private Selector initSelector() throws IOException {
@@ -31,11 +58,18 @@ class ChannelingProcessor implements Runnable {
     @Override
     public void run() {
         ChannelingSocket socket;
+        int idleTurns = 0;
+        thread = Thread.currentThread();
 //        long connectingWaitCount = channeling.connectingWaitCount;
 //        long readwriteWaitCount = channeling.readWriteWaitCount;
         while (channeling.active) {
             try {
+                metrics = queue.getMetrics();
+                stallDetection = channeling.stallDetector != null;
+                callbackExecutor = channeling.getCallbackExecutor();
+                boolean queued = false;
                 while (queue.peek() != null) {
+                    queued = true;
                     socket = queue.poll();
                     try {
                         if (socket instanceof ChannelServerRunner) {
@@ -45,16 +79,34 @@ class ChannelingProcessor implements Runnable {
                         }
                     } catch (IOException e) {
                         log.error(e.getMessage(), e);
+                        if (metrics != null) {
+                            metrics.error();
+                        }
                         socket.close(channelingSocket -> {
                         });
                         socket.getErrorCallBack().error(socket, e);
                     }
                 }
-                runIOTask();
-                if(peekPerNano>0) {
-                    Thread.sleep(0, peekPerNano);
+                long waitInMs = queued ? 0 : waitStrategy.idle(idleTurns);
+                if (waitInMs > timeouts.getTickInMs() && !timeouts.isEmpty()) {
+                    // Do not oversleep pending timeouts
+                    waitInMs = timeouts.getTickInMs();
+                }
+                if (runIOTask(waitInMs) > 0 || queued) {
+                    idleTurns = 0;
+                } else if (idleTurns < Integer.MAX_VALUE) {
+                    idleTurns++;
+                }
+                long now = System.currentTimeMillis();
+                timeouts.expire(now, timeoutHandler);
+                releaseClosedSockets();
+                if (metrics != null) {
+                    metrics.turn(now);
                 }
             } catch (Exception e) {
+                if (metrics != null) {
+                    metrics.error();
+                }
                 e.printStackTrace();
             }
         }
@@ -74,40 +126,26 @@ class ChannelingProcessor implements Runnable {
         }
     }
 
-    private void runIOTask() throws IOException, TimeoutException {
-        nioSelector.selectNow(selectionKey -> {
-            if (selectionKey.isValid()) {
-                ChannelingSocket channelingSocket = (ChannelingSocket) selectionKey.attachment();
-
-                if (channelingSocket == null) {
-                    log.error("Unknown selection key invoke ...");
-                    return;
-                }
-
-                try {
-                    if (channelingSocket instanceof ChannelServerRunner) {
-                        if (doServerIO(channelingSocket, selectionKey)) {
-                        } else {
-                            log.debug("pending channel");
-                        }
-                    } else {
-                        if (doIO(channelingSocket, selectionKey)) {
-//                    iter.remove();
-                        } else {
-                            log.debug("pending channel");
-                        }
-                    }
-                } catch (Exception e) {
-                    channelingSocket.close(csClosed -> {
-                    });
-                    channelingSocket.getErrorCallBack().error(channelingSocket, e);
-                }
+    /**
+     * @param waitInMs time to block on selector if nothing queued, 0 to selectNow
+     * @return number of selected keys
+     */
+    private int runIOTask(long waitInMs) throws IOException, TimeoutException {
+        int selectedKeys;
+        if (waitInMs > 0 && queue.park()) {
+            try {
+                selectedKeys = nioSelector.select(selectedKeyHandler, waitInMs);
+            } finally {
+                queue.unpark();
             }
-        });
-
+        } else {
+            selectedKeys = nioSelector.selectNow(selectedKeyHandler);
+        }
 
         Set<SelectionKey> allKeys = nioSelector.keys();
-
+        if (metrics != null) {
+            metrics.selected(selectedKeys, allKeys.size());
+        }
 
         for (ChannelingPlugin plugin : channeling.getChannelingPlugins()) {
             plugin.checkKeys(allKeys);
@@ -170,11 +208,236 @@ class ChannelingProcessor implements Runnable {
 /**
  *   Time out feature End
  */
+        return selectedKeys;
+    }
 
+    private void handleSelectedKey(SelectionKey selectionKey) {
+        if (selectionKey.isValid()) {
+            ChannelingSocket channelingSocket = (ChannelingSocket) selectionKey.attachment();
+
+            if (channelingSocket == null) {
+                log.error("Unknown selection key invoke ...");
+                return;
+            }
+
+            if (((AbstractChannelRunner) channelingSocket).offloaded) {
+                // Callback thread own the socket until it ask for next io task
+                selectionKey.interestOps(0);
+                return;
+            }
+            dispatchTask = channelingSocket.getIoTask();
+            try {
+                if (channelingSocket instanceof ChannelServerRunner) {
+                    if (doServerIO(channelingSocket, selectionKey)) {
+                    } else {
+                        log.debug("pending channel");
+                    }
+                } else {
+                    if (doIO(channelingSocket, selectionKey)) {
+//                    iter.remove();
+                    } else {
+                        log.debug("pending channel");
+                    }
+                }
+            } catch (Exception e) {
+                if (metrics != null) {
+                    metrics.error();
+                }
+                channelingSocket.close(csClosed -> {
+                });
+                channelingSocket.getErrorCallBack().error(channelingSocket, e);
+            }
+        }
     }
 
     private void idleTask(ChannelingSocket channelingSocket) {
         channelingSocket.setIoTask(ChannelingTask.DO_IDLE);
+        if (channelingSocket instanceof ChannelServerRunner) {
+            return;
+        }
+        AbstractChannelRunner runner = (AbstractChannelRunner) channelingSocket;
+        trackPendingBytes(runner, 0);
+        if (nativeChannel(channelingSocket).isOpen()) {
+            timeouts.armIdle(runner, System.currentTimeMillis());
+        } else {
+            timeouts.cancel(runner);
+            if (!runner.released) {
+                runner.released = true;
+                queue.released();
+                // Close callback may still use the buffers, release them at the end of this turn
+                closedSockets.add(runner);
+            }
+        }
+    }
+
+    /**
+     * Run the then callback, timed only when metrics or stall detector enabled
+     */
+    private void callback(ChannelingSocket socket) {
+        Executor executor = callbackExecutorOf(socket);
+        if (executor != null) {
+            offload((AbstractChannelRunner) socket, executor);
+            return;
+        }
+        if (metrics == null && !stallDetection) {
+            socket.getThen().callback(socket);
+            return;
+        }
+        long start = System.nanoTime();
+        if (stallDetection) {
+            dispatchStartNanos = start;
+            dispatchSocket = socket;
+            dispatchingTask = dispatchTask;
+            dispatching = true;
+        }
+        try {
+            socket.getThen().callback(socket);
+        } finally {
+            if (stallDetection) {
+                dispatching = false;
+                dispatchSocket = null;
+            }
+            if (metrics != null) {
+                metrics.callbackDone(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * @return executor to run the callback of socket on, null to run it inline
+     */
+    private Executor callbackExecutorOf(ChannelingSocket socket) {
+        if (socket instanceof ChannelServerRunner) {
+            // Accept callbacks only wrap sockets, keep them on the loop
+            return null;
+        }
+        Executor executor = socket.getCallbackExecutor();
+        if (executor == null) {
+            executor = callbackExecutor;
+        }
+        if (executor instanceof ChannelingCallbackExecutor && ((ChannelingCallbackExecutor) executor).isInline()) {
+            return null;
+        }
+        return executor;
+    }
+
+    /**
+     * Hand the callback to executor, the socket is left alone until the callback register next io task
+     */
+    private void offload(AbstractChannelRunner socket, Executor executor) {
+        ChannelingCallbackSequencer sequencer = socket.callbackSequencer;
+        if (sequencer == null) {
+            sequencer = new ChannelingCallbackSequencer(socket, queue);
+            socket.callbackSequencer = sequencer;
+        }
+        Then then = socket.getThen();
+        ChannelingWorkerMetrics metrics = this.metrics;
+        socket.offloaded = true;
+        sequencer.execute(executor, () -> {
+            long start = metrics == null ? 0 : System.nanoTime();
+            try {
+                then.callback(socket);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                socket.close(csClosed -> {
+                });
+                socket.getErrorCallBack().error(socket, e);
+            } finally {
+                if (metrics != null) {
+                    metrics.callbackDone(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    /**
+     * Called by stall detector thread
+     *
+     * @return stall of the running callback if it run longer than threshold and not reported yet, otherwise null
+     */
+    ChannelingStall sampleStall(long thresholdInNanos) {
+        if (!dispatching) {
+            return null;
+        }
+        long start = dispatchStartNanos;
+        ChannelingSocket socket = dispatchSocket;
+        ChannelingTask task = dispatchingTask;
+        long elapsed = System.nanoTime() - start;
+        if (socket == null || elapsed < thresholdInNanos || start == reportedStartNanos) {
+            return null;
+        }
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        // Callback may have returned while sampling, the stack would belong to something else
+        if (!dispatching || start != dispatchStartNanos) {
+            return null;
+        }
+        reportedStartNanos = start;
+        return new ChannelingStall(queue.getIndex(), socket, task == null ? "UNKNOWN" : task.name(), elapsed, stackTrace);
+    }
+
+    private void releaseClosedSockets() {
+        if (closedSockets.isEmpty()) {
+            return;
+        }
+        int kept = 0;
+        for (int i = 0, len = closedSockets.size(); i < len; i++) {
+            AbstractChannelRunner runner = closedSockets.get(i);
+            if (runner.isCallbackRunning()) {
+                // Offloaded close callback may still use the buffers
+                closedSockets.set(kept++, runner);
+            } else {
+                runner.releaseBuffers();
+            }
+        }
+        closedSockets.subList(kept, closedSockets.size()).clear();
+    }
+
+    /**
+     * Reflect the bytes left in socket writing buffer to worker load counter
+     */
+    private void trackPendingBytes(AbstractChannelRunner runner, long pendingWriteBytes) {
+        long delta = pendingWriteBytes - runner.pendingWriteBytes;
+        if (delta != 0) {
+            runner.pendingWriteBytes = pendingWriteBytes;
+            queue.addPendingBytes(delta);
+        }
+    }
+
+    private static boolean hasBufferedInput(ChannelingSocket socket) {
+        return socket.isSSL() && socket.getIoTask() == ChannelingTask.DO_READ
+                && ((SSLSocketChannel) socket.getSocketChannel()).hasBufferedInput();
+    }
+
+    private static SocketChannel nativeChannel(ChannelingSocket socket) {
+        if (socket.isSSL()) {
+            return ((SSLSocketChannel) socket.getSocketChannel()).getWrappedSocketChannel();
+        }
+        return socket.getSocketChannel();
+    }
+
+    /**
+     * Invoked by timing wheel, socket is left to error callback to close
+     */
+    private void timeout(ChannelingSocket socket, TimeoutException timeoutException) {
+        SocketChannel $sc = nativeChannel(socket);
+        if (!$sc.isOpen()) {
+            return;
+        }
+        AbstractChannelRunner runner = (AbstractChannelRunner) socket;
+        if (runner.isCallbackRunning()) {
+            // Only idle timeout is armed while callback run, same as an inline callback it does not expire the socket
+            timeouts.armIdle(runner, System.currentTimeMillis());
+            return;
+        }
+        SelectionKey key = $sc.keyFor(nioSelector);
+        if (key != null) {
+            key.cancel();
+        }
+        if (metrics != null) {
+            metrics.timeout();
+        }
+        socket.withClose();
+        socket.getErrorCallBack().error(socket, timeoutException);
     }
 
     /**
@@ -184,12 +447,10 @@ class ChannelingProcessor implements Runnable {
      * @throws TimeoutException
      */
     private void registerIOTask(ChannelingSocket socket) throws IOException {
-        SocketChannel $sc;
-        if (socket.isSSL()) {
-            $sc = ((SSLSocketChannel) socket.getSocketChannel()).getWrappedSocketChannel();
-        } else {
-            $sc = socket.getSocketChannel();
-        }
+        SocketChannel $sc = nativeChannel(socket);
+        dispatchTask = socket.getIoTask();
+        ((AbstractChannelRunner) socket).offloaded = false;
+        timeouts.arm((AbstractChannelRunner) socket);
         switch (socket.getIoTask()) {
             case DO_CONNECT:
                 $sc.connect(socket.getRemoteAddress());
@@ -197,29 +458,40 @@ class ChannelingProcessor implements Runnable {
                 break;
             case DO_WRITE:
             case DO_PROXY_SSL_CONNECT_WRITE:
+                if (socket.getCurrWritingBuffers() != null) {
+                    trackPendingBytes((AbstractChannelRunner) socket, remaining(socket.getCurrWritingBuffers(), 0));
+                } else if (socket.getCurrWritingBuffer() != null) {
+                    trackPendingBytes((AbstractChannelRunner) socket, socket.getCurrWritingBuffer().remaining());
+                }
+                doRegister(SelectionKey.OP_WRITE, socket, $sc);
+                break;
+            case DO_TRANSFER:
+                trackPendingBytes((AbstractChannelRunner) socket, socket.getTransferRemaining());
                 doRegister(SelectionKey.OP_WRITE, socket, $sc);
                 break;
             case DO_CLOSE:
 //                doRegister(SelectionKey.OP_WRITE, socket, $sc);
                 if ($sc.isOpen()) {
+                    SelectionKey targetKey = $sc.keyFor(nioSelector);
+                    if (targetKey != null) {
+                        targetKey.cancel();
+                    }
                     if (socket.isSSL()) {
                         SSLSocketChannel sslSocketChannel = ((SSLSocketChannel) socket.getSocketChannel());
-                        sslSocketChannel.getWrappedSocketChannel().keyFor(nioSelector).cancel();
                         sslSocketChannel.implCloseSelectableChannel();
                     } else {
-                        SelectionKey targetKey = $sc.keyFor(nioSelector);
-                        targetKey.cancel();
 //                        targetKey.channel().close();
                         $sc.close();
                     }
                 }
                 idleTask(socket);
-                socket.getThen().callback(socket);
+                callback(socket);
 
                 break;
             case DO_READ:
             case DO_PROXY_SSL_CONNECT_READ:
-                if (socket.isEagerRead()) {
+                if (socket.isEagerRead() || hasBufferedInput(socket)) {
+                    // Buffered SSL input is read on next writable turn, the peer may not send anything more
                     doRegister(SelectionKey.OP_READ | SelectionKey.OP_WRITE, socket, $sc);
                 } else {
                     doRegister(SelectionKey.OP_READ, socket, $sc);
@@ -292,7 +564,7 @@ class ChannelingProcessor implements Runnable {
 
         if (socket.tryRemoveEagerRead()) {
             // If removed eager read but current IO is do write, then don't remove do write event
-            if (ioTask != ChannelingTask.DO_WRITE) {
+            if (ioTask != ChannelingTask.DO_WRITE && ioTask != ChannelingTask.DO_TRANSFER) {
                 if (socket.isSSL()) {
                     SocketChannel nativeSocketChannel = ((SSLSocketChannel) $sc).getWrappedSocketChannel();
                     doRegister(nativeSocketChannel.keyFor(nioSelector).interestOps() & ~SelectionKey.OP_WRITE, socket, nativeSocketChannel);
@@ -309,13 +581,16 @@ class ChannelingProcessor implements Runnable {
                 }
                 return false;
             case DO_READ:
-                if (key.isValid() && key.isReadable()) {
+                if (key.isValid() && (key.isReadable() || hasBufferedInput(socket))) {
                     return doRead(socket, $sc, key);
                 } else if (socket.isEagerRead()) {
                     if (socket.isSSL()) {
                         return doRead(socket, $sc, key);
                     }
                     return doPredicateThenCallback(socket, 0, $sc, key);
+                } else if (socket.isSSL() && key.isValid() && (key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                    // Buffered input drained, wait for the peer again
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
                 }
                 return false;
             case DO_WRITE:
@@ -323,6 +598,11 @@ class ChannelingProcessor implements Runnable {
                     return doWrite(socket, $sc, key);
                 }
                 return false;
+            case DO_TRANSFER:
+                if (key.isValid() && key.isWritable()) {
+                    return doTransfer((AbstractChannelRunner) socket, $sc, key);
+                }
+                return false;
 //                else {
 //                    throw new IOException("Socket been signaled to write but it is not ready for write");
 //                }
@@ -348,6 +628,10 @@ class ChannelingProcessor implements Runnable {
             case DO_CONNECT:
                 return doPredicateThenCallback(socket, 0, $sc, key);
             case DO_IDLE:
+                // Nothing waiting on this socket, stop the selector from spinning on it until next task registered
+                if (key.isValid()) {
+                    key.interestOps(0);
+                }
                 return true;
             default:
                 throw new IOException("Ambiguous channeling action! ");
@@ -366,6 +650,9 @@ class ChannelingProcessor implements Runnable {
                 }
                 return false;
             case DO_IDLE:
+                if (key.isValid()) {
+                    key.interestOps(0);
+                }
                 return true;
             default:
                 throw new IOException("Ambiguous channeling action! " + ioTask);
@@ -373,11 +660,77 @@ class ChannelingProcessor implements Runnable {
     }
 
     private boolean doWrite(ChannelingSocket socket, SocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
+        if (socket.isSSL() && !((SSLSocketChannel) $sc).flush()) {
+            return false;
+        }
+        ByteBuffer[] writeBuffs = socket.getCurrWritingBuffers();
+        if (writeBuffs != null) {
+            return doGatheringWrite((AbstractChannelRunner) socket, writeBuffs, $sc, key);
+        }
         ByteBuffer writeBuff = socket.getCurrWritingBuffer();
         if (writeBuff == null) {
             throw new NullPointerException("Buffer for writing is null ...");
         }
-        return doPredicateThenCallback(socket, $sc.write(writeBuff), $sc, key);
+        int written = $sc.write(writeBuff);
+        if (metrics != null) {
+            metrics.written(written);
+        }
+        trackPendingBytes((AbstractChannelRunner) socket, writeBuff.remaining());
+        return thenCallbackWhenFlushed((AbstractChannelRunner) socket, written, $sc, key);
+    }
+
+    /**
+     * Flush the buffers from the first one not drained yet in one syscall, partially written buffers resume on next turn
+     */
+    private boolean doGatheringWrite(AbstractChannelRunner socket, ByteBuffer[] writeBuffs, SocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
+        int offset = socket.writeOffset;
+        while (offset < writeBuffs.length - 1 && !writeBuffs[offset].hasRemaining()) {
+            offset++;
+        }
+        long written = $sc.write(writeBuffs, offset, writeBuffs.length - offset);
+        if (metrics != null) {
+            metrics.written(written);
+        }
+        while (offset < writeBuffs.length - 1 && !writeBuffs[offset].hasRemaining()) {
+            offset++;
+        }
+        socket.writeOffset = offset;
+        trackPendingBytes(socket, remaining(writeBuffs, offset));
+        return thenCallbackWhenFlushed(socket, written, $sc, key);
+    }
+
+    private boolean doTransfer(AbstractChannelRunner socket, SocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
+        if (socket.isSSL() && !((SSLSocketChannel) $sc).flush()) {
+            return false;
+        }
+        long transferred = socket.doTransfer();
+        if (metrics != null) {
+            metrics.written(transferred);
+        }
+        trackPendingBytes(socket, socket.getTransferRemaining());
+        return thenCallbackWhenFlushed(socket, transferred, $sc, key);
+    }
+
+    /**
+     * SSL engine consume the application bytes before the encrypted records reach the socket, callback is held back until
+     * they are flushed on next writable turn, otherwise closing right after the write truncate the response
+     */
+    private boolean thenCallbackWhenFlushed(AbstractChannelRunner socket, long written, SocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
+        if (socket.isSSL() && ((SSLSocketChannel) $sc).hasPendingFlush()) {
+            socket.unflushedWritten += written;
+            return false;
+        }
+        written += socket.unflushedWritten;
+        socket.unflushedWritten = 0;
+        return doPredicateThenCallback(socket, (int) Math.min(written, Integer.MAX_VALUE), $sc, key);
+    }
+
+    private static long remaining(ByteBuffer[] buffers, int offset) {
+        long remaining = 0;
+        for (int i = offset; i < buffers.length; i++) {
+            remaining += buffers[i].remaining();
+        }
+        return remaining;
     }
 
     private boolean doSSLProxyConnectWrite(ChannelingSocket socket, SSLSocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
@@ -385,13 +738,20 @@ class ChannelingProcessor implements Runnable {
         if (writeBuff == null) {
             throw new NullPointerException("Buffer for writing is null ...");
         }
-        return doPredicateThenCallback(socket, $sc.getWrappedSocketChannel().write(writeBuff), $sc, key);
+        int written = $sc.getWrappedSocketChannel().write(writeBuff);
+        if (metrics != null) {
+            metrics.written(written);
+        }
+        return doPredicateThenCallback(socket, written, $sc, key);
     }
 
     private boolean doRead(ChannelingSocket socket, SocketChannel $sc, SelectionKey key) throws IOException, TimeoutException {
         ByteBuffer readBuff = socket.getReadBuffer();
 //        log.debug("is Eager Read ? {}", socket.isEagerRead() ? "YES" : "NO");
         int numRead = $sc.read(readBuff);
+        if (metrics != null) {
+            metrics.read(numRead);
+        }
         if (numRead == -1) {
             log.debug("Socket closed by remote peer");
             socket.setLastProcessedBytes(numRead);
@@ -400,7 +760,7 @@ class ChannelingProcessor implements Runnable {
                 $sc.close();
             }
             idleTask(socket);
-            socket.getThen().callback(socket);
+            callback(socket);
             return true;
         } else {
             return doPredicateThenCallback(socket, numRead, $sc, key);
@@ -411,6 +771,9 @@ class ChannelingProcessor implements Runnable {
         ByteBuffer readBuff = socket.getReadBuffer();
 //        log.debug("is Eager Read ? {}", socket.isEagerRead() ? "YES" : "NO");
         int numRead = $sc.getWrappedSocketChannel().read(readBuff);
+        if (metrics != null) {
+            metrics.read(numRead);
+        }
         if (numRead == -1) {
             log.debug("Socket closed by remote peer");
             socket.setLastProcessedBytes(numRead);
@@ -419,7 +782,7 @@ class ChannelingProcessor implements Runnable {
                 $sc.close();
             }
             idleTask(socket);
-            socket.getThen().callback(socket);
+            callback(socket);
             return true;
         } else {
             return doPredicateThenCallback(socket, numRead, $sc, key);
@@ -441,7 +804,7 @@ class ChannelingProcessor implements Runnable {
         socket.setLastProcessedBytes(ret);
         if (socket.getCurrentPredicate() == null) {
             idleTask(socket);
-            socket.getThen().callback(socket);
+            callback(socket);
             return true;
         }
 
@@ -451,7 +814,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test(socket.getReadBuffer())) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
                 break;
@@ -459,7 +822,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test(socket.getCurrWritingBuffer())) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
                 break;
@@ -467,7 +830,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test($sc)) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
                 break;
@@ -475,7 +838,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test(socket)) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
                 break;
@@ -483,7 +846,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test(key.isConnectable() && $sc.finishConnect())) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
 //                if (socket.retry() >= channeling.connectingWaitCount) {
@@ -495,7 +858,7 @@ class ChannelingProcessor implements Runnable {
                     socket.setPredicateTask(null);
                     socket.setIoTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
 
@@ -507,7 +870,7 @@ class ChannelingProcessor implements Runnable {
                 if (socket.getCurrentPredicate().test(!$sc.isConnected())) {
                     socket.setPredicateTask(null);
                     idleTask(socket);
-                    socket.getThen().callback(socket);
+                    callback(socket);
                     return true;
                 }
 //                if (socket.retry() >= channeling.connectingWaitCount) {
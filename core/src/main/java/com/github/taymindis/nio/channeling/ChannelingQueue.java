@@ -0,0 +1,99 @@
+package com.github.taymindis.nio.channeling;
+
+import java.nio.channels.Selector;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Socket queue of one {@link ChannelingProcessor}, wake up the processor selector when it is parked.
+ * Also hold the load counters of the worker.
+ */
+class ChannelingQueue extends ConcurrentLinkedQueue<ChannelingSocket> implements ChannelingWorker {
+    private final int index;
+    private final Selector selector;
+    private final AtomicBoolean parked = new AtomicBoolean(false);
+    private final AtomicInteger registeredSockets = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private volatile ChannelingWorkerMetrics metrics;
+
+    ChannelingQueue(int index, Selector selector) {
+        this.index = index;
+        this.selector = selector;
+    }
+
+    @Override
+    public boolean offer(ChannelingSocket channelingSocket) {
+        boolean offered = super.offer(channelingSocket);
+        // Only the first producer after park pay for the wakeup
+        if (parked.get() && parked.compareAndSet(true, false)) {
+            selector.wakeup();
+        }
+        return offered;
+    }
+
+    /**
+     * Processor is going to block on select, must recheck queue after parked
+     *
+     * @return true if it is safe to block
+     */
+    boolean park() {
+        parked.set(true);
+        if (peek() != null) {
+            parked.set(false);
+            return false;
+        }
+        return true;
+    }
+
+    void unpark() {
+        parked.set(false);
+    }
+
+    void wakeup() {
+        selector.wakeup();
+    }
+
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public int getRegisteredSockets() {
+        return registeredSockets.get();
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    @Override
+    public ChannelingWorkerMetrics getMetrics() {
+        return metrics;
+    }
+
+    void setMetrics(ChannelingWorkerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Socket wrapped on this worker
+     */
+    void assigned() {
+        registeredSockets.incrementAndGet();
+    }
+
+    /**
+     * Socket of this worker closed
+     */
+    void released() {
+        registeredSockets.decrementAndGet();
+    }
+
+    void addPendingBytes(long delta) {
+        pendingBytes.addAndGet(delta);
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.taymindis.nio.channeling;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import java.util.Enumeration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client TLS session cache of a SSLContext. Sessions are kept per peer host:port by the context, an engine created with
+ * the peer address offers the cached session so the handshake is abbreviated. TLS 1.3 session tickets and TLS 1.2
+ * session ids / tickets are both kept in it, tickets are enabled by default since JDK 13 see
+ * jdk.tls.client.enableSessionTicketExtension.
+ * Counts full and abbreviated handshakes of the sockets wrapped by {@link Channeling} with the context.
+ */
+public class ChannelingSSLSessionCache {
+    public static final int DEFAULT_MAX_SESSIONS = 1024;
+    public static final long DEFAULT_SESSION_TIMEOUT_IN_MS = 4 * 60 * 60 * 1000;
+
+    private final SSLContext sslContext;
+    private final LongAdder fullHandshakes = new LongAdder();
+    private final LongAdder abbreviatedHandshakes = new LongAdder();
+
+    /**
+     * Keep the cache bounds of the context as they are, only handshakes are counted
+     */
+    public ChannelingSSLSessionCache(SSLContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * @param sslContext         context which client session cache is bounded
+     * @param maxSessions        max sessions kept, least recently used are evicted beyond it, 0 for unlimited
+     * @param sessionTimeoutInMs time in milisecond a session can be resumed since created, 0 for unlimited
+     */
+    public ChannelingSSLSessionCache(SSLContext sslContext, int maxSessions, long sessionTimeoutInMs) {
+        if (maxSessions < 0) {
+            throw new IllegalArgumentException("Max sessions must not be negative");
+        }
+        if (sessionTimeoutInMs < 0) {
+            throw new IllegalArgumentException("Session timeout must not be negative");
+        }
+        this.sslContext = sslContext;
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        sessionContext.setSessionCacheSize(maxSessions);
+        // Context timeout is in second, round up so a short timeout does not turn into unlimited
+        sessionContext.setSessionTimeout((int) Math.min(Integer.MAX_VALUE, (sessionTimeoutInMs + 999) / 1000));
+    }
+
+    /**
+     * @return client mode engine for the peer, the cached session of the peer is offered on handshake
+     */
+    public SSLEngine createSSLEngine(String host, int port) {
+        SSLEngine engine = sslContext.createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        return engine;
+    }
+
+    /**
+     * Invoked once the initial handshake of a socket finished, a resumed session was created before the handshake started
+     */
+    void handshakeFinished(SSLSession session, long handshakeStartTime) {
+        if (session.getCreationTime() < handshakeStartTime) {
+            abbreviatedHandshakes.increment();
+        } else {
+            fullHandshakes.increment();
+        }
+    }
+
+    public SSLContext getSSLContext() {
+        return sslContext;
+    }
+
+    public long getFullHandshakes() {
+        return fullHandshakes.sum();
+    }
+
+    public long getAbbreviatedHandshakes() {
+        return abbreviatedHandshakes.sum();
+    }
+
+    /**
+     * @return sessions in cache, expired ones may be counted until looked up again
+     */
+    public int getCachedSessions() {
+        int count = 0;
+        for (Enumeration<byte[]> ids = sslContext.getClientSessionContext().getIds(); ids.hasMoreElements(); ids.nextElement()) {
+            count++;
+        }
+        return count;
+    }
+
+    public int getMaxSessions() {
+        return sslContext.getClientSessionContext().getSessionCacheSize();
+    }
+
+    public long getSessionTimeoutInMs() {
+        return sslContext.getClientSessionContext().getSessionTimeout() * 1000L;
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelingSSLSessionCache{fullHandshakes=" + getFullHandshakes() +
+                ", abbreviatedHandshakes=" + getAbbreviatedHandshakes() +
+                ", cachedSessions=" + getCachedSessions() + '}';
+    }
+}
@@ -0,0 +1,211 @@
+package com.github.taymindis.nio.channeling;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Run the delegated tasks of SSLEngine handshakes (NEED_TASK) of the sockets wrapped by one {@link Channeling},
+ * owned by that instance and shut down with it.
+ * Task run inline on the event loop, on a bounded pool or on a work stealing pool, see the factory methods.
+ * Tasks are timed from submitted to started, see {@link #getQueueDepth()} and {@link #getMaxQueueLatencyInNanos()}.
+ */
+public class ChannelingSSLTaskExecutor implements Executor {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final AtomicInteger POOL_SEQ = new AtomicInteger();
+
+    private final String mode;
+    // Null when inline
+    private final ExecutorService executorService;
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final LongAdder submittedTasks = new LongAdder();
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder callerRunTasks = new LongAdder();
+    private final LongAdder totalQueueLatencyInNanos = new LongAdder();
+    private final LongAccumulator maxQueueLatencyInNanos = new LongAccumulator(Math::max, 0);
+
+    private ChannelingSSLTaskExecutor(String mode, ExecutorService executorService) {
+        this.mode = mode;
+        this.executorService = executorService;
+    }
+
+    /**
+     * Run tasks on the event loop which hit NEED_TASK, no thread hop, the worker is blocked while the task run
+     *
+     * @return ChannelingSSLTaskExecutor
+     */
+    public static ChannelingSSLTaskExecutor inline() {
+        return new ChannelingSSLTaskExecutor("inline", null);
+    }
+
+    public static ChannelingSSLTaskExecutor pool(int threads) {
+        return pool(threads, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Fixed pool with bounded queue, once the queue is full the task run inline on the event loop instead of piling up
+     *
+     * @param threads       number of threads
+     * @param queueCapacity tasks waiting for a thread
+     * @return ChannelingSSLTaskExecutor
+     */
+    public static ChannelingSSLTaskExecutor pool(int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than 0");
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 25, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory("channeling-ssl-" + POOL_SEQ.incrementAndGet()));
+        executor.allowCoreThreadTimeOut(true);
+        return new ChannelingSSLTaskExecutor("pool", executor);
+    }
+
+    /**
+     * Work stealing pool, suit many short tasks submitted from several workers
+     *
+     * @param parallelism target parallelism
+     * @return ChannelingSSLTaskExecutor
+     */
+    public static ChannelingSSLTaskExecutor workStealing(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be greater than 0");
+        }
+        return new ChannelingSSLTaskExecutor("workStealing",
+                new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true));
+    }
+
+    /**
+     * @param name    inline, pool or workStealing
+     * @param threads threads of pool and workStealing
+     * @return ChannelingSSLTaskExecutor
+     */
+    public static ChannelingSSLTaskExecutor of(String name, int threads) {
+        switch (name) {
+            case "inline":
+                return inline();
+            case "pool":
+                return pool(threads);
+            case "workStealing":
+                return workStealing(threads);
+            default:
+                throw new IllegalArgumentException("Unknown ssl task execution " + name);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submittedTasks.increment();
+        if (executorService == null) {
+            runTask(task);
+            return;
+        }
+        long submitted = System.nanoTime();
+        queueDepth.incrementAndGet();
+        try {
+            executorService.execute(() -> {
+                queueDepth.decrementAndGet();
+                long latency = System.nanoTime() - submitted;
+                totalQueueLatencyInNanos.add(latency);
+                maxQueueLatencyInNanos.accumulate(latency);
+                runTask(task);
+            });
+        } catch (RejectedExecutionException e) {
+            queueDepth.decrementAndGet();
+            if (executorService.isShutdown()) {
+                throw e;
+            }
+            // Queue full, the event loop pay for the task rather than let the backlog grow
+            callerRunTasks.increment();
+            runTask(task);
+        }
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            completedTasks.increment();
+        }
+    }
+
+    public void shutdown() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    public void shutdownNow() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public boolean isShutdown() {
+        return executorService != null && executorService.isShutdown();
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * @return tasks submitted and not started yet
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getSubmittedTasks() {
+        return submittedTasks.sum();
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks.sum();
+    }
+
+    /**
+     * @return tasks run on the event loop because the pool queue was full
+     */
+    public long getCallerRunTasks() {
+        return callerRunTasks.sum();
+    }
+
+    public long getTotalQueueLatencyInNanos() {
+        return totalQueueLatencyInNanos.sum();
+    }
+
+    public long getMaxQueueLatencyInNanos() {
+        return maxQueueLatencyInNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ChannelingSSLTaskExecutor{mode=" + mode +
+                ", queueDepth=" + getQueueDepth() +
+                ", submittedTasks=" + getSubmittedTasks() +
+                ", completedTasks=" + getCompletedTasks() +
+                ", callerRunTasks=" + getCallerRunTasks() +
+                ", maxQueueLatencyInNanos=" + getMaxQueueLatencyInNanos() + '}';
+    }
+}
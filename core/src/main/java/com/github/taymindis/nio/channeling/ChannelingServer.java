@@ -1,20 +1,35 @@
 package com.github.taymindis.nio.channeling;
 
 import com.github.taymindis.nio.channeling.http.*;
+import com.github.taymindis.nio.channeling.http2.Http2Exception;
+import com.github.taymindis.nio.channeling.http2.Http2Frame;
+import com.github.taymindis.nio.channeling.http2.Http2ServerConnection;
+import com.github.taymindis.nio.channeling.http2.Http2Settings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
 import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
 
 import static com.github.taymindis.nio.channeling.http.HttpMessageHelper.*;
 
@@ -22,23 +37,44 @@ public class ChannelingServer implements AutoCloseable {
     private static final Logger log = LoggerFactory.getLogger(ChannelingProcessor.class);
     private static final String DEFAULT_VHOST_NAME = "_";
 
-    private boolean isActive = false;
+    private static final int DEFAULT_ACCEPT_BATCH_SIZE = 64;
+    private static final long DEFAULT_KEEP_ALIVE_TIMEOUT_IN_MS = 75 * 1000;
+    private static final int DEFAULT_MAX_KEEP_ALIVE_REQUESTS = 1000;
+    private static final int DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS = 100;
+    private static final String[] HTTP2_APPLICATION_PROTOCOLS = {"h2", "http/1.1"};
+
+    private volatile boolean isActive = false;
     private final ChannelingSocket channelServerRunner;
     private int buffSize = 1024;
     private final Channeling channeling;
     private final boolean isSSLServer;
-    private final AtomicBoolean waitForAccept = new AtomicBoolean(false);
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private boolean multiAcceptor = false, reusePort = false;
+    private int acceptBatchSize = DEFAULT_ACCEPT_BATCH_SIZE;
+    private ServerSocketChannel[] reusePortChannels;
     private SSLContext sslContext;
+    // Server name, or *.domain wildcard, to the context holding its certificate
+    private final Map<String, SSLContext> sniContexts = new HashMap<>();
+    private String[] applicationProtocols;
+    private BiFunction<SSLEngine, List<String>, String> applicationProtocolSelector;
     private Object attachment;
     private Map<String, RequestListener> vHostRequestListener;
     private RequestListener defaultRequestListener;
     private boolean readBody = true, keepAlive = false;
+    private long keepAliveTimeoutInMs = DEFAULT_KEEP_ALIVE_TIMEOUT_IN_MS;
+    private int maxKeepAliveRequests = DEFAULT_MAX_KEEP_ALIVE_REQUESTS;
+    private boolean http2 = false;
+    private Http2Settings http2Settings = new Http2Settings().setMaxConcurrentStreams(DEFAULT_HTTP2_MAX_CONCURRENT_STREAMS);
+    private int http2MaxRequestBodySize = Http2ServerConnection.DEFAULT_MAX_REQUEST_BODY_SIZE;
+    private ResponseCompression responseCompression;
     private ErrorCallback onReadError, onWriteError, onAcceptError;
     private static final ErrorCallback ON_READ_ERROR = (sc, e) -> {
         e.printStackTrace();
         sc.close(s -> {
         });
     };
+    private static final Then NO_CALLBACK = sc -> {
+    };
     private ErrorCallback ON_WRITE_ERROR = (sc, e) -> {
         e.printStackTrace();
         sc.close(s -> {
@@ -107,43 +143,102 @@ public class ChannelingServer implements AutoCloseable {
 //        dummySession.invalidate();
 
         try {
-            if (isSSLServer) {
-                while (isActive) {
-                    if (!waitForAccept.compareAndSet(false, true)) {
-                        if (waitPerNano > 0) {
-                            Thread.sleep(0, waitPerNano);
-                        }
-                        continue;
-                    }
-                    channelServerRunner.withAccept().then(this::sslSocketProcessor, onAcceptError);
+            startAcceptors();
+            stopped.await();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        } catch (Exception e) {
+            isActive = false;
+            throw new IllegalStateException("Unable to start acceptors ... ", e);
+        }
+
+    }
+
+    /**
+     * Single acceptor leave accepted sockets to the worker selector,
+     * multi acceptor pin one acceptor per worker and keep accepted sockets on the worker which accepted them
+     */
+    private void startAcceptors() throws Exception {
+        if (!multiAcceptor || channeling.getWorkerCount() == 1) {
+            arm(channelServerRunner, -1);
+            return;
+        }
+        int workers = channeling.getWorkerCount();
+        ServerSocketChannel ssc = channelServerRunner.getServerSocketChannel();
+        if (reusePort && supportsReusePort(ssc)) {
+            // Socket of constructor already has SO_REUSEPORT, see setReusePort, it stay bound as first of the group
+            SocketAddress local = ssc.getLocalAddress();
+            ServerSocketChannel[] channels = new ServerSocketChannel[workers - 1];
+            try {
+                for (int i = 0; i < channels.length; i++) {
+                    channels[i] = ChannelServerRunner.openServerSocket(local, true);
                 }
-            } else {
-                while (isActive) {
-                    if (!waitForAccept.compareAndSet(false, true)) {
-                        if (waitPerNano > 0) {
-                            Thread.sleep(0, waitPerNano);
-                        }
-                        continue;
-                    }
-                    channelServerRunner.withAccept().then(this::socketProcessor, onAcceptError);
+            } catch (IOException e) {
+                closeChannels(channels);
+                throw e;
+            }
+            reusePortChannels = channels;
+        }
+        for (int i = 0; i < workers; i++) {
+            ServerSocketChannel acceptorChannel = reusePortChannels != null && i > 0 ? reusePortChannels[i - 1] : ssc;
+            arm(channeling.wrapAcceptor(sslContext, attachment, acceptorChannel, i), i);
+        }
+    }
+
+    private static boolean supportsReusePort(ServerSocketChannel ssc) {
+        return ssc.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+    }
+
+    private static void closeChannels(ServerSocketChannel... channels) {
+        for (ServerSocketChannel channel : channels) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
                 }
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
         }
+    }
 
+    private void arm(ChannelingSocket acceptor, int worker) {
+        acceptor.withAccept().then(serverSocket -> acceptAndThen(serverSocket, worker), onAcceptError);
+    }
+
+    /**
+     * Drain the backlog on every readiness event, bounded by accept batch size to be fair with the other sockets of the worker
+     *
+     * @param serverSocket acceptor
+     * @param worker       worker to wrap accepted sockets on, -1 for worker selector
+     */
+    private void acceptAndThen(ChannelingSocket serverSocket, int worker) {
+        ServerSocketChannel ssc = serverSocket.getServerSocketChannel();
+        try {
+            SocketChannel socketChannel;
+            // Stopped while the readiness was pending, leave the backlog to be closed with the socket
+            for (int i = 0; isActive && i < acceptBatchSize && (socketChannel = ssc.accept()) != null; i++) {
+                if (isSSLServer) {
+                    sslSocketProcessor(socketChannel, worker);
+                } else {
+                    socketProcessor(socketChannel, worker);
+                }
+            }
+        } catch (IOException e) {
+            if (ssc.isOpen()) {
+                log.error("Error while trying to accepting socket ... ", e);
+            }
+        }
+        if (isActive && ssc.isOpen()) {
+            arm(serverSocket, worker);
+        }
     }
 
-    private void socketProcessor(ChannelingSocket serverSocket) {
-        SocketChannel socketChannel = null;
+    private void socketProcessor(SocketChannel socketChannel, int worker) {
         try {
-            socketChannel = (serverSocket.getServerSocketChannel()).accept();
-            //noinspection StatementWithEmptyBody
-            while (!waitForAccept.compareAndSet(true, false)) ;
             socketChannel.configureBlocking(false);
 //
             ChannelingSocket acceptedSock =
-                    channeling.wrap(socketChannel, attachment, buffSize);
+                    channeling.wrap(socketChannel, attachment, buffSize, worker);
 
             Channeling.KeepAlive(acceptedSock, isKeepAlive());
 
@@ -152,60 +247,81 @@ public class ChannelingServer implements AutoCloseable {
 
         } catch (Exception e) {
             log.error("Error while trying to accepting socket ... ", e);
-            if (socketChannel != null) {
-                try {
-                    socketChannel.close();
-                } catch (IOException ioException) {
-                    log.error(ioException.getMessage(), ioException);
-                }
-            }
+            closeSilently(socketChannel);
         }
     }
 
-    private void sslSocketProcessor(ChannelingSocket serverSocket) {
-        SocketChannel socketChannel = null;
-
+    private void sslSocketProcessor(SocketChannel socketChannel, int worker) {
         try {
-            socketChannel = (serverSocket.getServerSocketChannel()).accept();
-
-            //noinspection StatementWithEmptyBody
-            while (!waitForAccept.compareAndSet(true, false)) ;
-
             socketChannel.configureBlocking(false);
 
 
-            SSLEngine engine = sslContext.createSSLEngine();
-            engine.setUseClientMode(false);
-//
+            SSLEngine engine = createSSLEngine(sslContext);
 
             ChannelingSocket acceptedSock =
-                    channeling.wrapSSL(engine, attachment, buffSize, socketChannel);
+                    channeling.wrapSSL(engine, attachment, buffSize, socketChannel, worker);
+            if (!sniContexts.isEmpty()) {
+                ((ChannelSSLRunner) acceptedSock).setSSLEngineSelector(this::selectSSLEngine);
+            }
 
             Channeling.KeepAlive(acceptedSock, isKeepAlive());
 
             acceptedSock.withEagerRead(acceptedSock.getSSLMinimumInputBufferSize())
                     .then(this::readAndThen, onReadError);
-//                engine.beginHandshake();
-//
-//                if (doHandshake(socketChannel, engine)) {
-//                    socketChannel.register(selector, SelectionKey.OP_READ, engine);
-//                } else {
-//                    socketChannel.close();
-//                    log.debug("Connection closed due to handshake failure.");
-//                }
         } catch (Exception e) {
             log.error("Error while trying to accepting socket ... ", e);
-            if (socketChannel != null) {
-                try {
-                    socketChannel.close();
-                } catch (IOException ioException) {
-                    log.error(ioException.getMessage(), ioException);
-                }
-            }
+            closeSilently(socketChannel);
         }
 
     }
 
+    private SSLEngine createSSLEngine(SSLContext context) {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        String[] protocols = applicationProtocols;
+        if (protocols == null && http2 && applicationProtocolSelector == null) {
+            protocols = HTTP2_APPLICATION_PROTOCOLS;
+        }
+        if (protocols != null) {
+            SSLParameters sslParameters = engine.getSSLParameters();
+            sslParameters.setApplicationProtocols(protocols);
+            engine.setSSLParameters(sslParameters);
+        }
+        if (applicationProtocolSelector != null) {
+            engine.setHandshakeApplicationProtocolSelector(applicationProtocolSelector);
+        }
+        return engine;
+    }
+
+    /**
+     * @param serverName server name of ClientHello, null if client did not send SNI
+     * @return engine of the context registered for the server name, null to keep the default one
+     */
+    private SSLEngine selectSSLEngine(String serverName) {
+        SSLContext context = getSNIContext(serverName);
+        return context == null || context == sslContext ? null : createSSLEngine(context);
+    }
+
+    private SSLContext getSNIContext(String serverName) {
+        if (serverName == null) {
+            return null;
+        }
+        SSLContext context = sniContexts.get(serverName);
+        int dot = serverName.indexOf('.');
+        if (context == null && dot > 0) {
+            context = sniContexts.get("*" + serverName.substring(dot));
+        }
+        return context;
+    }
+
+    private void closeSilently(SocketChannel socketChannel) {
+        try {
+            socketChannel.close();
+        } catch (IOException ioException) {
+            log.error(ioException.getMessage(), ioException);
+        }
+    }
+
     private void eagerRead(ByteBuffer readBuffer, ChannelingSocket channelingSocket) {
         if (!readBuffer.hasRemaining()) {
             readBuffer.clear();
@@ -238,101 +354,394 @@ public class ChannelingServer implements AutoCloseable {
         try {
             if (numRead > 0) {
                 readBuffer.flip();
+                if (http2 && !(socketRead.getContext() instanceof HttpRequestParser) && isHttp2Preface(socketRead, readBuffer)) {
+                    startHttp2(socketRead, readBuffer);
+                    return;
+                }
 //                byte[] b = new byte[readBuffer.limit() - readBuffer.position()];
 //                readBuffer.get(b);
                 HttpRequestParser messageParser = parsingMessage(socketRead, readBuffer);
+                handleParsed(socketRead, messageParser);
+            } else if (numRead == 0) {
+                eagerRead(readBuffer, socketRead);
+            } else {
+                closeSocketSilently(socketRead);
+            }
+        } catch (Exception e) {
+            this.onReadError.error(socketRead, e);
+        }
+    }
 
-                if (!messageParser.isDoneParsed()) {
-                    socketRead.setContext(messageParser);
-                    eagerRead(readBuffer, socketRead);
-                    return;
-                }else if (readBody && messageParser.getByteWriter().size() < messageParser.getExpectedLen() ) {
-                    socketRead.setContext(messageParser);
-                    eagerRead(readBuffer, socketRead);
-                    return;
-                }
+    private void handleParsed(ChannelingSocket socketRead, HttpRequestParser messageParser) throws Exception {
+        ByteBuffer readBuffer = socketRead.getReadBuffer();
+        if (!messageParser.isDoneParsed()) {
+            socketRead.setContext(messageParser);
+            eagerRead(readBuffer, socketRead);
+            return;
+        }else if (readBody && messageParser.getByteWriter().size() < messageParser.getExpectedLen() ) {
+            socketRead.setContext(messageParser);
+            eagerRead(readBuffer, socketRead);
+            return;
+        }
 
-                HttpRequestMessage request = convertMessageToHttpRequestMessage(socketRead, messageParser);
-                String vHost = request.getHeaderMap().get("Host");
-                if (vHost == null) {
-                    vHost = DEFAULT_VHOST_NAME;
-                }
-                this.vHostRequestListener
-                        .getOrDefault(vHost, defaultRequestListener)
+        HttpRequestMessage request = convertMessageToHttpRequestMessage(socketRead, messageParser);
+        if (http2 && !isSSLServer && isH2cUpgrade(request, messageParser)) {
+            upgradeHttp2(socketRead, request, messageParser);
+            return;
+        }
+        boolean persistent = isPersistent(request, messageParser);
+        requestListener(request, socketRead)
 //                    defaultRequestListener
-                        .handleRequest(request, new ResponseCallback() {
-                            private Deque<QueueWriteBuffer> buffQueue = new ArrayDeque<>();
-
-                            @Override
-                            public void write(HttpResponseMessage responseMessage, Charset charset, Then $then) {
-                                if (charset == null) {
-                                    charset = StandardCharsets.UTF_8;
-                                }
-                                try {
-                                    String responseMsg = massageResponseToString(responseMessage);
-                                    ByteBuffer writeBuffer = ByteBuffer.wrap(responseMsg.getBytes(charset));
-                                    socketRead.write(writeBuffer, socket -> {
-                                                this.flush(socket, $then);
-                                            },
-                                            ChannelingServer.this.onWriteError);
-                                } catch (Exception e) {
-                                    ChannelingServer.this.onWriteError.error(socketRead, e);
-                                }
+                .handleRequest(request, new ResponseCallback() {
+                    private Deque<QueueWriteBuffer> buffQueue = new ArrayDeque<>();
+                    private boolean writing = false, ended = false, finished = false;
+
+                    @Override
+                    public void write(HttpResponseMessage responseMessage, Charset charset, Then $then) {
+                        if (charset == null) {
+                            charset = StandardCharsets.UTF_8;
+                        }
+                        try {
+                            if (keepAlive) {
+                                connectionHeaders(responseMessage, request, persistent, charset);
                             }
+                            String responseMsg = massageResponseToString(responseMessage);
+                            streamWrite(ByteBuffer.wrap(responseMsg.getBytes(charset)), $then);
+                            end();
+                        } catch (Exception e) {
+                            ChannelingServer.this.onWriteError.error(socketRead, e);
+                        }
+                    }
+
+                    @Override
+                    public void streamWrite(ByteBuffer b, Then $then) {
+                        streamWrite(new ByteBuffer[]{b}, $then);
+                    }
 
-                            @Override
-                            public void streamWrite(ByteBuffer b, Then $then) {
-                                if (queueForWrite(b, $then) != null) {
-                                    socketRead.write(b, socket -> {
-                                                this.flush(socket, $then);
-                                            },
-                                            ChannelingServer.this.onWriteError);
-                                }
+                    @Override
+                    public void streamWrite(ByteBuffer[] bs, Then $then) {
+                        QueueWriteBuffer[] batch = queueForWrite(new QueueWriteBuffer(bs, $then));
+                        if (batch != null) {
+                            writeBatch(batch);
+                        }
+                    }
+
+                    @Override
+                    public void sendFile(HttpResponseMessage responseMessage, FileChannel fileChannel, long offset, long length, Then $then) {
+                        if (keepAlive) {
+                            connectionHeaders(responseMessage, request, persistent, null);
+                        }
+                        QueueWriteBuffer[] batch = queueForWrite(
+                                new QueueWriteBuffer(ByteBuffer.wrap(fileResponseHeader(responseMessage, length)), NO_CALLBACK),
+                                new QueueWriteBuffer(fileChannel, offset, length, $then));
+                        if (batch != null) {
+                            writeBatch(batch);
+                        }
+                        end();
+                    }
+
+                    @Override
+                    public boolean isKeepAlive() {
+                        return persistent;
+                    }
+
+                    @Override
+                    public void end() {
+                        if (takeFinish(true)) {
+                            finish();
+                        }
+                    }
+
+                    /**
+                     * Response ended and everything written, kept alive connection go on with next request
+                     */
+                    private void finish() {
+                        if (persistent) {
+                            nextRequest(socketRead, messageParser);
+                        }
+                    }
+
+                    /**
+                     * Everything queued while previous write in flight leave in one gathering write, file region
+                     * is transferred on its own
+                     */
+                    private void writeBatch(QueueWriteBuffer[] batch) {
+                        if (batch[0].isFile()) {
+                            QueueWriteBuffer qwb = batch[0];
+                            socketRead.withTransfer(qwb.getFileChannel(), qwb.getPosition(), qwb.getCount())
+                                    .when(Channeling.whenNoMoreToTransfer)
+                                    .then(socket -> this.done(batch), ChannelingServer.this.onWriteError);
+                            return;
+                        }
+                        ByteBuffer[] buffers;
+                        if (batch.length == 1) {
+                            buffers = batch[0].getNbs();
+                        } else {
+                            int len = 0;
+                            for (QueueWriteBuffer qwb : batch) {
+                                len += qwb.getNbs().length;
+                            }
+                            buffers = new ByteBuffer[len];
+                            int i = 0;
+                            for (QueueWriteBuffer qwb : batch) {
+                                System.arraycopy(qwb.getNbs(), 0, buffers, i, qwb.getNbs().length);
+                                i += qwb.getNbs().length;
                             }
+                        }
+                        socketRead.write(buffers, socket -> this.flush(socket, batch),
+                                ChannelingServer.this.onWriteError);
+                    }
 
-                            private void flush(ChannelingSocket channelingSocket, Then callback) {
-                                ByteBuffer currWriteBuff = channelingSocket.getCurrWritingBuffer();
-                                if (currWriteBuff.hasRemaining()) {
-                                    socketRead.write(currWriteBuff, s -> this.flush(s, callback));
-                                } else {
-                                    callback.callback(socketRead);
-                                    QueueWriteBuffer qwb;
-                                    if ((qwb = queueForWrite(null, null)) != null) {
-                                        socketRead.write(qwb.getNb(), socket -> {
-                                                    this.flush(socket, qwb.get$then());
-                                                },
-                                                ChannelingServer.this.onWriteError);
-                                    }
-                                }
+                    private void flush(ChannelingSocket channelingSocket, QueueWriteBuffer[] batch) {
+                        ByteBuffer[] currWriteBuffs = channelingSocket.getCurrWritingBuffers();
+                        if (hasRemaining(currWriteBuffs)) {
+                            socketRead.write(currWriteBuffs, s -> this.flush(s, batch),
+                                    ChannelingServer.this.onWriteError);
+                        } else {
+                            done(batch);
+                        }
+                    }
+
+                    private void done(QueueWriteBuffer[] batch) {
+                        for (QueueWriteBuffer qwb : batch) {
+                            qwb.get$then().callback(socketRead);
+                        }
+                        QueueWriteBuffer[] nextBatch;
+                        if ((nextBatch = queueForWrite()) != null) {
+                            writeBatch(nextBatch);
+                        } else if (takeFinish(false)) {
+                            finish();
+                        }
+                    }
+
+                    /**
+                     * @param end response ended by handler
+                     * @return true only once, when response ended and nothing left to write
+                     */
+                    private synchronized boolean takeFinish(boolean end) {
+                        ended |= end;
+                        if (ended && !finished && !writing && buffQueue.isEmpty()) {
+                            finished = true;
+                            return true;
+                        }
+                        return false;
+                    }
+
+                    private boolean hasRemaining(ByteBuffer[] buffers) {
+                        for (ByteBuffer buffer : buffers) {
+                            if (buffer.hasRemaining()) {
+                                return true;
                             }
+                        }
+                        return false;
+                    }
 
-                            private synchronized QueueWriteBuffer queueForWrite(ByteBuffer nb, Then $then) {
-                                QueueWriteBuffer qwb;
-                                if (nb == null) { // Means remove first one and take second one
-                                    buffQueue.poll();
-                                    if (buffQueue.isEmpty())
-                                        return null;
-                                    return buffQueue.peek();
-                                } else {
-                                    qwb = new QueueWriteBuffer(nb, $then);
-                                    if (buffQueue.isEmpty()) {
-                                        buffQueue.offer(qwb);
-                                        return qwb;
-                                    } else {
-                                        buffQueue.offer(qwb);
-                                        return null;
-                                    }
-                                }
+                    /**
+                     * @param qwbs buffers to queue, none means previous batch done
+                     * @return batch to write if nothing in flight, buffers up to the next file or a single file
+                     */
+                    private synchronized QueueWriteBuffer[] queueForWrite(QueueWriteBuffer... qwbs) {
+                        if (qwbs.length > 0) {
+                            Collections.addAll(buffQueue, qwbs);
+                            if (writing) {
+                                return null;
                             }
-                        });
+                        }
+                        if (buffQueue.isEmpty()) {
+                            writing = false;
+                            return null;
+                        }
+                        writing = true;
+                        if (buffQueue.peek().isFile()) {
+                            return new QueueWriteBuffer[]{buffQueue.poll()};
+                        }
+                        List<QueueWriteBuffer> batch = new ArrayList<>(buffQueue.size());
+                        while (!buffQueue.isEmpty() && !buffQueue.peek().isFile()) {
+                            batch.add(buffQueue.poll());
+                        }
+                        return batch.toArray(new QueueWriteBuffer[0]);
+                    }
+                });
+    }
 
-            } else if (numRead == 0) {
-                eagerRead(readBuffer, socketRead);
-            } else {
-                closeSocketSilently(socketRead);
+    /**
+     * Listener of the Host header, else of the SNI server name, else the default one, its responses compressed if enabled
+     */
+    private RequestListener requestListener(HttpRequestMessage request, ChannelingSocket socket) {
+        String vHost = request.getHeader("Host");
+        if (vHost == null && isSSLServer) {
+            vHost = socket.getSSLServerName();
+        }
+        if (vHost == null) {
+            vHost = DEFAULT_VHOST_NAME;
+        }
+        RequestListener listener = this.vHostRequestListener.getOrDefault(vHost, defaultRequestListener);
+        ResponseCompression compression = responseCompression;
+        if (compression == null) {
+            return listener;
+        }
+        return (req, callback) -> listener.handleRequest(req, compression.wrap(req, callback));
+    }
+
+    /**
+     * First bytes of a connection, HTTP/2 if "h2" negotiated by ALPN or, on a plain connection, client sent the preface
+     * right away (prior knowledge)
+     */
+    private boolean isHttp2Preface(ChannelingSocket socket, ByteBuffer readBuffer) {
+        if (isSSLServer) {
+            return "h2".equals(socket.getApplicationProtocol());
+        }
+        int len = Math.min(readBuffer.remaining(), Http2Frame.PREFACE.length);
+        if (len < 3) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (readBuffer.get(readBuffer.position() + i) != Http2Frame.PREFACE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Http2ServerConnection newHttp2Connection(ChannelingSocket socket) {
+        socket.setContext(attachment);
+        Http2ServerConnection connection = new Http2ServerConnection(socket, http2Settings,
+                request -> requestListener(request, socket));
+        connection.setIdleTimeout(keepAliveTimeoutInMs);
+        connection.setMaxRequestBodySize(http2MaxRequestBodySize);
+        return connection;
+    }
+
+    private void startHttp2(ChannelingSocket socket, ByteBuffer received) {
+        newHttp2Connection(socket).start(received);
+    }
+
+    /**
+     * h2c upgrade of a plain connection, only for requests without body so the upgraded request is complete
+     */
+    private boolean isH2cUpgrade(HttpRequestMessage request, HttpRequestParser messageParser) {
+        String upgrade = request.getHeader("Upgrade");
+        if (upgrade == null || request.getHeader("HTTP2-Settings") == null) {
+            return false;
+        }
+        int expectedLen = messageParser.getExpectedLen();
+        if (expectedLen != -1 ? expectedLen > messageParser.getBodyOffset() : messageParser.getHeader("Transfer-Encoding") != null) {
+            return false;
+        }
+        for (String protocol : upgrade.split(",")) {
+            if ("h2c".equalsIgnoreCase(protocol.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void upgradeHttp2(ChannelingSocket socket, HttpRequestMessage request, HttpRequestParser messageParser) {
+        ChannelingByteWriter writer = messageParser.getByteWriter();
+        int served = Math.max(messageParser.getExpectedLen(), messageParser.getBodyOffset());
+        ByteBuffer received = ByteBuffer.wrap(writer.getBuff(), served, writer.size() - served);
+        try {
+            newHttp2Connection(socket).upgrade(request, request.getHeader("HTTP2-Settings"), received);
+        } catch (Http2Exception e) {
+            log.error("Unable to upgrade to h2c ... ", e);
+            closeSocketSilently(socket);
+        }
+    }
+
+    /**
+     * Connection is kept only if client asked for it, limit of requests not reached and the request body has a known length
+     * without Transfer-Encoding, see "Request BODY RULE"
+     */
+    private boolean isPersistent(HttpRequestMessage request, HttpRequestParser messageParser) {
+        if (!keepAlive || !messageParser.isKeepAliveRequested()) {
+            return false;
+        }
+        if (maxKeepAliveRequests > 0 && messageParser.getRequestCount() >= maxKeepAliveRequests) {
+            return false;
+        }
+        // Transfer-Encoding override Content-Length (RFC 7230 3.3.3), framing by Content-Length would let the leftover be
+        // taken as the next pipelined request
+        if (messageParser.getHeader("Transfer-Encoding") != null) {
+            return false;
+        }
+        if (messageParser.getExpectedLen() == -1) {
+            String method = request.getMethod();
+            return "GET".equals(method) || "HEAD".equals(method);
+        }
+        return true;
+    }
+
+    /**
+     * Let client know whether connection is kept, a kept alive response must tell its length
+     */
+    private static void connectionHeaders(HttpResponseMessage responseMessage, HttpRequestMessage request, boolean persistent, Charset charset) {
+        Map<String, String> headerMap = responseMessage.getHeaderMap();
+        if (persistent && charset != null && !hasHeader(headerMap, "Content-Length") && !hasHeader(headerMap, "Transfer-Encoding")) {
+            Object content = responseMessage.getContent();
+            responseMessage.addHeader("Content-Length", content == null ? "0" : String.valueOf(content.toString().getBytes(charset).length));
+        }
+        if (!hasHeader(responseMessage.getHeaderMap(), "Connection")) {
+            if (!persistent) {
+                responseMessage.addHeader("Connection", "close");
+            } else if ("HTTP/1.0".equalsIgnoreCase(request.getHttpVersion())) {
+                responseMessage.addHeader("Connection", "keep-alive");
+            }
+        }
+    }
+
+    private static boolean hasHeader(Map<String, String> headerMap, String name) {
+        if (headerMap != null) {
+            for (String key : headerMap.keySet()) {
+                if (name.equalsIgnoreCase(key)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Response of kept alive connection ended, serve the pipelined request already read or wait for the next one
+     */
+    private void nextRequest(ChannelingSocket socket, HttpRequestParser messageParser) {
+        try {
+            if (messageParser.getByteWriter().size() < messageParser.getExpectedLen()) {
+                // Body left unread, can't tell where next request start
+                closeSocketSilently(socket);
+                return;
             }
+            messageParser.reset();
+            socket.setContext(messageParser);
+            ByteBuffer readBuffer = socket.getReadBuffer();
+            readBuffer.clear();
+            if (messageParser.getByteWriter().size() > 0) {
+                messageParser.parse();
+                handleParsed(socket, messageParser);
+                return;
+            }
+            socket.setReadWriteTimeout(keepAliveTimeoutInMs);
+            socket.withEagerRead(readBuffer).then(this::keepAliveReadAndThen, this::keepAliveError);
         } catch (Exception e) {
-            this.onReadError.error(socketRead, e);
+            this.onReadError.error(socket, e);
+        }
+    }
+
+    private void keepAliveReadAndThen(ChannelingSocket socket) {
+        if (socket.getLastProcessedBytes() == 0) {
+            // Nothing pipelined, wait for readiness instead of polling until keep alive timeout
+            socket.withRead(socket.getReadBuffer()).then(this::keepAliveReadAndThen, this::keepAliveError);
+            return;
+        }
+        socket.setReadWriteTimeout(-1);
+        readAndThen(socket);
+    }
+
+    private void keepAliveError(ChannelingSocket socket, Exception e) {
+        if (e instanceof TimeoutException) {
+            // Idle for too long
+            closeSocketSilently(socket);
+        } else {
+            this.onReadError.error(socket, e);
         }
     }
 
@@ -342,7 +751,7 @@ public class ChannelingServer implements AutoCloseable {
         ChannelingByteWriter writer = messageParser.getByteWriter();
         int expectedLen = messageParser.getExpectedLen();
 
-        massageRequestHeader(request, messageParser.getHeaderContent());
+        request.setRequestParser(messageParser);
 
         request.setBodyOffset(messageParser.getBodyOffset());
 
@@ -355,49 +764,17 @@ public class ChannelingServer implements AutoCloseable {
     }
 
     private HttpRequestParser parsingMessage(ChannelingSocket socketRead, ByteBuffer bb) throws IOException {
-        HttpRequestParser message = (HttpRequestParser) socketRead.getContext();
-        if (message == null) {
+        Object context = socketRead.getContext();
+        HttpRequestParser message;
+        if (context instanceof HttpRequestParser) {
+            message = (HttpRequestParser) context;
+        } else {
             message = new HttpRequestParser();
 //            message.setRemoteAddress(socketRead.getSocketChannel().getRemoteAddress());
         }
-        int requiredLength;
-        int bodyOffset = message.getBodyOffset();
-
         message.writeBytes(bb);
-
-        if (bodyOffset == -1) {
-            ChannelingByteWriter byteWriter = message.getByteWriter();
-            if ((bodyOffset = byteWriter.indexOf("\r\n\r\n".getBytes())) > 0) {
-                bodyOffset += 4;
-            } else if ((bodyOffset = byteWriter.indexOf("\n\n".getBytes())) > 0) {
-                bodyOffset += 2;
-            }
-            if (bodyOffset > 0) {
-                message.setBodyOffset(bodyOffset);
-                String consumeMessage = parseToString(message.getRawBytes());
-
-                String headersContent = consumeMessage.substring(0, bodyOffset);
-
-                message.setHeaderContent(headersContent);
-                String lowCaseHeaders = headersContent.toLowerCase();
-                // If not sure why this, see the "Request BODY RULE" in this file comment
-                if (lowCaseHeaders.contains("content-length:")) {
-                    String contentLength = lowCaseHeaders.substring(lowCaseHeaders.indexOf("content-length:") + "content-length:".length()).split("\\r?\\n", 2)[0];
-                    requiredLength = Integer.parseInt(contentLength.trim());
-                    requiredLength += bodyOffset;
-                    message.setExpectedLen(requiredLength);
-                    message.setDoneParsed(true);
-                } else {
-                    message.setExpectedLen(-1);
-                    message.setDoneParsed(true);
-                }
-
-            }
-        }
-
-//        if (message.getExpectedLen() > 0) {
-//            message.setDoneParsed(message.getCurrLen() >= message.getExpectedLen());
-//        }
+        // Resume scanning where last read ended, expected length follow the "Request BODY RULE" in this file comment
+        message.parse();
 
         return message;
 
@@ -425,10 +802,42 @@ public class ChannelingServer implements AutoCloseable {
         return keepAlive;
     }
 
+    /**
+     * @param keepAlive true to keep HTTP/1.1 connections open for next requests, pipelined requests are answered in order.
+     *                  Handler must not close the socket when {@link ResponseCallback#isKeepAlive()}, SO_KEEPALIVE is set as well
+     */
     public void setKeepAlive(boolean keepAlive) {
         this.keepAlive = keepAlive;
     }
 
+    public long getKeepAliveTimeout() {
+        return keepAliveTimeoutInMs;
+    }
+
+    /**
+     * @param keepAliveTimeoutInMs time in milisecond a kept alive connection may wait for next request before closed
+     */
+    public void setKeepAliveTimeout(long keepAliveTimeoutInMs) {
+        if (keepAliveTimeoutInMs <= 0) {
+            throw new IllegalArgumentException("keepAliveTimeoutInMs must be greater than 0");
+        }
+        this.keepAliveTimeoutInMs = keepAliveTimeoutInMs;
+    }
+
+    public int getMaxKeepAliveRequests() {
+        return maxKeepAliveRequests;
+    }
+
+    /**
+     * @param maxKeepAliveRequests requests served on one connection before it is closed, 0 for unlimited
+     */
+    public void setMaxKeepAliveRequests(int maxKeepAliveRequests) {
+        if (maxKeepAliveRequests < 0) {
+            throw new IllegalArgumentException("maxKeepAliveRequests can't be negative");
+        }
+        this.maxKeepAliveRequests = maxKeepAliveRequests;
+    }
+
     public int getBuffSize() {
         return buffSize;
     }
@@ -437,8 +846,154 @@ public class ChannelingServer implements AutoCloseable {
         this.buffSize = buffSize;
     }
 
+    public boolean isMultiAcceptor() {
+        return multiAcceptor;
+    }
+
+    /**
+     * @param multiAcceptor true to accept on every worker instead of one, must be set before listen
+     */
+    public void setMultiAcceptor(boolean multiAcceptor) {
+        this.multiAcceptor = multiAcceptor;
+    }
+
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    /**
+     * @param reusePort with multi acceptor, bind one SO_REUSEPORT socket per worker and let kernel balance new connections,
+     *                  ignored when platform does not support SO_REUSEPORT, the workers then share one server socket.
+     *                  Must be set before listen, SO_REUSEPORT is set right away on the listening socket so the others
+     *                  can join it without the port being released
+     */
+    public void setReusePort(boolean reusePort) {
+        ServerSocketChannel ssc = channelServerRunner.getServerSocketChannel();
+        if (supportsReusePort(ssc)) {
+            try {
+                ssc.setOption(StandardSocketOptions.SO_REUSEPORT, reusePort);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to set SO_REUSEPORT on listening socket", e);
+            }
+        }
+        this.reusePort = reusePort;
+    }
+
+    public int getAcceptBatchSize() {
+        return acceptBatchSize;
+    }
+
+    /**
+     * @param acceptBatchSize maximum sockets accepted per readiness event per acceptor
+     */
+    public void setAcceptBatchSize(int acceptBatchSize) {
+        if (acceptBatchSize <= 0) {
+            throw new IllegalArgumentException("acceptBatchSize must be greater than 0");
+        }
+        this.acceptBatchSize = acceptBatchSize;
+    }
+
+    /**
+     * Serve the certificate of the context to clients asking for the server name with SNI, the context given to
+     * constructor serve the others. Must be set before listen
+     *
+     * @param serverName host name as the vHost key, or *.domain to match any host of the domain
+     * @param sslContext context holding the certificate of the server name
+     */
+    public void addSNIContext(String serverName, SSLContext sslContext) {
+        if (!isSSLServer) {
+            throw new IllegalStateException("SNI requires a SSL server");
+        }
+        sniContexts.put(serverName.toLowerCase(), sslContext);
+    }
+
+    public Map<String, SSLContext> getSNIContexts() {
+        return Collections.unmodifiableMap(sniContexts);
+    }
+
+    public String[] getApplicationProtocols() {
+        return applicationProtocols;
+    }
+
+    /**
+     * @param applicationProtocols ALPN protocols by preference, e.g. "h2", "http/1.1", negotiated one is given by
+     *                             {@link ChannelingSocket#getApplicationProtocol()}
+     */
+    public void setApplicationProtocols(String... applicationProtocols) {
+        this.applicationProtocols = applicationProtocols;
+    }
+
+    public BiFunction<SSLEngine, List<String>, String> getApplicationProtocolSelector() {
+        return applicationProtocolSelector;
+    }
+
+    /**
+     * @param applicationProtocolSelector pick the ALPN protocol from the ones offered by client, null to decline
+     *                                    ALPN, see {@link SSLEngine#setHandshakeApplicationProtocolSelector}
+     */
+    public void setApplicationProtocolSelector(BiFunction<SSLEngine, List<String>, String> applicationProtocolSelector) {
+        this.applicationProtocolSelector = applicationProtocolSelector;
+    }
+
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    /**
+     * @param http2 true to serve HTTP/2 as well, "h2" by ALPN, by default offered ahead of "http/1.1" unless application
+     *              protocols or a selector are set, and on plain connections by prior knowledge or h2c upgrade. Handlers
+     *              are the same, a stream is given to them once its request body is fully received. Must be set before listen
+     */
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public Http2Settings getHttp2Settings() {
+        return http2Settings;
+    }
+
+    /**
+     * @param http2Settings settings announced to HTTP/2 clients, 100 concurrent streams by default
+     */
+    public void setHttp2Settings(Http2Settings http2Settings) {
+        this.http2Settings = http2Settings;
+    }
+
+    public int getHttp2MaxRequestBodySize() {
+        return http2MaxRequestBodySize;
+    }
+
+    /**
+     * @param http2MaxRequestBodySize bytes of request body buffered per HTTP/2 stream, 16 MB by default, a stream
+     *                                sending more is reset
+     */
+    public void setHttp2MaxRequestBodySize(int http2MaxRequestBodySize) {
+        if (http2MaxRequestBodySize < 0) {
+            throw new IllegalArgumentException("http2MaxRequestBodySize can't be negative");
+        }
+        this.http2MaxRequestBodySize = http2MaxRequestBodySize;
+    }
+
+    public ResponseCompression getResponseCompression() {
+        return responseCompression;
+    }
+
+    /**
+     * @param responseCompression compress responses of both HTTP/1 and HTTP/2 in the encoding accepted by client,
+     *                            null to send them as they are (default)
+     */
+    public void setResponseCompression(ResponseCompression responseCompression) {
+        this.responseCompression = responseCompression;
+    }
+
     public void stop() {
         this.isActive = false;
+        // Pending accepts end with their channel, sockets already accepted keep being served
+        closeChannels(channelServerRunner.getServerSocketChannel());
+        if (reusePortChannels != null) {
+            closeChannels(reusePortChannels);
+        }
+        stopped.countDown();
     }
 
     @Override
@@ -471,10 +1026,18 @@ public class ChannelingServer implements AutoCloseable {
         this.onAcceptError = onAcceptError;
     }
 
+    /**
+     * @deprecated accept is event driven, no longer polled
+     */
+    @Deprecated
     public int getWaitPerNano() {
         return waitPerNano;
     }
 
+    /**
+     * @deprecated accept is event driven, no longer polled
+     */
+    @Deprecated
     public void setWaitPerNano(int waitPerNano) {
         this.waitPerNano = waitPerNano;
     }
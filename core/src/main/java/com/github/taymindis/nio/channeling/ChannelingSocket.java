@@ -2,8 +2,10 @@ package com.github.taymindis.nio.channeling;
 
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 public interface ChannelingSocket {
@@ -24,6 +26,32 @@ public interface ChannelingSocket {
     void noEagerRead();
     boolean isEagerRead();
 
+    /**
+     * Override read / write timeout of the io tasks registered afterward, e.g. keep alive connection waiting for next request
+     *
+     * @param readWriteTimeoutInMs time in milisecond to get timeoutException, -1 to use the one of Channeling
+     */
+    void setReadWriteTimeout(long readWriteTimeoutInMs);
+
+    /**
+     * @return read / write timeout of this socket, -1 if the one of Channeling is used
+     */
+    long getReadWriteTimeout();
+
+    /**
+     * Run then callbacks of this socket on the executor instead of the event loop, callbacks are still run one at a time
+     * in order. Override the one of {@link Channeling#enableCallbackOffload(ChannelingCallbackExecutor)},
+     * {@link ChannelingCallbackExecutor#inline()} to keep this socket inline. The executor is not shut down by Channeling.
+     *
+     * @param callbackExecutor executor, null to follow the one of Channeling
+     */
+    void setCallbackExecutor(Executor callbackExecutor);
+
+    /**
+     * @return callback executor of this socket, null if the one of Channeling is used
+     */
+    Executor getCallbackExecutor();
+
     /**
      IO Task API builder
      * @param  remote remote address
@@ -45,6 +73,27 @@ public interface ChannelingSocket {
     ChannelingSocket withEagerRead(ByteBuffer readBuffer);
 
     ChannelingSocket withWrite(ByteBuffer messageBuffer);
+
+    /**
+     * Gathering write, the buffers are flushed in order by as few syscalls as possible, the then callback is invoked
+     * with the bytes written across all buffers, check {@link #getCurrWritingBuffer()} which is the last buffer for remaining
+     *
+     * @param messageBuffers buffers to write in order
+     * @return ChannelingSocket
+     */
+    ChannelingSocket withWrite(ByteBuffer... messageBuffers);
+
+    /**
+     * Send a region of file without copying it through heap, transferTo on plain socket and chunked through a
+     * pooled buffer on SSL socket. The then callback is invoked with bytes transferred, check {@link #getTransferRemaining()}
+     * or use {@link Channeling#whenNoMoreToTransfer}
+     *
+     * @param fileChannel file to send, not closed by socket
+     * @param position    position in file to start from
+     * @param count       number of bytes to send
+     * @return ChannelingSocket
+     */
+    ChannelingSocket withTransfer(FileChannel fileChannel, long position, long count);
     ChannelingSocket withClose();
 
     /**
@@ -66,6 +115,8 @@ public interface ChannelingSocket {
     void read(ByteBuffer readBufferHolder, WhenChannelingSocket when, Then then);
     void write(ByteBuffer messageBuffer, Then then);
     void write(ByteBuffer messageBuffer, WhenChannelingSocket when, Then then);
+    void write(ByteBuffer[] messageBuffers, Then then);
+    void transfer(FileChannel fileChannel, long position, long count, Then then);
     void close(Then then);
     void close(WhenChannelingSocket when, Then then);
 
@@ -82,6 +133,8 @@ public interface ChannelingSocket {
     void read(ByteBuffer readBufferHolder, WhenChannelingSocket when, Then then, ErrorCallback errorCallback);
     void write(ByteBuffer messageBuffer, Then then, ErrorCallback errorCallback);
     void write(ByteBuffer messageBuffer, WhenChannelingSocket when, Then then, ErrorCallback errorCallback);
+    void write(ByteBuffer[] messageBuffers, Then then, ErrorCallback errorCallback);
+    void transfer(FileChannel fileChannel, long position, long count, Then then, ErrorCallback errorCallback);
     void close(Then then, ErrorCallback errorCallback);
     void close(WhenChannelingSocket when, Then then, ErrorCallback errorCallback);
 
@@ -151,12 +204,37 @@ public interface ChannelingSocket {
 
     ByteBuffer getCurrWritingBuffer();
 
+    /**
+     * @return buffers of current gathering write, null if writing a single buffer
+     */
+    ByteBuffer[] getCurrWritingBuffers();
+
+    /**
+     * @return next position in file to transfer
+     */
+    long getTransferPosition();
+
+    /**
+     * @return bytes left to transfer
+     */
+    long getTransferRemaining();
+
     Then getThen();
 
     ErrorCallback getErrorCallBack();
 
     int getSSLMinimumInputBufferSize();
 
+    /**
+     * @return host name the client asked for with SNI, null if none or the socket is not SSL
+     */
+    String getSSLServerName();
+
+    /**
+     * @return protocol negotiated with ALPN, null if none or the socket is not SSL
+     */
+    String getApplicationProtocol();
+
 
     /**
      * Internal Core only scope
@@ -0,0 +1,65 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * A then callback found running longer than the stall threshold on a worker, every other socket of the worker wait
+ * until it returns. Reported once per callback while it is still running.
+ */
+public class ChannelingStall {
+    private final int workerIndex;
+    private final ChannelingSocket socket;
+    private final String task;
+    private final long elapsedNanos;
+    private final StackTraceElement[] stackTrace;
+
+    ChannelingStall(int workerIndex, ChannelingSocket socket, String task, long elapsedNanos, StackTraceElement[] stackTrace) {
+        this.workerIndex = workerIndex;
+        this.socket = socket;
+        this.task = task;
+        this.elapsedNanos = elapsedNanos;
+        this.stackTrace = stackTrace;
+    }
+
+    public int getWorkerIndex() {
+        return workerIndex;
+    }
+
+    /**
+     * @return socket of the callback, its context and remote address tell which request it is
+     */
+    public ChannelingSocket getSocket() {
+        return socket;
+    }
+
+    /**
+     * @return io task which completion dispatched the callback, such as DO_READ
+     */
+    public String getTask() {
+        return task;
+    }
+
+    /**
+     * @return time the callback has been running when sampled
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return stack of the worker thread sampled while the callback is running
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Worker ").append(workerIndex).append(" stalled ").append(elapsedNanos / 1000000).append("ms in ")
+                .append(task).append(" callback of ").append(socket.getRemoteAddress())
+                .append(", context ").append(socket.getContext());
+        for (StackTraceElement element : stackTrace) {
+            sb.append("\n\tat ").append(element);
+        }
+        return sb.toString();
+    }
+}
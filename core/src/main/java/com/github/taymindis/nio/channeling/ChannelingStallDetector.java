@@ -0,0 +1,58 @@
+package com.github.taymindis.nio.channeling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watchdog thread sampling the callback each worker is running, see {@link Channeling#enableStallDetector(long, ChannelingStallListener)}
+ */
+class ChannelingStallDetector implements Runnable {
+    private static final Logger log = LoggerFactory.getLogger(ChannelingStallDetector.class);
+    static final ChannelingStallListener LOG_LISTENER = stall -> log.warn("{}", stall);
+
+    private final ChannelingProcessor[] processors;
+    private final long thresholdInNanos;
+    private final ChannelingStallListener listener;
+    private final ScheduledExecutorService scheduler;
+
+    ChannelingStallDetector(ChannelingProcessor[] processors, long thresholdInMs, ChannelingStallListener listener) {
+        this.processors = processors;
+        this.thresholdInNanos = TimeUnit.MILLISECONDS.toNanos(thresholdInMs);
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "channeling-stall-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        // Sample 4 times per threshold so a stall is caught at most 1.25 threshold late
+        long periodInMs = Math.max(1, thresholdInMs / 4);
+        scheduler.scheduleWithFixedDelay(this, periodInMs, periodInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        for (ChannelingProcessor processor : processors) {
+            ChannelingStall stall = processor.sampleStall(thresholdInNanos);
+            if (stall == null) {
+                continue;
+            }
+            ChannelingWorkerMetrics metrics = processor.getQueue().getMetrics();
+            if (metrics != null) {
+                metrics.stalled();
+            }
+            try {
+                listener.stalled(stall);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
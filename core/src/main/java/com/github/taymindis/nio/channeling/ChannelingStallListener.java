@@ -0,0 +1,9 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * Notified by the stall detector thread, never by a worker, so it may block without stalling sockets further
+ */
+@FunctionalInterface
+public interface ChannelingStallListener {
+    void stalled(ChannelingStall stall);
+}
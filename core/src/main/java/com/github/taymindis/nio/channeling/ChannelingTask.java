@@ -6,6 +6,7 @@ enum ChannelingTask {
     DO_PROXY_CONNECT,
     DO_READ,
     DO_WRITE,
+    DO_TRANSFER,
     DO_PROXY_SSL_CONNECT_READ,
     DO_PROXY_SSL_CONNECT_WRITE,
     DO_CLOSE,
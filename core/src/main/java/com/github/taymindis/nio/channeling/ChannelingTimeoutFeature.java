@@ -1,56 +1,205 @@
 package com.github.taymindis.nio.channeling;
 
-import java.io.IOException;
-import java.nio.channels.SelectionKey;
-import java.util.Date;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 
-public class ChannelingTimeoutFeature implements ChannelingPlugin{
+/**
+ * Per worker hashed timing wheel, arm and cancel are O(1) and only touched by the owning {@link ChannelingProcessor}.
+ * Every socket owns one slot, re-armed whenever the processor register a new io task or the socket become idle.
+ * The slot is checked lazily on expiry, if the socket moved on since it was armed, it is simply re-armed with the new deadline.
+ */
+public class ChannelingTimeoutFeature {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    public static final long DEFAULT_TICK_IN_MS = 10;
 
-    private static final int DEFAULT_BUFFER_TURNOVER = 1000;
-    private int bufferingCount = 0;
     private final long connectionTimeoutInMs;
     private final long readWriteTimeOutInMs;
+    private final long idleTimeoutInMs;
+    private final long tickInMs;
+    private final Timeout[] buckets = new Timeout[WHEEL_SIZE];
+    private final List<Timeout> expired = new ArrayList<>();
+    private long currentTick;
+    private int size;
 
-    ChannelingTimeoutFeature(long connectionTimeoutInMs, long readWriteTimeOutInMs) {
+    ChannelingTimeoutFeature(long connectionTimeoutInMs, long readWriteTimeOutInMs, long idleTimeoutInMs, long tickInMs) {
+        if (tickInMs <= 0) {
+            throw new IllegalArgumentException("tickInMs must be greater than 0");
+        }
         this.connectionTimeoutInMs = connectionTimeoutInMs;
         this.readWriteTimeOutInMs = readWriteTimeOutInMs;
+        this.idleTimeoutInMs = idleTimeoutInMs;
+        this.tickInMs = tickInMs;
+        this.currentTick = System.currentTimeMillis() / tickInMs;
     }
 
-    @Override
-    public void checkKeys(Set<SelectionKey> allKeys) throws TimeoutException, IOException {
-        if (bufferingCount++ > DEFAULT_BUFFER_TURNOVER) {
-            long currTime = new Date().getTime();
-            bufferingCount = 0;
-            for (SelectionKey key : allKeys) {
-                ChannelingSocket channelingSocket = (ChannelingSocket) key.attachment();
-                if(channelingSocket instanceof ChannelServerRunner) {
-                    continue;
-                }
-                if (channelingSocket != null) {
-                    long actionTime = channelingSocket.getActionTime();
-                    long elapsedTimeInMs = currTime - actionTime;
-
-                    if (channelingSocket.getIoTask() == ChannelingTask.DO_CONNECT && elapsedTimeInMs >= connectionTimeoutInMs) {
-                        key.cancel();
-                        channelingSocket.withClose();
-                        TimeoutException timeout =
-                                new TimeoutException("Connecting timeout, IO has spent around" + connectionTimeoutInMs + "++ms");
-                        channelingSocket.getErrorCallBack().error(channelingSocket, timeout);
-                        throw timeout;
-                    }
-
-                    if (channelingSocket.getIoTask() != ChannelingTask.DO_CONNECT && elapsedTimeInMs >= readWriteTimeOutInMs) {
-                        key.cancel();
-                        channelingSocket.withClose();
-                        TimeoutException timeout =
-                                new TimeoutException("Read / Writing timeout, IO has spent around " + readWriteTimeOutInMs + "++ms");
-                        channelingSocket.getErrorCallBack().error(channelingSocket, timeout);
-                        throw timeout;
-                    }
+    static final class Timeout {
+        private final AbstractChannelRunner socket;
+        private long expireTick;
+        private boolean idle, linked;
+        private Timeout prev, next;
+
+        private Timeout(AbstractChannelRunner socket) {
+            this.socket = socket;
+        }
+    }
+
+    /**
+     * Arm the timeout of the io task just registered, deadline is based on {@link ChannelingSocket#getActionTime()}
+     *
+     * @param socket registered socket
+     */
+    void arm(AbstractChannelRunner socket) {
+        schedule(socket, deadlineOf(socket), false);
+    }
+
+    /**
+     * Arm the idle timeout of the socket which has no io task after callback
+     *
+     * @param socket idle socket
+     * @param now    current time in milisecond
+     */
+    void armIdle(AbstractChannelRunner socket, long now) {
+        schedule(socket, idleTimeoutInMs > 0 ? now + idleTimeoutInMs : -1, true);
+    }
+
+    void cancel(AbstractChannelRunner socket) {
+        Timeout timeout = socket.timeout;
+        if (timeout != null && timeout.linked) {
+            unlink(timeout);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long getTickInMs() {
+        return tickInMs;
+    }
+
+    /**
+     * Fire every timeout which deadline has passed, only buckets of elapsed ticks are visited
+     *
+     * @param now     current time in milisecond
+     * @param handler invoked on expired socket
+     */
+    void expire(long now, BiConsumer<ChannelingSocket, TimeoutException> handler) {
+        long nowTick = now / tickInMs;
+        if (nowTick <= currentTick) {
+            return;
+        }
+        if (size > 0) {
+            long turns = Math.min(nowTick - currentTick, WHEEL_SIZE);
+            for (long tick = currentTick + 1, end = currentTick + turns; tick <= end; tick++) {
+                collectExpired(buckets[(int) (tick & WHEEL_MASK)], nowTick);
+            }
+        }
+        currentTick = nowTick;
+
+        for (int i = 0, len = expired.size(); i < len; i++) {
+            Timeout timeout = expired.get(i);
+            AbstractChannelRunner socket = timeout.socket;
+            ChannelingTask ioTask = socket.getIoTask();
+            if (ioTask == ChannelingTask.DO_IDLE || ioTask == null) {
+                if (timeout.idle) {
+                    handler.accept(socket, new TimeoutException("Idle timeout, socket has been idle around " + idleTimeoutInMs + "++ms"));
+                } else {
+                    armIdle(socket, now);
                 }
+                continue;
             }
+            long deadline = deadlineOf(socket);
+            if (deadline < 0) {
+                continue;
+            }
+            if (deadline > now) {
+                // Socket moved on to another io task since armed
+                schedule(socket, deadline, false);
+            } else if (ioTask == ChannelingTask.DO_CONNECT) {
+                handler.accept(socket, new TimeoutException("Connecting timeout, IO has spent around" + connectionTimeoutInMs + "++ms"));
+            } else {
+                handler.accept(socket, new TimeoutException("Read / Writing timeout, IO has spent around " + readWriteTimeoutOf(socket) + "++ms"));
+            }
+        }
+        expired.clear();
+    }
+
+    private void collectExpired(Timeout head, long nowTick) {
+        Timeout timeout = head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.expireTick <= nowTick) {
+                unlink(timeout);
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private long readWriteTimeoutOf(AbstractChannelRunner socket) {
+        long readWriteTimeoutInMs = socket.getReadWriteTimeout();
+        return readWriteTimeoutInMs < 0 ? this.readWriteTimeOutInMs : readWriteTimeoutInMs;
+    }
+
+    private long deadlineOf(AbstractChannelRunner socket) {
+        ChannelingTask ioTask = socket.getIoTask();
+        if (ioTask == null) {
+            return -1;
+        }
+        switch (ioTask) {
+            case DO_CONNECT:
+                return socket.getActionTime() + connectionTimeoutInMs;
+            case DO_CLOSE:
+            case DO_IDLE:
+            case DO_ACCEPT:
+                return -1;
+            default:
+                return socket.getActionTime() + readWriteTimeoutOf(socket);
+        }
+    }
+
+    private void schedule(AbstractChannelRunner socket, long deadline, boolean idle) {
+        Timeout timeout = socket.timeout;
+        if (deadline < 0) {
+            if (timeout != null && timeout.linked) {
+                unlink(timeout);
+            }
+            return;
+        }
+        if (timeout == null) {
+            timeout = socket.timeout = new Timeout(socket);
+        } else if (timeout.linked) {
+            unlink(timeout);
+        }
+        timeout.idle = idle;
+        timeout.expireTick = Math.max((deadline + tickInMs - 1) / tickInMs, currentTick + 1);
+        int bucket = (int) (timeout.expireTick & WHEEL_MASK);
+        Timeout head = buckets[bucket];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[bucket] = timeout;
+        timeout.linked = true;
+        size++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.expireTick & WHEEL_MASK)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
         }
+        timeout.prev = timeout.next = null;
+        timeout.linked = false;
+        size--;
     }
 }
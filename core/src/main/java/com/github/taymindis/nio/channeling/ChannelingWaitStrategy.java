@@ -0,0 +1,98 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * Decide how a {@link ChannelingProcessor} waits when there is nothing to do,
+ * nothing queued and no selection key was ready on the previous turn.
+ */
+public interface ChannelingWaitStrategy {
+
+    /**
+     * @param idleTurns number of consecutive turns without any queued socket or ready key
+     * @return time in milisecond the worker may block on its selector, 0 to keep polling with selectNow.
+     * A blocked worker is woken up by {@link java.nio.channels.Selector#wakeup()} as soon as a socket is queued to it.
+     */
+    long idle(int idleTurns);
+
+    /**
+     * Never park, lowest latency, every worker pins a core
+     *
+     * @return ChannelingWaitStrategy
+     */
+    static ChannelingWaitStrategy busySpin() {
+        return idleTurns -> 0;
+    }
+
+    /**
+     * Legacy peekPerNano behaviour, sleep the given nano seconds when idle
+     *
+     * @param peekPerNano nano second to sleep per idle turn
+     * @return ChannelingWaitStrategy
+     */
+    static ChannelingWaitStrategy sleeping(int peekPerNano) {
+        return idleTurns -> {
+            try {
+                Thread.sleep(0, peekPerNano);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Spin for a number of idle turns, then give the core back with {@link Thread#yield()}
+     *
+     * @param spinTurns idle turns to spin before yielding
+     * @return ChannelingWaitStrategy
+     */
+    static ChannelingWaitStrategy spinThenYield(int spinTurns) {
+        return idleTurns -> {
+            if (idleTurns >= spinTurns) {
+                Thread.yield();
+            }
+            return 0;
+        };
+    }
+
+    /**
+     * Spin for a number of idle turns, then block on select(timeout) until a key is ready,
+     * a socket is queued or the timeout elapsed
+     *
+     * @param spinTurns   idle turns to spin before blocking, keep latency low under load
+     * @param timeoutInMs maximum time to block per turn
+     * @return ChannelingWaitStrategy
+     */
+    static ChannelingWaitStrategy blocking(int spinTurns, long timeoutInMs) {
+        if (timeoutInMs <= 0) {
+            throw new IllegalArgumentException("timeoutInMs must be greater than 0");
+        }
+        return idleTurns -> idleTurns >= spinTurns ? timeoutInMs : 0;
+    }
+
+    static ChannelingWaitStrategy blocking() {
+        return blocking(DEFAULT_SPIN_TURNS, DEFAULT_BLOCKING_TIMEOUT_IN_MS);
+    }
+
+    /**
+     * @param name busySpin, sleeping, spinThenYield or blocking
+     * @return ChannelingWaitStrategy
+     */
+    static ChannelingWaitStrategy of(String name) {
+        switch (name) {
+            case "busySpin":
+                return busySpin();
+            case "sleeping":
+                return sleeping(DEFAULT_PEEK_PER_NANO);
+            case "spinThenYield":
+                return spinThenYield(DEFAULT_SPIN_TURNS);
+            case "blocking":
+                return blocking();
+            default:
+                throw new IllegalArgumentException("Unknown wait strategy " + name);
+        }
+    }
+
+    int DEFAULT_SPIN_TURNS = 128;
+    int DEFAULT_PEEK_PER_NANO = 1;
+    long DEFAULT_BLOCKING_TIMEOUT_IN_MS = 100;
+}
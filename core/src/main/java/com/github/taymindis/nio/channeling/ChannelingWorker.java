@@ -0,0 +1,28 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * Read only load view of one {@link ChannelingProcessor}, used by {@link ChannelingWorkerSelector} to place new sockets.
+ * Counters are updated by the owning processor and may be slightly stale when read from other threads.
+ */
+public interface ChannelingWorker {
+
+    /**
+     * @return index of this worker, from 0 to workers - 1
+     */
+    int getIndex();
+
+    /**
+     * @return number of sockets assigned to this worker and not yet closed
+     */
+    int getRegisteredSockets();
+
+    /**
+     * @return number of bytes queued for writing and not yet flushed to the sockets of this worker
+     */
+    long getPendingBytes();
+
+    /**
+     * @return metrics of this worker, null unless enabled by {@link Channeling#enableMetrics()}
+     */
+    ChannelingWorkerMetrics getMetrics();
+}
@@ -0,0 +1,161 @@
+package com.github.taymindis.nio.channeling;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of one {@link ChannelingProcessor}, only written by the processor thread while metrics enabled on
+ * {@link Channeling}. Getters can be bound as gauges or function counters of any metrics registry.
+ */
+public class ChannelingWorkerMetrics implements ChannelingWorkerMetricsMXBean {
+    private final ChannelingQueue queue;
+    private final LongAdder selects = new LongAdder();
+    private final LongAdder emptySelects = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder callbacks = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final ChannelingLatencyHistogram callbackTime = new ChannelingLatencyHistogram();
+    private volatile int registeredKeys;
+    private volatile long lastTurnTimeMillis = System.currentTimeMillis();
+
+    ChannelingWorkerMetrics(ChannelingQueue queue) {
+        this.queue = queue;
+    }
+
+    void selected(int selectedKeys, int registeredKeys) {
+        selects.increment();
+        if (selectedKeys == 0) {
+            emptySelects.increment();
+        }
+        this.registeredKeys = registeredKeys;
+    }
+
+    void read(int bytes) {
+        if (bytes > 0) {
+            bytesRead.add(bytes);
+        }
+    }
+
+    void written(long bytes) {
+        if (bytes > 0) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    void callbackDone(long nanos) {
+        callbacks.increment();
+        callbackTime.record(nanos);
+    }
+
+    void timeout() {
+        timeouts.increment();
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    void stalled() {
+        stalls.increment();
+    }
+
+    void turn(long nowInMs) {
+        lastTurnTimeMillis = nowInMs;
+    }
+
+    @Override
+    public int getWorkerIndex() {
+        return queue.getIndex();
+    }
+
+    @Override
+    public int getRegisteredKeys() {
+        return registeredKeys;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public long getSelects() {
+        return selects.sum();
+    }
+
+    @Override
+    public long getEmptySelects() {
+        return emptySelects.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getCallbacks() {
+        return callbacks.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    @Override
+    public long getLastTurnTimeMillis() {
+        return lastTurnTimeMillis;
+    }
+
+    @Override
+    public long getCallbackTimeP50Nanos() {
+        return callbackTime.getPercentileInNanos(50);
+    }
+
+    @Override
+    public long getCallbackTimeP99Nanos() {
+        return callbackTime.getPercentileInNanos(99);
+    }
+
+    @Override
+    public long getCallbackTimeP999Nanos() {
+        return callbackTime.getPercentileInNanos(99.9);
+    }
+
+    @Override
+    public long getCallbackTimeMaxNanos() {
+        return callbackTime.getMaxInNanos();
+    }
+
+    /**
+     * @return time spent in then callbacks of this worker
+     */
+    public ChannelingLatencyHistogram getCallbackTime() {
+        return callbackTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("worker=%d keys=%d queued=%d selects=%d empty=%d read=%d written=%d callbacks=%d timeouts=%d errors=%d stalls=%d callbackTime[%s]",
+                getWorkerIndex(), getRegisteredKeys(), getQueueDepth(), getSelects(), getEmptySelects(), getBytesRead(),
+                getBytesWritten(), getCallbacks(), getTimeouts(), getErrors(), getStalls(), callbackTime);
+    }
+}
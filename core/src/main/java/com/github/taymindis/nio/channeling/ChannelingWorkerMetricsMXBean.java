@@ -0,0 +1,55 @@
+package com.github.taymindis.nio.channeling;
+
+/**
+ * JMX view of one worker metrics, registered by {@link Channeling#registerMetricsMBeans(String)}.
+ * Counters are cumulative since metrics enabled, rates such as selects per second are left to the monitoring side.
+ */
+public interface ChannelingWorkerMetricsMXBean {
+
+    int getWorkerIndex();
+
+    /**
+     * @return keys registered on the worker selector at the last loop turn
+     */
+    int getRegisteredKeys();
+
+    /**
+     * @return sockets waiting in the worker queue to be registered
+     */
+    int getQueueDepth();
+
+    long getSelects();
+
+    /**
+     * @return selects returned without any selected key
+     */
+    long getEmptySelects();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getCallbacks();
+
+    long getTimeouts();
+
+    long getErrors();
+
+    /**
+     * @return callbacks reported by the stall detector, see {@link Channeling#enableStallDetector(long, ChannelingStallListener)}
+     */
+    long getStalls();
+
+    /**
+     * @return time in milisecond of the last loop turn, a stuck worker stop moving it
+     */
+    long getLastTurnTimeMillis();
+
+    long getCallbackTimeP50Nanos();
+
+    long getCallbackTimeP99Nanos();
+
+    long getCallbackTimeP999Nanos();
+
+    long getCallbackTimeMaxNanos();
+}
@@ -0,0 +1,119 @@
+package com.github.taymindis.nio.channeling;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decide which worker a newly wrapped socket is assigned to, a socket stays on its worker until closed.
+ */
+public interface ChannelingWorkerSelector {
+
+    /**
+     * @param workers       all workers, never empty
+     * @param socketChannel channel being wrapped, nullable and not yet connected for client socket
+     * @return index of the chosen worker
+     */
+    int select(ChannelingWorker[] workers, SocketChannel socketChannel);
+
+    /**
+     * Spread sockets evenly regardless of the wrapping thread
+     *
+     * @return ChannelingWorkerSelector
+     */
+    static ChannelingWorkerSelector roundRobin() {
+        AtomicInteger next = new AtomicInteger();
+        return (workers, socketChannel) -> (next.getAndIncrement() & Integer.MAX_VALUE) % workers.length;
+    }
+
+    /**
+     * Pick the worker with the least sockets assigned, suit long lived connections with uneven lifetime
+     *
+     * @return ChannelingWorkerSelector
+     */
+    static ChannelingWorkerSelector leastRegistered() {
+        ChannelingWorkerSelector tieBreaker = roundRobin();
+        return (workers, socketChannel) -> {
+            int start = tieBreaker.select(workers, socketChannel), chosen = start;
+            int least = Integer.MAX_VALUE;
+            for (int i = 0; i < workers.length; i++) {
+                int ix = (start + i) % workers.length;
+                int registered = workers[ix].getRegisteredSockets();
+                if (registered < least) {
+                    least = registered;
+                    chosen = ix;
+                }
+            }
+            return chosen;
+        };
+    }
+
+    /**
+     * Pick the worker with the least bytes waiting to be written, suit large response or streaming traffic
+     *
+     * @return ChannelingWorkerSelector
+     */
+    static ChannelingWorkerSelector leastPendingBytes() {
+        ChannelingWorkerSelector tieBreaker = roundRobin();
+        return (workers, socketChannel) -> {
+            int start = tieBreaker.select(workers, socketChannel), chosen = start;
+            long least = Long.MAX_VALUE;
+            for (int i = 0; i < workers.length; i++) {
+                int ix = (start + i) % workers.length;
+                long pending = workers[ix].getPendingBytes();
+                if (pending < least) {
+                    least = pending;
+                    chosen = ix;
+                }
+            }
+            return chosen;
+        };
+    }
+
+    /**
+     * Keep connections from the same remote host on the same worker,
+     * fall back to round robin when remote address is not known yet, e.g. client socket before connect
+     *
+     * @return ChannelingWorkerSelector
+     */
+    static ChannelingWorkerSelector remoteAddressHash() {
+        ChannelingWorkerSelector fallback = roundRobin();
+        return (workers, socketChannel) -> {
+            SocketAddress remote = null;
+            if (socketChannel != null) {
+                try {
+                    remote = socketChannel.getRemoteAddress();
+                } catch (Exception e) {
+                    // Closed channel, let fallback decide
+                }
+            }
+            if (remote == null) {
+                return fallback.select(workers, socketChannel);
+            }
+            int hash = remote instanceof InetSocketAddress && ((InetSocketAddress) remote).getAddress() != null ?
+                    ((InetSocketAddress) remote).getAddress().hashCode() : remote.hashCode();
+            hash ^= (hash >>> 16);
+            return (hash & Integer.MAX_VALUE) % workers.length;
+        };
+    }
+
+    /**
+     * @param name roundRobin, leastRegistered, leastPendingBytes or remoteAddressHash
+     * @return ChannelingWorkerSelector
+     */
+    static ChannelingWorkerSelector of(String name) {
+        switch (name) {
+            case "roundRobin":
+                return roundRobin();
+            case "leastRegistered":
+                return leastRegistered();
+            case "leastPendingBytes":
+                return leastPendingBytes();
+            case "remoteAddressHash":
+                return remoteAddressHash();
+            default:
+                throw new IllegalArgumentException("Unknown worker selector " + name);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.taymindis.nio.channeling;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Peek the server name (SNI) of a TLS ClientHello before it is given to a SSLEngine,
+ * so the engine can be created from the SSLContext of the requested host.
+ */
+final class SSLClientHello {
+    static final int INCOMPLETE = -1;
+    static final int NOT_TLS = -2;
+
+    private static final int RECORD_HEADER_SIZE = 5;
+    private static final int CONTENT_TYPE_HANDSHAKE = 22;
+    private static final int HANDSHAKE_TYPE_CLIENT_HELLO = 1;
+    private static final int EXTENSION_SERVER_NAME = 0;
+    private static final int NAME_TYPE_HOST_NAME = 0;
+
+    private SSLClientHello() {
+    }
+
+    /**
+     * @param buffer network bytes from index 0 up to length, buffer position and limit are untouched
+     * @param length bytes available
+     * @return record length once the first record is complete, {@link #INCOMPLETE} or {@link #NOT_TLS}
+     */
+    static int firstRecordLength(ByteBuffer buffer, int length) {
+        if (length < RECORD_HEADER_SIZE) {
+            return length > 0 && (buffer.get(0) & 0xff) != CONTENT_TYPE_HANDSHAKE ? NOT_TLS : INCOMPLETE;
+        }
+        if ((buffer.get(0) & 0xff) != CONTENT_TYPE_HANDSHAKE) {
+            return NOT_TLS;
+        }
+        int recordLength = RECORD_HEADER_SIZE + readUnsignedShort(buffer, 3);
+        return length < recordLength ? INCOMPLETE : recordLength;
+    }
+
+    /**
+     * @param buffer       network bytes from index 0, first record complete, see {@link #firstRecordLength(ByteBuffer, int)}
+     * @param recordLength length of the first record
+     * @return lower case host name asked by client, null if none or the ClientHello is malformed
+     */
+    static String serverName(ByteBuffer buffer, int recordLength) {
+        try {
+            int p = RECORD_HEADER_SIZE;
+            if ((buffer.get(p) & 0xff) != HANDSHAKE_TYPE_CLIENT_HELLO) {
+                return null;
+            }
+            // Type 1, length 3, client version 2, random 32
+            p += 1 + 3 + 2 + 32;
+            // Session id
+            p += 1 + (buffer.get(p) & 0xff);
+            // Cipher suites
+            p += 2 + readUnsignedShort(buffer, p);
+            // Compression methods
+            p += 1 + (buffer.get(p) & 0xff);
+            if (p + 2 > recordLength) {
+                return null;
+            }
+            int extensionsEnd = Math.min(recordLength, p + 2 + readUnsignedShort(buffer, p));
+            p += 2;
+            while (p + 4 <= extensionsEnd) {
+                int type = readUnsignedShort(buffer, p);
+                int extensionLength = readUnsignedShort(buffer, p + 2);
+                p += 4;
+                if (type == EXTENSION_SERVER_NAME) {
+                    return hostName(buffer, p, Math.min(extensionsEnd, p + extensionLength));
+                }
+                p += extensionLength;
+            }
+            return null;
+        } catch (IndexOutOfBoundsException e) {
+            // ClientHello spread over records or truncated, engine will tell
+            return null;
+        }
+    }
+
+    private static String hostName(ByteBuffer buffer, int p, int end) {
+        // Server name list length
+        p += 2;
+        while (p + 3 <= end) {
+            int nameType = buffer.get(p) & 0xff;
+            int nameLength = readUnsignedShort(buffer, p + 1);
+            p += 3;
+            if (nameType == NAME_TYPE_HOST_NAME && p + nameLength <= end) {
+                byte[] name = new byte[nameLength];
+                for (int i = 0; i < nameLength; i++) {
+                    name[i] = buffer.get(p + i);
+                }
+                return new String(name, StandardCharsets.US_ASCII).toLowerCase();
+            }
+            p += nameLength;
+        }
+        return null;
+    }
+
+    private static int readUnsignedShort(ByteBuffer buffer, int index) {
+        return ((buffer.get(index) & 0xff) << 8) | (buffer.get(index + 1) & 0xff);
+    }
+}
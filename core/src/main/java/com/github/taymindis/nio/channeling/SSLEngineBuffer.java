@@ -13,71 +13,225 @@ import javax.net.ssl.SSLSession;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 class SSLEngineBuffer {
+    /**
+     * Bytes of records batched per socket read / write, 0 for one record per syscall
+     */
+    static final int DEFAULT_RECORD_BATCH_SIZE = 64 * 1024;
+
     private final SocketChannel socketChannel;
 
-    private final SSLEngine sslEngine;
+    private SSLEngine sslEngine;
+
+    // Pick the engine from the server name of the ClientHello, cleared once picked
+    private Function<String, SSLEngine> engineSelector;
+
+    private String serverName;
 
-    private final ExecutorService executorService;
+    private final Executor executorService;
 
-    private final ByteBuffer networkInboundBuffer;
+    private ByteBuffer networkInboundBuffer;
 
-    private final ByteBuffer networkOutboundBuffer;
+    private ByteBuffer networkOutboundBuffer;
 
     private final int minimumApplicationBufferSize;
 
-    private final ByteBuffer unwrapBuffer;
+    private final int packetBufferSize;
+
+    private ByteBuffer unwrapBuffer;
+
+    private ByteBuffer wrapBuffer;
+
+    private final ByteBuffer[] singleOutboundBuffer = new ByteBuffer[1];
+
+    private final ChannelingBufferPool bufferPool;
+
+    private ChannelingSSLSessionCache sessionCache;
+
+    private final long createdTime = System.currentTimeMillis();
 
-    private final ByteBuffer wrapBuffer;
+    private boolean handshakeFinished;
 
     private static Logger logger = LoggerFactory.getLogger(SSLEngineBuffer.class);
 
-    public SSLEngineBuffer(SocketChannel socketChannel, SSLEngine sslEngine, ExecutorService executorService) {
+    public SSLEngineBuffer(SocketChannel socketChannel, SSLEngine sslEngine, Executor executorService) {
+        this(socketChannel, sslEngine, executorService, ChannelingBufferPool.heap());
+    }
+
+    public SSLEngineBuffer(SocketChannel socketChannel, SSLEngine sslEngine, Executor executorService,
+                           ChannelingBufferPool bufferPool) {
+        this(socketChannel, sslEngine, executorService, bufferPool, DEFAULT_RECORD_BATCH_SIZE);
+    }
+
+    /**
+     * @param recordBatchSize size of the network buffers, records are wrapped into them until full then written
+     *                        at once, several records are read per socket read. At least one packet
+     */
+    public SSLEngineBuffer(SocketChannel socketChannel, SSLEngine sslEngine, Executor executorService,
+                           ChannelingBufferPool bufferPool, int recordBatchSize) {
         this.socketChannel = socketChannel;
         this.sslEngine = sslEngine;
         this.executorService = executorService;
+        this.bufferPool = bufferPool;
 
 
         SSLSession session = sslEngine.getSession();
-        int networkBufferSize = session.getPacketBufferSize();
+        packetBufferSize = session.getPacketBufferSize();
+        int networkBufferSize = Math.max(packetBufferSize, recordBatchSize);
 
-        networkInboundBuffer = ByteBuffer.allocate(networkBufferSize);
+        networkInboundBuffer = bufferPool.acquire(networkBufferSize);
 
-        networkOutboundBuffer = ByteBuffer.allocate(networkBufferSize);
+        networkOutboundBuffer = bufferPool.acquire(networkBufferSize);
         networkOutboundBuffer.flip();
 
 
         minimumApplicationBufferSize = session.getApplicationBufferSize();
-        unwrapBuffer = ByteBuffer.allocate(minimumApplicationBufferSize);
-        wrapBuffer = ByteBuffer.allocate(minimumApplicationBufferSize);
+        unwrapBuffer = bufferPool.acquire(minimumApplicationBufferSize);
+        wrapBuffer = bufferPool.acquire(minimumApplicationBufferSize);
         wrapBuffer.flip();
     }
 
-    int unwrap(ByteBuffer applicationInputBuffer) throws IOException {
-        if (applicationInputBuffer.capacity() < minimumApplicationBufferSize) {
-            throw new IllegalArgumentException("Application buffer size must be at least: " + minimumApplicationBufferSize);
+    /**
+     * Server side, the engine given at construction is replaced by the one selected for the requested server name
+     * before any handshake bytes reach it
+     *
+     * @param engineSelector server name, null if client did not send SNI, to engine, null to keep the current one
+     */
+    void setEngineSelector(Function<String, SSLEngine> engineSelector) {
+        this.engineSelector = engineSelector;
+    }
+
+    /**
+     * @return server name peeked from ClientHello when an engine selector was set
+     */
+    String getServerName() {
+        return serverName;
+    }
+
+    SSLEngine getSSLEngine() {
+        return sslEngine;
+    }
+
+    /**
+     * @return true once the engine is selected, false while the first record of ClientHello is incomplete
+     */
+    private boolean selectEngine(boolean endOfChannel) {
+        int recordLength = SSLClientHello.firstRecordLength(networkInboundBuffer, networkInboundBuffer.position());
+        if (recordLength == SSLClientHello.INCOMPLETE && networkInboundBuffer.hasRemaining() && !endOfChannel) {
+            return false;
         }
+        Function<String, SSLEngine> selector = engineSelector;
+        engineSelector = null;
+        if (recordLength > 0) {
+            serverName = SSLClientHello.serverName(networkInboundBuffer, recordLength);
+            SSLEngine selected = selector.apply(serverName);
+            if (selected != null) {
+                sslEngine = selected;
+            }
+        }
+        return true;
+    }
 
-        if (unwrapBuffer.position() != 0) {
-            unwrapBuffer.flip();
-            while (unwrapBuffer.hasRemaining() && applicationInputBuffer.hasRemaining()) {
-                applicationInputBuffer.put(unwrapBuffer.get());
+    void setSessionCache(ChannelingSSLSessionCache sessionCache) {
+        this.sessionCache = sessionCache;
+    }
+
+    /**
+     * Report the initial handshake only, renegotiation and post handshake messages are not counted
+     */
+    private void handshakeFinished() {
+        if (!handshakeFinished) {
+            handshakeFinished = true;
+            if (sessionCache != null) {
+                sessionCache.handshakeFinished(sslEngine.getSession(), createdTime);
             }
-            unwrapBuffer.compact();
         }
+    }
+
+    /**
+     * Give the buffers back to pool, engine must not be used afterward
+     */
+    void releaseBuffers() {
+        if (networkInboundBuffer == null) {
+            return;
+        }
+        bufferPool.release(networkInboundBuffer);
+        bufferPool.release(networkOutboundBuffer);
+        bufferPool.release(unwrapBuffer);
+        bufferPool.release(wrapBuffer);
+        networkInboundBuffer = networkOutboundBuffer = unwrapBuffer = wrapBuffer = null;
+    }
+
+    /**
+     * Unwrap straight into the caller's buffer when it can take a whole record, otherwise through unwrapBuffer,
+     * plaintext which does not fit is kept for next call, see {@link #hasBufferedInput()}
+     *
+     * @return plaintext bytes put into the buffer, -1 if peer closed and nothing left
+     */
+    int unwrap(ByteBuffer applicationInputBuffer) throws IOException {
+        int initialPosition = applicationInputBuffer.position();
+        drainUnwrapBuffer(applicationInputBuffer);
 
-        int totalUnwrapped = 0;
         int unwrapped, wrapped;
 
         do {
-            totalUnwrapped += unwrapped = doUnwrap(applicationInputBuffer);
+            if (applicationInputBuffer.remaining() >= minimumApplicationBufferSize) {
+                unwrapped = doUnwrap(applicationInputBuffer);
+            } else if (applicationInputBuffer.hasRemaining()) {
+                unwrapped = doUnwrap(unwrapBuffer);
+                drainUnwrapBuffer(applicationInputBuffer);
+            } else {
+                unwrapped = 0;
+            }
+            if (unwrapped < 0) {
+                // Hand out what was unwrapped first, end of stream is seen again on next call
+                int totalUnwrapped = applicationInputBuffer.position() - initialPosition;
+                return totalUnwrapped == 0 ? unwrapped : totalUnwrapped;
+            }
             wrapped = doWrap(wrapBuffer);
         }
         while (unwrapped > 0 || wrapped > 0 && (networkOutboundBuffer.hasRemaining() && networkInboundBuffer.hasRemaining()));
 
-        return totalUnwrapped;
+        return applicationInputBuffer.position() - initialPosition;
+    }
+
+    private void drainUnwrapBuffer(ByteBuffer applicationInputBuffer) {
+        if (unwrapBuffer.position() == 0) {
+            return;
+        }
+        unwrapBuffer.flip();
+        if (unwrapBuffer.remaining() <= applicationInputBuffer.remaining()) {
+            applicationInputBuffer.put(unwrapBuffer);
+        } else {
+            int limit = unwrapBuffer.limit();
+            unwrapBuffer.limit(unwrapBuffer.position() + applicationInputBuffer.remaining());
+            applicationInputBuffer.put(unwrapBuffer);
+            unwrapBuffer.limit(limit);
+        }
+        unwrapBuffer.compact();
+    }
+
+    /**
+     * @return true if plaintext or a whole record is already buffered, peer may have nothing more to send to wake the selector
+     */
+    boolean hasBufferedInput() {
+        if (unwrapBuffer == null) {
+            return false;
+        }
+        if (unwrapBuffer.position() > 0) {
+            return true;
+        }
+        return hasInboundRecord();
+    }
+
+    private boolean hasInboundRecord() {
+        int buffered = networkInboundBuffer.position();
+        // TLS record header, 1 byte type, 2 bytes version, 2 bytes length
+        return buffered >= 5 &&
+                buffered >= 5 + (((networkInboundBuffer.get(3) & 0xff) << 8) | (networkInboundBuffer.get(4) & 0xff));
     }
 
     int wrap(ByteBuffer applicationOutboundBuffer) throws IOException {
@@ -86,6 +240,22 @@ class SSLEngineBuffer {
         return wrapped;
     }
 
+    /**
+     * Wrap a sequence of buffers, the engine pack them into as few records as possible
+     */
+    int wrap(ByteBuffer[] applicationOutboundBuffers, int offset, int length) throws IOException {
+        int wrapped = doWrap(applicationOutboundBuffers, offset, length);
+        doUnwrap(unwrapBuffer);
+        return wrapped;
+    }
+
+    /**
+     * @return true if encrypted bytes are still waiting for the socket
+     */
+    boolean hasNetworkOutboundRemaining() {
+        return networkOutboundBuffer != null && networkOutboundBuffer.hasRemaining();
+    }
+
     int flushNetworkOutbound() throws IOException {
         return send(socketChannel, networkOutboundBuffer);
     }
@@ -129,12 +299,16 @@ class SSLEngineBuffer {
             // 1. Pull data from peer into networkInboundBuffer
 
             int readFromChannel = 0;
-            while (networkInboundBuffer.hasRemaining()) {
+            boolean endOfChannel = false;
+            // Records left by previous read are unwrapped first, socket is read once they are used up
+            while (!hasInboundRecord() && networkInboundBuffer.hasRemaining()) {
                 int read = socketChannel.read(networkInboundBuffer);
                 logger.debug("unwrap: socket read " + read + "(" + readFromChannel + ", " + totalReadFromChannel + ")");
                 if (read <= 0) {
-                    if ((read < 0) && (readFromChannel == 0) && (totalReadFromChannel == 0)) {
-                        // No work done and we've reached the end of the channel from peer
+                    endOfChannel = read < 0;
+                    if (endOfChannel && (readFromChannel == 0) && (totalReadFromChannel == 0)
+                            && networkInboundBuffer.position() == 0) {
+                        // No work done, nothing buffered and we've reached the end of the channel from peer
                         logger.debug("unwrap: exit: end of channel");
                         return read;
                     }
@@ -145,6 +319,11 @@ class SSLEngineBuffer {
             }
 
 
+            if (engineSelector != null && !selectEngine(endOfChannel)) {
+                logger.debug("unwrap: exit: client hello incomplete");
+                return endOfChannel ? -1 : totalReadFromChannel + readFromChannel;
+            }
+
             networkInboundBuffer.flip();
             if (!networkInboundBuffer.hasRemaining()) {
                 networkInboundBuffer.compact();
@@ -172,6 +351,10 @@ class SSLEngineBuffer {
                                 runHandshakeTasks();
                                 break;
 
+                            case FINISHED:
+                                handshakeFinished();
+                                break;
+
                             case NOT_HANDSHAKING:
                             default:
                                 break;
@@ -188,6 +371,14 @@ class SSLEngineBuffer {
 
                     case BUFFER_UNDERFLOW:
                         logger.debug("unwrap: buffer underflow");
+                        if (endOfChannel && totalReadFromChannel == 0) {
+                            // Peer closed in the middle of a record
+                            return -1;
+                        }
+                        if (readFromChannel == 0) {
+                            // Rest of the record is not there yet, wait for next readable instead of spinning
+                            break UNWRAP;
+                        }
                         break;
                 }
             } finally {
@@ -200,7 +391,20 @@ class SSLEngineBuffer {
     }
 
     private int doWrap(ByteBuffer applicationOutboundBuffer) throws IOException {
+        singleOutboundBuffer[0] = applicationOutboundBuffer;
+        try {
+            return doWrap(singleOutboundBuffer, 0, 1);
+        } finally {
+            singleOutboundBuffer[0] = null;
+        }
+    }
+
+    private int doWrap(ByteBuffer[] applicationOutboundBuffers, int offset, int length) throws IOException {
         logger.debug("wrap:");
+        if (engineSelector != null) {
+            // Nothing to say before the engine of the requested server is known
+            return 0;
+        }
         int totalWritten = 0;
 
         // 1. Send any data already wrapped out channel
@@ -217,11 +421,11 @@ class SSLEngineBuffer {
         WRAP:
         while (true) {
             networkOutboundBuffer.compact();
-            SSLEngineResult result = sslEngine.wrap(applicationOutboundBuffer, networkOutboundBuffer);
+            SSLEngineResult result = sslEngine.wrap(applicationOutboundBuffers, offset, length, networkOutboundBuffer);
             logger.debug("wrap: result: " + result);
 
             networkOutboundBuffer.flip();
-            if (networkOutboundBuffer.hasRemaining()) {
+            if (networkOutboundBuffer.hasRemaining() && !canBatchMore(result, applicationOutboundBuffers, offset, length)) {
                 int written = send(socketChannel, networkOutboundBuffer);
                 if (written < 0) {
                     return totalWritten == 0 ? written : totalWritten;
@@ -244,8 +448,12 @@ class SSLEngineBuffer {
                             logger.debug("wrap: exit: need tasks");
                             break;
 
+                        case FINISHED:
+                            handshakeFinished();
+                            break;
+
                         case NOT_HANDSHAKING:
-                            if (applicationOutboundBuffer.hasRemaining()) {
+                            if (hasRemaining(applicationOutboundBuffers, offset, length)) {
                                 break;
                             } else {
                                 break WRAP;
@@ -254,6 +462,10 @@ class SSLEngineBuffer {
                     break;
 
                 case BUFFER_OVERFLOW:
+                    if (networkOutboundBuffer.capacity() - networkOutboundBuffer.remaining() >= sslEngine.getSession().getPacketBufferSize()) {
+                        // Batch sent, room for next record
+                        break;
+                    }
                     logger.debug("wrap: exit: buffer overflow");
                     break WRAP;
 
@@ -271,6 +483,25 @@ class SSLEngineBuffer {
         return totalWritten;
     }
 
+    /**
+     * Keep wrapping application data into the network buffer while another record fit, it is written in one go
+     */
+    private boolean canBatchMore(SSLEngineResult result, ByteBuffer[] applicationOutboundBuffers, int offset, int length) {
+        return result.getStatus() == SSLEngineResult.Status.OK &&
+                result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING &&
+                networkOutboundBuffer.capacity() - networkOutboundBuffer.limit() >= packetBufferSize &&
+                hasRemaining(applicationOutboundBuffers, offset, length);
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (buffers[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void runHandshakeTasks() {
         while (true) {
             final Runnable runnable = sslEngine.getDelegatedTask();
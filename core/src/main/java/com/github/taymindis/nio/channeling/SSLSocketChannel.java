@@ -16,7 +16,8 @@ import java.net.SocketOption;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * A wrapper around a real {@link SocketChannel} that adds SSL support.
@@ -35,12 +36,28 @@ class SSLSocketChannel extends SocketChannel {
      * @param executorService Used to execute long running, blocking SSL operations such as certificate validation with a CA (<a href="http://docs.oracle.com/javase/7/docs/api/javax/net/ssl/SSLEngineResult.HandshakeStatus.html#NEED_TASK">NEED_TASK</a>)
      * @throws IOException
      */
-    public SSLSocketChannel(SocketChannel socketChannel, final SSLEngine sslEngine, ExecutorService executorService) {
+    public SSLSocketChannel(SocketChannel socketChannel, final SSLEngine sslEngine, Executor executorService) {
+        this(socketChannel, sslEngine, executorService, ChannelingBufferPool.heap());
+    }
+
+    /**
+     * @param bufferPool pool of the network and engine buffers, released by {@link #releaseBuffers()}
+     */
+    public SSLSocketChannel(SocketChannel socketChannel, final SSLEngine sslEngine, Executor executorService,
+                            ChannelingBufferPool bufferPool) {
+        this(socketChannel, sslEngine, executorService, bufferPool, SSLEngineBuffer.DEFAULT_RECORD_BATCH_SIZE);
+    }
+
+    /**
+     * @param recordBatchSize bytes of records wrapped before one socket write and read per socket read
+     */
+    public SSLSocketChannel(SocketChannel socketChannel, final SSLEngine sslEngine, Executor executorService,
+                            ChannelingBufferPool bufferPool, int recordBatchSize) {
         super(socketChannel.provider());
 
         this.socketChannel = socketChannel;
 
-        sslEngineBuffer = new SSLEngineBuffer(socketChannel, sslEngine, executorService);
+        sslEngineBuffer = new SSLEngineBuffer(socketChannel, sslEngine, executorService, bufferPool, recordBatchSize);
     }
 
     public SocketChannel getWrappedSocketChannel() {
@@ -56,7 +73,7 @@ class SSLSocketChannel extends SocketChannel {
      *
      * <p>A read operation might not fill the buffer, and in fact it might not read any bytes at all. Whether or not it does so depends upon the nature and state of the channel. A socket channel in non-blocking mode, for example, cannot read any more bytes than are immediately available from the socket's input buffer; similarly, a file channel cannot read any more bytes than remain in the file. It is guaranteed, however, that if a channel is in blocking mode and there is at least one byte remaining in the buffer then this method will block until at least one byte is read.</
      *
-     * <p>This method may be invoked at any time. If another thread has already initiated a read operation upon this channel, however, then an invocation of this method will block until the first operation is complete.</p>
+     * <p>Not thread safe, the channel is driven by the single worker it is registered with. A buffer smaller than the session application buffer size is filled through an internal buffer.</p>
      *
      * @param applicationBuffer The buffer into which bytes are to be transferred
      * @return The number of bytes read, possibly zero, or -1 if the channel has reached end-of-stream
@@ -65,10 +82,9 @@ class SSLSocketChannel extends SocketChannel {
      * @throws java.nio.channels.AsynchronousCloseException If another thread closes this channel while the read operation is in progress
      * @throws java.nio.channels.ClosedByInterruptException If another thread interrupts the current thread while the read operation is in progress, thereby closing the channel and setting the current thread's interrupt status
      * @throws IOException                                  If some other I/O error occurs
-     * @throws IllegalArgumentException                     If the given applicationBuffer capacity ({@link ByteBuffer#capacity()} is less then the application buffer size of the {@link SSLEngine} session application buffer size ({@link SSLSession#getApplicationBufferSize()} this channel was constructed was.
      */
     @Override
-    synchronized public int read(ByteBuffer applicationBuffer) throws IOException, IllegalArgumentException {
+    public int read(ByteBuffer applicationBuffer) throws IOException, IllegalArgumentException {
         logger.debug("read: " + applicationBuffer.position() + " " + applicationBuffer.limit());
         int intialPosition = applicationBuffer.position();
 
@@ -94,7 +110,7 @@ class SSLSocketChannel extends SocketChannel {
      *
      * <p>Unless otherwise specified, a write operation will return only after writing all of the r requested bytes. Some types of channels, depending upon their state, may write only some of the bytes or possibly none at all. A socket channel in non-blocking mode, for example, cannot write any more bytes than are free in the socket's output buffer.</p>
      *
-     * <p>This method may be invoked at any time. If another thread has already initiated a write operation upon this channel, however, then an invocation of this method will block until the first operation is complete.</p>
+     * <p>Not thread safe, the channel is driven by the single worker it is registered with.</p>
      *
      * @param applicationBuffer The buffer from which bytes are to be retrieved
      * @return The number of bytes written, possibly zero
@@ -106,7 +122,7 @@ class SSLSocketChannel extends SocketChannel {
      * @throws IllegalArgumentException                     If the given applicationBuffer capacity ({@link ByteBuffer#capacity()} is less then the application buffer size of the {@link SSLEngine} session application buffer size ({@link SSLSession#getApplicationBufferSize()} this channel was constructed was.
      */
     @Override
-    synchronized public int write(ByteBuffer applicationBuffer) throws IOException, IllegalArgumentException {
+    public int write(ByteBuffer applicationBuffer) throws IOException, IllegalArgumentException {
         logger.debug("write:");
 
         int intialPosition = applicationBuffer.position();
@@ -138,7 +154,7 @@ class SSLSocketChannel extends SocketChannel {
      *
      * <p>Suppose that a byte sequence of length n is read, where 0 <= n <= r. Up to the first dsts[offset].remaining() bytes of this sequence are transferred into buffer dsts[offset], up to the next dsts[offset+1].remaining() bytes are transferred into buffer dsts[offset+1], and so forth, until the entire byte sequence is transferred into the given buffers. As many bytes as possible are transferred into each buffer, hence the final position of each updated buffer, except the last updated buffer, is guaranteed to be equal to that buffer's limit.</p>
      *
-     * <p>This method may be invoked at any time. If another thread has already initiated a read operation upon this channel, however, then an invocation of this method will block until the first operation is complete.</p>
+     * <p>Not thread safe, the channel is driven by the single worker it is registered with.</p>
      *
      * @param applicationByteBuffers The buffers into which bytes are to be transferred
      * @param offset                 The offset within the buffer array of the first buffer into which bytes are to be transferred; must be non-negative and no larger than dsts.length
@@ -149,12 +165,11 @@ class SSLSocketChannel extends SocketChannel {
      * @throws java.nio.channels.AsynchronousCloseException If another thread closes this channel while the read operation is in progress
      * @throws java.nio.channels.ClosedByInterruptException If another thread interrupts the current thread while the read operation is in progress, thereby closing the channel and setting the current thread's interrupt status
      * @throws IOException                                  If some other I/O error occurs
-     * @throws IllegalArgumentException                     If one of the given applicationBuffers capacity ({@link ByteBuffer#capacity()} is less then the application buffer size of the {@link SSLEngine} session application buffer size ({@link SSLSession#getApplicationBufferSize()} this channel was constructed was.
      */
     @Override
     public long read(ByteBuffer[] applicationByteBuffers, int offset, int length) throws IOException, IllegalArgumentException {
         long totalRead = 0;
-        for (int i = offset; i < length; i++) {
+        for (int i = offset, end = offset + length; i < end; i++) {
             ByteBuffer applicationByteBuffer = applicationByteBuffers[i];
             if (applicationByteBuffer.hasRemaining()) {
                 int read = read(applicationByteBuffer);
@@ -191,7 +206,7 @@ class SSLSocketChannel extends SocketChannel {
      *
      * <p>Unless otherwise specified, a write operation will return only after writing all of the r requested bytes. Some types of channels, depending upon their state, may write only some of the bytes or possibly none at all. A socket channel in non-blocking mode, for example, cannot write any more bytes than are free in the socket's output buffer.</p>
      *
-     * <p>This method may be invoked at any time. If another thread has already initiated a write operation upon this channel, however, then an invocation of this method will block until the first operation is complete.</p>
+     * <p>Not thread safe, the channel is driven by the single worker it is registered with.</p>
      *
      * @param applicationByteBuffers The buffers from which bytes are to be retrieved
      * @param offset                 offset - The offset within the buffer array of the first buffer from which bytes are to be retrieved; must be non-negative and no larger than <code>srcs.length</code>
@@ -206,25 +221,22 @@ class SSLSocketChannel extends SocketChannel {
      */
     @Override
     public long write(ByteBuffer[] applicationByteBuffers, int offset, int length) throws IOException, IllegalArgumentException {
-        long totalWritten = 0;
-        for (int i = offset; i < length; i++) {
-            ByteBuffer byteBuffer = applicationByteBuffers[i];
-            if (byteBuffer.hasRemaining()) {
-                int written = write(byteBuffer);
-                if (written > 0) {
-                    totalWritten += written;
-                    if (byteBuffer.hasRemaining()) {
-                        break;
-                    }
-                } else {
-                    if ((written < 0) && (totalWritten == 0)) {
-                        totalWritten = -1;
-                    }
-                    break;
-                }
-            }
+        long initialRemaining = remaining(applicationByteBuffers, offset, length);
+        int writtenToChannel = sslEngineBuffer.wrap(applicationByteBuffers, offset, length);
+
+        if (writtenToChannel < 0) {
+            logger.debug("write: channel closed");
+            return writtenToChannel;
+        }
+        return initialRemaining - remaining(applicationByteBuffers, offset, length);
+    }
+
+    private static long remaining(ByteBuffer[] byteBuffers, int offset, int length) {
+        long remaining = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            remaining += byteBuffers[i].remaining();
         }
-        return totalWritten;
+        return remaining;
     }
 
     @Override
@@ -309,6 +321,52 @@ class SSLSocketChannel extends SocketChannel {
         sslEngineBuffer.close();
     }
 
+    /**
+     * Send encrypted bytes left over by previous write, the application bytes are consumed before they reach the socket
+     *
+     * @return true if nothing left to send
+     */
+    boolean flush() throws IOException {
+        if (sslEngineBuffer.hasNetworkOutboundRemaining()) {
+            sslEngineBuffer.flushNetworkOutbound();
+        }
+        return !sslEngineBuffer.hasNetworkOutboundRemaining();
+    }
+
+    void setSessionCache(ChannelingSSLSessionCache sessionCache) {
+        sslEngineBuffer.setSessionCache(sessionCache);
+    }
+
+    void setEngineSelector(Function<String, SSLEngine> engineSelector) {
+        sslEngineBuffer.setEngineSelector(engineSelector);
+    }
+
+    /**
+     * @return server name requested by client, only known on server side when an engine selector was set
+     */
+    String getServerName() {
+        return sslEngineBuffer.getServerName();
+    }
+
+    SSLEngine getSSLEngine() {
+        return sslEngineBuffer.getSSLEngine();
+    }
+
+    /**
+     * @return true if input is buffered and can be read without the socket being readable
+     */
+    boolean hasBufferedInput() {
+        return sslEngineBuffer.hasBufferedInput();
+    }
+
+    boolean hasPendingFlush() {
+        return sslEngineBuffer.hasNetworkOutboundRemaining();
+    }
+
+    void releaseBuffers() {
+        sslEngineBuffer.releaseBuffers();
+    }
+
     protected int getMinApplicationBufferSize() {
         return sslEngineBuffer.getMinimumApplicationBufferSize();
     }
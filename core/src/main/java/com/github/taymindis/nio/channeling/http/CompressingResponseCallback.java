@@ -0,0 +1,378 @@
+package com.github.taymindis.nio.channeling.http;
+
+import com.github.taymindis.nio.channeling.Then;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compress the response of another callback, see {@link ResponseCompression}. A written body is compressed at once and
+ * sent with its Content-Length. Bytes given to {@link #streamWrite} are read as an HTTP/1 response, compressible body is
+ * de-chunked if needed, compressed and sent in chunks, one per write so nothing is held back. Files are sent as they are.
+ */
+final class CompressingResponseCallback implements ResponseCallback {
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final ResponseCompression compression;
+    private final ResponseCallback delegate;
+    private final ContentEncodingType encoding;
+    private final String encodingName;
+    // HTTP/1.0 client, streamed body can't be sent chunked
+    private final boolean http10;
+
+    // Status line and headers of streamWrite, until the blank line
+    private ByteArrayOutputStream streamHead = new ByteArrayOutputStream(256);
+    private boolean passThrough, bodyComplete, ended;
+    // Body read as chunked when set, else up to remaining, -1 for until end
+    private HttpBodyDecoder dechunker;
+    private long remaining = -1;
+    private Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private long inputSize;
+    private byte[] buffer;
+    private ByteArrayOutputStream compressed;
+
+    CompressingResponseCallback(ResponseCompression compression, ResponseCallback delegate, ContentEncodingType encoding,
+                                boolean http10) {
+        this.compression = compression;
+        this.delegate = delegate;
+        this.encoding = encoding;
+        this.encodingName = encoding == ContentEncodingType.GZIP ? "gzip" : "deflate";
+        this.http10 = http10;
+    }
+
+    @Override
+    public void write(HttpResponseMessage responseMessage, Charset charset, Then $then) {
+        if (charset == null) {
+            charset = StandardCharsets.UTF_8;
+        }
+        Object content = responseMessage.getContent();
+        Map<String, String> headerMap = responseMessage.getHeaderMap();
+        if (content == null || !isCompressible(responseMessage.getCode() == null ? 200 : responseMessage.getCode(), headerMap)) {
+            delegate.write(responseMessage, charset, $then);
+            return;
+        }
+        byte[] body = content.toString().getBytes(charset);
+        byte[] encoded;
+        if (body.length < compression.getMinSize() || (encoded = compression.compress(encoding, body)).length >= body.length) {
+            delegate.write(responseMessage, charset, $then);
+            return;
+        }
+        synchronized (this) {
+            streamHead = null;
+            ended = true;
+        }
+        removeHeaders(headerMap, "Content-Length", "Transfer-Encoding");
+        encodingHeaders(headerMap);
+        if (!hasHeader(headerMap, "Connection") && !delegate.isKeepAlive()) {
+            headerMap.put("Connection", "close");
+        } else if (!hasHeader(headerMap, "Connection") && http10) {
+            headerMap.put("Connection", "keep-alive");
+        }
+        delegate.streamWrite(new ByteBuffer[]{ByteBuffer.wrap(HttpMessageHelper.fileResponseHeader(responseMessage, encoded.length)),
+                ByteBuffer.wrap(encoded)}, $then);
+        delegate.end();
+    }
+
+    @Override
+    public void streamWrite(ByteBuffer byteBuffer, Then $then) {
+        streamWrite(new ByteBuffer[]{byteBuffer}, $then);
+    }
+
+    @Override
+    public synchronized void streamWrite(ByteBuffer[] byteBuffers, Then $then) {
+        if (passThrough) {
+            delegate.streamWrite(byteBuffers, $then);
+            return;
+        }
+        if (ended) {
+            throw new IllegalStateException("Response already ended");
+        }
+        List<ByteBuffer> output = new ArrayList<>(4);
+        try {
+            for (ByteBuffer byteBuffer : byteBuffers) {
+                if (passThrough) {
+                    output.add(byteBuffer);
+                } else if (streamHead != null) {
+                    if (readHead(byteBuffer, output)) {
+                        if (passThrough) {
+                            output.add(byteBuffer);
+                        } else {
+                            compressBody(byteBuffer);
+                        }
+                    }
+                } else {
+                    compressBody(byteBuffer);
+                }
+            }
+            if (deflater != null) {
+                if (bodyComplete) {
+                    finishDeflate();
+                } else {
+                    flushDeflate();
+                }
+                addChunk(output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        delegate.streamWrite(output.isEmpty() ? new ByteBuffer[]{ByteBuffer.allocate(0)} : output.toArray(new ByteBuffer[0]), $then);
+    }
+
+    @Override
+    public void sendFile(HttpResponseMessage responseMessage, FileChannel fileChannel, long offset, long length, Then $then) {
+        synchronized (this) {
+            streamHead = null;
+            passThrough = true;
+        }
+        delegate.sendFile(responseMessage, fileChannel, offset, length, $then);
+    }
+
+    @Override
+    public boolean isKeepAlive() {
+        return delegate.isKeepAlive();
+    }
+
+    @Override
+    public void end() {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (deflater != null) {
+                // Body length was not told, compressed stream end here
+                finishDeflate();
+                List<ByteBuffer> output = new ArrayList<>(4);
+                addChunk(output);
+                delegate.streamWrite(output.toArray(new ByteBuffer[0]), socket -> {
+                });
+            }
+        }
+        delegate.end();
+    }
+
+    /**
+     * @return true once the blank line reached, the head to send is then in output and buffer positioned on the body
+     */
+    private boolean readHead(ByteBuffer byteBuffer, List<ByteBuffer> output) {
+        while (byteBuffer.hasRemaining()) {
+            int b = byteBuffer.get();
+            streamHead.write(b);
+            if (b == '\n' && isHeadComplete()) {
+                byte[] head = streamHead.toByteArray();
+                streamHead = null;
+                byte[] compressedHead = compressedHead(head);
+                if (compressedHead == null) {
+                    passThrough = true;
+                    output.add(ByteBuffer.wrap(head));
+                } else {
+                    output.add(ByteBuffer.wrap(compressedHead));
+                    startDeflate();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isHeadComplete() {
+        byte[] bytes = streamHead.toByteArray();
+        int len = bytes.length;
+        return (len >= 2 && bytes[len - 2] == '\n') || (len >= 4 && bytes[len - 2] == '\r' && bytes[len - 3] == '\n');
+    }
+
+    /**
+     * @return head announcing the compressed chunked body, null if the body is not to be compressed
+     */
+    private byte[] compressedHead(byte[] head) {
+        String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r?\n");
+        String[] statusLine = lines[0].split(" ", 3);
+        if (http10 || statusLine.length < 2) {
+            return null;
+        }
+        int code;
+        try {
+            code = Integer.parseInt(statusLine[1].trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Map<String, String> headerMap = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) {
+                headerMap.put(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+        }
+        if (!isCompressible(code, headerMap)) {
+            return null;
+        }
+        String transferEncoding = header(headerMap, "Transfer-Encoding");
+        String contentLength = header(headerMap, "Content-Length");
+        if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            dechunker = new HttpBodyDecoder(true, ContentEncodingType.OTHER, BUFFER_SIZE);
+        } else if (contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (remaining < compression.getMinSize()) {
+                return null;
+            }
+        }
+        removeHeaders(headerMap, "Content-Length", "Transfer-Encoding");
+        encodingHeaders(headerMap);
+        headerMap.put("Transfer-Encoding", "chunked");
+        return HttpMessageHelper.headerToBytes(headerMap, lines[0]);
+    }
+
+    private boolean isCompressible(int code, Map<String, String> headerMap) {
+        return code >= 200 && code != 204 && code != 304 && !hasHeader(headerMap, "Content-Encoding")
+                && compression.isCompressible(header(headerMap, "Content-Type"));
+    }
+
+    private void encodingHeaders(Map<String, String> headerMap) {
+        headerMap.put("Content-Encoding", encodingName);
+        String vary = header(headerMap, "Vary");
+        if (vary == null) {
+            headerMap.put("Vary", "Accept-Encoding");
+        } else if (!vary.toLowerCase(Locale.ROOT).contains("accept-encoding") && !"*".equals(vary.trim())) {
+            removeHeaders(headerMap, "Vary");
+            headerMap.put("Vary", vary + ", Accept-Encoding");
+        }
+    }
+
+    private void startDeflate() {
+        deflater = compression.acquire(encoding);
+        buffer = new byte[BUFFER_SIZE];
+        compressed = new ByteArrayOutputStream(BUFFER_SIZE);
+        if (encoding == ContentEncodingType.GZIP) {
+            compressed.write(ResponseCompression.GZIP_HEADER, 0, ResponseCompression.GZIP_HEADER.length);
+        }
+    }
+
+    private void compressBody(ByteBuffer byteBuffer) throws IOException {
+        if (bodyComplete) {
+            // Nothing belong to the response after its body
+            byteBuffer.position(byteBuffer.limit());
+            return;
+        }
+        if (dechunker != null) {
+            bodyComplete = dechunker.decode(byteBuffer, (bytes, offset, length) -> {
+                deflate(bytes, offset, length);
+                return true;
+            });
+            return;
+        }
+        int length = remaining < 0 ? byteBuffer.remaining() : (int) Math.min(remaining, byteBuffer.remaining());
+        if (byteBuffer.hasArray()) {
+            deflate(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length);
+            byteBuffer.position(byteBuffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            byteBuffer.get(bytes);
+            deflate(bytes, 0, length);
+        }
+        if (remaining >= 0 && (remaining -= length) == 0) {
+            bodyComplete = true;
+        }
+        byteBuffer.position(byteBuffer.limit());
+    }
+
+    private void deflate(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (encoding == ContentEncodingType.GZIP) {
+            crc.update(bytes, offset, length);
+        }
+        inputSize += length;
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH));
+        }
+    }
+
+    /**
+     * Everything written so far leave with this write
+     */
+    private void flushDeflate() {
+        int n;
+        do {
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            compressed.write(buffer, 0, n);
+        } while (n == buffer.length);
+    }
+
+    private void finishDeflate() {
+        deflater.finish();
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        if (encoding == ContentEncodingType.GZIP) {
+            ResponseCompression.writeGzipTrailer(compressed, crc.getValue(), inputSize);
+        }
+        compression.release(encoding, deflater);
+        deflater = null;
+        bodyComplete = true;
+    }
+
+    /**
+     * Compressed bytes as one chunk, followed by the last chunk once the compressed stream finished
+     */
+    private void addChunk(List<ByteBuffer> output) {
+        if (compressed.size() > 0) {
+            output.add(ByteBuffer.wrap((Integer.toHexString(compressed.size()) + "\r\n").getBytes(StandardCharsets.US_ASCII)));
+            output.add(ByteBuffer.wrap(compressed.toByteArray()));
+            output.add(ByteBuffer.wrap(CRLF));
+            compressed.reset();
+        }
+        if (deflater == null) {
+            output.add(ByteBuffer.wrap(LAST_CHUNK));
+            compressed = null;
+        }
+    }
+
+    private static String header(Map<String, String> headerMap, String name) {
+        if (headerMap != null) {
+            for (Map.Entry<String, String> header : headerMap.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasHeader(Map<String, String> headerMap, String name) {
+        return header(headerMap, name) != null;
+    }
+
+    private static void removeHeaders(Map<String, String> headerMap, String... names) {
+        for (Iterator<String> it = headerMap.keySet().iterator(); it.hasNext(); ) {
+            String key = it.next();
+            for (String name : names) {
+                if (name.equalsIgnoreCase(key)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+}
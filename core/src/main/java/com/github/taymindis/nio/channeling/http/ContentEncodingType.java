@@ -1,10 +1,36 @@
 package com.github.taymindis.nio.channeling.http;
 
+import java.util.Locale;
+
 public enum ContentEncodingType {
     PENDING,
     GZIP,
     OTHER,
     COMPRESS,// Not support YET
-    DEFLATE,// Not support YET
-    BR // Not support
-}
\ No newline at end of file
+    DEFLATE,// Stream request only
+    BR; // Not support
+
+    /**
+     * @param contentEncoding value of Content-Encoding header, may be null
+     * @return OTHER if none or unknown
+     */
+    public static ContentEncodingType fromHeader(String contentEncoding) {
+        if (contentEncoding == null) {
+            return OTHER;
+        }
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return GZIP;
+            case "deflate":
+                return DEFLATE;
+            case "compress":
+            case "x-compress":
+                return COMPRESS;
+            case "br":
+                return BR;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -25,11 +25,14 @@ public class DefaultContentLengthStreamResponseHandler implements HttpStreamResp
     @Override
     public void last(byte[] chunked, ChannelingSocket socket) {
         callback.streamWrite(ByteBuffer.wrap(chunked), this::close);
+        callback.end();
     }
 
     private void close(ChannelingSocket socket) {
-        socket.close(s -> {
-        });
+        if (!callback.isKeepAlive()) {
+            socket.close(s -> {
+            });
+        }
     }
 
 }
@@ -7,6 +7,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 public class DefaultTransferEncodingStreamResponseHandler implements HttpStreamResponseHandler {
+    private static final byte[] CRLF = "\r\n".getBytes();
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes();
+    private static final byte[] CRLF_LAST_CHUNK = "\r\n0\r\n\r\n".getBytes();
     private final  ResponseCallback callback;
     public DefaultTransferEncodingStreamResponseHandler(ResponseCallback callback) {
         this.callback = callback;
@@ -14,33 +17,35 @@ public class DefaultTransferEncodingStreamResponseHandler implements HttpStreamR
 
     @Override
     public void accept(byte[] chunked, ChannelingSocket socket) throws IOException {
-        callback.streamWrite(ByteBuffer.wrap(BytesHelper
-                .concat(String.format("%s\r\n", HttpMessageHelper.intToHex(chunked.length)).getBytes(), chunked, "\r\n".getBytes())), clientSocket -> {
-        });
+        callback.streamWrite(new ByteBuffer[]{chunkHeader(chunked.length), ByteBuffer.wrap(chunked), ByteBuffer.wrap(CRLF)},
+                clientSocket -> {
+                });
     }
 
     @Override
     public void last(byte[] chunked, ChannelingSocket socket) throws IOException {
         if(chunked.length == 0){
-            callback.streamWrite(ByteBuffer.wrap("0\r\n\r\n".getBytes()), this::close);
+            callback.streamWrite(ByteBuffer.wrap(LAST_CHUNK), this::close);
         }  else {
-            if(BytesHelper.equals(chunked, "\r\n0\r\n\r\n".getBytes(),chunked.length - 7 )) {
-                callback.streamWrite(ByteBuffer.wrap(BytesHelper
-                        .concat(String.format(
-                                "%s\r\n", HttpMessageHelper.intToHex(chunked.length - 7)).getBytes(),
-                                chunked)), this::close);
+            if(BytesHelper.equals(chunked, CRLF_LAST_CHUNK, chunked.length - 7)) {
+                callback.streamWrite(new ByteBuffer[]{chunkHeader(chunked.length - 7), ByteBuffer.wrap(chunked)}, this::close);
             } else {
-                callback.streamWrite(ByteBuffer.wrap(BytesHelper
-                        .concat(String.format(
-                                "%s\r\n", HttpMessageHelper.intToHex(chunked.length)).getBytes(),
-                                chunked, "\r\n0\r\n\r\n".getBytes())), this::close);
+                callback.streamWrite(new ByteBuffer[]{chunkHeader(chunked.length), ByteBuffer.wrap(chunked),
+                        ByteBuffer.wrap(CRLF_LAST_CHUNK)}, this::close);
             }
         }
+        callback.end();
+    }
+
+    private static ByteBuffer chunkHeader(int length) {
+        return ByteBuffer.wrap(String.format("%s\r\n", HttpMessageHelper.intToHex(length)).getBytes());
     }
 
     private void close(ChannelingSocket socket) {
-        socket.close(s -> {
-        });
+        if (!callback.isKeepAlive()) {
+            socket.close(s -> {
+            });
+        }
     }
 
 }
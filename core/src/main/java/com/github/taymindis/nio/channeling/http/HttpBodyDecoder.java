@@ -0,0 +1,255 @@
+package com.github.taymindis.nio.channeling.http;
+
+import com.github.taymindis.nio.channeling.ChannelingBytesLoop;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Incremental decoder of a response body, de-chunk it when chunked then inflate gzip or deflate as bytes arrive.
+ * Decoded bytes are handed out as slices of one reused buffer, memory stay bounded whatever the body size,
+ * consumer has to copy what it want to keep.
+ */
+public class HttpBodyDecoder {
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+    // Gzip header with a very long file name or comment is rejected
+    private static final int MAX_GZIP_HEADER_SIZE = 64 * 1024;
+
+    private static final int GZIP_HEADER = 0, GZIP_BODY = 1, GZIP_TRAILER = 2, GZIP_DONE = 3;
+
+    private final boolean chunked;
+    private final ContentEncodingType encoding;
+    private final byte[] out;
+
+    private final HttpChunkedDecoder chunkedDecoder = new HttpChunkedDecoder();
+
+    private Inflater inflater;
+    private final CRC32 crc = new CRC32();
+    // Gzip header or trailer read so far, they may be split across reads
+    private final ByteArrayOutputStream gzipBytes = new ByteArrayOutputStream(16);
+    private int gzipState = GZIP_HEADER, gzipMembers;
+
+    public HttpBodyDecoder(boolean chunked, ContentEncodingType encoding) {
+        this(chunked, encoding, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param chunked    body is in chunked transfer encoding
+     * @param encoding   GZIP or DEFLATE are inflated, any other is given as it is
+     * @param bufferSize size of the decoded slices
+     */
+    public HttpBodyDecoder(boolean chunked, ContentEncodingType encoding, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.chunked = chunked;
+        this.encoding = encoding;
+        this.out = new byte[bufferSize];
+    }
+
+    /**
+     * Decode the bytes received, the buffer is fully consumed
+     *
+     * @param consumer receive every decoded slice, return value is ignored
+     * @return true once the last chunk received, always false if not chunked
+     * @throws IOException if the body is malformed
+     */
+    public boolean decode(ByteBuffer in, ChannelingBytesLoop consumer) throws IOException {
+        if (!chunked) {
+            decodeContent(in, consumer);
+            return false;
+        }
+        chunkedDecoder.decode(in, data -> decodeContent(data, consumer));
+        // Nothing is expected after the body
+        in.position(in.limit());
+        return chunkedDecoder.isDone();
+    }
+
+    /**
+     * Body fully received, check nothing is missing and release the inflater
+     *
+     * @throws IOException if the compressed stream is truncated
+     */
+    public void finish() throws IOException {
+        try {
+            if (encoding == ContentEncodingType.GZIP) {
+                if (gzipMembers == 0 || (gzipState != GZIP_HEADER && gzipState != GZIP_DONE) || gzipBytes.size() > 0) {
+                    throw new EOFException("Unexpected end of GZIP input stream");
+                }
+            } else if (encoding == ContentEncodingType.DEFLATE && (inflater == null || !inflater.finished())) {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+        } finally {
+            end();
+        }
+    }
+
+    /**
+     * Release the inflater, e.g. when the response failed half way
+     */
+    public void end() {
+        if (inflater != null) {
+            inflater.end();
+            inflater = null;
+        }
+    }
+
+    private void decodeContent(ByteBuffer data, ChannelingBytesLoop consumer) throws IOException {
+        switch (encoding) {
+            case GZIP:
+                gunzip(data, consumer);
+                break;
+            case DEFLATE:
+                if (inflater == null && data.hasRemaining()) {
+                    // "deflate" is meant to be zlib wrapped but some servers send raw deflate
+                    int cmf = data.get(data.position()) & 0xff;
+                    inflater = new Inflater((cmf & 0x0f) != 8 || (cmf >> 4) > 7);
+                }
+                if (inflater != null && !inflater.finished()) {
+                    inflate(data, consumer);
+                }
+                data.position(data.limit());
+                break;
+            default:
+                while (data.hasRemaining()) {
+                    int n = Math.min(out.length, data.remaining());
+                    data.get(out, 0, n);
+                    consumer.consumer(out, 0, n);
+                }
+                break;
+        }
+    }
+
+    private void gunzip(ByteBuffer data, ChannelingBytesLoop consumer) throws IOException {
+        while (data.hasRemaining()) {
+            switch (gzipState) {
+                case GZIP_HEADER:
+                    if (gzipMembers > 0 && gzipBytes.size() == 0 && data.get(data.position()) != (byte) 0x1f) {
+                        // Trailing garbage after the last member is ignored, as GZIPInputStream does
+                        gzipState = GZIP_DONE;
+                        break;
+                    }
+                    gzipBytes.write(data.get());
+                    if (isGzipHeaderComplete()) {
+                        gzipBytes.reset();
+                        crc.reset();
+                        if (inflater == null) {
+                            inflater = new Inflater(true);
+                        } else {
+                            inflater.reset();
+                        }
+                        gzipState = GZIP_BODY;
+                    }
+                    break;
+                case GZIP_BODY:
+                    inflate(data, consumer);
+                    if (inflater.finished()) {
+                        gzipState = GZIP_TRAILER;
+                    }
+                    break;
+                case GZIP_TRAILER:
+                    gzipBytes.write(data.get());
+                    if (gzipBytes.size() == 8) {
+                        byte[] trailer = gzipBytes.toByteArray();
+                        gzipBytes.reset();
+                        if (readInt(trailer, 0) != crc.getValue()) {
+                            throw new ZipException("Corrupt GZIP trailer");
+                        }
+                        if (readInt(trailer, 4) != (inflater.getBytesWritten() & 0xffffffffL)) {
+                            throw new ZipException("Corrupt GZIP trailer");
+                        }
+                        gzipMembers++;
+                        gzipState = GZIP_HEADER;
+                    }
+                    break;
+                case GZIP_DONE:
+                    data.position(data.limit());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Inflate until the input is consumed or the compressed stream ends, the buffer is positioned after what was used
+     */
+    private void inflate(ByteBuffer data, ChannelingBytesLoop consumer) throws IOException {
+        inflater.setInput(data);
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out);
+                if (n > 0) {
+                    if (encoding == ContentEncodingType.GZIP) {
+                        crc.update(out, 0, n);
+                    }
+                    consumer.consumer(out, 0, n);
+                } else if (inflater.needsInput()) {
+                    break;
+                } else if (inflater.needsDictionary()) {
+                    throw new ZipException("Preset dictionary is not supported");
+                }
+            }
+        } catch (DataFormatException e) {
+            String message = e.getMessage();
+            throw new ZipException(message != null ? message : "Invalid compressed data format");
+        }
+    }
+
+    private boolean isGzipHeaderComplete() throws ZipException {
+        int size = gzipBytes.size();
+        if (size < 10) {
+            return false;
+        }
+        if (size > MAX_GZIP_HEADER_SIZE) {
+            throw new ZipException("GZIP header too long");
+        }
+        byte[] header = gzipBytes.toByteArray();
+        if (header[0] != (byte) 0x1f || header[1] != (byte) 0x8b) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (header[2] != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flags = header[3] & 0xff, pos = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (size < pos + 2) {
+                return false;
+            }
+            pos += 2 + ((header[pos] & 0xff) | ((header[pos + 1] & 0xff) << 8));
+        }
+        if ((flags & FNAME) != 0 && (pos = skipZeroTerminated(header, pos, size)) < 0) {
+            return false;
+        }
+        if ((flags & FCOMMENT) != 0 && (pos = skipZeroTerminated(header, pos, size)) < 0) {
+            return false;
+        }
+        if ((flags & FHCRC) != 0) {
+            pos += 2;
+        }
+        return size >= pos;
+    }
+
+    /**
+     * @return position after the zero byte, -1 if not there yet
+     */
+    private static int skipZeroTerminated(byte[] header, int pos, int size) {
+        for (int i = pos; i < size; i++) {
+            if (header[i] == 0) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static long readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xffL) | ((bytes[offset + 1] & 0xffL) << 8)
+                | ((bytes[offset + 2] & 0xffL) << 16) | ((bytes[offset + 3] & 0xffL) << 24);
+    }
+}
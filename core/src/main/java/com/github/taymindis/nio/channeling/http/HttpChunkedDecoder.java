@@ -0,0 +1,188 @@
+package com.github.taymindis.nio.channeling.http;
+
+import com.github.taymindis.nio.channeling.ChannelingBytesLoop;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Incremental decoder of chunked transfer encoding, bytes are given as they are read and chunk data is handed out as
+ * slices of the given buffer, nothing is copied. Framing may be split anywhere across reads, chunk extensions are
+ * skipped and trailer fields are kept, see {@link #getTrailers()}.
+ */
+public class HttpChunkedDecoder {
+    private static final int MAX_LINE_SIZE = 8 * 1024;
+    private static final int SIZE = 0, EXTENSION = 1, DATA = 2, DATA_END = 3, TRAILER = 4, DONE = 5;
+
+    public interface ChunkConsumer {
+        /**
+         * @param data slice of the input holding chunk data, valid during the call only unless input is kept
+         */
+        void accept(ByteBuffer data) throws IOException;
+    }
+
+    private int state = SIZE;
+    private long chunkSize;
+    private int sizeDigits, lineSize;
+    private StringBuilder trailerLine;
+    private Map<String, String> trailers;
+
+    /**
+     * Decode the bytes received, stop right after the end of the body
+     *
+     * @param in       positioned after what was decoded, remaining bytes once done are not part of the body
+     * @param consumer receive every chunk data slice
+     * @return true once the last chunk and trailers are received
+     * @throws IOException if framing is malformed
+     */
+    public boolean decode(ByteBuffer in, ChunkConsumer consumer) throws IOException {
+        while (in.hasRemaining() && state != DONE) {
+            switch (state) {
+                case SIZE:
+                    readSize(in);
+                    break;
+                case EXTENSION:
+                    if (skipLine(in)) {
+                        endSizeLine();
+                    }
+                    break;
+                case DATA:
+                    int length = (int) Math.min(chunkSize, in.remaining());
+                    ByteBuffer data = in.slice();
+                    data.limit(length);
+                    in.position(in.position() + length);
+                    if ((chunkSize -= length) == 0) {
+                        state = DATA_END;
+                    }
+                    consumer.accept(data);
+                    break;
+                case DATA_END:
+                    if (skipLine(in)) {
+                        if (lineSize > 0) {
+                            throw new IOException("Invalid chunk, data longer than its size");
+                        }
+                        lineSize = 0;
+                        state = SIZE;
+                    }
+                    break;
+                case TRAILER:
+                    readTrailer(in);
+                    break;
+            }
+        }
+        return state == DONE;
+    }
+
+    /**
+     * Decode bytes of an array, slices are given as part of the same array
+     *
+     * @return true once the last chunk and trailers are received
+     */
+    public boolean decode(byte[] buff, int offset, int length, ChannelingBytesLoop consumer) throws IOException {
+        return decode(ByteBuffer.wrap(buff, offset, length),
+                data -> consumer.consumer(data.array(), data.arrayOffset() + data.position(), data.remaining()));
+    }
+
+    public boolean isDone() {
+        return state == DONE;
+    }
+
+    /**
+     * @return trailer fields once done, empty if none
+     */
+    public Map<String, String> getTrailers() {
+        return trailers == null ? new LinkedHashMap<>() : trailers;
+    }
+
+    /**
+     * Ready for the next body
+     */
+    public void reset() {
+        state = SIZE;
+        chunkSize = 0;
+        sizeDigits = 0;
+        lineSize = 0;
+        trailerLine = null;
+        trailers = null;
+    }
+
+    private void readSize(ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            int c = in.get() & 0xff;
+            int digit = Character.digit(c, 16);
+            if (digit >= 0) {
+                if (++sizeDigits > 15) {
+                    throw new IOException("Chunk size too large");
+                }
+                chunkSize = (chunkSize << 4) | digit;
+            } else if (c == '\n') {
+                endSizeLine();
+                return;
+            } else if (c == ';' || c == ' ' || c == '\t' || c == '\r') {
+                // Extension or whitespace, rest of the line is ignored
+                lineSize = 0;
+                state = EXTENSION;
+                return;
+            } else {
+                throw new IOException("Invalid chunk size character " + (char) c);
+            }
+        }
+    }
+
+    private void endSizeLine() throws IOException {
+        if (sizeDigits == 0) {
+            throw new IOException("Missing chunk size");
+        }
+        sizeDigits = 0;
+        lineSize = 0;
+        state = chunkSize == 0 ? TRAILER : DATA;
+    }
+
+    /**
+     * @return true once the end of line consumed, {@link #lineSize} tell how many bytes before it, CR excluded
+     */
+    private boolean skipLine(ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            int c = in.get();
+            if (c == '\n') {
+                return true;
+            }
+            if (c != '\r' && ++lineSize > MAX_LINE_SIZE) {
+                throw new IOException("Chunk line too long");
+            }
+        }
+        return false;
+    }
+
+    private void readTrailer(ByteBuffer in) throws IOException {
+        if (trailerLine == null) {
+            trailerLine = new StringBuilder();
+        }
+        while (in.hasRemaining()) {
+            char c = (char) (in.get() & 0xff);
+            if (c == '\n') {
+                String line = trailerLine.toString().trim();
+                trailerLine.setLength(0);
+                if (line.isEmpty()) {
+                    trailerLine = null;
+                    state = DONE;
+                    return;
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    if (trailers == null) {
+                        trailers = new LinkedHashMap<>();
+                    }
+                    trailers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+                }
+            } else if (c != '\r') {
+                if (trailerLine.length() >= MAX_LINE_SIZE) {
+                    throw new IOException("Chunk trailer too long");
+                }
+                trailerLine.append(c);
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.zip.GZIPInputStream;
 
@@ -112,6 +113,28 @@ public class HttpMessageHelper {
         return responseBuilder.toString();
     }
 
+    /**
+     * Status line and headers of a file response, Content-Length is set to the file region length if absent
+     */
+    public static byte[] fileResponseHeader(HttpResponseMessage responseMessage, long contentLength) {
+        Map<String, String> headerMap = new LinkedHashMap<>();
+        if (responseMessage.getHeaderMap() != null) {
+            headerMap.putAll(responseMessage.getHeaderMap());
+        }
+        boolean hasContentLength = false;
+        for (String key : headerMap.keySet()) {
+            if ("Content-Length".equalsIgnoreCase(key)) {
+                hasContentLength = true;
+                break;
+            }
+        }
+        if (!hasContentLength) {
+            headerMap.put("Content-Length", String.valueOf(contentLength));
+        }
+        return headerToBytes(headerMap, responseMessage.getHttpVersion() + " " +
+                responseMessage.getCode() + " " + responseMessage.getStatusText());
+    }
+
     public static String headerToString(Map<String, String> headerMap) {
         return headerToString(headerMap, "");
     }
@@ -157,7 +180,12 @@ public class HttpMessageHelper {
     }
 
     public static boolean isCompressed(final byte[] compressed) {
-        return (compressed[0] == (byte) (GZIPInputStream.GZIP_MAGIC)) && (compressed[1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8));
+        return isCompressed(compressed, 0, compressed.length);
+    }
+
+    public static boolean isCompressed(final byte[] compressed, int offset, int length) {
+        return length >= 2 && (compressed[offset] == (byte) (GZIPInputStream.GZIP_MAGIC))
+                && (compressed[offset + 1] == (byte) (GZIPInputStream.GZIP_MAGIC >> 8));
     }
 
 //    public static String decompress(final byte[] compressed, Charset charset) throws IOException {
@@ -195,7 +223,7 @@ public class HttpMessageHelper {
             return "";
         }
 
-        if (isCompressed(compressed.getBuff())) {
+        if (isCompressed(compressed.getBuff(), compressed.getOffset(), compressed.getLength())) {
             final StringBuilder outStr = new StringBuilder();
             try (final GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressed.getBuff(),
                     compressed.getOffset(), compressed.getLength()));
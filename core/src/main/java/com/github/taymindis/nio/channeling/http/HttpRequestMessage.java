@@ -7,11 +7,13 @@ import com.github.taymindis.nio.channeling.ChannelingSocket;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 
 public class HttpRequestMessage {
     private SocketAddress remoteAddress;
+    private HttpRequestParser requestParser;
     private Map<String, String> headerMap = null;
     private String method;
     private String path;
@@ -35,7 +37,26 @@ public class HttpRequestMessage {
         return remoteAddress;
     }
 
+    /**
+     * Request line and headers are read from the parser on demand instead of being split up front
+     *
+     * @param requestParser parser which has done parsing the request head
+     */
+    public void setRequestParser(HttpRequestParser requestParser) {
+        this.requestParser = requestParser;
+    }
+
+    /**
+     * @return all headers, built on first call when parsed by {@link HttpRequestParser}, prefer {@link #getHeader(String)}
+     */
     public Map<String, String> getHeaderMap() {
+        if (headerMap == null && requestParser != null) {
+            int headerCount = requestParser.getHeaderCount();
+            headerMap = new HashMap<>(headerCount * 2);
+            for (int i = 0; i < headerCount; i++) {
+                headerMap.putIfAbsent(requestParser.getHeaderName(i), requestParser.getHeaderValue(i));
+            }
+        }
         return headerMap;
     }
 
@@ -43,7 +64,29 @@ public class HttpRequestMessage {
         this.headerMap = headerMap;
     }
 
+    /**
+     * @param name header name, case insensitive
+     * @return header value, null if absent
+     */
+    public String getHeader(String name) {
+        if (headerMap == null) {
+            return requestParser == null ? null : requestParser.getHeader(name);
+        }
+        String value = headerMap.get(name);
+        if (value == null) {
+            for (Map.Entry<String, String> header : headerMap.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+        }
+        return value;
+    }
+
     public void addHeader(String key, String value) {
+        if (getHeaderMap() == null) {
+            headerMap = new HashMap<>();
+        }
         this.headerMap.put(key, value);
     }
 
@@ -70,6 +113,7 @@ public class HttpRequestMessage {
                 return;
             }
 
+            String method = getMethod();
             if ("GET".equals(method) || "HEAD".equals(method)) {
                 acceptBody(clientReadWriter.toChannelingBytes(bodyOffset, 0));
                 return;
@@ -100,7 +144,7 @@ public class HttpRequestMessage {
                 byteBuffer.flip();
                 clientReadWriter.write(byteBuffer);
                 if (clientReadWriter.size() >= expectedLen) {
-                    this.acceptBody(clientReadWriter.toChannelingBytes(bodyOffset));
+                    this.acceptReadBody(clientReadWriter.toChannelingBytes(bodyOffset));
                     return;
                 }
                 HttpRequestMessage.this.readBodyWithContentLength(byteBuffer);
@@ -119,7 +163,7 @@ public class HttpRequestMessage {
             int numRead = channelingSocket.getLastProcessedBytes();
             try {
                 if (numRead == -1) {
-                    this.acceptBody(clientReadWriter.toChannelingBytes(bodyOffset));
+                    this.acceptReadBody(clientReadWriter.toChannelingBytes(bodyOffset));
                     return;
                 }
                 ByteBuffer byteBuffer = channelingSocket.getReadBuffer();
@@ -128,7 +172,7 @@ public class HttpRequestMessage {
 
                 if (numRead == 0) {
                     if (numOfReadTry-- == 0) {
-                        acceptBody(clientReadWriter.toChannelingBytes(bodyOffset, 0));
+                        acceptReadBody(clientReadWriter.toChannelingBytes(bodyOffset, 0));
                         return;
                     }
                 } else {
@@ -136,15 +180,25 @@ public class HttpRequestMessage {
                 }
                 HttpRequestMessage.this.readBodyTillClose(byteBuffer);
             } catch (IOException e) {
-                this.acceptBody(null);
+                this.acceptReadBody(null);
                 e.printStackTrace();
             }
         });
     }
 
+    /**
+     * Body read from socket by eager reads, socket go back to plain reads
+     */
+    private void acceptReadBody(ChannelingBytes bytes) {
+        this.clientSocket.noEagerRead();
+        acceptBody(bytes);
+    }
+
+    /**
+     * Body already buffered, socket is left as it is, it may be shared by other streams e.g. HTTP/2
+     */
     private void acceptBody(ChannelingBytes bytes) {
         this.hasBody = true;
-        this.clientSocket.noEagerRead();
         this.bodyConsumer.accept(bytes);
     }
 
@@ -161,6 +215,9 @@ public class HttpRequestMessage {
     }
 
     public String getMethod() {
+        if (method == null && requestParser != null) {
+            method = requestParser.getMethod();
+        }
         return method;
     }
 
@@ -173,10 +230,16 @@ public class HttpRequestMessage {
     }
 
     public String getPath() {
+        if (path == null && requestParser != null) {
+            path = requestParser.getPath();
+        }
         return path;
     }
 
     public String getHttpVersion() {
+        if (httpVersion == null && requestParser != null) {
+            httpVersion = requestParser.getHttpVersion();
+        }
         return httpVersion;
     }
 
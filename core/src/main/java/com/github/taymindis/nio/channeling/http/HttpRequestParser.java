@@ -5,15 +5,40 @@ import com.github.taymindis.nio.channeling.ChannelingBytes;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
+/**
+ * Incremental HTTP/1.1 request head parser, every {@link #parse()} resume from where the previous read ended.
+ * Request line and headers are recorded as offsets into the byte writer, Strings are only created when asked for.
+ * Both CRLF and bare LF line endings are accepted.
+ */
 public class HttpRequestParser {
+    private static final int METHOD = 0, PATH = 1, VERSION = 2, LINE_START = 3, LINE_START_CR = 4,
+            NAME = 5, VALUE_START = 6, VALUE = 7, VALUE_CR = 8, DONE = 9;
+    private static final int SLOTS_PER_HEADER = 4;
+    private static final int DEFAULT_HEADERS = 16;
+    private static final byte[] CONTENT_LENGTH = "content-length".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONNECTION = "connection".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE = "close".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] KEEP_ALIVE = "keep-alive".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HTTP_1_0 = "http/1.0".getBytes(StandardCharsets.US_ASCII);
+    private static final String[] KNOWN_METHODS = {"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "PATCH", "TRACE", "CONNECT"};
+
     private String headerContent;
     private int bodyOffset = -1, expectedLen = -1;
     private boolean doneParsed;
     private ChannelingByteWriter byteWriter;
 
+    private int state = METHOD, scanIdx;
+    private int methodEnd, pathStart, pathEnd, versionStart, versionEnd = -1;
+    private int nameStart, nameEnd, valueStart, valueEnd;
+    // nameStart, nameEnd, valueStart, valueEnd of every header
+    private int[] headerOffsets = new int[DEFAULT_HEADERS * SLOTS_PER_HEADER];
+    private int headerCount;
+    private long contentLength = -1;
+    private int requestCount;
+
     private static final int DEFAULT_SIZE = 2048;
 
     public HttpRequestParser() {
@@ -25,7 +50,332 @@ public class HttpRequestParser {
         byteWriter = new ChannelingByteWriter(initSize);
     }
 
+    /**
+     * Scan bytes written since last call
+     *
+     * @return true once the request head is complete, body offset and expected length are then available
+     * @throws IOException if request head is malformed
+     */
+    public boolean parse() throws IOException {
+        if (state == DONE) {
+            return true;
+        }
+        byte[] buff = byteWriter.getBuff();
+        int i = scanIdx, size = byteWriter.size();
+        for (; i < size && state != DONE; i++) {
+            byte b = buff[i];
+            switch (state) {
+                case METHOD:
+                    if (b == ' ') {
+                        if (i == 0) {
+                            throw malformed("empty method");
+                        }
+                        methodEnd = i;
+                        pathStart = i + 1;
+                        state = PATH;
+                    } else if (b == '\r' || b == '\n') {
+                        throw malformed("incomplete request line");
+                    }
+                    break;
+                case PATH:
+                    if (b == ' ') {
+                        pathEnd = i;
+                        versionStart = i + 1;
+                        state = VERSION;
+                    } else if (b == '\r' || b == '\n') {
+                        throw malformed("incomplete request line");
+                    }
+                    break;
+                case VERSION:
+                    if (b == '\r') {
+                        versionEnd = i;
+                    } else if (b == '\n') {
+                        if (versionEnd < versionStart) {
+                            versionEnd = i;
+                        }
+                        state = LINE_START;
+                    }
+                    break;
+                case LINE_START:
+                    if (b == '\r') {
+                        state = LINE_START_CR;
+                    } else if (b == '\n') {
+                        headDone(i + 1);
+                    } else if (b == ' ' || b == '\t') {
+                        // Obsolete line folding, rejected as RFC 7230 3.2.4 allow
+                        throw malformed("obs-fold header line");
+                    } else {
+                        nameStart = i;
+                        state = NAME;
+                    }
+                    break;
+                case LINE_START_CR:
+                    if (b != '\n') {
+                        throw malformed("expecting LF after CR");
+                    }
+                    headDone(i + 1);
+                    break;
+                case NAME:
+                    if (b == ':') {
+                        nameEnd = i;
+                        state = VALUE_START;
+                    } else if (b == '\r' || b == '\n') {
+                        throw malformed("header without colon");
+                    } else if (b == ' ' || b == '\t') {
+                        // "Content-Length : 10" must not be taken as unknown header, RFC 7230 3.2.4
+                        throw malformed("whitespace in header name");
+                    }
+                    break;
+                case VALUE_START:
+                    if (b == ' ' || b == '\t') {
+                        break;
+                    }
+                    valueStart = i;
+                    state = VALUE;
+                    // fall through, empty value ends right here
+                case VALUE:
+                    if (b == '\r') {
+                        valueEnd = i;
+                        state = VALUE_CR;
+                    } else if (b == '\n') {
+                        valueEnd = i;
+                        addHeader(buff);
+                        state = LINE_START;
+                    }
+                    break;
+                case VALUE_CR:
+                    if (b != '\n') {
+                        throw malformed("expecting LF after CR");
+                    }
+                    addHeader(buff);
+                    state = LINE_START;
+                    break;
+            }
+        }
+        scanIdx = i;
+        return state == DONE;
+    }
+
+    private void headDone(int bodyOffset) throws IOException {
+        this.bodyOffset = bodyOffset;
+        state = DONE;
+        doneParsed = true;
+        requestCount++;
+        // If not sure why this, see the "Request BODY RULE" in ChannelingServer
+        if (contentLength >= 0) {
+            if (contentLength > Integer.MAX_VALUE - bodyOffset) {
+                throw malformed("Content-Length too large");
+            }
+            expectedLen = (int) contentLength + bodyOffset;
+        } else {
+            expectedLen = -1;
+        }
+    }
+
+    private void addHeader(byte[] buff) throws IOException {
+        while (valueEnd > valueStart && (buff[valueEnd - 1] == ' ' || buff[valueEnd - 1] == '\t')) {
+            valueEnd--;
+        }
+        if (headerCount * SLOTS_PER_HEADER == headerOffsets.length) {
+            headerOffsets = Arrays.copyOf(headerOffsets, headerOffsets.length * 2);
+        }
+        int slot = headerCount++ * SLOTS_PER_HEADER;
+        headerOffsets[slot] = nameStart;
+        headerOffsets[slot + 1] = nameEnd;
+        headerOffsets[slot + 2] = valueStart;
+        headerOffsets[slot + 3] = valueEnd;
+
+        if (equalsIgnoreCase(buff, nameStart, nameEnd, CONTENT_LENGTH)) {
+            long parsed = parseContentLength(buff, valueStart, valueEnd);
+            if (contentLength >= 0 && contentLength != parsed) {
+                throw malformed("conflicting Content-Length");
+            }
+            contentLength = parsed;
+        }
+    }
+
+    private static long parseContentLength(byte[] buff, int start, int end) throws IOException {
+        if (start == end) {
+            throw malformed("empty Content-Length");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buff[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("invalid Content-Length");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                throw malformed("Content-Length too large");
+            }
+        }
+        return value;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] buff, int start, int end, byte[] lowerCase) {
+        if (end - start != lowerCase.length) {
+            return false;
+        }
+        for (int i = start, x = 0; i < end; i++, x++) {
+            byte b = buff[i];
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != lowerCase[x]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get ready for next request on the same connection, bytes of the request just served are dropped and pipelined bytes
+     * already read are kept for next {@link #parse()}. Body of the request served must not be used afterward.
+     */
+    public void reset() {
+        int served = expectedLen != -1 ? expectedLen : bodyOffset;
+        byteWriter.discard(Math.max(0, Math.min(served, byteWriter.size())));
+        state = METHOD;
+        scanIdx = headerCount = 0;
+        methodEnd = pathStart = pathEnd = versionStart = 0;
+        versionEnd = bodyOffset = expectedLen = -1;
+        contentLength = -1;
+        doneParsed = false;
+        headerContent = null;
+    }
+
+    /**
+     * @return number of request heads parsed on this connection
+     */
+    public int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Persistent connection as asked by client, HTTP/1.1 unless "Connection: close", HTTP/1.0 only with "Connection: keep-alive"
+     */
+    public boolean isKeepAliveRequested() {
+        byte[] buff = byteWriter.getBuff();
+        boolean http10 = equalsIgnoreCase(buff, versionStart, versionEnd, HTTP_1_0);
+        for (int i = 0, slot = 0; i < headerCount; i++, slot += SLOTS_PER_HEADER) {
+            if (equalsIgnoreCase(buff, headerOffsets[slot], headerOffsets[slot + 1], CONNECTION)) {
+                int start = headerOffsets[slot + 2], end = headerOffsets[slot + 3];
+                if (hasToken(buff, start, end, CLOSE)) {
+                    return false;
+                }
+                if (hasToken(buff, start, end, KEEP_ALIVE)) {
+                    return true;
+                }
+            }
+        }
+        return !http10;
+    }
+
+    /**
+     * Look for a token in a comma separated header value, case insensitive
+     */
+    private static boolean hasToken(byte[] buff, int start, int end, byte[] lowerCaseToken) {
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buff[i] == ',') {
+                int s = tokenStart, e = i;
+                while (s < e && (buff[s] == ' ' || buff[s] == '\t')) {
+                    s++;
+                }
+                while (e > s && (buff[e - 1] == ' ' || buff[e - 1] == '\t')) {
+                    e--;
+                }
+                if (equalsIgnoreCase(buff, s, e, lowerCaseToken)) {
+                    return true;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return false;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] buff, int start, int end, String name) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = start, x = 0; i < end; i++, x++) {
+            char c = (char) (buff[i] & 0xFF);
+            char n = name.charAt(x);
+            if (c != n && Character.toLowerCase(c) != Character.toLowerCase(n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IOException malformed(String reason) {
+        return new IOException("Malformed request, " + reason);
+    }
+
+    private String string(int start, int end) {
+        return new String(byteWriter.getBuff(), start, end - start, StandardCharsets.UTF_8);
+    }
+
+    public String getMethod() {
+        byte[] buff = byteWriter.getBuff();
+        for (String known : KNOWN_METHODS) {
+            if (known.length() == methodEnd && equalsIgnoreCase(buff, 0, methodEnd, known)) {
+                return known;
+            }
+        }
+        return string(0, methodEnd);
+    }
+
+    public String getPath() {
+        return string(pathStart, pathEnd);
+    }
+
+    public String getHttpVersion() {
+        return string(versionStart, versionEnd);
+    }
+
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    public String getHeaderName(int index) {
+        int slot = index * SLOTS_PER_HEADER;
+        return string(headerOffsets[slot], headerOffsets[slot + 1]);
+    }
+
+    public String getHeaderValue(int index) {
+        int slot = index * SLOTS_PER_HEADER;
+        return string(headerOffsets[slot + 2], headerOffsets[slot + 3]);
+    }
+
+    /**
+     * @param name header name, case insensitive
+     * @return value of the first header with the name, null if absent
+     */
+    public String getHeader(String name) {
+        byte[] buff = byteWriter.getBuff();
+        for (int i = 0, slot = 0; i < headerCount; i++, slot += SLOTS_PER_HEADER) {
+            if (equalsIgnoreCase(buff, headerOffsets[slot], headerOffsets[slot + 1], name)) {
+                return string(headerOffsets[slot + 2], headerOffsets[slot + 3]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Content-Length of request, -1 if absent
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return raw request head including the blank line, created on demand
+     */
     public String getHeaderContent() {
+        if (headerContent == null && bodyOffset > 0) {
+            headerContent = string(0, bodyOffset);
+        }
         return headerContent;
     }
 
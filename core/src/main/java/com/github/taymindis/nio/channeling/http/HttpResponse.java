@@ -5,7 +5,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -17,7 +16,7 @@ import static com.github.taymindis.nio.channeling.http.HttpMessageHelper.decompr
 public class HttpResponse {
     private static Logger log = LoggerFactory.getLogger(HttpResponse.class);
     private String headers;
-    private ChannelingBytes rawBytes;
+    private ChannelingBytes rawBytes, chunkedBody;
     private int bodyOffset;
     private HttpResponseType responseType;
     private ContentEncodingType contentEncodingType;
@@ -54,105 +53,38 @@ public class HttpResponse {
 
     public ChannelingBytes getBodyBytes() {
         if (responseType == HttpResponseType.TRANSFER_CHUNKED) {
-            return toChunkedBytes2();
+            if (chunkedBody == null) {
+                chunkedBody = toChunkedBytes();
+            }
+            return chunkedBody;
         }
         return rawBytes; // Arrays.copyOfRange(rawBytes.getBuff(), bodyOffset, rawBytes.getLength());
     }
 
-    @Deprecated
-    private byte[] toChunkedBytes() {
-        StringBuilder clearedHexaResponse = new StringBuilder();
-        String respBody = new String(rawBytes.getBuff(), rawBytes.getOffset(), rawBytes.getLength(), StandardCharsets.UTF_8).substring(bodyOffset);
-
-        String[] hexaAndContent = respBody.split("\\r?\\n", 2);
-
-        long lengthOfContent;
-
-        String hexa = hexaAndContent[0];
-        String body = hexaAndContent[1];
-
-        while ((lengthOfContent = Long.parseLong(hexa, 16)) > 0) {
-            int subStrLen = Math.toIntExact(lengthOfContent);
-
-            clearedHexaResponse.append(body, 0, subStrLen);
-            hexaAndContent = body.substring(subStrLen).split("\\r?\\n", 3);
-            hexa = hexaAndContent[1];
-            body = hexaAndContent[2];
+    /**
+     * Body already de-chunked while reading, e.g. in place of the read buffer by {@link HttpSingleRequest}
+     */
+    void setChunkedBody(ChannelingBytes chunkedBody) {
+        this.chunkedBody = chunkedBody;
+    }
+
+    /**
+     * De-chunk raw bytes still carrying the chunk framing, raw bytes are left untouched
+     */
+    private ChannelingBytes toChunkedBytes() {
+        int bodyLength = rawBytes.getLength() - bodyOffset;
+        byte[] body = new byte[Math.max(bodyLength, 0)];
+        int[] size = {0};
+        try {
+            new HttpChunkedDecoder().decode(rawBytes.getBuff(), rawBytes.getOffset() + bodyOffset, bodyLength, (bytes, offset, length) -> {
+                System.arraycopy(bytes, offset, body, size[0], length);
+                size[0] += length;
+                return true;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid Chunk Response Message", e);
         }
-
-//        clearedHexaResponse.flip();
-//        byte[] rs = new byte[clearedHexaResponse.remaining()];
-//        clearedHexaResponse.get(rs);
-        return clearedHexaResponse.toString().getBytes();
-    }
-
-
-    private ChannelingBytes toChunkedBytes2() {
-        ByteBuffer byteBuffer = ByteBuffer.wrap(rawBytes.getBuff(), rawBytes.getOffset(), rawBytes.getLength());  // ByteBuffer.allocate(rawBytes.getLength());
-        ByteBuffer hextBytes = ByteBuffer.allocate(128);
-        ByteBuffer recleanByteBuff = ByteBuffer.allocate(rawBytes.getLength());
-//        byteBuffer.put(rawBytes.getBuff(), rawBytes.getOffset(), rawBytes.getLength());
-        byteBuffer.position(bodyOffset);
-
-        char c;
-        while (byteBuffer.hasRemaining()) {
-            while ((c = (char) byteBuffer.get()) != '\r' && c != '\n') {
-                hextBytes.put((byte) c);
-            }
-
-            if (c == '\r') {
-                c =(char) byteBuffer.get();
-            }
-
-            if (c == '\n') {
-                // Get Hexa
-                hextBytes.flip();
-                if(!hextBytes.hasRemaining()) {
-                    hextBytes.compact();
-                    continue;
-//                    throw new IllegalStateException("Invalid Chunk Response Message, hexadecimal not found");
-                }
-                byte[] hexLen = new byte[hextBytes.remaining()];
-                hextBytes.get(hexLen);
-                long chunkedLen = Long.parseLong(new String(hexLen), 16);
-
-                if(chunkedLen == 0) {
-                    break;
-                }
-
-                while (chunkedLen-- > 0) {
-                    recleanByteBuff.put(byteBuffer.get());
-                }
-
-                hextBytes.clear();
-            } else {
-                throw new IllegalStateException("Invalid Chunk Response Message");
-            }
-        }
-
-        recleanByteBuff.flip();
-//        byte[] recleanBytes = new byte[recleanByteBuff.remaining()];
-//        recleanByteBuff.get(recleanBytes);
-        return new ChannelingBytes(recleanByteBuff.array(),
-                recleanByteBuff.position(), recleanByteBuff.remaining());
-
-
-//        String[] hexaAndContent = respBody.split("\\r?\\n", 2);
-//
-//        long lengthOfContent;
-//
-//        String hexa = hexaAndContent[0];
-//        String body = hexaAndContent[1];
-//
-//        while ((lengthOfContent = Long.parseLong(hexa, 16)) > 0) {
-//            int subStrLen = Math.toIntExact(lengthOfContent);
-//
-//            clearedHexaResponse.append(body, 0, subStrLen);
-//            hexaAndContent = body.substring(subStrLen).split("\\r?\\n", 3);
-//            hexa = hexaAndContent[1];
-//            body = hexaAndContent[2];
-//        }
-//        return clearedHexaResponse.toString().getBytes();
+        return new ChannelingBytes(body, 0, size[0]);
     }
 
     public ChannelingBytes getRawBytes() {
@@ -2,6 +2,7 @@ package com.github.taymindis.nio.channeling.http;
 
 import com.github.taymindis.nio.channeling.*;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
@@ -11,7 +12,7 @@ import java.util.Objects;
 
 public class HttpSingleRequest implements HttpRequest {
     private int totalRead = 0, totalWrite, requiredLength, bodyOffset;
-    private ByteBuffer readBuffer;
+    private final int minInputBufferSize;
     private String messageToSend;
     private String host;
     private int port;
@@ -24,6 +25,12 @@ public class HttpSingleRequest implements HttpRequest {
     private final boolean enableGzipDecompression;
     private RedirectionSocket redirectionSocket;
     private String prevRedirectionLoc;
+    private ChannelingConnectionPool connectionPool;
+    private boolean keepAlive, completed, retried;
+    // Chunked body is de-chunked in place as it is read, bodyEnd is where the next chunk data is moved to
+    private HttpChunkedDecoder chunkedDecoder;
+    private int bodyEnd;
+    private boolean trailingBytes;
 
     public HttpSingleRequest(ChannelingSocket socket,
                              String host, int port,
@@ -56,7 +63,7 @@ public class HttpSingleRequest implements HttpRequest {
                                 int minInputBufferSize,
                                 boolean enableGzipDecompression,
                                 RedirectionSocket redirectionSocket) {
-        this.readBuffer = ByteBuffer.allocate(socket.isSSL() ? socket.getSSLMinimumInputBufferSize() : minInputBufferSize);
+        this.minInputBufferSize = minInputBufferSize;
         this.responseWriter = new ChannelingByteWriter();
         this.messageToSend = messageToSend;
         this.socket = socket;
@@ -70,8 +77,28 @@ public class HttpSingleRequest implements HttpRequest {
         this.prevRedirectionLoc = null;
     }
 
+    /**
+     * Request on a socket leased from connectionPool, socket is given back to the pool once response fully consumed
+     *
+     * @param connectionPool pool the connected socket leased from
+     * @param socket         leased socket
+     */
+    public HttpSingleRequest(ChannelingConnectionPool connectionPool,
+                             ChannelingSocket socket,
+                             String host,
+                             int port,
+                             String messageToSend,
+                             int minInputBufferSize) {
+        this(socket, host, port, messageToSend, minInputBufferSize, false, null);
+        this.connectionPool = connectionPool;
+    }
+
     public void execute(HttpSingleRequestCallback callback) {
         this.result = callback;
+        if (connectionPool != null) {
+            connectAndThen(socket);
+            return;
+        }
         socket.withConnect(host, port).when((WhenConnectingStatus) connectingStatus -> connectingStatus).then(this::connectAndThen, this::error);
     }
 
@@ -98,7 +125,8 @@ public class HttpSingleRequest implements HttpRequest {
 
     public void connectAndThen(ChannelingSocket channelingSocket) {
         ByteBuffer writeBuffer = ByteBuffer.wrap(messageToSend.getBytes(StandardCharsets.UTF_8));
-        channelingSocket.write(writeBuffer, this::writeAndThen);
+        // Leased socket still carry error callback of its previous request
+        channelingSocket.write(writeBuffer, this::writeAndThen, this::error);
     }
 
     public void writeAndThen(ChannelingSocket channelingSocket) {
@@ -107,9 +135,8 @@ public class HttpSingleRequest implements HttpRequest {
         if (currWriteBuff.hasRemaining()) {
             channelingSocket.write(currWriteBuff, this::writeAndThen);
         } else {
-            readBuffer.clear();
             httpResponse = new HttpResponse();
-            channelingSocket.withEagerRead(readBuffer).then(this::readAndThen);
+            channelingSocket.withEagerRead(readBufferSize(channelingSocket)).then(this::readAndThen);
         }
     }
 
@@ -128,8 +155,13 @@ public class HttpSingleRequest implements HttpRequest {
 //                readBuffer.get(b);
                 responseWriter.write(readBuffer);
                 extractResponseAndEncodingType(responseWriter.toChannelingBytes());
+                if (responseType == HttpResponseType.TRANSFER_CHUNKED && bodyOffset > 0) {
+                    dechunk();
+                }
                 readBuffer.clear();
                 channelingSocket.withEagerRead(readBuffer).then(this::readAndThen);
+            } else if (numRead < 0 && totalRead == 0) {
+                error(channelingSocket, new EOFException("Connection closed by remote peer before response"));
             } else if (totalRead == 0) {
                 eagerRead(channelingSocket);
             } else if (contentEncodingType == ContentEncodingType.PENDING) {
@@ -177,6 +209,7 @@ public class HttpSingleRequest implements HttpRequest {
                 String headersContent = consumeMessage.substring(0, bodyOffset);
                 httpResponse.setHeaders(headersContent);
                 String lowCaseHeaders = headersContent.toLowerCase();
+                keepAlive = isKeepAlive(lowCaseHeaders);
                 if (lowCaseHeaders.contains("transfer-encoding:")) {
                     responseType = HttpResponseType.TRANSFER_CHUNKED;
                 } else if (lowCaseHeaders.contains("content-length: ")) {
@@ -184,6 +217,8 @@ public class HttpSingleRequest implements HttpRequest {
                     requiredLength = Integer.parseInt(contentLength.trim());
                     responseType = HttpResponseType.CONTENT_LENGTH;
                 } else {
+                    // Delimited by connection close only
+                    keepAlive = false;
                     requiredLength = consumeMessage.length() - bodyOffset;
                     responseType = HttpResponseType.CONTENT_LENGTH;
                 }
@@ -213,15 +248,34 @@ public class HttpSingleRequest implements HttpRequest {
         }
     }
 
-    private void transferEncodingResponse(ChannelingSocket channelingSocket) throws Exception {
-        ChannelingBytes consumedBuffers = responseWriter.toChannelingBytes();
-        int len = responseWriter.size();
+    /**
+     * De-chunk the bytes read so far in place, chunk data is moved down over the chunk framing and the framing is
+     * dropped, the writer never hold more than the head and the body
+     */
+    private void dechunk() throws IOException {
+        if (chunkedDecoder == null) {
+            chunkedDecoder = new HttpChunkedDecoder();
+            bodyEnd = bodyOffset;
+        }
+        byte[] buff = responseWriter.getBuff();
+        ByteBuffer in = ByteBuffer.wrap(buff, bodyEnd, responseWriter.size() - bodyEnd);
+        chunkedDecoder.decode(in, data -> {
+            int length = data.remaining();
+            System.arraycopy(buff, data.arrayOffset() + data.position(), buff, bodyEnd, length);
+            bodyEnd += length;
+        });
+        // Bytes beyond the last chunk leave the connection out of step
+        trailingBytes |= in.hasRemaining();
+        responseWriter.truncate(bodyEnd);
+    }
 
-        if (len>=7 && BytesHelper.equals(consumedBuffers.getBuff(),
-                "\r\n0\r\n\r\n".getBytes(), consumedBuffers.getOffset() + (consumedBuffers.getLength() - 7), 7)) {
+    private void transferEncodingResponse(ChannelingSocket channelingSocket) throws Exception {
+        if (chunkedDecoder != null && chunkedDecoder.isDone()) {
+            ChannelingBytes consumedBuffers = responseWriter.toChannelingBytes();
             channelingSocket.noEagerRead();
             httpResponse.setRawBytes(consumedBuffers);
             httpResponse.setBodyOffset(bodyOffset);
+            httpResponse.setChunkedBody(new ChannelingBytes(consumedBuffers.getBuff(), bodyOffset, bodyEnd - bodyOffset));
             updateResponseType(httpResponse);
 
             if(redirectionSocket != null) {
@@ -237,7 +291,7 @@ public class HttpSingleRequest implements HttpRequest {
                 }
             }
             result.accept(httpResponse, channelingSocket.getContext());
-            channelingSocket.close(this::closeAndThen);
+            complete(channelingSocket, !trailingBytes);
         } else {
             eagerRead(channelingSocket);
         }
@@ -306,16 +360,13 @@ public class HttpSingleRequest implements HttpRequest {
         }
 
         this.socket = redirectionSocket.request(host, port, isSSL, prevSocket);
-        if(socket.isSSL()) {
-            this.readBuffer = ByteBuffer.allocate(socket.getSSLMinimumInputBufferSize());
-        } else {
-            this.readBuffer.clear();
-        }
         this.responseWriter.close();
         this.responseWriter = new ChannelingByteWriter();
         this.responseType = HttpResponseType.PENDING;
         this.contentEncodingType = ContentEncodingType.PENDING;
         this.bodyOffset = -1;
+        this.chunkedDecoder = null;
+        this.trailingBytes = false;
         this.prevRedirectionLoc = location;
 
         HttpRequestBuilder requestBuilder = new HttpRequestBuilder();
@@ -356,13 +407,15 @@ public class HttpSingleRequest implements HttpRequest {
             }
 
             result.accept(httpResponse, channelingSocket.getContext());
-            channelingSocket.close(this::closeAndThen);
+            // Bytes beyond the content leave the connection out of step
+            complete(channelingSocket, totalRead == requiredLength);
         } else {
             eagerRead(channelingSocket);
         }
     }
 
     private void eagerRead(ChannelingSocket channelingSocket) {
+        ByteBuffer readBuffer = channelingSocket.getReadBuffer();
         if (!readBuffer.hasRemaining()) {
             readBuffer.clear();
         }
@@ -370,15 +423,68 @@ public class HttpSingleRequest implements HttpRequest {
     }
 
 
+    /**
+     * Read into the socket own pooled buffer instead of allocating one per request
+     */
+    private int readBufferSize(ChannelingSocket channelingSocket) {
+        return channelingSocket.isSSL() ? channelingSocket.getSSLMinimumInputBufferSize() : minInputBufferSize;
+    }
+
     public void closeAndThen(ChannelingSocket channelingSocket) {
         /** Do nothing **/
     }
 
+    /**
+     * Connection is persistent unless either side asked to close, HTTP/1.0 response has to ask for keep alive
+     */
+    private boolean isKeepAlive(String lowCaseHeaders) {
+        if (messageToSend.toLowerCase().contains("\nconnection: close")) {
+            return false;
+        }
+        if (lowCaseHeaders.startsWith("http/1.0")) {
+            return lowCaseHeaders.contains("\nconnection: keep-alive");
+        }
+        return !lowCaseHeaders.contains("\nconnection: close");
+    }
+
+    private void complete(ChannelingSocket channelingSocket, boolean fullyConsumed) {
+        completed = true;
+        if (connectionPool == null) {
+            channelingSocket.close(this::closeAndThen);
+        } else if (keepAlive && fullyConsumed) {
+            connectionPool.release(channelingSocket);
+        } else {
+            connectionPool.discard(channelingSocket);
+        }
+    }
+
     private void error(ChannelingSocket channelingSocket, Exception e) {
+        if (completed) {
+            // e.g. idle timeout of the socket after it was given back
+            channelingSocket.close(this::closeAndThen);
+            return;
+        }
+        if (connectionPool != null) {
+            if (!retried && totalRead == 0 && connectionPool.isReused(channelingSocket)) {
+                // Peer closed the idle connection before it got the request, retry once on a new one
+                retried = true;
+                totalWrite = 0;
+                connectionPool.reconnect(channelingSocket, this::retryAndThen, this::error);
+                return;
+            }
+            result.error(e, channelingSocket);
+            connectionPool.discard(channelingSocket);
+            return;
+        }
         result.error(e, channelingSocket);
         channelingSocket.close(this::closeAndThen);
     }
 
+    private void retryAndThen(ChannelingSocket channelingSocket) {
+        this.socket = channelingSocket;
+        connectAndThen(channelingSocket);
+    }
+
     /**
      This is derived from
      https://github.com/patrickfav/bytes-java
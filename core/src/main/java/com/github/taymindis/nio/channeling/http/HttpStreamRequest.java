@@ -2,13 +2,14 @@ package com.github.taymindis.nio.channeling.http;
 
 import com.github.taymindis.nio.channeling.*;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class HttpStreamRequest implements HttpRequest {
     private int totalRead = 0, totalWrite, requiredLength, currChunkLength = -1, bodyOffset;
-    private ByteBuffer readBuffer;
+    private final int minInputBufferSize;
     private String messageToSend;
     private String host;
     private int port;
@@ -21,10 +22,15 @@ public class HttpStreamRequest implements HttpRequest {
     private boolean hasHeaderOut = false;
     private String reqHeaders = null;
     private static final int NEWLINE_BYTE_LENGTH = "\r\n".getBytes().length;
-    private static final byte[] LAST_CHUNKED_PATTERN = "\r\n0\r\n\r\n".getBytes();
+    private static final byte[] EMPTY = new byte[0];
 
 
-    private final boolean enableGzipDecompression;
+    private final boolean decompression;
+    private HttpBodyDecoder bodyDecoder;
+    // Raw chunked body is given as received, decoder only tell when the last chunk is in
+    private HttpChunkedDecoder chunkedDecoder;
+    private ChannelingConnectionPool connectionPool;
+    private boolean keepAlive, completed, retried;
 //    private ChannelingBytes previousChunked = new ChannelingBytes(new byte[0], 0, 0);
 
     public HttpStreamRequest(ChannelingSocket socket,
@@ -41,13 +47,17 @@ public class HttpStreamRequest implements HttpRequest {
         this(socket, host, port, messageToSend, minInputBufferSize, false);
     }
 
-    protected HttpStreamRequest(ChannelingSocket socket,
-                                String host,
-                                int port,
-                                String messageToSend,
-                                int minInputBufferSize,
-                                boolean enableGzipDecompression) {
-        this.readBuffer = ByteBuffer.allocate(socket.isSSL() ? socket.getSSLMinimumInputBufferSize() : minInputBufferSize);
+    /**
+     * @param decompression gzip or deflate body is de-chunked and inflated as it arrive, callback receive the
+     *                      decoded bytes in slices of a reused buffer, head is given as received
+     */
+    public HttpStreamRequest(ChannelingSocket socket,
+                             String host,
+                             int port,
+                             String messageToSend,
+                             int minInputBufferSize,
+                             boolean decompression) {
+        this.minInputBufferSize = minInputBufferSize;
         this.channelingByteWriter = new ChannelingByteWriter(2048);
         this.messageToSend = messageToSend;
         this.socket = socket;
@@ -56,12 +66,39 @@ public class HttpStreamRequest implements HttpRequest {
         this.responseType = HttpResponseType.PENDING;
         this.contentEncodingType = ContentEncodingType.PENDING;
         this.bodyOffset = -1;
-        this.enableGzipDecompression = enableGzipDecompression;
+        this.decompression = decompression;
+    }
+
+    /**
+     * Request on a socket leased from connectionPool, socket is given back to the pool once response fully consumed
+     *
+     * @param connectionPool pool the connected socket leased from
+     * @param socket         leased socket
+     */
+    public HttpStreamRequest(ChannelingConnectionPool connectionPool,
+                             ChannelingSocket socket,
+                             String host,
+                             int port,
+                             String messageToSend,
+                             int minInputBufferSize) {
+        this(connectionPool, socket, host, port, messageToSend, minInputBufferSize, false);
+    }
+
+    public HttpStreamRequest(ChannelingConnectionPool connectionPool,
+                             ChannelingSocket socket,
+                             String host,
+                             int port,
+                             String messageToSend,
+                             int minInputBufferSize,
+                             boolean decompression) {
+        this(socket, host, port, messageToSend, minInputBufferSize, decompression);
+        this.connectionPool = connectionPool;
     }
 
     public void connectAndThen(ChannelingSocket channelingSocket) {
         ByteBuffer writeBuffer = ByteBuffer.wrap(messageToSend.getBytes(StandardCharsets.UTF_8));
-        channelingSocket.write(writeBuffer, this::writeAndThen);
+        // Leased socket still carry error callback of its previous request
+        channelingSocket.write(writeBuffer, this::writeAndThen, this::error);
     }
 
     public void writeAndThen(ChannelingSocket channelingSocket) {
@@ -70,8 +107,7 @@ public class HttpStreamRequest implements HttpRequest {
         if (currWriteBuff.hasRemaining()) {
             channelingSocket.write(currWriteBuff, this::writeAndThen);
         } else {
-            readBuffer.clear();
-            channelingSocket.withEagerRead(readBuffer).then(this::massageHeader);
+            channelingSocket.withEagerRead(readBufferSize(channelingSocket)).then(this::massageHeader);
         }
     }
 
@@ -84,6 +120,9 @@ public class HttpStreamRequest implements HttpRequest {
                 totalRead += numRead;
                 readBuffer.flip();
                 channelingByteWriter.write(readBuffer);
+            } else if (numRead < 0 && totalRead == 0) {
+                error(channelingSocket, new EOFException("Connection closed by remote peer before response"));
+                return;
             } else if (totalRead == 0) {
                 eagerRead(channelingSocket, this::massageHeader);
             } else if (contentEncodingType == ContentEncodingType.PENDING) {
@@ -102,12 +141,18 @@ public class HttpStreamRequest implements HttpRequest {
                     /** Read the left over bytes **/
                     bytes = channelingByteWriter.readToChannelingBytes();
 
+                    if (bodyDecoder != null) {
+                        decodeBody(channelingSocket, ByteBuffer.wrap(bytes.getBuff(), bytes.getOffset(), bytes.getLength()));
+                        return;
+                    }
+
                     switch (responseType) {
                         case TRANSFER_CHUNKED:
-                            if (isLastChunked()) {
+                            chunkedDecoder = new HttpChunkedDecoder();
+                            if (isLastChunked(bytes.getBuff(), bytes.getOffset(), bytes.getLength())) {
                                 channelingSocket.noEagerRead();
                                 streamChunked.last(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
-                                channelingSocket.close(this::closeAndThen);
+                                complete(channelingSocket, true);
                             } else {
                                 streamChunked.accept(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
                                 eagerRead(channelingSocket, this::massageChunkedBody);
@@ -117,7 +162,7 @@ public class HttpStreamRequest implements HttpRequest {
                             if (totalRead >= requiredLength) {
                                 channelingSocket.noEagerRead();
                                 streamChunked.last(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
-                                channelingSocket.close(HttpStreamRequest.this::closeAndThen);
+                                complete(channelingSocket, totalRead == requiredLength);
                             } else {
                                 streamChunked.accept(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
                                 eagerRead(channelingSocket, this::massageContentLengthBody);
@@ -143,17 +188,15 @@ public class HttpStreamRequest implements HttpRequest {
             if (numRead > 0) {
                 totalRead += numRead;
                 readBuffer.flip();
-//                byte[] b = new byte[readBuffer.limit() - readBuffer.position()];
-//                readBuffer.get(b);
-//                currConsumedBytes = b;
-                channelingByteWriter.write(readBuffer);
-                ChannelingBytes bytes = channelingByteWriter.readToChannelingBytes();
-                if (isLastChunked()) {
+                // Own copy per read, callback may hold it while nothing of the body is retained here
+                byte[] b = new byte[readBuffer.limit() - readBuffer.position()];
+                readBuffer.get(b);
+                if (isLastChunked(b, 0, b.length)) {
                     channelingSocket.noEagerRead();
-                    streamChunked.last(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
-                    channelingSocket.close(this::closeAndThen);
+                    streamChunked.last(b, 0, b.length, channelingSocket);
+                    complete(channelingSocket, true);
                 } else {
-                    streamChunked.accept(bytes.getBuff(), bytes.getOffset(), bytes.getLength(), channelingSocket);
+                    streamChunked.accept(b, 0, b.length, channelingSocket);
                     eagerRead(channelingSocket, this::massageChunkedBody);
                 }
             } else {
@@ -165,8 +208,52 @@ public class HttpStreamRequest implements HttpRequest {
         }
     }
 
-    private boolean isLastChunked() {
-        return channelingByteWriter.endsWith(LAST_CHUNKED_PATTERN);
+    /**
+     * Body bytes go straight to the decoder, nothing is buffered
+     */
+    public void massageDecodedBody(ChannelingSocket channelingSocket) {
+        int numRead = channelingSocket.getLastProcessedBytes();
+        ByteBuffer readBuffer = channelingSocket.getReadBuffer();
+
+        try {
+            if (numRead > 0) {
+                totalRead += numRead;
+                readBuffer.flip();
+                decodeBody(channelingSocket, readBuffer);
+            } else if (numRead < 0) {
+                error(channelingSocket, new EOFException("Connection closed by remote peer before end of body"));
+            } else {
+                eagerRead(channelingSocket, this::massageDecodedBody);
+            }
+        } catch (Exception e) {
+            error(channelingSocket, e);
+        }
+    }
+
+    private void decodeBody(ChannelingSocket channelingSocket, ByteBuffer received) throws IOException {
+        boolean done = bodyDecoder.decode(received, (bytes, offset, length) -> {
+            streamChunked.accept(bytes, offset, length, channelingSocket);
+            return true;
+        });
+        if (responseType == HttpResponseType.CONTENT_LENGTH) {
+            done = totalRead >= requiredLength;
+        }
+        if (done) {
+            bodyDecoder.finish();
+            channelingSocket.noEagerRead();
+            streamChunked.last(EMPTY, 0, 0, channelingSocket);
+            complete(channelingSocket, responseType != HttpResponseType.CONTENT_LENGTH || totalRead == requiredLength);
+        } else {
+            eagerRead(channelingSocket, this::massageDecodedBody);
+        }
+    }
+
+    /**
+     * @return true once the last chunk and trailers are received, framing may be split anywhere across reads
+     */
+    private boolean isLastChunked(byte[] bytes, int offset, int length) throws IOException {
+        return chunkedDecoder.decode(ByteBuffer.wrap(bytes, offset, length), data -> {
+        });
     }
 
     public void massageContentLengthBody(ChannelingSocket channelingSocket) {
@@ -181,7 +268,7 @@ public class HttpStreamRequest implements HttpRequest {
                 readBuffer.get(b);
                 if (totalRead >= requiredLength) {
                     streamChunked.last(b, 0, b.length, channelingSocket);
-                    channelingSocket.close(this::closeAndThen);
+                    complete(channelingSocket, totalRead == requiredLength);
                     return;
                 } else {
                     streamChunked.accept(b, 0, b.length, channelingSocket);
@@ -206,6 +293,7 @@ public class HttpStreamRequest implements HttpRequest {
             if (responseType == HttpResponseType.PENDING ||
                     contentEncodingType == ContentEncodingType.PENDING) {
                 reqHeaders = channelingByteWriter.toString(bodyOffset, StandardCharsets.UTF_8).toUpperCase();
+                keepAlive = isKeepAlive(reqHeaders);
                 if (reqHeaders.contains("TRANSFER-ENCODING:")) {
                     responseType = HttpResponseType.TRANSFER_CHUNKED;
                 } else if (reqHeaders.contains("CONTENT-LENGTH:")) {
@@ -214,15 +302,23 @@ public class HttpStreamRequest implements HttpRequest {
                     requiredLength += bodyOffset;
                     responseType = HttpResponseType.CONTENT_LENGTH;
                 } else {
+                    // Delimited by connection close only
+                    keepAlive = false;
                     requiredLength = channelingByteWriter.size();
                     responseType = HttpResponseType.CONTENT_LENGTH;
                 }
 
-                if (reqHeaders.contains("CONTENT-ENCODING: GZIP")) {
-                    contentEncodingType = ContentEncodingType.GZIP;
+                if (reqHeaders.contains("\nCONTENT-ENCODING:")) {
+                    contentEncodingType = ContentEncodingType.fromHeader(
+                            reqHeaders.split("\nCONTENT-ENCODING:", 2)[1].split("\\r?\\n")[0]);
                 } else if (contentEncodingType == ContentEncodingType.PENDING) {
                     contentEncodingType = ContentEncodingType.OTHER;
                 }
+                if (decompression && (contentEncodingType == ContentEncodingType.GZIP ||
+                        contentEncodingType == ContentEncodingType.DEFLATE)) {
+                    bodyDecoder = new HttpBodyDecoder(responseType == HttpResponseType.TRANSFER_CHUNKED,
+                            contentEncodingType, Math.max(minInputBufferSize, HttpBodyDecoder.DEFAULT_BUFFER_SIZE));
+                }
             }
             return true;
         }
@@ -230,6 +326,7 @@ public class HttpStreamRequest implements HttpRequest {
     }
 
     private void eagerRead(ChannelingSocket channelingSocket, Then $then) {
+        ByteBuffer readBuffer = channelingSocket.getReadBuffer();
         if (!readBuffer.hasRemaining()) {
             readBuffer.clear();
         }
@@ -237,19 +334,78 @@ public class HttpStreamRequest implements HttpRequest {
     }
 
 
+    /**
+     * Read into the socket own pooled buffer instead of allocating one per request
+     */
+    private int readBufferSize(ChannelingSocket channelingSocket) {
+        return channelingSocket.isSSL() ? channelingSocket.getSSLMinimumInputBufferSize() : minInputBufferSize;
+    }
+
     public void closeAndThen(ChannelingSocket channelingSocket) {
         /** Do nothing **/
     }
 
+    /**
+     * Connection is persistent unless either side asked to close, HTTP/1.0 response has to ask for keep alive
+     */
+    private boolean isKeepAlive(String upperCaseHeaders) {
+        if (messageToSend.toUpperCase().contains("\nCONNECTION: CLOSE")) {
+            return false;
+        }
+        if (upperCaseHeaders.startsWith("HTTP/1.0")) {
+            return upperCaseHeaders.contains("\nCONNECTION: KEEP-ALIVE");
+        }
+        return !upperCaseHeaders.contains("\nCONNECTION: CLOSE");
+    }
+
+    private void complete(ChannelingSocket channelingSocket, boolean fullyConsumed) {
+        completed = true;
+        if (connectionPool == null) {
+            channelingSocket.close(this::closeAndThen);
+        } else if (keepAlive && fullyConsumed) {
+            connectionPool.release(channelingSocket);
+        } else {
+            connectionPool.discard(channelingSocket);
+        }
+    }
+
     private void error(ChannelingSocket channelingSocket, Exception e) {
-        channelingSocket.close(this::closeAndThen);
+        if (bodyDecoder != null) {
+            bodyDecoder.end();
+        }
+        if (completed) {
+            // e.g. idle timeout of the socket after it was given back
+            channelingSocket.close(this::closeAndThen);
+            return;
+        }
+        if (connectionPool != null) {
+            if (!retried && totalRead == 0 && connectionPool.isReused(channelingSocket)) {
+                // Peer closed the idle connection before it got the request, retry once on a new one
+                retried = true;
+                totalWrite = 0;
+                connectionPool.reconnect(channelingSocket, this::retryAndThen, this::error);
+                return;
+            }
+            connectionPool.discard(channelingSocket);
+        } else {
+            channelingSocket.close(this::closeAndThen);
+        }
         this.streamChunked.error(e, channelingSocket);
     }
 
+    private void retryAndThen(ChannelingSocket channelingSocket) {
+        this.socket = channelingSocket;
+        connectAndThen(channelingSocket);
+    }
+
 
     @Override
     public void execute(HttpStreamRequestCallback callback) {
         this.streamChunked = callback;
+        if (connectionPool != null) {
+            connectAndThen(socket);
+            return;
+        }
         socket.withConnect(host, port).when((WhenConnectingStatus) connectingStatus -> connectingStatus).then(this::connectAndThen, this::error);
     }
 
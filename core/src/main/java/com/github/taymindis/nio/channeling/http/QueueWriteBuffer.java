@@ -3,21 +3,61 @@ package com.github.taymindis.nio.channeling.http;
 import com.github.taymindis.nio.channeling.Then;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class QueueWriteBuffer {
-   private ByteBuffer nb;
+   private ByteBuffer[] nbs;
    private Then $then;
+   private FileChannel fileChannel;
+   private long position, count;
 
     public QueueWriteBuffer(ByteBuffer nb, Then $then) {
-        this.nb = nb;
+        this(new ByteBuffer[]{nb}, $then);
+    }
+
+    public QueueWriteBuffer(ByteBuffer[] nbs, Then $then) {
+        this.nbs = nbs;
+        this.$then = $then;
+    }
+
+    /**
+     * File region to transfer instead of buffers
+     */
+    public QueueWriteBuffer(FileChannel fileChannel, long position, long count, Then $then) {
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.count = count;
         this.$then = $then;
     }
 
+    /**
+     * @return last buffer of this write
+     */
     public ByteBuffer getNb() {
-        return nb;
+        return nbs[nbs.length - 1];
+    }
+
+    public ByteBuffer[] getNbs() {
+        return nbs;
     }
 
     public Then get$then() {
         return $then;
     }
+
+    public boolean isFile() {
+        return fileChannel != null;
+    }
+
+    public FileChannel getFileChannel() {
+        return fileChannel;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getCount() {
+        return count;
+    }
 }
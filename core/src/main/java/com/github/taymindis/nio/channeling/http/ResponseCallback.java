@@ -2,11 +2,85 @@ package com.github.taymindis.nio.channeling.http;
 
 import com.github.taymindis.nio.channeling.Then;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 public interface ResponseCallback {
     void write(HttpResponseMessage responseMessage, Charset charset, Then $then);
     void streamWrite(ByteBuffer byteBuffer, Then $then);
+
+    /**
+     * Write several buffers as one, e.g. chunk header, body and trailer, implementation should gather them into one write
+     *
+     * @param byteBuffers buffers to write in order
+     * @param $then       invoked once all buffers written
+     */
+    default void streamWrite(ByteBuffer[] byteBuffers, Then $then) {
+        for (int i = 0, last = byteBuffers.length - 1; i < last; i++) {
+            streamWrite(byteBuffers[i], socket -> {
+            });
+        }
+        streamWrite(byteBuffers[byteBuffers.length - 1], $then);
+    }
+
+    /**
+     * Send status line and headers of responseMessage followed by a region of file, content of responseMessage is ignored
+     * and Content-Length is added if absent. Implementation should transfer the file straight to socket, this fallback
+     * map the region instead of reading it into heap.
+     *
+     * @param responseMessage status and headers
+     * @param fileChannel     file to send, not closed once sent
+     * @param offset          position in file
+     * @param length          bytes to send
+     * @param $then           invoked once file sent
+     */
+    default void sendFile(HttpResponseMessage responseMessage, FileChannel fileChannel, long offset, long length, Then $then) {
+        try {
+            streamWrite(new ByteBuffer[]{ByteBuffer.wrap(HttpMessageHelper.fileResponseHeader(responseMessage, length)),
+                    fileChannel.map(FileChannel.MapMode.READ_ONLY, offset, length)}, $then);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Send the whole file, closed once sent
+     */
+    default void sendFile(HttpResponseMessage responseMessage, Path path, Then $then) throws IOException {
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            sendFile(responseMessage, fileChannel, 0, fileChannel.size(), socket -> {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                $then.callback(socket);
+            });
+        } catch (RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if connection is kept for the next request, handler must then not close the socket, the server take it
+     * back once the response ended
+     */
+    default boolean isKeepAlive() {
+        return false;
+    }
+
+    /**
+     * End a response sent by {@link #streamWrite}, a kept alive connection then read next request once everything written.
+     * {@link #write} and {@link #sendFile} end the response by themselves.
+     */
+    default void end() {
+    }
 //    void flush();
 }
@@ -0,0 +1,354 @@
+package com.github.taymindis.nio.channeling.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Optional compression of responses, encoding is negotiated by Accept-Encoding, gzip is preferred over deflate at equal
+ * quality. Body given to {@link ResponseCallback#write} is compressed once over {@link #getMinSize()}, body given to
+ * {@link ResponseCallback#streamWrite} is compressed as it is written and sent chunked. Only compressible Content-Type
+ * are compressed. Deflaters are pooled, each thread keep a few and overflow go to a shared pool. Compressed variants of
+ * repeated bodies can be cached, see {@link #setCacheSize(int)}.
+ */
+public class ResponseCompression {
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    public static final int DEFAULT_MAX_CACHEABLE_SIZE = 256 * 1024;
+    public static final int DEFAULT_THREAD_CACHE_SIZE = 4;
+    public static final int DEFAULT_SHARED_CACHE_SIZE = 64;
+    private static final String[] DEFAULT_COMPRESSIBLE_TYPES = {"text/", "json", "javascript", "xml", "svg"};
+
+    static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int GZIP = 0, DEFLATE = 1;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+    private int minSize = DEFAULT_MIN_SIZE;
+    private int cacheSize = 0;
+    private int maxCacheableSize = DEFAULT_MAX_CACHEABLE_SIZE;
+    private String[] compressibleTypes = DEFAULT_COMPRESSIBLE_TYPES;
+
+    private final int threadCacheSize;
+    private final int sharedCacheSize;
+    private final ThreadLocal<ArrayDeque<Deflater>[]> threadDeflaters;
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<Deflater>[] sharedDeflaters = new ConcurrentLinkedQueue[]{
+            new ConcurrentLinkedQueue<>(), new ConcurrentLinkedQueue<>()};
+    private final AtomicInteger[] sharedCounts = {new AtomicInteger(), new AtomicInteger()};
+
+    // Least recently used compressed bodies
+    private final LinkedHashMap<CacheKey, byte[]> cache = new LinkedHashMap<CacheKey, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey, byte[]> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    public ResponseCompression() {
+        this(DEFAULT_THREAD_CACHE_SIZE, DEFAULT_SHARED_CACHE_SIZE);
+    }
+
+    /**
+     * @param threadCacheSize deflaters kept per thread and encoding
+     * @param sharedCacheSize deflaters kept per encoding shared by all threads
+     */
+    @SuppressWarnings("unchecked")
+    public ResponseCompression(int threadCacheSize, int sharedCacheSize) {
+        this.threadCacheSize = threadCacheSize;
+        this.sharedCacheSize = sharedCacheSize;
+        this.threadDeflaters = ThreadLocal.withInitial(() -> new ArrayDeque[]{new ArrayDeque<>(), new ArrayDeque<>()});
+    }
+
+    /**
+     * @return callback compressing the response in the encoding accepted by the client, callback itself if none
+     */
+    public ResponseCallback wrap(HttpRequestMessage request, ResponseCallback callback) {
+        if ("HEAD".equals(request.getMethod())) {
+            return callback;
+        }
+        ContentEncodingType encoding = negotiate(request.getHeader("Accept-Encoding"));
+        return encoding == null ? callback : new CompressingResponseCallback(this, callback, encoding,
+                "HTTP/1.0".equalsIgnoreCase(request.getHttpVersion()));
+    }
+
+    /**
+     * @param acceptEncoding value of Accept-Encoding, may be null
+     * @return GZIP, DEFLATE or null if neither is acceptable
+     */
+    public static ContentEncodingType negotiate(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        float gzip = -1, deflate = -1, any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim().toLowerCase(Locale.ROOT);
+            float q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (name) {
+                case "gzip":
+                case "x-gzip":
+                    gzip = q;
+                    break;
+                case "deflate":
+                    deflate = q;
+                    break;
+                case "*":
+                    any = q;
+                    break;
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip <= 0 && deflate <= 0) {
+            return null;
+        }
+        return gzip >= deflate ? ContentEncodingType.GZIP : ContentEncodingType.DEFLATE;
+    }
+
+    /**
+     * @param contentType value of Content-Type, may be null
+     * @return true if one of the compressible types is part of it
+     */
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        for (String compressibleType : compressibleTypes) {
+            if (type.contains(compressibleType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compress a whole body, served from cache when the same body was compressed before
+     */
+    byte[] compress(ContentEncodingType encoding, byte[] body) {
+        CacheKey key = null;
+        if (cacheSize > 0 && body.length <= maxCacheableSize) {
+            key = new CacheKey(encoding, body);
+            synchronized (cache) {
+                byte[] compressed = cache.get(key);
+                if (compressed != null) {
+                    return compressed;
+                }
+            }
+        }
+        Deflater deflater = acquire(encoding);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try {
+            byte[] buffer = new byte[Math.min(Math.max(512, body.length), 16 * 1024)];
+            if (encoding == ContentEncodingType.GZIP) {
+                out.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            }
+            deflater.setInput(body);
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            if (encoding == ContentEncodingType.GZIP) {
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                writeGzipTrailer(out, crc.getValue(), body.length);
+            }
+        } finally {
+            release(encoding, deflater);
+        }
+        byte[] compressed = out.toByteArray();
+        if (key != null) {
+            synchronized (cache) {
+                cache.put(key, compressed);
+            }
+        }
+        return compressed;
+    }
+
+    static void writeGzipTrailer(ByteArrayOutputStream out, long crc, long size) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (crc >> (8 * i)));
+        }
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (size >> (8 * i)));
+        }
+    }
+
+    /**
+     * @return reset deflater, raw for gzip and zlib wrapped for deflate
+     */
+    Deflater acquire(ContentEncodingType encoding) {
+        int index = encoding == ContentEncodingType.GZIP ? GZIP : DEFLATE;
+        Deflater deflater = threadDeflaters.get()[index].pollLast();
+        if (deflater == null && (deflater = sharedDeflaters[index].poll()) != null) {
+            sharedCounts[index].decrementAndGet();
+        }
+        if (deflater == null) {
+            deflater = new Deflater(level, index == GZIP);
+        } else {
+            deflater.setLevel(level);
+        }
+        return deflater;
+    }
+
+    /**
+     * Give back a deflater, may be from another thread than the one which acquired it
+     */
+    void release(ContentEncodingType encoding, Deflater deflater) {
+        int index = encoding == ContentEncodingType.GZIP ? GZIP : DEFLATE;
+        deflater.reset();
+        ArrayDeque<Deflater> threadCache = threadDeflaters.get()[index];
+        if (threadCache.size() < threadCacheSize) {
+            threadCache.addLast(deflater);
+        } else if (sharedCounts[index].incrementAndGet() <= sharedCacheSize) {
+            sharedDeflaters[index].offer(deflater);
+        } else {
+            sharedCounts[index].decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @param level 0-9 or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ResponseCompression setLevel(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        this.level = level;
+        return this;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * @param minSize bodies smaller than it are sent as they are, not worth the cpu
+     */
+    public ResponseCompression setMinSize(int minSize) {
+        this.minSize = minSize;
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize number of compressed bodies kept, 0 to disable, only {@link ResponseCallback#write} bodies are cached.
+     *                  An entry is keyed by SHA-256 digest and length of the body, the body itself is not kept
+     */
+    public ResponseCompression setCacheSize(int cacheSize) {
+        synchronized (cache) {
+            this.cacheSize = cacheSize;
+            if (cacheSize == 0) {
+                cache.clear();
+            }
+        }
+        return this;
+    }
+
+    public int getMaxCacheableSize() {
+        return maxCacheableSize;
+    }
+
+    /**
+     * @param maxCacheableSize bigger bodies are never cached
+     */
+    public ResponseCompression setMaxCacheableSize(int maxCacheableSize) {
+        this.maxCacheableSize = maxCacheableSize;
+        return this;
+    }
+
+    public String[] getCompressibleTypes() {
+        return compressibleTypes.clone();
+    }
+
+    /**
+     * @param compressibleTypes Content-Type containing one of them are compressed, e.g. "text/", "json"
+     */
+    public ResponseCompression setCompressibleTypes(String... compressibleTypes) {
+        String[] types = new String[compressibleTypes.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = compressibleTypes[i].toLowerCase(Locale.ROOT);
+        }
+        this.compressibleTypes = types;
+        return this;
+    }
+
+    public int getCachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * SHA-256 digest and length of the body, so entry neither pin the uncompressed body nor follow it if caller reuse
+     * the array afterwards
+     */
+    private static final class CacheKey {
+        private final ContentEncodingType encoding;
+        private final int length;
+        private final byte[] digest;
+        private final int hash;
+
+        private CacheKey(ContentEncodingType encoding, byte[] body) {
+            this.encoding = encoding;
+            this.length = body.length;
+            this.digest = sha256().digest(body);
+            this.hash = 31 * encoding.hashCode() + ByteBuffer.wrap(digest).getInt();
+        }
+
+        private static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Every Java platform must support it
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return hash == other.hash && encoding == other.encoding && length == other.length
+                    && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
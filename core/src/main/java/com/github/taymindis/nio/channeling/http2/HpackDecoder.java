@@ -0,0 +1,124 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiConsumer;
+
+/**
+ * Decode the header blocks received on one connection, in the order they were sent, the dynamic table is shared by
+ * every stream. Names and values are ISO-8859-1 strings, one char per octet.
+ */
+final class HpackDecoder {
+    private final HpackTable table;
+    // Table size announced by our SETTINGS_HEADER_TABLE_SIZE, the encoder may only shrink below it
+    private final int maxTableSize;
+
+    private byte[] block;
+    private int pos, end;
+
+    HpackDecoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HpackTable(maxTableSize);
+    }
+
+    /**
+     * Decode a complete header block, every field is given to the consumer even once the list size exceeds the limit
+     * so the dynamic table stay in sync with peer
+     *
+     * @param consumer receives name and value in order
+     * @return header list size, name and value length plus 32 per field
+     * @throws Http2Exception COMPRESSION_ERROR if the block is malformed
+     */
+    int decode(byte[] block, int offset, int length, BiConsumer<String, String> consumer) throws Http2Exception {
+        this.block = block;
+        this.pos = offset;
+        this.end = offset + length;
+        int listSize = 0;
+        boolean fieldSeen = false;
+        try {
+            while (pos < end) {
+                int b = block[pos] & 0xff;
+                String name, value;
+                if ((b & 0x80) != 0) {
+                    // Indexed field
+                    int index = readInt(7);
+                    name = table.getName(index);
+                    value = table.getValue(index);
+                } else if ((b & 0x40) != 0) {
+                    // Literal with incremental indexing
+                    name = readName(6);
+                    value = readString();
+                    table.add(name, value);
+                } else if ((b & 0x20) != 0) {
+                    // Dynamic table size update, only before the first field
+                    if (fieldSeen) {
+                        throw Http2Exception.compression("Table size update after header field");
+                    }
+                    int size = readInt(5);
+                    if (size > maxTableSize) {
+                        throw Http2Exception.compression("Table size " + size + " over " + maxTableSize);
+                    }
+                    table.setMaxSize(size);
+                    continue;
+                } else {
+                    // Literal without indexing or never indexed
+                    name = readName(4);
+                    value = readString();
+                }
+                fieldSeen = true;
+                listSize += HpackTable.entrySize(name, value);
+                consumer.accept(name, value);
+            }
+        } finally {
+            this.block = null;
+        }
+        return listSize;
+    }
+
+    private String readName(int prefixBits) throws Http2Exception {
+        int index = readInt(prefixBits);
+        return index == 0 ? readString() : table.getName(index);
+    }
+
+    private String readString() throws Http2Exception {
+        if (pos >= end) {
+            throw Http2Exception.compression("Truncated header block");
+        }
+        boolean huffman = (block[pos] & 0x80) != 0;
+        int length = readInt(7);
+        if (length > end - pos) {
+            throw Http2Exception.compression("String length " + length + " over header block");
+        }
+        String s = huffman ? HpackHuffman.decode(block, pos, length)
+                : new String(block, pos, length, StandardCharsets.ISO_8859_1);
+        pos += length;
+        return s;
+    }
+
+    /**
+     * Integer of RFC 7541 section 5.1, the prefix is taken from the current byte
+     */
+    private int readInt(int prefixBits) throws Http2Exception {
+        int mask = (1 << prefixBits) - 1;
+        int value = block[pos++] & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        int b;
+        do {
+            if (pos >= end) {
+                throw Http2Exception.compression("Truncated integer");
+            }
+            b = block[pos++] & 0xff;
+            if (shift > 28 || (shift == 28 && (b & 0x7f) > 7)) {
+                throw Http2Exception.compression("Integer overflow");
+            }
+            value += (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (value < 0) {
+            throw Http2Exception.compression("Integer overflow");
+        }
+        return value;
+    }
+}
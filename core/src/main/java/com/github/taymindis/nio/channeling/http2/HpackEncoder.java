@@ -0,0 +1,135 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Encode the header blocks sent on one connection, blocks must be written to the connection in the order they were
+ * encoded. Repeated fields are indexed in the dynamic table, strings are Huffman coded whenever it is shorter.
+ */
+final class HpackEncoder {
+    // Fields kept out of the dynamic table of intermediaries as well, RFC 7541 section 7.1.3
+    private static final Set<String> SENSITIVE = new HashSet<>(Arrays.asList(
+            "authorization", "proxy-authorization", "set-cookie"));
+    // Fields which value hardly repeat, indexing them would only evict useful entries
+    private static final Set<String> NOT_INDEXED = new HashSet<>(Arrays.asList(
+            ":path", "content-length", "content-range", "date", "etag", "last-modified", "if-modified-since",
+            "if-none-match", "location", "age", "expires"));
+
+    private final HpackTable table;
+    // Upper bound of table size whatever peer allows
+    private final int maxTableSizeLimit;
+    // Size updates to emit at the start of next block, smallest one first if table shrank then grew
+    private int minSizeUpdate = -1, lastSizeUpdate = -1;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+    HpackEncoder(int maxTableSizeLimit) {
+        this.maxTableSizeLimit = maxTableSizeLimit;
+        this.table = new HpackTable(Http2Settings.DEFAULT_HEADER_TABLE_SIZE);
+        setMaxTableSize(Http2Settings.DEFAULT_HEADER_TABLE_SIZE);
+    }
+
+    /**
+     * Peer SETTINGS_HEADER_TABLE_SIZE changed, the new size is announced at the start of next block
+     */
+    void setMaxTableSize(int peerTableSize) {
+        int size = Math.min(peerTableSize, maxTableSizeLimit);
+        if (size == table.getMaxSize() && lastSizeUpdate == -1) {
+            return;
+        }
+        minSizeUpdate = minSizeUpdate == -1 ? size : Math.min(minSizeUpdate, size);
+        lastSizeUpdate = size;
+        table.setMaxSize(size);
+    }
+
+    void beginBlock() {
+        out.reset();
+        if (lastSizeUpdate != -1) {
+            if (minSizeUpdate < lastSizeUpdate) {
+                writeInt(0x20, 5, minSizeUpdate);
+            }
+            writeInt(0x20, 5, lastSizeUpdate);
+            minSizeUpdate = lastSizeUpdate = -1;
+        }
+    }
+
+    /**
+     * @param name  lower case name
+     * @param value value, chars over ISO-8859-1 are sent as UTF-8 octets
+     */
+    void header(String name, String value) {
+        value = toOctets(value);
+        int index = table.indexOf(name, value);
+        if (index > 0 && !SENSITIVE.contains(name)) {
+            writeInt(0x80, 7, index);
+            return;
+        }
+        int nameIndex = table.indexOfName(name);
+        if (SENSITIVE.contains(name)) {
+            writeLiteral(0x10, 4, nameIndex, name, value);
+        } else if (NOT_INDEXED.contains(name) || HpackTable.entrySize(name, value) > table.getMaxSize()) {
+            writeLiteral(0x00, 4, nameIndex, name, value);
+        } else {
+            writeLiteral(0x40, 6, nameIndex, name, value);
+            table.add(name, value);
+        }
+    }
+
+    /**
+     * @return the block encoded since {@link #beginBlock()}, valid until next block begins
+     */
+    ByteArrayOutputStream endBlock() {
+        return out;
+    }
+
+    private void writeLiteral(int flags, int prefixBits, int nameIndex, String name, String value) {
+        writeInt(flags, prefixBits, nameIndex);
+        if (nameIndex == 0) {
+            writeString(name);
+        }
+        writeString(value);
+    }
+
+    private void writeString(String s) {
+        int huffmanLength = HpackHuffman.encodedLength(s);
+        if (huffmanLength < s.length()) {
+            writeInt(0x80, 7, huffmanLength);
+            HpackHuffman.encode(s, out);
+        } else {
+            writeInt(0x00, 7, s.length());
+            for (int i = 0, len = s.length(); i < len; i++) {
+                out.write(s.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Integer of RFC 7541 section 5.1 in the low prefixBits of a byte starting with flags
+     */
+    private void writeInt(int flags, int prefixBits, int value) {
+        int mask = (1 << prefixBits) - 1;
+        if (value < mask) {
+            out.write(flags | value);
+            return;
+        }
+        out.write(flags | mask);
+        value -= mask;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static String toOctets(String s) {
+        for (int i = 0, len = s.length(); i < len; i++) {
+            if (s.charAt(i) > 0xff) {
+                return new String(s.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            }
+        }
+        return s;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Static Huffman code of HPACK, RFC 7541 Appendix B. The code is canonical, only the code length of every symbol
+ * is kept and the codes are rebuilt from them, decoding walk the codes length by length without building a tree.
+ */
+final class HpackHuffman {
+    private static final int EOS = 256;
+    private static final int MAX_LENGTH = 30;
+
+    // Code length of symbol 0 to 255 and EOS
+    private static final byte[] LENGTHS = {
+            13, 23, 28, 28, 28, 28, 28, 28, 28, 24, 30, 28, 28, 30, 28, 28,
+            28, 28, 28, 28, 28, 28, 30, 28, 28, 28, 28, 28, 28, 28, 28, 28,
+            6, 10, 10, 12, 13, 6, 8, 11, 10, 10, 8, 11, 8, 6, 6, 6,
+            5, 5, 5, 6, 6, 6, 6, 6, 6, 6, 7, 8, 15, 6, 12, 10,
+            13, 6, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7, 7,
+            7, 7, 7, 7, 7, 7, 7, 7, 8, 7, 8, 13, 19, 13, 14, 6,
+            15, 5, 6, 5, 6, 5, 6, 6, 6, 5, 7, 7, 6, 6, 6, 5,
+            6, 7, 6, 5, 5, 6, 7, 7, 7, 7, 7, 15, 11, 14, 13, 28,
+            20, 22, 20, 20, 22, 22, 22, 23, 22, 23, 23, 23, 23, 23, 24, 23,
+            24, 24, 22, 23, 24, 23, 23, 23, 23, 21, 22, 23, 22, 23, 23, 24,
+            22, 21, 20, 22, 22, 23, 23, 21, 23, 22, 22, 24, 21, 22, 23, 23,
+            21, 21, 22, 21, 23, 22, 23, 23, 20, 22, 22, 22, 23, 22, 22, 23,
+            26, 26, 20, 19, 22, 23, 22, 25, 26, 26, 26, 27, 27, 26, 24, 25,
+            19, 21, 26, 27, 27, 26, 27, 24, 21, 21, 26, 26, 28, 27, 27, 27,
+            20, 24, 20, 21, 22, 21, 21, 23, 22, 22, 25, 25, 24, 24, 26, 23,
+            26, 27, 26, 26, 27, 27, 27, 27, 27, 28, 27, 27, 27, 27, 27, 26,
+            30
+    };
+
+    private static final int[] CODES = new int[LENGTHS.length];
+    // Symbols ordered by code, with first code and first symbol index of every length
+    private static final int[] SYMBOLS = new int[LENGTHS.length];
+    private static final int[] FIRST_CODE = new int[MAX_LENGTH + 1];
+    private static final int[] FIRST_INDEX = new int[MAX_LENGTH + 1];
+    private static final int[] COUNT = new int[MAX_LENGTH + 1];
+
+    static {
+        int code = 0, index = 0;
+        for (int length = 1; length <= MAX_LENGTH; length++) {
+            FIRST_CODE[length] = code;
+            FIRST_INDEX[length] = index;
+            for (int symbol = 0; symbol < LENGTHS.length; symbol++) {
+                if (LENGTHS[symbol] == length) {
+                    CODES[symbol] = code++;
+                    SYMBOLS[index++] = symbol;
+                }
+            }
+            COUNT[length] = index - FIRST_INDEX[length];
+            code <<= 1;
+        }
+    }
+
+    private HpackHuffman() {
+    }
+
+    /**
+     * @return bytes taken by the Huffman encoded string, padding included
+     */
+    static int encodedLength(String s) {
+        long bits = 0;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            bits += LENGTHS[s.charAt(i) & 0xff];
+        }
+        return (int) ((bits + 7) >> 3);
+    }
+
+    /**
+     * Encode the ISO-8859-1 chars of s, the last byte is padded with the most significant bits of EOS
+     */
+    static void encode(String s, ByteArrayOutputStream out) {
+        long bits = 0;
+        int pending = 0;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            int symbol = s.charAt(i) & 0xff;
+            bits = (bits << LENGTHS[symbol]) | CODES[symbol];
+            pending += LENGTHS[symbol];
+            while (pending >= 8) {
+                pending -= 8;
+                out.write((int) (bits >> pending));
+            }
+        }
+        if (pending > 0) {
+            out.write((int) ((bits << (8 - pending)) | (0xff >> pending)));
+        }
+    }
+
+    /**
+     * @throws Http2Exception if EOS is decoded or the padding is longer than 7 bits or not all ones
+     */
+    static String decode(byte[] buff, int offset, int length) throws Http2Exception {
+        StringBuilder sb = new StringBuilder(length + (length >> 1));
+        int code = 0, codeLength = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int b = buff[i];
+            for (int bit = 7; bit >= 0; bit--) {
+                code = (code << 1) | ((b >> bit) & 1);
+                codeLength++;
+                int symbolIndex = code - FIRST_CODE[codeLength];
+                if (symbolIndex >= 0 && symbolIndex < COUNT[codeLength]) {
+                    int symbol = SYMBOLS[FIRST_INDEX[codeLength] + symbolIndex];
+                    if (symbol == EOS) {
+                        throw Http2Exception.compression("EOS in Huffman string");
+                    }
+                    sb.append((char) symbol);
+                    code = 0;
+                    codeLength = 0;
+                } else if (codeLength == MAX_LENGTH) {
+                    throw Http2Exception.compression("Invalid Huffman code");
+                }
+            }
+        }
+        if (codeLength > 7 || code != (1 << codeLength) - 1) {
+            throw Http2Exception.compression("Invalid Huffman padding");
+        }
+        return sb.toString();
+    }
+}
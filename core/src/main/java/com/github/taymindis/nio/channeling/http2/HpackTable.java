@@ -0,0 +1,221 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static table followed by the dynamic table of one direction of HPACK (RFC 7541), index 1 to 61 are static and
+ * the dynamic entries follow from the newest one. Dynamic entries live in a ring and are evicted oldest first once
+ * the table size, name and value length plus 32 per entry, goes over the maximum.
+ */
+final class HpackTable {
+    static final int ENTRY_OVERHEAD = 32;
+
+    private static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+    static final int STATIC_SIZE = STATIC_TABLE.length;
+
+    // Lowest static index of every name, and of every name and value pair with a value
+    private static final Map<String, Integer> STATIC_NAME_INDEX = new HashMap<>();
+    private static final Map<String, Integer> STATIC_FIELD_INDEX = new HashMap<>();
+
+    static {
+        for (int i = STATIC_SIZE - 1; i >= 0; i--) {
+            STATIC_NAME_INDEX.put(STATIC_TABLE[i][0], i + 1);
+            if (!STATIC_TABLE[i][1].isEmpty()) {
+                STATIC_FIELD_INDEX.put(STATIC_TABLE[i][0] + '\0' + STATIC_TABLE[i][1], i + 1);
+            }
+        }
+    }
+
+    private String[] names = new String[16];
+    private String[] values = new String[16];
+    // Slot of the newest entry
+    private int head;
+    private int count;
+    private int size;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param index 1 based index over static and dynamic table
+     */
+    String getName(int index) throws Http2Exception {
+        return index <= STATIC_SIZE ? STATIC_TABLE[checkIndex(index) - 1][0] : names[slot(checkIndex(index))];
+    }
+
+    String getValue(int index) throws Http2Exception {
+        return index <= STATIC_SIZE ? STATIC_TABLE[checkIndex(index) - 1][1] : values[slot(checkIndex(index))];
+    }
+
+    private int checkIndex(int index) throws Http2Exception {
+        if (index <= 0 || index > STATIC_SIZE + count) {
+            throw Http2Exception.compression("Header index " + index + " out of table");
+        }
+        return index;
+    }
+
+    private int slot(int index) {
+        return (head + index - STATIC_SIZE - 1) & (names.length - 1);
+    }
+
+    /**
+     * @return index of the entry with same name and value, 0 if none
+     */
+    int indexOf(String name, String value) {
+        Integer staticIndex = STATIC_FIELD_INDEX.get(name + '\0' + value);
+        if (staticIndex != null) {
+            return staticIndex;
+        }
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) & (names.length - 1);
+            if (names[slot].equals(name) && values[slot].equals(value)) {
+                return STATIC_SIZE + 1 + i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return index of an entry with the name, 0 if none
+     */
+    int indexOfName(String name) {
+        Integer staticIndex = STATIC_NAME_INDEX.get(name);
+        if (staticIndex != null) {
+            return staticIndex;
+        }
+        for (int i = 0; i < count; i++) {
+            if (names[(head + i) & (names.length - 1)].equals(name)) {
+                return STATIC_SIZE + 1 + i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Insert as newest entry, an entry larger than the table only empty it
+     */
+    void add(String name, String value) {
+        int entrySize = entrySize(name, value);
+        evict(maxSize - entrySize);
+        if (entrySize > maxSize) {
+            return;
+        }
+        if (count == names.length) {
+            grow();
+        }
+        head = (head - 1) & (names.length - 1);
+        names[head] = name;
+        values[head] = value;
+        count++;
+        size += entrySize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evict(maxSize);
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int length() {
+        return count;
+    }
+
+    static int entrySize(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    private void evict(int targetSize) {
+        while (size > targetSize && count > 0) {
+            int oldest = (head + count - 1) & (names.length - 1);
+            size -= entrySize(names[oldest], values[oldest]);
+            names[oldest] = null;
+            values[oldest] = null;
+            count--;
+        }
+    }
+
+    private void grow() {
+        String[] newNames = new String[names.length << 1];
+        String[] newValues = new String[names.length << 1];
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) & (names.length - 1);
+            newNames[i] = names[slot];
+            newValues[i] = values[slot];
+        }
+        names = newNames;
+        values = newValues;
+        head = 0;
+    }
+}
@@ -0,0 +1,400 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import com.github.taymindis.nio.channeling.ChannelingByteWriter;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.WhenConnectingStatus;
+import com.github.taymindis.nio.channeling.http.ContentEncodingType;
+import com.github.taymindis.nio.channeling.http.HttpRequest;
+import com.github.taymindis.nio.channeling.http.HttpRequestBuilder;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpResponseType;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import com.github.taymindis.nio.channeling.http.HttpStreamRequestCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.taymindis.nio.channeling.http2.Http2Frame.*;
+
+/**
+ * Client side of an HTTP/2 connection to one upstream, requests built by {@link HttpRequestBuilder} are multiplexed
+ * over the socket, each one on its own stream with its own callback. The socket is either plain, prior knowledge h2c,
+ * or SSL with "h2" offered by ALPN, see {@link com.github.taymindis.nio.channeling.Channeling#wrapSSL(javax.net.ssl.SSLContext, String, int, Object, String...)}.
+ * <p>
+ * Callbacks see the response as HTTP/1.1: {@link HttpResponse} parse a synthesized head, {@link HttpStreamRequestCallback}
+ * get the head then the body, chunk encoded when the response has no content-length, so it can be relayed as is.
+ * Once {@link #isGoingAway()} a new connection has to be made, requests refused by GOAWAY fail with a
+ * {@link Http2Exception} of REFUSED_STREAM and can be retried there.
+ */
+public final class Http2ClientConnection extends Http2Connection {
+    private static final Logger log = LoggerFactory.getLogger(Http2ClientConnection.class);
+    // Connection specific fields, not allowed in HTTP/2, host become :authority
+    private static final Set<String> CONNECTION_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade", "host"));
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final String host;
+    private final int port;
+    // Requests over peer max concurrent streams, started as streams end
+    private final ArrayDeque<Exchange> pendingExchanges = new ArrayDeque<>();
+
+    public Http2ClientConnection(ChannelingSocket socket, String host, int port) {
+        this(socket, host, port, new Http2Settings().setEnablePush(false));
+    }
+
+    /**
+     * @param socket plain or SSL socket, connected or not
+     */
+    public Http2ClientConnection(ChannelingSocket socket, String host, int port, Http2Settings settings) {
+        super(socket, settings, false);
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Connect the socket unless already connected, then send the preface, requests may be executed right away
+     */
+    public Http2ClientConnection connect() {
+        if (socket.getSocketChannel().isConnected()) {
+            open(null, ByteBuffer.wrap(PREFACE));
+        } else {
+            socket.withConnect(host, port).when((WhenConnectingStatus) connectingStatus -> connectingStatus)
+                    .then(sc -> open(null, ByteBuffer.wrap(PREFACE)), (sc, e) -> terminate(e));
+        }
+        return this;
+    }
+
+    /**
+     * @return request sent on a new stream of this connection once executed
+     */
+    public HttpRequest request(HttpRequestBuilder requestBuilder) {
+        List<String> fields = requestFields(requestBuilder);
+        String body = requestBuilder.getBody();
+        byte[] content = body == null || body.isEmpty() ? null : body.getBytes(StandardCharsets.UTF_8);
+        if (content != null && !fields.contains("content-length")) {
+            fields.add("content-length");
+            fields.add(String.valueOf(content.length));
+        }
+        boolean headRequest = "HEAD".equals(fields.get(1));
+        return new HttpRequest() {
+            @Override
+            public void execute(HttpSingleRequestCallback callback) {
+                submit(new Exchange(fields, content, headRequest, callback, null));
+            }
+
+            @Override
+            public void execute(HttpStreamRequestCallback callback) {
+                submit(new Exchange(fields, content, headRequest, null, callback));
+            }
+        };
+    }
+
+    private List<String> requestFields(HttpRequestBuilder requestBuilder) {
+        String method = requestBuilder.getMethod();
+        String authority = null;
+        List<String> headers = new ArrayList<>();
+        for (String line : requestBuilder.getHeadersBuilder().toString().split("\r\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("host".equals(name)) {
+                authority = value;
+            } else if (!CONNECTION_HEADERS.contains(name) && !("te".equals(name) && !"trailers".equalsIgnoreCase(value))) {
+                headers.add(name);
+                headers.add(value);
+            }
+        }
+        String path = requestBuilder.getPath() + requestBuilder.getArgs().replace(' ', '+');
+        List<String> fields = new ArrayList<>(headers.size() + 8);
+        fields.add(":method");
+        fields.add(method == null || method.isEmpty() ? "GET" : method.toUpperCase(Locale.ROOT));
+        fields.add(":scheme");
+        fields.add(socket.isSSL() ? "https" : "http");
+        fields.add(":authority");
+        fields.add(authority != null ? authority : host + ":" + port);
+        fields.add(":path");
+        fields.add(path.isEmpty() ? "/" : path);
+        fields.addAll(headers);
+        return fields;
+    }
+
+    private void submit(Exchange exchange) {
+        synchronized (this) {
+            if (!isGoingAway() && (!pendingExchanges.isEmpty() || getOpenStreams() >= getRemoteMaxConcurrentStreams())) {
+                pendingExchanges.add(exchange);
+                return;
+            }
+        }
+        start(exchange);
+    }
+
+    private void start(Exchange exchange) {
+        Http2Stream stream = startStream(exchange.fields, exchange.content == null, exchange);
+        if (stream == null) {
+            exchange.error(new Http2Exception(REFUSED_STREAM, "Connection is going away"));
+            return;
+        }
+        if (exchange.content != null) {
+            sendData(stream, ByteBuffer.wrap(exchange.content), true, null);
+        }
+    }
+
+    /**
+     * A stream ended, start the requests waiting for it
+     */
+    private void startPending() {
+        List<Exchange> ready = new ArrayList<>();
+        synchronized (this) {
+            int available = isGoingAway() ? pendingExchanges.size() : getRemoteMaxConcurrentStreams() - getOpenStreams();
+            while (available-- > 0 && !pendingExchanges.isEmpty()) {
+                ready.add(pendingExchanges.poll());
+            }
+        }
+        for (Exchange exchange : ready) {
+            start(exchange);
+        }
+    }
+
+    @Override
+    Http2Stream openStream(int streamId) throws Http2Exception {
+        // Push is disabled, peer may not open streams
+        throw Http2Exception.protocol("Unexpected stream " + streamId);
+    }
+
+    @Override
+    Runnable onHeaders(Http2Stream stream, Map<String, String> headers, boolean endStream) throws Http2Exception {
+        Exchange exchange = (Exchange) stream.attachment;
+        if (exchange.head != null) {
+            // Trailers
+            if (!endStream) {
+                throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Trailers without END_STREAM");
+            }
+            return () -> exchange.end(null);
+        }
+        String status = headers.remove(":status");
+        if (status == null) {
+            throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Missing :status");
+        }
+        if (status.startsWith("1") && !endStream) {
+            // Interim response
+            return null;
+        }
+        int code;
+        try {
+            code = Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+            throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Invalid :status " + status);
+        }
+        exchange.chunked = exchange.streamCallback != null && !headers.containsKey("content-length")
+                && !exchange.headRequest && code != 204 && code != 304;
+        StringBuilder head = new StringBuilder("HTTP/1.1 ").append(code).append(" \r\n");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        if (exchange.chunked) {
+            head.append("transfer-encoding: chunked\r\n");
+        }
+        exchange.head = head.append("\r\n").toString();
+        exchange.gzip = "gzip".equalsIgnoreCase(headers.get("content-encoding"));
+        return () -> {
+            exchange.headerAccept();
+            if (endStream) {
+                exchange.end(null);
+            }
+        };
+    }
+
+    @Override
+    Runnable onData(Http2Stream stream, ByteBuffer data, boolean endStream) throws Http2Exception {
+        Exchange exchange = (Exchange) stream.attachment;
+        if (exchange.head == null) {
+            throw new Http2Exception(PROTOCOL_ERROR, stream.id, "DATA before HEADERS");
+        }
+        if (exchange.singleCallback != null) {
+            try {
+                if (exchange.body == null) {
+                    exchange.body = new ChannelingByteWriter(Math.max(data.remaining(), 64));
+                }
+                exchange.body.write(data);
+            } catch (IOException e) {
+                throw new Http2Exception(INTERNAL_ERROR, stream.id, e.getMessage());
+            }
+            return endStream ? () -> exchange.end(null) : null;
+        }
+        // Copy out of the read buffer for the callback
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return endStream ? () -> exchange.end(bytes) : () -> exchange.accept(bytes);
+    }
+
+    @Override
+    Runnable onReset(Http2Stream stream, int errorCode) {
+        Exchange exchange = (Exchange) stream.attachment;
+        return () -> {
+            if (errorCode == REFUSED_STREAM && exchange.head == null) {
+                // Not processed by the peer, e.g. sent before its SETTINGS arrived, safe to try again
+                synchronized (this) {
+                    pendingExchanges.addFirst(exchange);
+                }
+            } else {
+                exchange.error(new Http2Exception(errorCode, stream.id, "Stream " + stream.id + " reset with error code " + errorCode));
+            }
+            startPending();
+        };
+    }
+
+    @Override
+    Runnable onGoAway(int lastStreamId, int errorCode) {
+        // No new stream on this connection, requests still waiting fail
+        return this::startPending;
+    }
+
+    @Override
+    void onClosed(List<Http2Stream> openStreams, Exception cause) {
+        List<Exchange> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(pendingExchanges);
+            pendingExchanges.clear();
+        }
+        Exception e = cause;
+        if (e == null) {
+            e = new IOException(socket.isSSL() && !"h2".equals(socket.getApplicationProtocol()) ?
+                    "h2 not negotiated by ALPN" : "Connection closed");
+        }
+        for (Http2Stream stream : openStreams) {
+            ((Exchange) stream.attachment).error(e);
+        }
+        for (Exchange exchange : pending) {
+            exchange.error(e);
+        }
+    }
+
+    @Override
+    boolean parkWhenIdle() {
+        return true;
+    }
+
+    /**
+     * One request and its response, callbacks are invoked from the connection worker in stream order
+     */
+    private final class Exchange {
+        private final List<String> fields;
+        private final byte[] content;
+        private final boolean headRequest;
+        private final HttpSingleRequestCallback singleCallback;
+        private final HttpStreamRequestCallback streamCallback;
+        // Response head as HTTP/1.1, set once final HEADERS received
+        private String head;
+        private boolean chunked, gzip, done;
+        private ChannelingByteWriter body;
+
+        private Exchange(List<String> fields, byte[] content, boolean headRequest,
+                         HttpSingleRequestCallback singleCallback, HttpStreamRequestCallback streamCallback) {
+            this.fields = fields;
+            this.content = content;
+            this.headRequest = headRequest;
+            this.singleCallback = singleCallback;
+            this.streamCallback = streamCallback;
+        }
+
+        private void headerAccept() {
+            if (streamCallback != null && !done) {
+                byte[] bytes = head.getBytes(StandardCharsets.ISO_8859_1);
+                try {
+                    streamCallback.headerAccept(bytes, 0, bytes.length, socket);
+                } catch (Exception e) {
+                    error(e);
+                }
+            }
+        }
+
+        private void accept(byte[] bytes) {
+            if (!done && bytes.length > 0) {
+                byte[] chunk = chunked ? chunk(bytes, false) : bytes;
+                streamCallback.accept(chunk, 0, chunk.length, socket);
+            }
+        }
+
+        /**
+         * @param bytes last DATA of a stream callback, null if none
+         */
+        private void end(byte[] bytes) {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                if (streamCallback != null) {
+                    byte[] last = chunked ? chunk(bytes, true) : bytes == null ? new byte[0] : bytes;
+                    streamCallback.last(last, 0, last.length, socket);
+                } else {
+                    singleCallback.accept(response(), socket.getContext());
+                }
+            } catch (RuntimeException e) {
+                log.error("Error in response callback ... ", e);
+            }
+            startPending();
+        }
+
+        private HttpResponse response() {
+            HttpResponse response = new HttpResponse();
+            response.setHeaders(head);
+            ChannelingByteWriter writer = body == null ? new ChannelingByteWriter() : body;
+            try {
+                response.setRawBytes(writer.toChannelingBytes());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            response.setBodyOffset(0);
+            response.setResponseType(HttpResponseType.CONTENT_LENGTH);
+            response.setContentEncodingType(gzip ? ContentEncodingType.GZIP : ContentEncodingType.OTHER);
+            return response;
+        }
+
+        private void error(Exception e) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (streamCallback != null) {
+                streamCallback.error(e, socket);
+            } else {
+                singleCallback.error(e, socket);
+            }
+        }
+    }
+
+    /**
+     * @return bytes as one chunk, followed by the last chunk if last
+     */
+    private static byte[] chunk(byte[] bytes, boolean last) {
+        int length = bytes == null ? 0 : bytes.length;
+        if (length == 0) {
+            return last ? LAST_CHUNK.clone() : new byte[0];
+        }
+        byte[] size = (Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] chunk = new byte[size.length + length + 2 + (last ? LAST_CHUNK.length : 0)];
+        System.arraycopy(size, 0, chunk, 0, size.length);
+        System.arraycopy(bytes, 0, chunk, size.length, length);
+        chunk[size.length + length] = '\r';
+        chunk[size.length + length + 1] = '\n';
+        if (last) {
+            System.arraycopy(LAST_CHUNK, 0, chunk, size.length + length + 2, LAST_CHUNK.length);
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,936 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import com.github.taymindis.nio.channeling.Channeling;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.Then;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.taymindis.nio.channeling.http2.Http2Frame.*;
+
+/**
+ * One HTTP/2 connection over a ChannelingSocket: frame codec, HPACK, stream multiplexing and flow control, shared by
+ * server and client side.
+ * <p>
+ * A socket run one io task at a time, so the connection drive it from its own callbacks: frames queued so far leave
+ * in one gathering write, then it reads again. While a stream is in flight the read is eager and the worker come back
+ * every turn to pick the frames queued by other threads, an idle connection wait for readiness instead.
+ * Frames are encoded and queued under the connection lock, handlers and write callbacks run outside of it.
+ */
+public abstract class Http2Connection {
+    private static final Logger log = LoggerFactory.getLogger(Http2Connection.class);
+    // DATA bytes gathered into one write, streams take turns a frame at a time
+    private static final int MAX_WRITE_BATCH = 256 * 1024;
+    // Dynamic table we keep for the peer, whatever it allows
+    private static final int MAX_ENCODER_TABLE_SIZE = 16 * 1024;
+    // Header block buffered across CONTINUATION frames when no local max header list size is set
+    private static final int DEFAULT_MAX_HEADER_BLOCK_SIZE = 256 * 1024;
+
+    protected final ChannelingSocket socket;
+    private final Http2Settings localSettings;
+    private final Http2Settings remoteSettings = new Http2Settings();
+    private final HpackDecoder hpackDecoder;
+    private final HpackEncoder hpackEncoder;
+    private final Map<Integer, Http2Stream> streams = new HashMap<>();
+    // Streams with DATA to send and window left, round robin
+    private final ArrayDeque<Http2Stream> sendableStreams = new ArrayDeque<>();
+    private final List<ByteBuffer> controlFrames = new ArrayList<>();
+    private final List<Then> controlCallbacks = new ArrayList<>();
+    private final ByteBuffer readBuffer;
+    // Bytes read and not parsed yet, in write mode
+    private ByteBuffer inbound;
+
+    private long sendWindow = DEFAULT_WINDOW_SIZE;
+    private int receiveWindow = DEFAULT_WINDOW_SIZE;
+    private boolean expectPreface;
+    private boolean settingsReceived;
+    private int continuationStreamId, continuationFlags;
+    private ByteArrayOutputStream headerBlock;
+    protected int lastPeerStreamId;
+    // Next id of a stream we open, odd for client, even for server
+    private int nextStreamId;
+    private boolean goAwaySent, goAwayReceived, closeAfterFlush, closed;
+    // Socket io task in flight, or being decided, nothing is sent before open
+    private boolean ioPending = true;
+    private long idleTimeoutInMs = -1;
+
+    Http2Connection(ChannelingSocket socket, Http2Settings localSettings, boolean server) {
+        this.socket = socket;
+        this.localSettings = new Http2Settings(localSettings);
+        this.expectPreface = server;
+        this.nextStreamId = server ? 2 : 1;
+        this.hpackDecoder = new HpackDecoder(localSettings.getHeaderTableSize());
+        this.hpackEncoder = new HpackEncoder(MAX_ENCODER_TABLE_SIZE);
+        int readBufferSize = DEFAULT_WINDOW_SIZE;
+        if (socket.isSSL()) {
+            readBufferSize = Math.max(readBufferSize, socket.getSSLMinimumInputBufferSize());
+        }
+        this.readBuffer = ByteBuffer.allocate(readBufferSize);
+        this.inbound = ByteBuffer.allocate(localSettings.getMaxFrameSize() + HEADER_SIZE);
+    }
+
+    /**
+     * Peer opened a stream with HEADERS
+     *
+     * @return new stream, see {@link #newStream(int)}
+     * @throws Http2Exception REFUSED_STREAM to refuse it, or a connection error
+     */
+    abstract Http2Stream openStream(int streamId) throws Http2Exception;
+
+    /**
+     * @return task to run once the lock released, null if none
+     */
+    abstract Runnable onHeaders(Http2Stream stream, Map<String, String> headers, boolean endStream) throws Http2Exception;
+
+    /**
+     * @param data view on the read buffer, copy what has to be kept
+     * @return task to run once the lock released, null if none
+     */
+    abstract Runnable onData(Http2Stream stream, ByteBuffer data, boolean endStream) throws Http2Exception;
+
+    /**
+     * Stream reset by peer or for a stream error, it is already removed
+     */
+    Runnable onReset(Http2Stream stream, int errorCode) {
+        return null;
+    }
+
+    Runnable onGoAway(int lastStreamId, int errorCode) {
+        return null;
+    }
+
+    /**
+     * Connection closed, streams still open are given with the cause, null cause for a graceful close
+     */
+    void onClosed(List<Http2Stream> openStreams, Exception cause) {
+    }
+
+    /**
+     * @return true to leave the socket without io task once nothing is in flight, next frame queued restart it.
+     * A client does so as it is the one starting streams, a server keep waiting for the next one
+     */
+    boolean parkWhenIdle() {
+        return false;
+    }
+
+    /**
+     * Queue SETTINGS after the leading bytes, if any, then process the bytes already read
+     *
+     * @param received bytes read before the connection took the socket over, may be null
+     * @param leading  written ahead of SETTINGS, e.g. client preface or 101 response of an upgrade
+     */
+    void open(ByteBuffer received, ByteBuffer... leading) {
+        synchronized (this) {
+            // Ahead of the frames queued before open
+            List<ByteBuffer> opening = new ArrayList<>(Arrays.asList(leading));
+            opening.add(settings(localSettings));
+            int increment = localSettings.getInitialWindowSize() - DEFAULT_WINDOW_SIZE;
+            if (increment > 0) {
+                // Connection window start at the default whatever the settings
+                opening.add(windowUpdate(0, increment));
+                receiveWindow += increment;
+            }
+            controlFrames.addAll(0, opening);
+        }
+        if (received != null && received.hasRemaining()) {
+            onBytes(received);
+        } else {
+            pump();
+        }
+    }
+
+    /**
+     * Settings of the HTTP2-Settings header of an h2c upgrade, peer still send SETTINGS after its preface
+     */
+    synchronized void applyRemoteSettings(ByteBuffer payload) throws Http2Exception {
+        remoteSettings.decode(payload);
+        hpackEncoder.setMaxTableSize(remoteSettings.getHeaderTableSize());
+    }
+
+    Http2Stream newStream(int streamId) {
+        return new Http2Stream(streamId, remoteSettings.getInitialWindowSize(), localSettings.getInitialWindowSize());
+    }
+
+    synchronized void addStream(Http2Stream stream) {
+        streams.put(stream.id, stream);
+    }
+
+    /**
+     * Open a stream of ours with its header block, ids follow the order blocks are queued in
+     *
+     * @param attachment set on the stream before any frame of it can be received
+     * @return null once going away or out of stream ids
+     */
+    Http2Stream startStream(List<String> fields, boolean endStream, Object attachment) {
+        Http2Stream stream;
+        boolean kick;
+        synchronized (this) {
+            if (closed || goAwaySent || goAwayReceived || nextStreamId < 0) {
+                return null;
+            }
+            stream = newStream(nextStreamId);
+            nextStreamId += 2;
+            stream.attachment = attachment;
+            streams.put(stream.id, stream);
+            queueHeaders(stream, fields, endStream, null);
+            kick = kick();
+        }
+        if (kick) {
+            pump();
+        }
+        return stream;
+    }
+
+    /**
+     * Encode and queue a header block
+     *
+     * @param fields name and value in turn, names in lower case
+     * @param then   invoked once written, or right away if the stream is gone
+     */
+    void sendHeaders(Http2Stream stream, List<String> fields, boolean endStream, Then then) {
+        boolean kick;
+        synchronized (this) {
+            if (closed || stream.reset || stream.localEnding) {
+                kick = false;
+            } else {
+                queueHeaders(stream, fields, endStream, then);
+                then = null;
+                kick = kick();
+            }
+        }
+        callback(then);
+        if (kick) {
+            pump();
+        }
+    }
+
+    private void queueHeaders(Http2Stream stream, List<String> fields, boolean endStream, Then then) {
+        hpackEncoder.beginBlock();
+        for (int i = 0, len = fields.size(); i < len; i += 2) {
+            hpackEncoder.header(fields.get(i), fields.get(i + 1));
+        }
+        byte[] block = hpackEncoder.endBlock().toByteArray();
+        controlFrames.add(headers(stream.id, block, block.length, endStream, remoteSettings.getMaxFrameSize()));
+        if (then != null) {
+            controlCallbacks.add(then);
+        }
+        if (endStream) {
+            stream.localEnding = true;
+            endLocal(stream);
+        }
+    }
+
+    /**
+     * Queue DATA, sent as flow control allows
+     *
+     * @param data buffer written from its position, must not be touched until then is invoked
+     * @param then invoked once written, or right away if the stream is gone
+     */
+    void sendData(Http2Stream stream, ByteBuffer data, boolean endStream, Then then) {
+        boolean kick;
+        synchronized (this) {
+            if (closed || stream.reset || stream.localEnding) {
+                kick = false;
+            } else {
+                stream.pending.add(new Http2Stream.Http2Data(data, endStream, then));
+                stream.localEnding = endStream;
+                if (!stream.windowBlocked && !sendableStreams.contains(stream)) {
+                    sendableStreams.add(stream);
+                }
+                then = null;
+                kick = kick();
+            }
+        }
+        callback(then);
+        if (kick) {
+            pump();
+        }
+    }
+
+    /**
+     * Reset the stream with RST_STREAM, DATA still queued is dropped
+     */
+    void resetStream(Http2Stream stream, int errorCode) {
+        List<Runnable> tasks = new ArrayList<>();
+        boolean kick;
+        synchronized (this) {
+            if (closed || stream.reset) {
+                return;
+            }
+            controlFrames.add(rstStream(stream.id, errorCode));
+            reset(stream, tasks);
+            kick = kick();
+        }
+        runTasks(tasks);
+        if (kick) {
+            pump();
+        }
+    }
+
+    /**
+     * Tell peer no more stream is accepted, streams in flight are served before closing
+     */
+    public void shutdown() {
+        boolean kick;
+        synchronized (this) {
+            if (closed || goAwaySent) {
+                return;
+            }
+            goAwaySent = true;
+            controlFrames.add(goAway(lastPeerStreamId, NO_ERROR));
+            kick = kick();
+        }
+        if (kick) {
+            pump();
+        }
+    }
+
+    private boolean kick() {
+        if (!ioPending && !closed) {
+            ioPending = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Write what is queued, else read, close once going away and nothing left
+     */
+    private void pump() {
+        List<Then> callbacks = new ArrayList<>();
+        ByteBuffer[] batch;
+        boolean close = false, eager;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            batch = nextBatch(callbacks);
+            if (batch == null) {
+                if (closeAfterFlush || ((goAwaySent || goAwayReceived) && streams.isEmpty())) {
+                    close = true;
+                } else if (streams.isEmpty() && parkWhenIdle()) {
+                    ioPending = false;
+                    return;
+                }
+            }
+            eager = !streams.isEmpty();
+        }
+        if (batch != null) {
+            socket.setReadWriteTimeout(-1);
+            socket.withWrite(batch).when(Channeling.whenNoMoreToWrite).then(sc -> written(callbacks), this::onError);
+        } else if (close) {
+            terminate(null);
+        } else {
+            readBuffer.clear();
+            if (eager) {
+                socket.setReadWriteTimeout(-1);
+                socket.withEagerRead(readBuffer).then(this::onRead, this::onError);
+            } else {
+                socket.setReadWriteTimeout(idleTimeoutInMs);
+                socket.withRead(readBuffer).then(this::onRead, this::onError);
+            }
+        }
+    }
+
+    private void written(List<Then> callbacks) {
+        for (int i = 0, len = callbacks.size(); i < len; i++) {
+            callback(callbacks.get(i));
+        }
+        pump();
+    }
+
+    private void callback(Then then) {
+        if (then != null) {
+            try {
+                then.callback(socket);
+            } catch (RuntimeException e) {
+                log.error("Error in write callback ... ", e);
+            }
+        }
+    }
+
+    /**
+     * Control frames first, then DATA of the sendable streams a frame each in turn
+     *
+     * @param callbacks receive the callbacks of what is fully in the batch
+     * @return buffers to write, null if nothing
+     */
+    private ByteBuffer[] nextBatch(List<Then> callbacks) {
+        if (controlFrames.isEmpty() && sendableStreams.isEmpty()) {
+            return null;
+        }
+        List<ByteBuffer> buffers = new ArrayList<>(controlFrames);
+        controlFrames.clear();
+        callbacks.addAll(controlCallbacks);
+        controlCallbacks.clear();
+        int budget = MAX_WRITE_BATCH;
+        while (budget > 0 && !sendableStreams.isEmpty()) {
+            Http2Stream stream = sendableStreams.poll();
+            int written = writeData(stream, buffers, callbacks, budget);
+            if (written < 0) {
+                // Connection window used up
+                sendableStreams.addFirst(stream);
+                break;
+            }
+            budget -= written;
+            if (!stream.pending.isEmpty() && !stream.windowBlocked && !stream.reset) {
+                sendableStreams.add(stream);
+            }
+        }
+        return buffers.isEmpty() ? null : buffers.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * @return DATA bytes of the frame, -1 if the connection window is used up
+     */
+    private int writeData(Http2Stream stream, List<ByteBuffer> buffers, List<Then> callbacks, int budget) {
+        Http2Stream.Http2Data data = stream.pending.peek();
+        int remaining = data.buffer.remaining();
+        int length = 0;
+        if (remaining > 0) {
+            if (sendWindow <= 0) {
+                return -1;
+            }
+            if (stream.sendWindow <= 0) {
+                stream.windowBlocked = true;
+                return 0;
+            }
+            length = (int) Math.min(Math.min(remaining, Math.min(sendWindow, stream.sendWindow)),
+                    Math.min(remoteSettings.getMaxFrameSize(), budget));
+        }
+        boolean last = length == remaining;
+        boolean endStream = last && data.endStream;
+        if (length > 0 || endStream) {
+            buffers.add(header(length, DATA, endStream ? FLAG_END_STREAM : 0, stream.id));
+        }
+        if (length > 0) {
+            ByteBuffer slice = data.buffer.duplicate();
+            slice.limit(slice.position() + length);
+            data.buffer.position(data.buffer.position() + length);
+            buffers.add(slice);
+            sendWindow -= length;
+            stream.sendWindow -= length;
+        }
+        if (last) {
+            stream.pending.poll();
+            if (data.then != null) {
+                callbacks.add(data.then);
+            }
+            if (endStream) {
+                endLocal(stream);
+            }
+        }
+        return length;
+    }
+
+    private void endLocal(Http2Stream stream) {
+        stream.localEnded = true;
+        if (stream.remoteEnded) {
+            removeStream(stream);
+        }
+    }
+
+    private void endRemote(Http2Stream stream) {
+        stream.remoteEnded = true;
+        if (stream.localEnded) {
+            removeStream(stream);
+        }
+    }
+
+    private void removeStream(Http2Stream stream) {
+        streams.remove(stream.id);
+        sendableStreams.remove(stream);
+    }
+
+    private void reset(Http2Stream stream, List<Runnable> tasks) {
+        stream.reset = true;
+        removeStream(stream);
+        for (Http2Stream.Http2Data data : stream.pending) {
+            if (data.then != null) {
+                tasks.add(() -> callback(data.then));
+            }
+        }
+        stream.pending.clear();
+    }
+
+    private void onRead(ChannelingSocket sc) {
+        if (sc.getLastProcessedBytes() < 0) {
+            terminate(new IOException("Connection closed by peer"));
+            return;
+        }
+        readBuffer.flip();
+        onBytes(readBuffer);
+    }
+
+    private void onBytes(ByteBuffer received) {
+        List<Runnable> tasks = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (!closeAfterFlush) {
+                try {
+                    receive(received, tasks);
+                } catch (Http2Exception e) {
+                    log.error("HTTP/2 connection error " + e.getErrorCode() + " ... ", e);
+                    if (!goAwaySent) {
+                        goAwaySent = true;
+                        controlFrames.add(goAway(lastPeerStreamId, e.getErrorCode()));
+                    }
+                    closeAfterFlush = true;
+                }
+            }
+        }
+        runTasks(tasks);
+        pump();
+    }
+
+    private void runTasks(List<Runnable> tasks) {
+        for (int i = 0, len = tasks.size(); i < len; i++) {
+            try {
+                tasks.get(i).run();
+            } catch (RuntimeException e) {
+                log.error("Error while handling HTTP/2 stream ... ", e);
+            }
+        }
+    }
+
+    private void onError(ChannelingSocket sc, Exception e) {
+        if (!(e instanceof TimeoutException)) {
+            log.error(e.getMessage(), e);
+        }
+        terminate(e);
+    }
+
+    /**
+     * Close the socket, streams still open are given to {@link #onClosed}
+     */
+    void terminate(Exception cause) {
+        List<Http2Stream> openStreams;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            ioPending = false;
+            openStreams = new ArrayList<>(streams.values());
+            streams.clear();
+            sendableStreams.clear();
+        }
+        socket.close(s -> {
+        });
+        onClosed(openStreams, cause);
+    }
+
+    private void receive(ByteBuffer received, List<Runnable> tasks) throws Http2Exception {
+        if (inbound.remaining() < received.remaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(inbound.capacity() << 1, inbound.position() + received.remaining()));
+            inbound.flip();
+            inbound = grown.put(inbound);
+        }
+        inbound.put(received);
+        inbound.flip();
+        try {
+            if (expectPreface && !readPreface()) {
+                return;
+            }
+            while (inbound.remaining() >= HEADER_SIZE) {
+                int start = inbound.position();
+                int length = ((inbound.get(start) & 0xff) << 16) | ((inbound.get(start + 1) & 0xff) << 8)
+                        | (inbound.get(start + 2) & 0xff);
+                if (length > localSettings.getMaxFrameSize()) {
+                    throw new Http2Exception(FRAME_SIZE_ERROR, "Frame of " + length + " bytes");
+                }
+                if (inbound.remaining() < HEADER_SIZE + length) {
+                    break;
+                }
+                int type = inbound.get(start + 3) & 0xff;
+                int flags = inbound.get(start + 4) & 0xff;
+                int streamId = inbound.getInt(start + 5) & 0x7fffffff;
+                ByteBuffer payload = inbound.duplicate();
+                payload.position(start + HEADER_SIZE).limit(start + HEADER_SIZE + length);
+                inbound.position(start + HEADER_SIZE + length);
+                try {
+                    frame(type, flags, streamId, payload, tasks);
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError()) {
+                        throw e;
+                    }
+                    streamError(e, tasks);
+                }
+            }
+        } finally {
+            inbound.compact();
+        }
+    }
+
+    private boolean readPreface() throws Http2Exception {
+        int start = inbound.position();
+        int length = Math.min(inbound.remaining(), PREFACE.length);
+        for (int i = 0; i < length; i++) {
+            if (inbound.get(start + i) != PREFACE[i]) {
+                throw Http2Exception.protocol("Invalid connection preface");
+            }
+        }
+        if (length < PREFACE.length) {
+            return false;
+        }
+        inbound.position(start + PREFACE.length);
+        expectPreface = false;
+        return true;
+    }
+
+    private void frame(int type, int flags, int streamId, ByteBuffer payload, List<Runnable> tasks) throws Http2Exception {
+        if (continuationStreamId != 0 && type != CONTINUATION) {
+            throw Http2Exception.protocol("Expected CONTINUATION of stream " + continuationStreamId);
+        }
+        if (!settingsReceived && type != SETTINGS) {
+            throw Http2Exception.protocol("Expected SETTINGS first");
+        }
+        switch (type) {
+            case DATA:
+                onDataFrame(flags, streamId, payload, tasks);
+                break;
+            case HEADERS:
+                onHeadersFrame(flags, streamId, payload, tasks);
+                break;
+            case PRIORITY:
+                if (streamId == 0) {
+                    throw Http2Exception.protocol("PRIORITY on stream 0");
+                }
+                if (payload.remaining() != 5) {
+                    throw new Http2Exception(FRAME_SIZE_ERROR, streamId, "PRIORITY length " + payload.remaining());
+                }
+                break;
+            case RST_STREAM:
+                onRstStreamFrame(streamId, payload, tasks);
+                break;
+            case SETTINGS:
+                onSettingsFrame(flags, streamId, payload);
+                break;
+            case PUSH_PROMISE:
+                throw Http2Exception.protocol("PUSH_PROMISE not enabled");
+            case PING:
+                if (streamId != 0) {
+                    throw Http2Exception.protocol("PING on stream " + streamId);
+                }
+                if (payload.remaining() != 8) {
+                    throw new Http2Exception(FRAME_SIZE_ERROR, "PING length " + payload.remaining());
+                }
+                if ((flags & FLAG_ACK) == 0) {
+                    controlFrames.add(ping(true, payload.getLong()));
+                }
+                break;
+            case GOAWAY:
+                if (streamId != 0) {
+                    throw Http2Exception.protocol("GOAWAY on stream " + streamId);
+                }
+                if (payload.remaining() < 8) {
+                    throw new Http2Exception(FRAME_SIZE_ERROR, "GOAWAY length " + payload.remaining());
+                }
+                goAwayReceived = true;
+                onGoAwayFrame(payload.getInt() & 0x7fffffff, payload.getInt(), tasks);
+                break;
+            case WINDOW_UPDATE:
+                onWindowUpdateFrame(streamId, payload);
+                break;
+            case CONTINUATION:
+                onContinuationFrame(flags, streamId, payload, tasks);
+                break;
+            default:
+                // Unknown frame types are ignored
+                break;
+        }
+    }
+
+    /**
+     * Streams we opened above the last stream id are not processed by peer, they are reset with REFUSED_STREAM so
+     * they can be retried on a new connection
+     */
+    private void onGoAwayFrame(int lastStreamId, int errorCode, List<Runnable> tasks) {
+        if (errorCode != NO_ERROR) {
+            log.error("GOAWAY received with error code " + errorCode);
+        }
+        for (Http2Stream stream : new ArrayList<>(streams.values())) {
+            if (stream.id > lastStreamId && (stream.id & 1) == (nextStreamId & 1)) {
+                reset(stream, tasks);
+                addTask(tasks, onReset(stream, REFUSED_STREAM));
+            }
+        }
+        addTask(tasks, onGoAway(lastStreamId, errorCode));
+    }
+
+    private void onDataFrame(int flags, int streamId, ByteBuffer payload, List<Runnable> tasks) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.protocol("DATA on stream 0");
+        }
+        // Padding included, the whole payload count against both windows
+        int length = payload.remaining();
+        if (length > receiveWindow) {
+            throw new Http2Exception(FLOW_CONTROL_ERROR, "Connection window exceeded");
+        }
+        receiveWindow -= length;
+        // Every byte is either dropped or kept by its stream within its own window, refill once half is used
+        int connectionWindowSize = Math.max(localSettings.getInitialWindowSize(), DEFAULT_WINDOW_SIZE);
+        if (receiveWindow <= connectionWindowSize >> 1) {
+            controlFrames.add(windowUpdate(0, connectionWindowSize - receiveWindow));
+            receiveWindow = connectionWindowSize;
+        }
+        ByteBuffer data = unpad(flags, payload);
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null || stream.remoteEnded) {
+            throw new Http2Exception(STREAM_CLOSED, streamId, "DATA on closed stream " + streamId);
+        }
+        if (length > stream.receiveWindow) {
+            throw new Http2Exception(FLOW_CONTROL_ERROR, streamId, "Stream window exceeded");
+        }
+        stream.receiveWindow -= length;
+        boolean endStream = (flags & FLAG_END_STREAM) != 0;
+        if (endStream) {
+            endRemote(stream);
+        }
+        addTask(tasks, onData(stream, data, endStream));
+        // Taken by onData, which throw if the stream can't keep it, refill once half is used
+        int streamWindowSize = localSettings.getInitialWindowSize();
+        if (!endStream && stream.receiveWindow <= streamWindowSize >> 1 && stream.receiveWindow < streamWindowSize) {
+            controlFrames.add(windowUpdate(streamId, streamWindowSize - stream.receiveWindow));
+            stream.receiveWindow = streamWindowSize;
+        }
+    }
+
+    private void onHeadersFrame(int flags, int streamId, ByteBuffer payload, List<Runnable> tasks) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.protocol("HEADERS on stream 0");
+        }
+        ByteBuffer block = unpad(flags, payload);
+        if ((flags & FLAG_PRIORITY) != 0) {
+            if (block.remaining() < 5) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "HEADERS priority truncated");
+            }
+            block.position(block.position() + 5);
+        }
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            headerBlock(streamId, flags, block.array(), block.arrayOffset() + block.position(), block.remaining(), tasks);
+        } else {
+            continuationStreamId = streamId;
+            continuationFlags = flags;
+            checkHeaderBlockSize(block.remaining());
+            headerBlock = new ByteArrayOutputStream(block.remaining() << 1);
+            headerBlock.write(block.array(), block.arrayOffset() + block.position(), block.remaining());
+        }
+    }
+
+    private void onContinuationFrame(int flags, int streamId, ByteBuffer payload, List<Runnable> tasks) throws Http2Exception {
+        if (continuationStreamId == 0 || streamId != continuationStreamId) {
+            throw Http2Exception.protocol("Unexpected CONTINUATION on stream " + streamId);
+        }
+        checkHeaderBlockSize(headerBlock.size() + payload.remaining());
+        headerBlock.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            byte[] block = headerBlock.toByteArray();
+            continuationStreamId = 0;
+            headerBlock = null;
+            headerBlock(streamId, continuationFlags, block, 0, block.length, tasks);
+        }
+    }
+
+    /**
+     * Stop buffering CONTINUATION frames once the block can't fit the local header list size, the list size itself is
+     * only known after decoding the whole block
+     */
+    private void checkHeaderBlockSize(int size) throws Http2Exception {
+        int maxHeaderListSize = localSettings.getMaxHeaderListSize();
+        // HPACK representation of an acceptable list is not bigger than the list plus one frame
+        long limit = maxHeaderListSize == Integer.MAX_VALUE ? DEFAULT_MAX_HEADER_BLOCK_SIZE :
+                (long) maxHeaderListSize + localSettings.getMaxFrameSize();
+        if (size > limit) {
+            headerBlock = null;
+            continuationStreamId = 0;
+            throw new Http2Exception(ENHANCE_YOUR_CALM, "Header block over " + limit + " bytes");
+        }
+    }
+
+    private void headerBlock(int streamId, int flags, byte[] block, int offset, int length, List<Runnable> tasks) throws Http2Exception {
+        Map<String, String> headers = new LinkedHashMap<>();
+        // Decoded even if the stream is refused, the dynamic table must follow peer
+        int listSize = hpackDecoder.decode(block, offset, length, (name, value) -> headers.merge(name, value,
+                (v1, v2) -> "cookie".equals(name) ? v1 + "; " + v2 : v1 + ", " + v2));
+        boolean endStream = (flags & FLAG_END_STREAM) != 0;
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            stream = openStream(streamId);
+            streams.put(streamId, stream);
+        } else if (stream.remoteEnded) {
+            throw new Http2Exception(STREAM_CLOSED, streamId, "HEADERS on closed stream " + streamId);
+        }
+        if (listSize > localSettings.getMaxHeaderListSize()) {
+            throw new Http2Exception(PROTOCOL_ERROR, streamId, "Header list of " + listSize + " bytes");
+        }
+        if (endStream) {
+            endRemote(stream);
+        }
+        addTask(tasks, onHeaders(stream, headers, endStream));
+    }
+
+    private void onRstStreamFrame(int streamId, ByteBuffer payload, List<Runnable> tasks) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.protocol("RST_STREAM on stream 0");
+        }
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "RST_STREAM length " + payload.remaining());
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            reset(stream, tasks);
+            addTask(tasks, onReset(stream, payload.getInt()));
+        }
+    }
+
+    private void onSettingsFrame(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+        if (streamId != 0) {
+            throw Http2Exception.protocol("SETTINGS on stream " + streamId);
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (payload.hasRemaining()) {
+                throw new Http2Exception(FRAME_SIZE_ERROR, "SETTINGS ack with payload");
+            }
+            return;
+        }
+        int initialWindowSize = remoteSettings.getInitialWindowSize();
+        remoteSettings.decode(payload);
+        settingsReceived = true;
+        int delta = remoteSettings.getInitialWindowSize() - initialWindowSize;
+        if (delta != 0) {
+            for (Http2Stream stream : streams.values()) {
+                stream.sendWindow += delta;
+                if (stream.sendWindow > MAX_WINDOW_SIZE) {
+                    throw new Http2Exception(FLOW_CONTROL_ERROR, "Stream window over " + MAX_WINDOW_SIZE);
+                }
+                unblock(stream);
+            }
+        }
+        hpackEncoder.setMaxTableSize(remoteSettings.getHeaderTableSize());
+        controlFrames.add(settingsAck());
+    }
+
+    private void onWindowUpdateFrame(int streamId, ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() != 4) {
+            throw new Http2Exception(FRAME_SIZE_ERROR, "WINDOW_UPDATE length " + payload.remaining());
+        }
+        int increment = payload.getInt() & 0x7fffffff;
+        if (increment == 0) {
+            throw new Http2Exception(PROTOCOL_ERROR, streamId, "WINDOW_UPDATE of 0");
+        }
+        if (streamId == 0) {
+            sendWindow += increment;
+            if (sendWindow > MAX_WINDOW_SIZE) {
+                throw new Http2Exception(FLOW_CONTROL_ERROR, "Connection window over " + MAX_WINDOW_SIZE);
+            }
+            return;
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            stream.sendWindow += increment;
+            if (stream.sendWindow > MAX_WINDOW_SIZE) {
+                throw new Http2Exception(FLOW_CONTROL_ERROR, streamId, "Stream window over " + MAX_WINDOW_SIZE);
+            }
+            unblock(stream);
+        }
+    }
+
+    private void unblock(Http2Stream stream) {
+        if (stream.windowBlocked && stream.sendWindow > 0) {
+            stream.windowBlocked = false;
+            if (!stream.pending.isEmpty()) {
+                sendableStreams.add(stream);
+            }
+        }
+    }
+
+    private void streamError(Http2Exception e, List<Runnable> tasks) {
+        controlFrames.add(rstStream(e.getStreamId(), e.getErrorCode()));
+        Http2Stream stream = streams.get(e.getStreamId());
+        if (stream != null) {
+            reset(stream, tasks);
+            addTask(tasks, onReset(stream, e.getErrorCode()));
+        }
+    }
+
+    private static ByteBuffer unpad(int flags, ByteBuffer payload) throws Http2Exception {
+        if ((flags & FLAG_PADDED) != 0) {
+            if (!payload.hasRemaining()) {
+                throw Http2Exception.protocol("Padded frame without pad length");
+            }
+            int padLength = payload.get() & 0xff;
+            if (padLength > payload.remaining()) {
+                throw Http2Exception.protocol("Padding longer than payload");
+            }
+            payload.limit(payload.limit() - padLength);
+        }
+        return payload;
+    }
+
+    private static void addTask(List<Runnable> tasks, Runnable task) {
+        if (task != null) {
+            tasks.add(task);
+        }
+    }
+
+    public ChannelingSocket getSocket() {
+        return socket;
+    }
+
+    public Http2Settings getLocalSettings() {
+        return localSettings;
+    }
+
+    /**
+     * @return settings received from peer, defaults until then
+     */
+    public synchronized Http2Settings getRemoteSettings() {
+        return new Http2Settings(remoteSettings);
+    }
+
+    synchronized int getRemoteMaxConcurrentStreams() {
+        return remoteSettings.getMaxConcurrentStreams();
+    }
+
+    public synchronized int getOpenStreams() {
+        return streams.size();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return true once GOAWAY sent or received, no new stream then
+     */
+    public synchronized boolean isGoingAway() {
+        return goAwaySent || goAwayReceived || closed;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeoutInMs;
+    }
+
+    /**
+     * @param idleTimeoutInMs time in milisecond an idle connection wait for the next frame before closed, -1 for the
+     *                        read / write timeout of Channeling
+     */
+    public void setIdleTimeout(long idleTimeoutInMs) {
+        this.idleTimeoutInMs = idleTimeoutInMs;
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.io.IOException;
+
+/**
+ * Protocol violation carrying the HTTP/2 error code, stream 0 means a connection error which end the connection with
+ * GOAWAY, otherwise only the stream is reset.
+ */
+public class Http2Exception extends IOException {
+    private final int errorCode;
+    private final int streamId;
+
+    public Http2Exception(int errorCode, String message) {
+        this(errorCode, 0, message);
+    }
+
+    public Http2Exception(int errorCode, int streamId, String message) {
+        super(message);
+        this.errorCode = errorCode;
+        this.streamId = streamId;
+    }
+
+    static Http2Exception protocol(String message) {
+        return new Http2Exception(Http2Frame.PROTOCOL_ERROR, message);
+    }
+
+    static Http2Exception compression(String message) {
+        return new Http2Exception(Http2Frame.COMPRESSION_ERROR, message);
+    }
+
+    public int getErrorCode() {
+        return errorCode;
+    }
+
+    public int getStreamId() {
+        return streamId;
+    }
+
+    public boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
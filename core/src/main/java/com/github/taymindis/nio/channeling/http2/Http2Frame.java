@@ -0,0 +1,137 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frame types, flags, error codes of HTTP/2 (RFC 9113) and builders of the frames sent by {@link Http2Connection}.
+ * Every frame start with a 9 bytes header: 24 bits length, 8 bits type, 8 bits flags, 31 bits stream id.
+ */
+public final class Http2Frame {
+    public static final int HEADER_SIZE = 9;
+
+    public static final int DATA = 0x0;
+    public static final int HEADERS = 0x1;
+    public static final int PRIORITY = 0x2;
+    public static final int RST_STREAM = 0x3;
+    public static final int SETTINGS = 0x4;
+    public static final int PUSH_PROMISE = 0x5;
+    public static final int PING = 0x6;
+    public static final int GOAWAY = 0x7;
+    public static final int WINDOW_UPDATE = 0x8;
+    public static final int CONTINUATION = 0x9;
+
+    public static final int FLAG_END_STREAM = 0x1;
+    public static final int FLAG_ACK = 0x1;
+    public static final int FLAG_END_HEADERS = 0x4;
+    public static final int FLAG_PADDED = 0x8;
+    public static final int FLAG_PRIORITY = 0x20;
+
+    public static final int NO_ERROR = 0x0;
+    public static final int PROTOCOL_ERROR = 0x1;
+    public static final int INTERNAL_ERROR = 0x2;
+    public static final int FLOW_CONTROL_ERROR = 0x3;
+    public static final int SETTINGS_TIMEOUT = 0x4;
+    public static final int STREAM_CLOSED = 0x5;
+    public static final int FRAME_SIZE_ERROR = 0x6;
+    public static final int REFUSED_STREAM = 0x7;
+    public static final int CANCEL = 0x8;
+    public static final int COMPRESSION_ERROR = 0x9;
+    public static final int CONNECT_ERROR = 0xa;
+    public static final int ENHANCE_YOUR_CALM = 0xb;
+    public static final int INADEQUATE_SECURITY = 0xc;
+    public static final int HTTP_1_1_REQUIRED = 0xd;
+
+    public static final int DEFAULT_WINDOW_SIZE = 65535;
+    public static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * Client connection preface, followed by a SETTINGS frame
+     */
+    public static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private Http2Frame() {
+    }
+
+    static void writeHeader(ByteBuffer out, int length, int type, int flags, int streamId) {
+        out.put((byte) (length >>> 16))
+                .put((byte) (length >>> 8))
+                .put((byte) length)
+                .put((byte) type)
+                .put((byte) flags)
+                .putInt(streamId & 0x7fffffff);
+    }
+
+    /**
+     * @return header of a frame which payload is written separately, e.g. DATA
+     */
+    static ByteBuffer header(int length, int type, int flags, int streamId) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE);
+        writeHeader(frame, length, type, flags, streamId);
+        frame.flip();
+        return frame;
+    }
+
+    static ByteBuffer settings(Http2Settings settings) {
+        ByteBuffer payload = settings.encode();
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+        writeHeader(frame, payload.remaining(), SETTINGS, 0, 0);
+        frame.put(payload).flip();
+        return frame;
+    }
+
+    static ByteBuffer settingsAck() {
+        return header(0, SETTINGS, FLAG_ACK, 0);
+    }
+
+    static ByteBuffer ping(boolean ack, long opaqueData) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 8);
+        writeHeader(frame, 8, PING, ack ? FLAG_ACK : 0, 0);
+        frame.putLong(opaqueData).flip();
+        return frame;
+    }
+
+    static ByteBuffer goAway(int lastStreamId, int errorCode) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 8);
+        writeHeader(frame, 8, GOAWAY, 0, 0);
+        frame.putInt(lastStreamId & 0x7fffffff).putInt(errorCode).flip();
+        return frame;
+    }
+
+    static ByteBuffer rstStream(int streamId, int errorCode) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 4);
+        writeHeader(frame, 4, RST_STREAM, 0, streamId);
+        frame.putInt(errorCode).flip();
+        return frame;
+    }
+
+    static ByteBuffer windowUpdate(int streamId, int increment) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + 4);
+        writeHeader(frame, 4, WINDOW_UPDATE, 0, streamId);
+        frame.putInt(increment & 0x7fffffff).flip();
+        return frame;
+    }
+
+    /**
+     * Header block split into a HEADERS frame and as many CONTINUATION frames as needed, in one buffer so nothing
+     * get between them
+     */
+    static ByteBuffer headers(int streamId, byte[] block, int blockLength, boolean endStream, int maxFrameSize) {
+        int frames = Math.max(1, (blockLength + maxFrameSize - 1) / maxFrameSize);
+        ByteBuffer frame = ByteBuffer.allocate(frames * HEADER_SIZE + blockLength);
+        int offset = 0;
+        do {
+            int length = Math.min(maxFrameSize, blockLength - offset);
+            int flags = offset + length == blockLength ? FLAG_END_HEADERS : 0;
+            if (offset == 0) {
+                writeHeader(frame, length, HEADERS, endStream ? flags | FLAG_END_STREAM : flags, streamId);
+            } else {
+                writeHeader(frame, length, CONTINUATION, flags, streamId);
+            }
+            frame.put(block, offset, length);
+            offset += length;
+        } while (offset < blockLength);
+        frame.flip();
+        return frame;
+    }
+}
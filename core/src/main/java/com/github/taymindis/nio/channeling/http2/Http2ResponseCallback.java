@@ -0,0 +1,213 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import com.github.taymindis.nio.channeling.Then;
+import com.github.taymindis.nio.channeling.http.HttpChunkedDecoder;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.taymindis.nio.channeling.http2.Http2Frame.INTERNAL_ERROR;
+
+/**
+ * Response of one stream, the same handlers serve HTTP/1 and HTTP/2: {@link #write} and {@link #sendFile} become
+ * HEADERS and DATA, bytes given to {@link #streamWrite} are read as an HTTP/1 response, status line and headers are
+ * sent as HEADERS and a chunked body is de-chunked into DATA.
+ */
+final class Http2ResponseCallback implements ResponseCallback {
+    // Connection specific fields, not allowed in HTTP/2
+    private static final Set<String> CONNECTION_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding", "upgrade"));
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final Http2Connection connection;
+    private final Http2Stream stream;
+    private final boolean head;
+
+    // Status line and headers of streamWrite, until the blank line
+    private ByteArrayOutputStream streamHead = new ByteArrayOutputStream(256);
+    private boolean chunked, ended;
+    private final HttpChunkedDecoder chunkedDecoder = new HttpChunkedDecoder();
+
+    Http2ResponseCallback(Http2Connection connection, Http2Stream stream, HttpRequestMessage request) {
+        this.connection = connection;
+        this.stream = stream;
+        this.head = "HEAD".equals(request.getMethod());
+    }
+
+    @Override
+    public void write(HttpResponseMessage responseMessage, Charset charset, Then $then) {
+        if (charset == null) {
+            charset = StandardCharsets.UTF_8;
+        }
+        Object content = responseMessage.getContent();
+        byte[] body = content == null ? new byte[0] : content.toString().getBytes(charset);
+        List<String> fields = fields(responseMessage.getCode(), responseMessage.getHeaderMap(), body.length);
+        synchronized (this) {
+            streamHead = null;
+            ended = true;
+        }
+        if (head || body.length == 0) {
+            connection.sendHeaders(stream, fields, true, $then);
+        } else {
+            connection.sendHeaders(stream, fields, false, null);
+            connection.sendData(stream, ByteBuffer.wrap(body), true, $then);
+        }
+    }
+
+    @Override
+    public void sendFile(HttpResponseMessage responseMessage, FileChannel fileChannel, long offset, long length, Then $then) {
+        ByteBuffer region;
+        try {
+            region = fileChannel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> fields = fields(responseMessage.getCode(), responseMessage.getHeaderMap(), length);
+        synchronized (this) {
+            streamHead = null;
+            ended = true;
+        }
+        if (head || length == 0) {
+            connection.sendHeaders(stream, fields, true, $then);
+        } else {
+            connection.sendHeaders(stream, fields, false, null);
+            connection.sendData(stream, region, true, $then);
+        }
+    }
+
+    @Override
+    public synchronized void streamWrite(ByteBuffer byteBuffer, Then $then) {
+        if (ended) {
+            throw new IllegalStateException("Response already ended");
+        }
+        if (streamHead != null && !readHead(byteBuffer)) {
+            // Head not complete yet
+            connection.sendData(stream, EMPTY, false, $then);
+            return;
+        }
+        if (!head && byteBuffer.hasRemaining()) {
+            if (chunked) {
+                dechunk(byteBuffer);
+            } else {
+                connection.sendData(stream, byteBuffer.slice(), false, null);
+            }
+        }
+        // Invoked once everything before is written
+        connection.sendData(stream, EMPTY, false, $then);
+    }
+
+    /**
+     * @return true once the blank line reached and HEADERS queued, buffer is then positioned on the body
+     */
+    private boolean readHead(ByteBuffer byteBuffer) {
+        while (byteBuffer.hasRemaining()) {
+            int b = byteBuffer.get();
+            streamHead.write(b);
+            if (b == '\n' && isHeadComplete()) {
+                String[] lines = new String(streamHead.toByteArray(), StandardCharsets.ISO_8859_1).split("\r?\n");
+                streamHead = null;
+                String[] statusLine = lines[0].split(" ", 3);
+                if (statusLine.length < 2) {
+                    throw new IllegalArgumentException("Invalid status line " + lines[0]);
+                }
+                Map<String, String> headerMap = new LinkedHashMap<>();
+                for (int i = 1; i < lines.length; i++) {
+                    int colon = lines[i].indexOf(':');
+                    if (colon > 0) {
+                        String name = lines[i].substring(0, colon).trim();
+                        String value = lines[i].substring(colon + 1).trim();
+                        headerMap.put(name, value);
+                        if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+                            chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+                        }
+                    }
+                }
+                connection.sendHeaders(stream, fields(Integer.parseInt(statusLine[1].trim()), headerMap, -1), false, null);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isHeadComplete() {
+        byte[] bytes = streamHead.toByteArray();
+        int len = bytes.length;
+        return (len >= 2 && bytes[len - 2] == '\n') || (len >= 4 && bytes[len - 2] == '\r' && bytes[len - 3] == '\n');
+    }
+
+    /**
+     * Queue the chunk data of the buffer as DATA, chunk framing may be split across writes
+     */
+    private void dechunk(ByteBuffer byteBuffer) {
+        try {
+            chunkedDecoder.decode(byteBuffer, data -> connection.sendData(stream, data, false, null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean isKeepAlive() {
+        // Connection outlive every stream, handler must not close the socket
+        return true;
+    }
+
+    @Override
+    public void end() {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            if (streamHead != null) {
+                // No head ever written
+                connection.resetStream(stream, INTERNAL_ERROR);
+                return;
+            }
+        }
+        connection.sendData(stream, EMPTY, true, null);
+    }
+
+    /**
+     * @param contentLength added if absent, -1 to leave it out
+     * @return :status then lower case fields without the connection specific ones
+     */
+    private static List<String> fields(Integer code, Map<String, String> headerMap, long contentLength) {
+        List<String> fields = new ArrayList<>();
+        fields.add(":status");
+        fields.add(String.valueOf(code == null ? 200 : code));
+        boolean hasContentLength = false;
+        if (headerMap != null) {
+            for (Map.Entry<String, String> header : headerMap.entrySet()) {
+                String name = header.getKey().toLowerCase(Locale.ROOT);
+                if (CONNECTION_HEADERS.contains(name) || header.getValue() == null) {
+                    continue;
+                }
+                hasContentLength |= "content-length".equals(name);
+                fields.add(name);
+                fields.add(header.getValue());
+            }
+        }
+        if (!hasContentLength && contentLength >= 0) {
+            fields.add("content-length");
+            fields.add(String.valueOf(contentLength));
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import com.github.taymindis.nio.channeling.ChannelingByteWriter;
+import com.github.taymindis.nio.channeling.ChannelingSocket;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.RequestListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.github.taymindis.nio.channeling.http2.Http2Frame.*;
+
+/**
+ * Server side of an HTTP/2 connection, every stream is handed to the {@link RequestListener} as an
+ * {@link HttpRequestMessage} once its request, body included, is fully received. Responses go through
+ * {@link Http2ResponseCallback}, several streams may be answered at once and in any order.
+ */
+public final class Http2ServerConnection extends Http2Connection {
+    private static final Logger log = LoggerFactory.getLogger(Http2ServerConnection.class);
+    private static final byte[] SWITCHING_PROTOCOLS =
+            "HTTP/1.1 101 Switching Protocols\r\nConnection: Upgrade\r\nUpgrade: h2c\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+    // Initial body buffer when request tells its length
+    private static final int MAX_INITIAL_BODY_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_REQUEST_BODY_SIZE = 16 * 1024 * 1024;
+
+    private final Function<HttpRequestMessage, RequestListener> requestListeners;
+    private int maxRequestBodySize = DEFAULT_MAX_REQUEST_BODY_SIZE;
+
+    /**
+     * @param requestListeners pick the listener of a request, e.g. by host
+     */
+    public Http2ServerConnection(ChannelingSocket socket, Http2Settings settings,
+                                 Function<HttpRequestMessage, RequestListener> requestListeners) {
+        super(socket, settings, true);
+        this.requestListeners = requestListeners;
+    }
+
+    /**
+     * Take the socket over once "h2" negotiated by ALPN or the client preface seen on a plain connection
+     *
+     * @param received bytes read so far, starting with the client preface
+     */
+    public void start(ByteBuffer received) {
+        open(received);
+    }
+
+    /**
+     * Take the socket over for an h2c upgrade, answer 101 then serve the upgraded request as stream 1
+     *
+     * @param request       request which asked for the upgrade, fully read
+     * @param http2Settings value of its HTTP2-Settings header
+     * @param received      bytes read after the request, may be null
+     * @throws Http2Exception if HTTP2-Settings is malformed, nothing is sent then
+     */
+    public void upgrade(HttpRequestMessage request, String http2Settings, ByteBuffer received) throws Http2Exception {
+        try {
+            applyRemoteSettings(ByteBuffer.wrap(Base64.getUrlDecoder().decode(http2Settings.trim())));
+        } catch (IllegalArgumentException e) {
+            throw Http2Exception.protocol("Invalid HTTP2-Settings " + http2Settings);
+        }
+        Http2Stream stream = newStream(1);
+        stream.remoteEnded = true;
+        stream.attachment = request;
+        lastPeerStreamId = 1;
+        addStream(stream);
+        // 101 and SETTINGS must be queued ahead of any response
+        open(received, ByteBuffer.wrap(SWITCHING_PROTOCOLS));
+        dispatch(stream).run();
+    }
+
+    @Override
+    Http2Stream openStream(int streamId) throws Http2Exception {
+        if ((streamId & 1) == 0 || streamId <= lastPeerStreamId) {
+            throw Http2Exception.protocol("Unexpected stream " + streamId);
+        }
+        lastPeerStreamId = streamId;
+        if (getOpenStreams() >= getLocalSettings().getMaxConcurrentStreams()) {
+            throw new Http2Exception(REFUSED_STREAM, streamId, "Max concurrent streams reached");
+        }
+        return newStream(streamId);
+    }
+
+    @Override
+    Runnable onHeaders(Http2Stream stream, Map<String, String> headers, boolean endStream) throws Http2Exception {
+        if (stream.attachment != null) {
+            // Trailers, not given to the handler
+            if (!endStream) {
+                throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Trailers without END_STREAM");
+            }
+            return dispatch(stream);
+        }
+        String method = headers.remove(":method");
+        String path = headers.remove(":path");
+        String authority = headers.remove(":authority");
+        headers.remove(":scheme");
+        if (method == null || path == null) {
+            throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Missing :method or :path");
+        }
+        for (String name : headers.keySet()) {
+            if (name.startsWith(":")) {
+                throw new Http2Exception(PROTOCOL_ERROR, stream.id, "Unknown pseudo header " + name);
+            }
+        }
+        if (authority != null) {
+            headers.putIfAbsent("host", authority);
+        }
+        HttpRequestMessage request = new HttpRequestMessage(socket);
+        request.setRemoteAddress(socket.getRemoteAddress());
+        request.setMethod(method);
+        request.setPath(path);
+        request.setHttpVersion("HTTP/2.0");
+        request.setHeaderMap(headers);
+        stream.attachment = request;
+        return endStream ? dispatch(stream) : null;
+    }
+
+    @Override
+    Runnable onData(Http2Stream stream, ByteBuffer data, boolean endStream) throws Http2Exception {
+        if (stream.attachment == null) {
+            throw new Http2Exception(PROTOCOL_ERROR, stream.id, "DATA before HEADERS");
+        }
+        int received = stream.body == null ? 0 : stream.body.size();
+        if (data.remaining() > maxRequestBodySize - received) {
+            // Body is buffered until END_STREAM, reset the stream and drop what it kept
+            throw new Http2Exception(ENHANCE_YOUR_CALM, stream.id, "Request body over " + maxRequestBodySize + " bytes");
+        }
+        try {
+            if (stream.body == null) {
+                stream.body = new ChannelingByteWriter(initialBodySize((HttpRequestMessage) stream.attachment, data));
+            }
+            stream.body.write(data);
+        } catch (IOException e) {
+            throw new Http2Exception(INTERNAL_ERROR, stream.id, e.getMessage());
+        }
+        return endStream ? dispatch(stream) : null;
+    }
+
+    public int getMaxRequestBodySize() {
+        return maxRequestBodySize;
+    }
+
+    /**
+     * @param maxRequestBodySize bytes of DATA buffered per stream, a stream sending more is reset with ENHANCE_YOUR_CALM
+     */
+    public void setMaxRequestBodySize(int maxRequestBodySize) {
+        if (maxRequestBodySize < 0) {
+            throw new IllegalArgumentException("maxRequestBodySize can't be negative");
+        }
+        this.maxRequestBodySize = maxRequestBodySize;
+    }
+
+    private static int initialBodySize(HttpRequestMessage request, ByteBuffer data) {
+        String contentLength = request.getHeader("content-length");
+        if (contentLength != null) {
+            try {
+                return (int) Math.max(1, Math.min(Long.parseLong(contentLength.trim()), MAX_INITIAL_BODY_SIZE));
+            } catch (NumberFormatException e) {
+                // Sized by the first frame instead
+            }
+        }
+        return Math.max(1, data.remaining());
+    }
+
+    /**
+     * Request fully received, body is given as already read
+     */
+    private Runnable dispatch(Http2Stream stream) {
+        HttpRequestMessage request = (HttpRequestMessage) stream.attachment;
+        if (stream.body == null) {
+            stream.body = new ChannelingByteWriter();
+        }
+        request.setClientReadWriter(stream.body);
+        request.setBodyOffset(0);
+        request.setExpectedLen(stream.body.size());
+        request.setHasBody(true);
+        return () -> {
+            try {
+                requestListeners.apply(request).handleRequest(request, new Http2ResponseCallback(this, stream, request));
+            } catch (RuntimeException e) {
+                log.error("Error while handling HTTP/2 request ... ", e);
+                resetStream(stream, INTERNAL_ERROR);
+            }
+        };
+    }
+}
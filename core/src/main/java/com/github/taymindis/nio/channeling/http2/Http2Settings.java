@@ -0,0 +1,202 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * SETTINGS of one side of a HTTP/2 connection, starting from the protocol defaults. Only values which differ from
+ * the defaults are sent.
+ */
+public class Http2Settings {
+    public static final int HEADER_TABLE_SIZE = 0x1;
+    public static final int ENABLE_PUSH = 0x2;
+    public static final int MAX_CONCURRENT_STREAMS = 0x3;
+    public static final int INITIAL_WINDOW_SIZE = 0x4;
+    public static final int MAX_FRAME_SIZE = 0x5;
+    public static final int MAX_HEADER_LIST_SIZE = 0x6;
+
+    public static final int DEFAULT_HEADER_TABLE_SIZE = 4096;
+    public static final int DEFAULT_MAX_FRAME_SIZE = 16384;
+    public static final int MAX_MAX_FRAME_SIZE = 16777215;
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private int headerTableSize = DEFAULT_HEADER_TABLE_SIZE;
+    private boolean enablePush = true;
+    private int maxConcurrentStreams = UNLIMITED;
+    private int initialWindowSize = Http2Frame.DEFAULT_WINDOW_SIZE;
+    private int maxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+    private int maxHeaderListSize = UNLIMITED;
+
+    public Http2Settings() {
+    }
+
+    public Http2Settings(Http2Settings other) {
+        this.headerTableSize = other.headerTableSize;
+        this.enablePush = other.enablePush;
+        this.maxConcurrentStreams = other.maxConcurrentStreams;
+        this.initialWindowSize = other.initialWindowSize;
+        this.maxFrameSize = other.maxFrameSize;
+        this.maxHeaderListSize = other.maxHeaderListSize;
+    }
+
+    /**
+     * @return payload of the SETTINGS frame, 6 bytes per setting
+     */
+    ByteBuffer encode() {
+        ByteBuffer payload = ByteBuffer.allocate(6 * 6);
+        if (headerTableSize != DEFAULT_HEADER_TABLE_SIZE) {
+            payload.putShort((short) HEADER_TABLE_SIZE).putInt(headerTableSize);
+        }
+        if (!enablePush) {
+            payload.putShort((short) ENABLE_PUSH).putInt(0);
+        }
+        if (maxConcurrentStreams != UNLIMITED) {
+            payload.putShort((short) MAX_CONCURRENT_STREAMS).putInt(maxConcurrentStreams);
+        }
+        if (initialWindowSize != Http2Frame.DEFAULT_WINDOW_SIZE) {
+            payload.putShort((short) INITIAL_WINDOW_SIZE).putInt(initialWindowSize);
+        }
+        if (maxFrameSize != DEFAULT_MAX_FRAME_SIZE) {
+            payload.putShort((short) MAX_FRAME_SIZE).putInt(maxFrameSize);
+        }
+        if (maxHeaderListSize != UNLIMITED) {
+            payload.putShort((short) MAX_HEADER_LIST_SIZE).putInt(maxHeaderListSize);
+        }
+        payload.flip();
+        return payload;
+    }
+
+    /**
+     * Apply settings received from peer, unknown settings are ignored
+     *
+     * @param payload SETTINGS frame payload, consumed
+     * @throws Http2Exception if a value is out of range
+     */
+    void decode(ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() % 6 != 0) {
+            throw new Http2Exception(Http2Frame.FRAME_SIZE_ERROR, "SETTINGS length " + payload.remaining());
+        }
+        while (payload.hasRemaining()) {
+            int id = payload.getShort() & 0xffff;
+            long value = payload.getInt() & 0xffffffffL;
+            switch (id) {
+                case HEADER_TABLE_SIZE:
+                    headerTableSize = (int) Math.min(value, UNLIMITED);
+                    break;
+                case ENABLE_PUSH:
+                    if (value > 1) {
+                        throw Http2Exception.protocol("ENABLE_PUSH " + value);
+                    }
+                    enablePush = value == 1;
+                    break;
+                case MAX_CONCURRENT_STREAMS:
+                    maxConcurrentStreams = (int) Math.min(value, UNLIMITED);
+                    break;
+                case INITIAL_WINDOW_SIZE:
+                    if (value > Http2Frame.MAX_WINDOW_SIZE) {
+                        throw new Http2Exception(Http2Frame.FLOW_CONTROL_ERROR, "INITIAL_WINDOW_SIZE " + value);
+                    }
+                    initialWindowSize = (int) value;
+                    break;
+                case MAX_FRAME_SIZE:
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_MAX_FRAME_SIZE) {
+                        throw Http2Exception.protocol("MAX_FRAME_SIZE " + value);
+                    }
+                    maxFrameSize = (int) value;
+                    break;
+                case MAX_HEADER_LIST_SIZE:
+                    maxHeaderListSize = (int) Math.min(value, UNLIMITED);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    public int getHeaderTableSize() {
+        return headerTableSize;
+    }
+
+    public Http2Settings setHeaderTableSize(int headerTableSize) {
+        if (headerTableSize < 0) {
+            throw new IllegalArgumentException("headerTableSize can't be negative");
+        }
+        this.headerTableSize = headerTableSize;
+        return this;
+    }
+
+    public boolean isEnablePush() {
+        return enablePush;
+    }
+
+    public Http2Settings setEnablePush(boolean enablePush) {
+        this.enablePush = enablePush;
+        return this;
+    }
+
+    public int getMaxConcurrentStreams() {
+        return maxConcurrentStreams;
+    }
+
+    /**
+     * @param maxConcurrentStreams streams the peer may open at once, further streams are refused
+     */
+    public Http2Settings setMaxConcurrentStreams(int maxConcurrentStreams) {
+        if (maxConcurrentStreams < 0) {
+            throw new IllegalArgumentException("maxConcurrentStreams can't be negative");
+        }
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        return this;
+    }
+
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+    /**
+     * @param initialWindowSize bytes of DATA the peer may send on a stream before being given more window
+     */
+    public Http2Settings setInitialWindowSize(int initialWindowSize) {
+        if (initialWindowSize < 0) {
+            throw new IllegalArgumentException("initialWindowSize can't be negative");
+        }
+        this.initialWindowSize = initialWindowSize;
+        return this;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    public Http2Settings setMaxFrameSize(int maxFrameSize) {
+        if (maxFrameSize < DEFAULT_MAX_FRAME_SIZE || maxFrameSize > MAX_MAX_FRAME_SIZE) {
+            throw new IllegalArgumentException("maxFrameSize must be between " + DEFAULT_MAX_FRAME_SIZE + " and " + MAX_MAX_FRAME_SIZE);
+        }
+        this.maxFrameSize = maxFrameSize;
+        return this;
+    }
+
+    public int getMaxHeaderListSize() {
+        return maxHeaderListSize;
+    }
+
+    /**
+     * @param maxHeaderListSize decoded size of a header list, name and value length plus 32 per header
+     */
+    public Http2Settings setMaxHeaderListSize(int maxHeaderListSize) {
+        if (maxHeaderListSize <= 0) {
+            throw new IllegalArgumentException("maxHeaderListSize must be greater than 0");
+        }
+        this.maxHeaderListSize = maxHeaderListSize;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "Http2Settings{headerTableSize=" + headerTableSize +
+                ", enablePush=" + enablePush +
+                ", maxConcurrentStreams=" + maxConcurrentStreams +
+                ", initialWindowSize=" + initialWindowSize +
+                ", maxFrameSize=" + maxFrameSize +
+                ", maxHeaderListSize=" + maxHeaderListSize + '}';
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.taymindis.nio.channeling.http2;
+
+import com.github.taymindis.nio.channeling.ChannelingByteWriter;
+import com.github.taymindis.nio.channeling.Then;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * State of one stream, guarded by its {@link Http2Connection}
+ */
+final class Http2Stream {
+    final int id;
+    long sendWindow;
+    int receiveWindow;
+    // END_STREAM received, END_STREAM queued by us, END_STREAM written
+    boolean remoteEnded, localEnding, localEnded;
+    boolean reset;
+    // Out of sendable streams until WINDOW_UPDATE
+    boolean windowBlocked;
+    final ArrayDeque<Http2Data> pending = new ArrayDeque<>();
+
+    Map<String, String> headers;
+    // DATA received so far
+    ChannelingByteWriter body;
+    // Request of server stream, callback of client stream
+    Object attachment;
+
+    Http2Stream(int id, long sendWindow, int receiveWindow) {
+        this.id = id;
+        this.sendWindow = sendWindow;
+        this.receiveWindow = receiveWindow;
+    }
+
+    boolean isClosed() {
+        return reset || (remoteEnded && localEnded);
+    }
+
+    /**
+     * DATA waiting for flow control window, then is invoked once the last byte is written
+     */
+    static final class Http2Data {
+        final ByteBuffer buffer;
+        final boolean endStream;
+        final Then then;
+
+        Http2Data(ByteBuffer buffer, boolean endStream, Then then) {
+            this.buffer = buffer;
+            this.endStream = endStream;
+            this.then = then;
+        }
+    }
+}
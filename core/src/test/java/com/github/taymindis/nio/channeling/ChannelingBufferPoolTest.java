@@ -0,0 +1,79 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+public class ChannelingBufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        Assertions.assertEquals(512, ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(1)));
+        Assertions.assertEquals(1024, ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(1024)));
+        Assertions.assertEquals(4096, ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(4000)));
+        Assertions.assertEquals(8192, ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(4097)));
+        // SSL packet size must not double
+        Assertions.assertEquals(20480, ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(16709)));
+        Assertions.assertEquals(ChannelingBufferPool.MAX_BUFFER_SIZE,
+                ChannelingBufferPool.sizeOfClass(ChannelingBufferPool.sizeClassOf(ChannelingBufferPool.MAX_BUFFER_SIZE)));
+    }
+
+    @Test
+    public void testReuseReleasedBuffer() {
+        ChannelingBufferPool pool = new ChannelingBufferPool(4, 4, false);
+        ByteBuffer buffer = pool.acquire(1000);
+        Assertions.assertTrue(buffer.isDirect());
+        Assertions.assertEquals(1024, buffer.capacity());
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(600);
+        Assertions.assertSame(buffer, reused);
+        Assertions.assertEquals(0, reused.position());
+        Assertions.assertEquals(reused.capacity(), reused.limit());
+        Assertions.assertEquals(1, pool.getOutstanding());
+    }
+
+    @Test
+    public void testSlabCarvedOnce() {
+        ChannelingBufferPool pool = new ChannelingBufferPool(0, 1024, false);
+        for (int i = 0; i < 100; i++) {
+            pool.acquire(1024);
+        }
+        // 256k slab hold 256 buffers of 1k
+        Assertions.assertEquals(256 * 1024, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void testUnpooledAboveMaxSize() {
+        ChannelingBufferPool pool = new ChannelingBufferPool();
+        ByteBuffer big = pool.acquire(ChannelingBufferPool.MAX_BUFFER_SIZE + 1);
+        Assertions.assertEquals(ChannelingBufferPool.MAX_BUFFER_SIZE + 1, big.capacity());
+        Assertions.assertEquals(1, pool.getUnpooled());
+        pool.release(big);
+        Assertions.assertEquals(0, pool.getOutstanding());
+    }
+
+    @Test
+    public void testLeakDetection() {
+        ChannelingBufferPool pool = new ChannelingBufferPool(4, 4, true);
+        ByteBuffer a = pool.acquire(512);
+        ByteBuffer b = pool.acquire(512);
+        pool.release(a);
+        Assertions.assertEquals(1, pool.reportLeaks());
+
+        // Double release must not put the same buffer twice in pool
+        pool.release(a);
+        Assertions.assertNotSame(pool.acquire(512), pool.acquire(512));
+        pool.release(b);
+    }
+
+    @Test
+    public void testHeapIsNotPooled() {
+        ByteBuffer buffer = ChannelingBufferPool.heap().acquire(100);
+        Assertions.assertFalse(buffer.isDirect());
+        Assertions.assertEquals(100, buffer.capacity());
+        Assertions.assertEquals(-1, ChannelingBufferPool.heap().reportLeaks());
+    }
+}
@@ -130,6 +130,88 @@ public class ChannelingBytesStreamTest {
         Assertions.assertNull(result);
     }
 
+    @Test
+    public void testSearchAcrossSegments() throws Exception {
+        ChannelingBytesStream stream = new ChannelingBytesStream(2, 16);
+        String data = "aaab-abab-aaab-xaab-aaab";
+        for (String part : new String[]{"aaa", "b-abab-aa", "ab-xaab-aaab"}) {
+            stream.write(part.getBytes());
+        }
+        Assertions.assertEquals(data.length(), stream.size());
+        Assertions.assertEquals(2, stream.getTotalBuffers());
+
+        ChannelingBytesResult result = stream.searchBytesBefore("aab".getBytes(), true);
+        Assertions.assertEquals(data.substring(0, data.indexOf("aab") + 3), getData(result));
+
+        result = stream.reverseSearchBytesAfter("aab".getBytes(), false);
+        Assertions.assertEquals("", getData(result));
+
+        result = stream.reverseSearchBytesBefore("aab-".getBytes(), false);
+        Assertions.assertEquals(data.substring(0, data.lastIndexOf("aab-")), getData(result));
+
+        result = stream.searchBytesAfter("-x".getBytes(), true, result);
+        Assertions.assertEquals("-x", getData(result));
+        Assertions.assertEquals(data.substring(data.lastIndexOf("aab-")), getData(result.flipForward()));
+        Assertions.assertEquals(data.substring(0, data.indexOf("-x")), getData(result.flipBackward()));
+    }
+
+    @Test
+    public void testConsumeRecycleSegments() throws Exception {
+        ChannelingBytesStream stream = new ChannelingBytesStream(2, 16, 4);
+        StringBuilder written = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            String line = "line-" + i + "\r\n";
+            stream.write(line.getBytes());
+            written.append(line);
+        }
+        Assertions.assertEquals(5, stream.getTotalBuffers());
+
+        stream.consume(40);
+        Assertions.assertEquals(3, stream.getTotalBuffers());
+        Assertions.assertEquals(2, stream.getFreeSegments());
+        Assertions.assertEquals(written.substring(40), new String(stream.toByteArray()));
+
+        // Recycled segments are written again instead of allocating
+        stream.write(new byte[10]);
+        Assertions.assertEquals(1, stream.getFreeSegments());
+
+        ChannelingBytes bytes = new ChannelingBytes();
+        Assertions.assertTrue(stream.read(bytes));
+        Assertions.assertEquals(written.substring(40, 48), new String(bytes.getBuff(), bytes.getOffset(), bytes.getLength()));
+
+        stream.consume(stream.size());
+        Assertions.assertEquals(0, stream.size());
+        Assertions.assertEquals(0, stream.getTotalBuffers());
+        Assertions.assertEquals(4, stream.getFreeSegments());
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> stream.consume(1));
+    }
+
+    @Test
+    public void testResumableSearch() throws Exception {
+        ChannelingBytesStream stream = new ChannelingBytesStream(2, 16);
+        ChannelingBytesSearch search = stream.newSearch("\r\n\r\n".getBytes());
+
+        stream.write("HTTP/1.1 200 OK\r\nHost: a\r".getBytes());
+        Assertions.assertNull(search.searchBytesBefore(true));
+        stream.write("\n".getBytes());
+        Assertions.assertNull(search.searchBytesBefore(true));
+        stream.write("\r\nbody1GET / HTTP/1.1\r\n".getBytes());
+
+        ChannelingBytesResult result = search.searchBytesBefore(true);
+        Assertions.assertEquals("HTTP/1.1 200 OK\r\nHost: a\r\n\r\n", getData(result));
+        // Same match until consumed
+        Assertions.assertEquals(getData(result), getData(search.searchBytesBefore(true)));
+
+        stream.consumeTo(result);
+        stream.consume(5);
+        Assertions.assertFalse(search.isFound());
+        stream.write("\r\n".getBytes());
+
+        result = search.searchBytesBefore(false);
+        Assertions.assertEquals("GET / HTTP/1.1", getData(result));
+        Assertions.assertEquals("\r\n\r\n", getData(search.searchBytesAfter(true)));
+    }
+
     private void showData(ChannelingBytesResult result) {
         System.out.print("\"");
 
@@ -0,0 +1,139 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingCallbackOffloadTest {
+    private static Channeling channeling;
+    private static ServerSocket echoServer;
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        // Single worker, a blocked inline callback would hold every socket
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 15 * 1000);
+        channeling.enableCallbackOffload(ChannelingCallbackExecutor.pool(4));
+        echoServer = new ServerSocket(0);
+        Thread acceptor = new Thread(() -> {
+            while (!echoServer.isClosed()) {
+                try {
+                    Socket socket = echoServer.accept();
+                    new Thread(() -> echo(socket)).start();
+                } catch (IOException e) {
+                    // Closed
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @AfterAll
+    public static void afterAll() throws IOException {
+        echoServer.close();
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testBlockingCallbackDoesNotHoldWorker() throws Exception {
+        CountDownLatch otherSocketDone = new CountDownLatch(1);
+        CompletableFuture<Boolean> blocked = new CompletableFuture<>();
+        connect(channeling.wrap(null), socket -> {
+            try {
+                blocked.complete(otherSocketDone.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                blocked.completeExceptionally(e);
+            }
+            socket.close(sc -> {
+            });
+        }, blocked);
+
+        CompletableFuture<Integer> echoed = new CompletableFuture<>();
+        connect(channeling.wrap(null), socket -> roundTrip(socket, "ping", echoed), echoed);
+        Assertions.assertEquals(4, (int) echoed.get(5, TimeUnit.SECONDS));
+        otherSocketDone.countDown();
+
+        Assertions.assertTrue(blocked.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCallbacksInOrderOffLoop() throws Exception {
+        List<String> steps = new CopyOnWriteArrayList<>();
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        connect(channeling.wrap(null), socket -> {
+            steps.add("connected " + Thread.currentThread().getName());
+            socket.write(ByteBuffer.wrap("abc".getBytes()), written -> {
+                steps.add("written " + Thread.currentThread().getName());
+                written.read(read -> {
+                    steps.add("read " + Thread.currentThread().getName());
+                    int readBytes = read.getLastProcessedBytes();
+                    read.close(closed -> {
+                        steps.add("closed " + Thread.currentThread().getName());
+                        done.complete(readBytes);
+                    });
+                }, (sc, e) -> done.completeExceptionally(e));
+            }, (sc, e) -> done.completeExceptionally(e));
+        }, done);
+
+        Assertions.assertEquals(3, (int) done.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(4, steps.size());
+        String[] expected = {"connected", "written", "read", "closed"};
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertTrue(steps.get(i).startsWith(expected[i] + " channeling-callback-"), steps.get(i));
+        }
+    }
+
+    @Test
+    public void testSocketKeptInline() throws Exception {
+        CompletableFuture<String> thread = new CompletableFuture<>();
+        ChannelingSocket cs = channeling.wrap(null);
+        cs.setCallbackExecutor(ChannelingCallbackExecutor.inline());
+        connect(cs, socket -> {
+            thread.complete(Thread.currentThread().getName());
+            socket.close(sc -> {
+            });
+        }, thread);
+
+        Assertions.assertFalse(thread.get(5, TimeUnit.SECONDS).startsWith("channeling-callback-"));
+    }
+
+    private static void connect(ChannelingSocket cs, Then then, CompletableFuture<?> future) {
+        cs.withConnect(new InetSocketAddress("127.0.0.1", echoServer.getLocalPort()))
+                .when(Channeling.whenConnected)
+                .then(then, (sc, e) -> future.completeExceptionally(e));
+    }
+
+    private static void roundTrip(ChannelingSocket socket, String message, CompletableFuture<Integer> echoed) {
+        socket.write(ByteBuffer.wrap(message.getBytes()), written -> written.read(read -> {
+            int readBytes = read.getLastProcessedBytes();
+            read.close(closed -> echoed.complete(readBytes));
+        }, (sc, e) -> echoed.completeExceptionally(e)), (sc, e) -> echoed.completeExceptionally(e));
+    }
+
+    private static void echo(Socket socket) {
+        try (Socket s = socket; InputStream in = s.getInputStream(); OutputStream out = s.getOutputStream()) {
+            byte[] buff = new byte[1024];
+            int read;
+            while ((read = in.read(buff)) != -1) {
+                out.write(buff, 0, read);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client gone
+        }
+    }
+}
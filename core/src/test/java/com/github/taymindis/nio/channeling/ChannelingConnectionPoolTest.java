@@ -0,0 +1,185 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequest;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ChannelingConnectionPoolTest {
+    private static Channeling channeling;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testConnectionReused() throws Exception {
+        try (Backend backend = new Backend("keep-alive", false)) {
+            ChannelingConnectionPool pool = new ChannelingConnectionPool(channeling);
+            for (int i = 0; i < 3; i++) {
+                Assertions.assertEquals(200, send(pool, backend.port, "/" + i).getCode());
+            }
+            Assertions.assertEquals(1, backend.accepted.get());
+            Assertions.assertEquals(1, pool.getIdleCount());
+            Assertions.assertEquals(0, pool.getLeasedCount());
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testConnectionCloseNotReused() throws Exception {
+        try (Backend backend = new Backend("close", false)) {
+            ChannelingConnectionPool pool = new ChannelingConnectionPool(channeling);
+            send(pool, backend.port, "/a");
+            send(pool, backend.port, "/b");
+            Assertions.assertEquals(2, backend.accepted.get());
+            Assertions.assertEquals(0, pool.getIdleCount());
+        }
+    }
+
+    @Test
+    public void testLeaseWaitForRelease() throws Exception {
+        try (Backend backend = new Backend("keep-alive", false)) {
+            ChannelingConnectionPool pool = new ChannelingConnectionPool(channeling, 1, 2000);
+            CompletableFuture<HttpResponse> first = sendAsync(pool, backend.port, "/a");
+            CompletableFuture<HttpResponse> second = sendAsync(pool, backend.port, "/b");
+            Assertions.assertEquals(200, first.get(5, TimeUnit.SECONDS).getCode());
+            Assertions.assertEquals(200, second.get(5, TimeUnit.SECONDS).getCode());
+            Assertions.assertEquals(1, backend.accepted.get());
+        }
+    }
+
+    @Test
+    public void testStaleConnectionRetried() throws Exception {
+        // Backend close every connection silently once answered
+        try (Backend backend = new Backend("keep-alive", true)) {
+            ChannelingConnectionPool pool = new ChannelingConnectionPool(channeling);
+            send(pool, backend.port, "/a");
+            Thread.sleep(200);
+            Assertions.assertEquals(200, send(pool, backend.port, "/b").getCode());
+            Assertions.assertEquals(2, backend.accepted.get());
+        }
+    }
+
+    @Test
+    public void testIdleEvicted() throws Exception {
+        try (Backend backend = new Backend("keep-alive", false)) {
+            ChannelingConnectionPool pool = new ChannelingConnectionPool(channeling, 4, 100);
+            send(pool, backend.port, "/a");
+            Assertions.assertEquals(1, pool.getIdleCount());
+            Thread.sleep(200);
+            pool.evictIdle();
+            Assertions.assertEquals(0, pool.getIdleCount());
+            send(pool, backend.port, "/b");
+            Assertions.assertEquals(2, backend.accepted.get());
+        }
+    }
+
+    @Test
+    public void testIdleTimeoutShorterThanChanneling() {
+        // Channeling idle timeout is its read write timeout of 5 seconds
+        Assertions.assertEquals(2500, new ChannelingConnectionPool(channeling).getIdleTimeoutInMs());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new ChannelingConnectionPool(channeling, 4, 5000));
+    }
+
+    private static HttpResponse send(ChannelingConnectionPool pool, int port, String path) throws Exception {
+        HttpResponse response = sendAsync(pool, port, path).get(5, TimeUnit.SECONDS);
+        // Socket is given back right after the callback returned
+        for (int i = 0; i < 100 && pool.getLeasedCount() > 0; i++) {
+            Thread.sleep(10);
+        }
+        return response;
+    }
+
+    private static CompletableFuture<HttpResponse> sendAsync(ChannelingConnectionPool pool, int port, String path) {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        String message = "GET " + path + " HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n";
+        pool.lease("127.0.0.1", port, null, socket ->
+                new HttpSingleRequest(pool, socket, "127.0.0.1", port, message, 1024).execute(new HttpSingleRequestCallback() {
+                    @Override
+                    public void accept(HttpResponse response, Object attachment) {
+                        future.complete(response);
+                    }
+
+                    @Override
+                    public void error(Exception e, ChannelingSocket socket) {
+                        future.completeExceptionally(e);
+                    }
+                }), (socket, e) -> future.completeExceptionally(e));
+        return future;
+    }
+
+    /**
+     * Blocking backend answering every request with a small body
+     */
+    private static class Backend implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger accepted = new AtomicInteger();
+        private final int port;
+
+        Backend(String connection, boolean closeAfterResponse) throws IOException {
+            serverSocket = new ServerSocket(0);
+            port = serverSocket.getLocalPort();
+            Thread acceptor = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+                        new Thread(() -> serve(socket, connection, closeAfterResponse)).start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private void serve(Socket socket, String connection, boolean closeAfterResponse) {
+            try (Socket s = socket) {
+                InputStream in = s.getInputStream();
+                OutputStream out = s.getOutputStream();
+                int state = 0, b;
+                while ((b = in.read()) != -1) {
+                    // \r\n\r\n end of request head
+                    state = (b == '\r' && state % 2 == 0) || (b == '\n' && state % 2 == 1) ? state + 1 : 0;
+                    if (state == 4) {
+                        state = 0;
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: " + connection + "\r\n\r\nok")
+                                .getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                        if (closeAfterResponse || "close".equals(connection)) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Client gone
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
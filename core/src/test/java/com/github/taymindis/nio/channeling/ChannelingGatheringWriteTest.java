@@ -0,0 +1,88 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ChannelingGatheringWriteTest {
+    private static Channeling channeling;
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 15 * 1000);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testGatheringWriteInOrder() throws Exception {
+        byte[] header = "HEADER\r\n".getBytes();
+        // Big enough body to be written partially across several turns
+        byte[] body = new byte[4 * 1024 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        byte[] trailer = "\r\nTRAILER".getBytes();
+
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> readAll(serverSocket));
+
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicLong written = new AtomicLong();
+            ByteBuffer[] buffers = {ByteBuffer.wrap(header), ByteBuffer.wrap(body), ByteBuffer.wrap(trailer)};
+            ChannelingSocket cs = channeling.wrap(null);
+            cs.withConnect(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()))
+                    .when(Channeling.whenConnected)
+                    .then(socket -> writeAll(socket, buffers, written, done), (sc, e) -> done.countDown());
+
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(header.length + body.length + trailer.length, written.get());
+
+            byte[] bytes = received.get(10, TimeUnit.SECONDS);
+            Assertions.assertEquals(header.length + body.length + trailer.length, bytes.length);
+            ByteBuffer expected = ByteBuffer.allocate(bytes.length).put(header).put(body).put(trailer);
+            Assertions.assertArrayEquals(expected.array(), bytes);
+        }
+    }
+
+    private static void writeAll(ChannelingSocket socket, ByteBuffer[] buffers, AtomicLong written, CountDownLatch done) {
+        socket.write(buffers, sc -> {
+            written.addAndGet(sc.getLastProcessedBytes());
+            if (sc.getCurrWritingBuffer().hasRemaining()) {
+                writeAll(sc, sc.getCurrWritingBuffers(), written, done);
+            } else {
+                sc.close(s -> done.countDown());
+            }
+        }, (sc, e) -> done.countDown());
+    }
+
+    private static byte[] readAll(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept(); InputStream in = socket.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buff = new byte[8192];
+            int read;
+            while ((read = in.read(buff)) != -1) {
+                out.write(buff, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestBuilder;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import com.github.taymindis.nio.channeling.http.HttpStreamRequestCallback;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import com.github.taymindis.nio.channeling.http2.Http2ClientConnection;
+import com.github.taymindis.nio.channeling.http2.Http2Settings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingHttp2ClientTest {
+    private static final int MAX_CONCURRENT_STREAMS = 4;
+
+    private static Channeling channeling;
+    private static ChannelingServer sslServer, plainServer;
+    private static int sslPort, plainPort;
+    private static final Set<ChannelingSocket> serverSockets = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        channeling.enableSSL(1);
+        sslPort = freePort();
+        plainPort = freePort();
+        sslServer = new ChannelingServer(channeling, TestSupport.serverContext(), "127.0.0.1", sslPort);
+        sslServer.setHttp2(true);
+        plainServer = new ChannelingServer(channeling, "127.0.0.1", plainPort);
+        plainServer.setHttp2(true);
+        plainServer.setHttp2Settings(new Http2Settings().setMaxConcurrentStreams(MAX_CONCURRENT_STREAMS));
+        new Thread(() -> sslServer.listen(ChannelingHttp2ClientTest::handler)).start();
+        new Thread(() -> plainServer.listen(ChannelingHttp2ClientTest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        sslServer.stop();
+        plainServer.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        serverSockets.add(request.getClientSocket());
+        if ("/stream".equals(request.getPath())) {
+            callback.streamWrite(ByteBuffer.wrap("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n6\r\n world\r\n0\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.end();
+            return;
+        }
+        request.readBody(body -> {
+            HttpResponseMessage response = new HttpResponseMessage();
+            response.setCode(200);
+            response.setStatusText("OK");
+            response.addHeader("X-Path", request.getPath());
+            response.setContent(request.getMethod() + " " + request.getPath() + " " + request.getHeader("x-trace") + " "
+                    + new String(body.getBuff(), body.getOffset(), body.getLength(), StandardCharsets.UTF_8));
+            callback.write(response, null, sc -> {
+            });
+        });
+    }
+
+    @Test
+    public void testPriorKnowledgeMultiplexing() throws Exception {
+        serverSockets.clear();
+        Http2ClientConnection connection = new Http2ClientConnection(channeling.wrap(null), "127.0.0.1", plainPort).connect();
+        List<CompletableFuture<HttpResponse>> responses = new ArrayList<>();
+        // Over the max concurrent streams of the server, the others wait for a stream to end
+        for (int i = 0; i < 30; i++) {
+            HttpRequestBuilder requestBuilder = new HttpRequestBuilder();
+            requestBuilder.setMethod("GET");
+            requestBuilder.setPath("/r" + i);
+            requestBuilder.addHeader("Host", "127.0.0.1:" + plainPort);
+            requestBuilder.addHeader("Connection", "keep-alive");
+            requestBuilder.addHeader("X-Trace", "t" + i);
+            responses.add(execute(connection, requestBuilder));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse response = responses.get(i).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(200, response.getCode());
+            Assertions.assertEquals("/r" + i, response.getHeader("x-path"));
+            Assertions.assertEquals("GET /r" + i + " t" + i + " ", response.getBodyContent());
+        }
+        Assertions.assertEquals(1, serverSockets.size());
+        Assertions.assertEquals(0, connection.getOpenStreams());
+    }
+
+    @Test
+    public void testAlpnPost() throws Exception {
+        Http2ClientConnection connection = new Http2ClientConnection(
+                channeling.wrapSSL(TestSupport.clientContext(), "127.0.0.1", sslPort, null, "h2", "http/1.1"), "127.0.0.1", sslPort).connect();
+        HttpRequestBuilder requestBuilder = new HttpRequestBuilder();
+        requestBuilder.setMethod("POST");
+        requestBuilder.setPath("/echo");
+        requestBuilder.setBody("ping pong");
+        HttpResponse response = execute(connection, requestBuilder).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("h2", connection.getSocket().getApplicationProtocol());
+        Assertions.assertEquals("POST /echo null ping pong", response.getBodyContent());
+    }
+
+    @Test
+    public void testStreamCallbackRechunked() throws Exception {
+        Http2ClientConnection connection = new Http2ClientConnection(
+                channeling.wrapSSL(TestSupport.clientContext(), "127.0.0.1", sslPort, null, "h2"), "127.0.0.1", sslPort).connect();
+        HttpRequestBuilder requestBuilder = new HttpRequestBuilder();
+        requestBuilder.setMethod("GET");
+        requestBuilder.setPath("/stream");
+        CompletableFuture<String> received = new CompletableFuture<>();
+        ByteArrayOutputStream head = new ByteArrayOutputStream(), body = new ByteArrayOutputStream();
+        connection.request(requestBuilder).execute(new HttpStreamRequestCallback() {
+            @Override
+            public void headerAccept(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                head.write(chunked, offset, length);
+            }
+
+            @Override
+            public void accept(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                body.write(chunked, offset, length);
+            }
+
+            @Override
+            public void last(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                body.write(chunked, offset, length);
+                received.complete(head.toString() + body.toString());
+            }
+
+            @Override
+            public void error(Exception e, ChannelingSocket socket) {
+                received.completeExceptionally(e);
+            }
+        });
+        String response = received.get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(response.startsWith("HTTP/1.1 200 \r\n"), response);
+        Assertions.assertTrue(response.contains("\r\ntransfer-encoding: chunked\r\n\r\n"), response);
+        String dechunked = response.substring(response.indexOf("\r\n\r\n") + 4).replaceAll("(?m)^[0-9a-f]+\r\n|\r\n", "");
+        Assertions.assertEquals("hello world", dechunked);
+        Assertions.assertTrue(response.endsWith("0\r\n\r\n"), response);
+    }
+
+    private static CompletableFuture<HttpResponse> execute(Http2ClientConnection connection, HttpRequestBuilder requestBuilder) {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        connection.request(requestBuilder).execute(new HttpSingleRequestCallback() {
+            @Override
+            public void accept(HttpResponse response, Object attachment) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(Exception e, ChannelingSocket socket) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
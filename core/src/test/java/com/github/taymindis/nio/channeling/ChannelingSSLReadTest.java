@@ -0,0 +1,173 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingSSLReadTest {
+    private static Channeling channeling;
+    private static SSLContext serverContext, clientContext;
+    private static byte[] content;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 5 * 1000);
+        channeling.enableSSL(1);
+        serverContext = TestSupport.serverContext();
+        clientContext = TestSupport.clientContext();
+        content = new byte[1024 * 1024 + 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testSmallBufferReadUntilEnd() throws Exception {
+        try (SSLServerSocket serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0)) {
+            CompletableFuture.runAsync(() -> serve(serverSocket, true));
+
+            SocketChannel socketChannel = SocketChannel.open(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()));
+            socketChannel.configureBlocking(false);
+            SSLEngine engine = clientContext.createSSLEngine("127.0.0.1", serverSocket.getLocalPort());
+            engine.setUseClientMode(true);
+            SSLSocketChannel sslSocketChannel = new SSLSocketChannel(socketChannel, engine, ChannelingSSLTaskExecutor.inline());
+
+            // Far smaller than a record, plaintext is staged and handed out across reads
+            ByteBuffer buffer = ByteBuffer.allocate(100);
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            long deadline = System.currentTimeMillis() + 10 * 1000;
+            int read;
+            while ((read = sslSocketChannel.read(buffer)) != -1) {
+                Assertions.assertTrue(System.currentTimeMillis() < deadline, "read timeout");
+                if (read == 0) {
+                    Thread.sleep(1);
+                }
+                buffer.flip();
+                received.write(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+            sslSocketChannel.implCloseSelectableChannel();
+            Assertions.assertArrayEquals(content, received.toByteArray());
+        }
+    }
+
+    @Test
+    public void testReadWholeResponseWithoutPeerClose() throws Exception {
+        try (SSLServerSocket serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0)) {
+            CompletableFuture.runAsync(() -> serve(serverSocket, false));
+
+            CompletableFuture<byte[]> result = new CompletableFuture<>();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            ChannelingSocket cs = channeling.wrapSSL(clientContext, "127.0.0.1", serverSocket.getLocalPort(), null);
+            ByteBuffer buffer = ByteBuffer.allocate(cs.getSSLMinimumInputBufferSize());
+            cs.withConnect("127.0.0.1", serverSocket.getLocalPort())
+                    .when(Channeling.whenConnected)
+                    .then(socket -> socket.withWrite(ByteBuffer.wrap(new byte[]{'g', 'o'}))
+                            .when(Channeling.whenNoMoreToWrite)
+                            .then(sc -> readUntilAll(sc, buffer, received, result), (sc, e) -> result.completeExceptionally(e)),
+                            (sc, e) -> result.completeExceptionally(e));
+
+            // Last records may sit in the engine buffers while the socket has nothing more to read
+            Assertions.assertArrayEquals(content, result.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testLargeWriteBatched() throws Exception {
+        for (int batchSize : new int[]{0, 64 * 1024}) {
+            channeling.setSSLRecordBatchSize(batchSize);
+            try (SSLServerSocket serverSocket = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0)) {
+                CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> readAll(serverSocket));
+
+                CompletableFuture<Integer> written = new CompletableFuture<>();
+                ChannelingSocket cs = channeling.wrapSSL(clientContext, "127.0.0.1", serverSocket.getLocalPort(), null);
+                cs.withConnect("127.0.0.1", serverSocket.getLocalPort())
+                        .when(Channeling.whenConnected)
+                        .then(socket -> socket.withWrite(ByteBuffer.wrap(content))
+                                .when(Channeling.whenNoMoreToWrite)
+                                .then(sc -> sc.close(s -> written.complete(content.length)),
+                                        (sc, e) -> written.completeExceptionally(e)),
+                                (sc, e) -> written.completeExceptionally(e));
+
+                Assertions.assertEquals(content.length, (int) written.get(10, TimeUnit.SECONDS), "batch " + batchSize);
+                Assertions.assertArrayEquals(content, received.get(10, TimeUnit.SECONDS), "batch " + batchSize);
+            } finally {
+                channeling.setSSLRecordBatchSize(64 * 1024);
+            }
+        }
+    }
+
+    private static byte[] readAll(SSLServerSocket serverSocket) {
+        try (SSLSocket socket = (SSLSocket) serverSocket.accept(); InputStream in = socket.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buff = new byte[8192];
+            int read;
+            while (out.size() < content.length && (read = in.read(buff)) != -1) {
+                out.write(buff, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void readUntilAll(ChannelingSocket socket, ByteBuffer buffer, ByteArrayOutputStream received,
+                                     CompletableFuture<byte[]> result) {
+        socket.read(buffer, sc -> {
+            if (sc.getLastProcessedBytes() < 0) {
+                result.completeExceptionally(new IOException("Closed at " + received.size()));
+                return;
+            }
+            buffer.flip();
+            received.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+            if (received.size() >= content.length) {
+                result.complete(received.toByteArray());
+                sc.close(s -> {
+                });
+            } else {
+                readUntilAll(sc, buffer, received, result);
+            }
+        }, (sc, e) -> result.completeExceptionally(e));
+    }
+
+    private static void serve(SSLServerSocket serverSocket, boolean closeAfterWrite) {
+        try (SSLSocket socket = (SSLSocket) serverSocket.accept()) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            if (!closeAfterWrite) {
+                // Wait for the client to ask
+                in.read();
+            }
+            out.write(content);
+            out.flush();
+            if (!closeAfterWrite) {
+                // Keep the connection open until the client close it
+                while (in.read() != -1) {
+                }
+            }
+        } catch (IOException e) {
+            // Client gone
+        }
+    }
+}
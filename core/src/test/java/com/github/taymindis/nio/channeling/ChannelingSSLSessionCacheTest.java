@@ -0,0 +1,105 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequest;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingSSLSessionCacheTest {
+    private static Channeling channeling;
+    private static ChannelingServer server;
+    private static int port;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        channeling.enableSSL(2);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new ChannelingServer(channeling, TestSupport.serverContext(), "127.0.0.1", port);
+        new Thread(() -> server.listen(ChannelingSSLSessionCacheTest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        server.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        HttpResponseMessage response = new HttpResponseMessage();
+        response.setCode(200);
+        response.setStatusText("OK");
+        response.addHeader("Content-Length", "2");
+        response.setContent("ok");
+        callback.write(response, null, sc -> sc.close(s -> {
+        }));
+    }
+
+    @Test
+    public void testSessionResumed() throws Exception {
+        for (String protocol : new String[]{"TLSv1.2", "TLSv1.3"}) {
+            SSLContext clientContext = TestSupport.clientContext(protocol);
+            ChannelingSSLSessionCache sessionCache = channeling.enableSSLSessionCache(clientContext, 16, 60 * 1000);
+            for (int i = 0; i < 3; i++) {
+                send(clientContext);
+            }
+            Assertions.assertEquals(1, sessionCache.getFullHandshakes(), protocol);
+            Assertions.assertEquals(2, sessionCache.getAbbreviatedHandshakes(), protocol);
+            Assertions.assertSame(sessionCache, channeling.getSSLSessionCache(clientContext));
+        }
+    }
+
+    @Test
+    public void testCacheBounds() throws Exception {
+        SSLContext clientContext = TestSupport.clientContext("TLSv1.2");
+        ChannelingSSLSessionCache sessionCache = channeling.enableSSLSessionCache(clientContext, 8, 1500);
+        Assertions.assertEquals(8, sessionCache.getMaxSessions());
+        Assertions.assertEquals(2000, sessionCache.getSessionTimeoutInMs());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> channeling.enableSSLSessionCache(clientContext, -1, 0));
+    }
+
+    @Test
+    public void testOnlyEnabledContextKept() throws Exception {
+        SSLContext clientContext = TestSupport.clientContext("TLSv1.2");
+        // Not enabled, a context per request must not be held by the channeling
+        Assertions.assertNotSame(channeling.getSSLSessionCache(clientContext), channeling.getSSLSessionCache(clientContext));
+
+        ChannelingSSLSessionCache sessionCache = channeling.enableSSLSessionCache(clientContext, 8, 1500);
+        Assertions.assertSame(sessionCache, channeling.getSSLSessionCache(clientContext));
+        Assertions.assertSame(sessionCache, channeling.disableSSLSessionCache(clientContext));
+        Assertions.assertNotSame(sessionCache, channeling.getSSLSessionCache(clientContext));
+        Assertions.assertNull(channeling.disableSSLSessionCache(clientContext));
+    }
+
+    private static void send(SSLContext clientContext) throws Exception {
+        CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        ChannelingSocket socket = channeling.wrapSSL(clientContext, "127.0.0.1", port, null);
+        new HttpSingleRequest(socket, "127.0.0.1", port, "GET / HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n",
+                socket.getSSLMinimumInputBufferSize()).execute(new HttpSingleRequestCallback() {
+            @Override
+            public void accept(HttpResponse response, Object attachment) {
+                future.complete(response);
+            }
+
+            @Override
+            public void error(Exception e, ChannelingSocket socket) {
+                future.completeExceptionally(e);
+            }
+        });
+        Assertions.assertEquals(200, future.get(5, TimeUnit.SECONDS).getCode());
+    }
+}
@@ -0,0 +1,75 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingSSLTaskExecutorTest {
+
+    @Test
+    public void testInlineRunOnCaller() {
+        ChannelingSSLTaskExecutor executor = ChannelingSSLTaskExecutor.inline();
+        Thread[] ranOn = new Thread[1];
+        executor.execute(() -> ranOn[0] = Thread.currentThread());
+        Assertions.assertSame(Thread.currentThread(), ranOn[0]);
+        Assertions.assertEquals(1, executor.getCompletedTasks());
+        Assertions.assertEquals(0, executor.getQueueDepth());
+    }
+
+    @Test
+    public void testPoolFullRunOnCaller() throws Exception {
+        ChannelingSSLTaskExecutor executor = ChannelingSSLTaskExecutor.pool(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+        Assertions.assertEquals(1, executor.getQueueDepth());
+
+        Thread[] ranOn = new Thread[1];
+        executor.execute(() -> ranOn[0] = Thread.currentThread());
+        Assertions.assertSame(Thread.currentThread(), ranOn[0]);
+        Assertions.assertEquals(1, executor.getCallerRunTasks());
+
+        release.countDown();
+        for (int i = 0; i < 100 && executor.getCompletedTasks() < 3; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(3, executor.getCompletedTasks());
+        Assertions.assertEquals(0, executor.getQueueDepth());
+        Assertions.assertTrue(executor.getMaxQueueLatencyInNanos() > 0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testExecutorOwnedPerChanneling() throws Exception {
+        Channeling first = Channeling.startNewChanneling(1, 1000, 1000);
+        Channeling second = Channeling.startNewChanneling(1, 1000, 1000);
+        first.enableSSL(2);
+        second.enableSSL(ChannelingSSLTaskExecutor.workStealing(2));
+        Assertions.assertNotSame(first.getSSLTaskExecutor(), second.getSSLTaskExecutor());
+
+        first.shutdownNow();
+        Assertions.assertTrue(first.getSSLTaskExecutor().isShutdown());
+        Assertions.assertFalse(second.getSSLTaskExecutor().isShutdown());
+
+        CountDownLatch ran = new CountDownLatch(1);
+        second.getSSLTaskExecutor().execute(ran::countDown);
+        Assertions.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        second.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
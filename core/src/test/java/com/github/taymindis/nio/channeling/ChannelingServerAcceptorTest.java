@@ -0,0 +1,137 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ChannelingServerAcceptorTest {
+    private Channeling channeling;
+    private ChannelingServer server;
+    private int port;
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 15 * 1000);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new ChannelingServer(channeling, "127.0.0.1", port);
+        server.setMultiAcceptor(true);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        server.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        HttpResponseMessage response = new HttpResponseMessage();
+        response.setCode(200);
+        response.setStatusText("OK");
+        // Worker which accepted the socket serve it
+        String worker = Thread.currentThread().getName();
+        response.addHeader("Content-Length", String.valueOf(worker.length()));
+        response.setContent(worker);
+        callback.write(response, null, sc -> sc.close(s -> {
+        }));
+    }
+
+    private void listen() throws InterruptedException {
+        new Thread(() -> server.listen(ChannelingServerAcceptorTest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @Test
+    public void testReusePortSpreadOverWorkers() throws Exception {
+        server.setReusePort(true);
+        listen();
+
+        Set<String> workers = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            String response = get();
+            Assertions.assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+            workers.add(response.substring(response.indexOf("\r\n\r\n") + 4));
+        }
+        // Kernel hash the connections over both sockets of the group
+        Assertions.assertEquals(2, workers.size(), workers.toString());
+
+        // Port was never released, a socket without SO_REUSEPORT can't take it
+        try (ServerSocket other = new ServerSocket()) {
+            Assertions.assertThrows(BindException.class, () -> other.bind(new InetSocketAddress("127.0.0.1", port)));
+        }
+    }
+
+    @Test
+    public void testSharedSocketAcceptors() throws Exception {
+        listen();
+        for (int i = 0; i < 20; i++) {
+            String response = get();
+            Assertions.assertTrue(response.startsWith("HTTP/1.1 200 OK"), response);
+        }
+        Assertions.assertFalse(server.isReusePort());
+    }
+
+    @Test
+    public void testReusePortSetOnListeningSocket() throws Exception {
+        server.setReusePort(true);
+        try (ServerSocketChannel joined = ServerSocketChannel.open()) {
+            if (!joined.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                return;
+            }
+            joined.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            // Would fail if SO_REUSEPORT was not set on the socket bound by the constructor
+            joined.bind(new InetSocketAddress("127.0.0.1", port));
+        }
+    }
+
+    @Test
+    public void testStopClosesListeners() throws Exception {
+        server.setReusePort(true);
+        listen();
+        Assertions.assertTrue(get().startsWith("HTTP/1.1 200 OK"));
+
+        server.stop();
+        // Socket is released once the worker selector drop its key
+        Thread.sleep(300);
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertThrows(ConnectException.class, () -> new Socket("127.0.0.1", port).close());
+        }
+    }
+
+    private String get() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET / HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream received = new ByteArrayOutputStream();
+            byte[] buff = new byte[1024];
+            int read;
+            while ((read = in.read(buff)) != -1) {
+                received.write(buff, 0, read);
+            }
+            return received.toString(StandardCharsets.UTF_8.name());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.ContentEncodingType;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import com.github.taymindis.nio.channeling.http.ResponseCompression;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ChannelingServerCompressionTest {
+    private static final String JSON = json(500);
+
+    private static Channeling channeling;
+    private static ChannelingServer server;
+    private static ResponseCompression compression;
+    private static int port;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new ChannelingServer(channeling, "127.0.0.1", port);
+        server.setKeepAlive(true);
+        server.setHttp2(true);
+        compression = new ResponseCompression().setCacheSize(16);
+        server.setResponseCompression(compression);
+        new Thread(() -> server.listen(ChannelingServerCompressionTest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        server.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        if ("/stream".equals(request.getPath())) {
+            byte[] body = JSON.getBytes(StandardCharsets.UTF_8);
+            int half = body.length / 2;
+            callback.streamWrite(ByteBuffer.wrap(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\n" +
+                    "Transfer-Encoding: chunked\r\n\r\n" + Integer.toHexString(half) + "\r\n").getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.streamWrite(new ByteBuffer[]{ByteBuffer.wrap(body, 0, half),
+                    ByteBuffer.wrap(("\r\n" + Integer.toHexString(body.length - half) + "\r\n").getBytes(StandardCharsets.US_ASCII)),
+                    ByteBuffer.wrap(body, half, body.length - half),
+                    ByteBuffer.wrap("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII))}, sc -> {
+            });
+            callback.end();
+            return;
+        }
+        HttpResponseMessage response = new HttpResponseMessage();
+        response.setCode(200);
+        response.setStatusText("OK");
+        if ("/image".equals(request.getPath())) {
+            response.addHeader("Content-Type", "image/png");
+        } else {
+            response.addHeader("Content-Type", "application/json; charset=utf-8");
+        }
+        response.setContent("/small".equals(request.getPath()) ? "{}" : JSON);
+        callback.write(response, StandardCharsets.UTF_8, sc -> {
+        });
+    }
+
+    @Test
+    public void testNegotiate() {
+        Assertions.assertEquals(ContentEncodingType.GZIP, ResponseCompression.negotiate("gzip, deflate, br"));
+        Assertions.assertEquals(ContentEncodingType.DEFLATE, ResponseCompression.negotiate("gzip;q=0.5, deflate"));
+        Assertions.assertEquals(ContentEncodingType.DEFLATE, ResponseCompression.negotiate("gzip;q=0, *"));
+        Assertions.assertNull(ResponseCompression.negotiate("identity"));
+        Assertions.assertNull(ResponseCompression.negotiate("*;q=0"));
+        Assertions.assertNull(ResponseCompression.negotiate(null));
+    }
+
+    @Test
+    public void testWriteGzipCached() throws Exception {
+        HttpClient client = client(HttpClient.Version.HTTP_1_1);
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<byte[]> response = client.send(get("/json", "gzip, deflate"), HttpResponse.BodyHandlers.ofByteArray());
+            Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+            Assertions.assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null));
+            Assertions.assertEquals(String.valueOf(response.body().length), response.headers().firstValue("Content-Length").orElse(null));
+            Assertions.assertTrue(response.body().length * 5 < JSON.length(), "compressed " + response.body().length);
+            Assertions.assertEquals(JSON, decode(new GZIPInputStream(new ByteArrayInputStream(response.body()))));
+        }
+        Assertions.assertEquals(1, compression.getCachedCount());
+    }
+
+    @Test
+    public void testWriteDeflate() throws Exception {
+        HttpResponse<byte[]> response = client(HttpClient.Version.HTTP_1_1)
+                .send(get("/json", "gzip;q=0.1, deflate"), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals("deflate", response.headers().firstValue("Content-Encoding").orElse(null));
+        Assertions.assertEquals(JSON, decode(new InflaterInputStream(new ByteArrayInputStream(response.body()))));
+    }
+
+    @Test
+    public void testNotCompressed() throws Exception {
+        HttpClient client = client(HttpClient.Version.HTTP_1_1);
+        HttpResponse<String> response = client.send(get("/json", null), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+        Assertions.assertEquals(JSON, response.body());
+        // Below minimum size
+        response = client.send(get("/small", "gzip"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+        Assertions.assertEquals("{}", response.body());
+        // Not a compressible type
+        response = client.send(get("/image", "gzip"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertFalse(response.headers().firstValue("Content-Encoding").isPresent());
+    }
+
+    @Test
+    public void testStreamWriteCompressed() throws Exception {
+        HttpResponse<byte[]> response = client(HttpClient.Version.HTTP_1_1)
+                .send(get("/stream", "gzip"), HttpResponse.BodyHandlers.ofByteArray());
+        Assertions.assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        Assertions.assertFalse(response.headers().firstValue("Content-Length").isPresent());
+        Assertions.assertEquals(JSON, decode(new GZIPInputStream(new ByteArrayInputStream(response.body()))));
+    }
+
+    @Test
+    public void testHttp2Compressed() throws Exception {
+        HttpClient client = client(HttpClient.Version.HTTP_2);
+        // First one upgrade to h2c
+        client.send(get("/small", null), HttpResponse.BodyHandlers.ofString());
+        for (String path : new String[]{"/json", "/stream"}) {
+            HttpResponse<byte[]> response = client.send(get(path, "gzip"), HttpResponse.BodyHandlers.ofByteArray());
+            Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+            Assertions.assertEquals("gzip", response.headers().firstValue("content-encoding").orElse(null));
+            Assertions.assertEquals(JSON, decode(new GZIPInputStream(new ByteArrayInputStream(response.body()))));
+        }
+    }
+
+    private static HttpRequest get(String path, String acceptEncoding) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .timeout(Duration.ofSeconds(5))
+                .GET();
+        if (acceptEncoding != null) {
+            builder.header("Accept-Encoding", acceptEncoding);
+        }
+        return builder.build();
+    }
+
+    private static HttpClient client(HttpClient.Version version) {
+        return HttpClient.newBuilder().version(version).connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    private static String decode(InputStream in) throws IOException {
+        try (InputStream decoded = in) {
+            return new String(decoded.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String json(int items) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"name\":\"item-").append(i)
+                    .append("\",\"active\":true}");
+        }
+        return json.append("]").toString();
+    }
+}
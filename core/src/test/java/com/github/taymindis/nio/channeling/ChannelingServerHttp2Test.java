@@ -0,0 +1,278 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import com.github.taymindis.nio.channeling.http2.Http2Frame;
+import com.github.taymindis.nio.channeling.http2.Http2Settings;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ChannelingServerHttp2Test {
+    // Over the initial flow control window of 65535
+    private static final int BIG_SIZE = 300 * 1024;
+
+    private static Channeling channeling;
+    private static ChannelingServer sslServer, plainServer;
+    private static int sslPort, plainPort;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        channeling.enableSSL(1);
+        sslPort = freePort();
+        plainPort = freePort();
+        // HttpClient verify the host name against the certificate, the bundled keystore has no subject alternative name
+        String keyStore = TestSupport.generateKeyStore("localhost", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1");
+        sslServer = new ChannelingServer(channeling, TestSupport.serverContext(keyStore), "127.0.0.1", sslPort);
+        sslServer.setHttp2(true);
+        plainServer = new ChannelingServer(channeling, "127.0.0.1", plainPort);
+        plainServer.setHttp2(true);
+        new Thread(() -> sslServer.listen(ChannelingServerHttp2Test::handler)).start();
+        new Thread(() -> plainServer.listen(ChannelingServerHttp2Test::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        sslServer.stop();
+        plainServer.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        if ("/stream".equals(request.getPath())) {
+            callback.streamWrite(ByteBuffer.wrap("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nConnection: keep-alive\r\n\r\n5\r\nhel"
+                    .getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.streamWrite(ByteBuffer.wrap("lo\r\n6\r\n world\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.end();
+            return;
+        }
+        request.readBody(body -> {
+            HttpResponseMessage response = new HttpResponseMessage();
+            response.setCode(200);
+            response.setStatusText("OK");
+            response.addHeader("Content-Type", "text/plain");
+            if ("/big".equals(request.getPath())) {
+                StringBuilder content = new StringBuilder(BIG_SIZE);
+                for (int i = 0; i < BIG_SIZE; i++) {
+                    content.append((char) ('a' + i % 26));
+                }
+                response.setContent(content);
+            } else {
+                response.setContent(request.getMethod() + " " + request.getPath() + " " + request.getHttpVersion() + " "
+                        + request.getHeader("Host") + " " + (body == null ? "" : new String(body.getBuff(), body.getOffset(),
+                        body.getLength(), StandardCharsets.UTF_8)));
+            }
+            callback.write(response, null, sc -> {
+            });
+        });
+    }
+
+    @Test
+    public void testH2OverAlpn() throws Exception {
+        HttpResponse<String> response = client().send(get("https", sslPort, "/hello"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("GET /hello HTTP/2.0 127.0.0.1:" + sslPort + " ", response.body());
+    }
+
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        HttpClient client = client();
+        // First request open the connection, the others are multiplexed on it
+        Assertions.assertEquals(HttpClient.Version.HTTP_2,
+                client.send(get("https", sslPort, "/first"), HttpResponse.BodyHandlers.ofString()).version());
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String path = i % 4 == 0 ? "/big" : "/r" + i;
+            responses.add(client.sendAsync(get("https", sslPort, path), HttpResponse.BodyHandlers.ofString()));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            HttpResponse<String> response = responses.get(i).get();
+            Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+            if (i % 4 == 0) {
+                Assertions.assertEquals(BIG_SIZE, response.body().length());
+                Assertions.assertEquals("abc", response.body().substring(26, 29));
+            } else {
+                Assertions.assertTrue(response.body().startsWith("GET /r" + i + " "), response.body());
+            }
+        }
+    }
+
+    @Test
+    public void testPostBody() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("https://127.0.0.1:" + sslPort + "/echo"))
+                .timeout(Duration.ofSeconds(5))
+                .POST(HttpRequest.BodyPublishers.ofString("ping pong"))
+                .build();
+        HttpResponse<String> response = client().send(request, HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertTrue(response.body().startsWith("POST /echo HTTP/2.0"), response.body());
+        Assertions.assertTrue(response.body().endsWith(" ping pong"), response.body());
+    }
+
+    @Test
+    public void testStreamWriteDechunked() throws Exception {
+        HttpResponse<String> response = client().send(get("https", sslPort, "/stream"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals("hello world", response.body());
+        Assertions.assertFalse(response.headers().firstValue("transfer-encoding").isPresent());
+    }
+
+    @Test
+    public void testH2cUpgrade() throws Exception {
+        HttpClient client = client();
+        HttpResponse<String> response = client.send(get("http", plainPort, "/upgrade"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals("GET /upgrade HTTP/1.1 127.0.0.1:" + plainPort + " ", response.body());
+        // Next ones go over the upgraded connection
+        response = client.send(get("http", plainPort, "/next"), HttpResponse.BodyHandlers.ofString());
+        Assertions.assertEquals(HttpClient.Version.HTTP_2, response.version());
+        Assertions.assertEquals("GET /next HTTP/2.0 127.0.0.1:" + plainPort + " ", response.body());
+    }
+
+    @Test
+    public void testContinuationFloodRejected() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", plainPort)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Frame.PREFACE);
+            out.write(frameHeader(0, Http2Frame.SETTINGS, 0, 0));
+            out.write(frameHeader(1, Http2Frame.HEADERS, 0, 1));
+            out.write(0x82);
+            // Never END_HEADERS, over the default 256k a connection buffer for a header block
+            byte[] continuation = new byte[16384];
+            Arrays.fill(continuation, (byte) 0x82);
+            try {
+                for (int i = 0; i < 20; i++) {
+                    out.write(frameHeader(continuation.length, Http2Frame.CONTINUATION, 0, 1));
+                    out.write(continuation);
+                }
+                out.flush();
+            } catch (IOException e) {
+                // Server may already have closed
+            }
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (; ; ) {
+                int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                in.readUnsignedByte();
+                in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (type == Http2Frame.GOAWAY) {
+                    Assertions.assertEquals(Http2Frame.ENHANCE_YOUR_CALM, ByteBuffer.wrap(payload).getInt(4));
+                    break;
+                }
+            }
+            Assertions.assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testInboundFlowControl() throws Exception {
+        int port = freePort();
+        ChannelingServer server = new ChannelingServer(channeling, "127.0.0.1", port);
+        server.setHttp2(true);
+        server.setHttp2Settings(new Http2Settings().setInitialWindowSize(1024));
+        server.setHttp2MaxRequestBodySize(4096);
+        new Thread(() -> server.listen(ChannelingServerHttp2Test::handler)).start();
+        Thread.sleep(300);
+        // :method POST, :path /, :scheme http
+        byte[] post = {(byte) 0x83, (byte) 0x84, (byte) 0x86};
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(Http2Frame.PREFACE);
+            out.write(frameHeader(0, Http2Frame.SETTINGS, 0, 0));
+            // Stream 1 send over its window of 1024
+            out.write(frameHeader(post.length, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS, 1));
+            out.write(post);
+            out.write(frameHeader(2048, Http2Frame.DATA, 0, 1));
+            out.write(new byte[2048]);
+            // Stream 3 stay in its window, given back at half, until over the body limit
+            out.write(frameHeader(post.length, Http2Frame.HEADERS, Http2Frame.FLAG_END_HEADERS, 3));
+            out.write(post);
+            for (int i = 0; i < 20; i++) {
+                out.write(frameHeader(256, Http2Frame.DATA, 0, 3));
+                out.write(new byte[256]);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            int stream1Error = -1, stream3Updates = 0, stream3Increments = 0;
+            for (; ; ) {
+                int length = in.readUnsignedShort() << 8 | in.readUnsignedByte();
+                int type = in.readUnsignedByte();
+                in.readUnsignedByte();
+                int streamId = in.readInt() & 0x7fffffff;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (type == Http2Frame.RST_STREAM && streamId == 1) {
+                    stream1Error = ByteBuffer.wrap(payload).getInt();
+                } else if (type == Http2Frame.WINDOW_UPDATE && streamId == 3) {
+                    stream3Updates++;
+                    stream3Increments += ByteBuffer.wrap(payload).getInt();
+                } else if (type == Http2Frame.RST_STREAM && streamId == 3) {
+                    Assertions.assertEquals(Http2Frame.ENHANCE_YOUR_CALM, ByteBuffer.wrap(payload).getInt());
+                    break;
+                }
+            }
+            Assertions.assertEquals(Http2Frame.FLOW_CONTROL_ERROR, stream1Error);
+            // 16 frames fit the body limit, window given back every other frame
+            Assertions.assertEquals(8, stream3Updates);
+            Assertions.assertEquals(4096, stream3Increments);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static byte[] frameHeader(int length, int type, int flags, int streamId) {
+        return ByteBuffer.allocate(Http2Frame.HEADER_SIZE).put((byte) (length >>> 16)).putShort((short) length)
+                .put((byte) type).put((byte) flags).putInt(streamId).array();
+    }
+
+    private static HttpRequest get(String scheme, int port, String path) {
+        return HttpRequest.newBuilder(URI.create(scheme + "://127.0.0.1:" + port + path))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+    }
+
+    private static HttpClient client() throws Exception {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .sslContext(TestSupport.clientContext())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    private static int freePort() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) {
+            return probe.getLocalPort();
+        }
+    }
+}
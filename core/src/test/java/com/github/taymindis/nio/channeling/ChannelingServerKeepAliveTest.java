@@ -0,0 +1,154 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class ChannelingServerKeepAliveTest {
+    private static Channeling channeling;
+    private static ChannelingServer server;
+    private static int port;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 15 * 1000);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new ChannelingServer(channeling, "127.0.0.1", port);
+        server.setKeepAlive(true);
+        server.setMaxKeepAliveRequests(3);
+        server.setKeepAliveTimeout(500);
+        new Thread(() -> server.listen(ChannelingServerKeepAliveTest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        server.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        request.readBody(body -> {
+            HttpResponseMessage response = new HttpResponseMessage();
+            response.setCode(200);
+            response.setStatusText("OK");
+            response.setContent(request.getPath() + ":" + (body == null ? "" : body.toString()));
+            callback.write(response, null, sc -> {
+                if (!callback.isKeepAlive()) {
+                    sc.close(s -> {
+                    });
+                }
+            });
+        });
+    }
+
+    @Test
+    public void testPipelinedRequestsAnsweredInOrder() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /a HTTP/1.1\r\nHost: x\r\n\r\n" +
+                    "POST /b HTTP/1.1\r\nHost: x\r\nContent-Length: 4\r\n\r\nbody").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(200);
+            out.write("GET /c HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            // Third request reach the limit, connection closed after it
+            String responses = readAll(socket.getInputStream());
+            int a = responses.indexOf("/a:"), b = responses.indexOf("/b:body"), c = responses.indexOf("/c:");
+            Assertions.assertTrue(a > 0 && b > a && c > b, responses);
+            Assertions.assertEquals(3, count(responses, "HTTP/1.1 200 OK"));
+            Assertions.assertTrue(responses.substring(b).contains("Connection: close"), responses);
+        }
+    }
+
+    @Test
+    public void testConnectionClose() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /a HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String responses = readAll(socket.getInputStream());
+            Assertions.assertEquals(1, count(responses, "HTTP/1.1 200 OK"));
+            Assertions.assertTrue(responses.contains("Connection: close"), responses);
+        }
+    }
+
+    @Test
+    public void testHttp10NeedKeepAliveAsked() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /a HTTP/1.0\r\nConnection: keep-alive\r\n\r\n" +
+                    "GET /b HTTP/1.0\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String responses = readAll(socket.getInputStream());
+            Assertions.assertEquals(2, count(responses, "HTTP/1.1 200 OK"));
+            Assertions.assertTrue(responses.contains("Connection: keep-alive"), responses);
+        }
+    }
+
+    @Test
+    public void testIdleConnectionClosed() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /a HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            long start = System.currentTimeMillis();
+            String responses = readAll(socket.getInputStream());
+            Assertions.assertEquals(1, count(responses, "HTTP/1.1 200 OK"));
+            Assertions.assertFalse(responses.contains("Connection: close"), responses);
+            Assertions.assertTrue(System.currentTimeMillis() - start >= 400);
+        }
+    }
+
+    @Test
+    public void testTransferEncodingWithContentLengthNotKept() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /a HTTP/1.1\r\nHost: x\r\nContent-Length: 4\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                    "0\r\n\r\nGET /smuggled HTTP/1.1\r\nHost: x\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            String responses = readAll(socket.getInputStream());
+            Assertions.assertEquals(1, count(responses, "HTTP/1.1 200 OK"), responses);
+            Assertions.assertTrue(responses.contains("Connection: close"), responses);
+            Assertions.assertFalse(responses.contains("/smuggled:"), responses);
+        }
+    }
+
+    private static int count(String s, String target) {
+        int count = 0;
+        for (int i = s.indexOf(target); i >= 0; i = s.indexOf(target, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buff = new byte[8192];
+        int read;
+        while ((read = in.read(buff)) != -1) {
+            out.write(buff, 0, read);
+        }
+        return out.toString(StandardCharsets.UTF_8.name());
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponseMessage;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+
+public class ChannelingServerSNITest {
+    private static Channeling channeling;
+    private static ChannelingServer server;
+    private static int port;
+
+    @BeforeAll
+    public static void beforeAll() throws Exception {
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 5 * 1000);
+        channeling.enableSSL(1);
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        server = new ChannelingServer(channeling, TestSupport.serverContext(), "127.0.0.1", port);
+        server.addSNIContext("*.tenant.test", TestSupport.serverContext(TestSupport.generateKeyStore("tenant", "CN=a.tenant.test")));
+        server.setApplicationProtocols("h2", "http/1.1");
+        new Thread(() -> server.listen(ChannelingServerSNITest::handler)).start();
+        Thread.sleep(300);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        server.stop();
+        channeling.shutdownNow();
+    }
+
+    private static void handler(HttpRequestMessage request, ResponseCallback callback) {
+        ChannelingSocket socket = request.getClientSocket();
+        HttpResponseMessage response = new HttpResponseMessage();
+        response.setCode(200);
+        response.setStatusText("OK");
+        response.addHeader("Connection", "close");
+        response.setContent(socket.getSSLServerName() + "|" + socket.getApplicationProtocol());
+        callback.write(response, null, sc -> sc.close(s -> {
+        }));
+    }
+
+    @Test
+    public void testCertificateOfServerName() throws Exception {
+        try (SSLSocket socket = connect("a.tenant.test", "http/1.1")) {
+            Assertions.assertEquals("http/1.1", socket.getApplicationProtocol());
+            Assertions.assertTrue(peerName(socket).contains("CN=a.tenant.test"), peerName(socket));
+            Assertions.assertTrue(get(socket).endsWith("a.tenant.test|http/1.1"));
+        }
+    }
+
+    @Test
+    public void testDefaultCertificateWithoutServerName() throws Exception {
+        try (SSLSocket socket = connect(null, "h2")) {
+            Assertions.assertEquals("h2", socket.getApplicationProtocol());
+            Assertions.assertTrue(peerName(socket).contains("CN=channeling.taymindis.com"), peerName(socket));
+            Assertions.assertTrue(get(socket).endsWith("null|h2"));
+        }
+    }
+
+    @Test
+    public void testServerNameOfClientHello() {
+        ByteBuffer hello = ByteBuffer.wrap(new byte[]{
+                22, 3, 1, 0, 61,
+                // ClientHello, length, version, random
+                1, 0, 0, 57, 3, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+                // Session id, cipher suites, compression methods
+                0, 0, 2, 0x13, 0x01, 1, 0,
+                // Extensions, server_name "Ab.io"
+                0, 14, 0, 0, 0, 10, 0, 8, 0, 0, 5, 'A', 'b', '.', 'i', 'o'});
+        int length = hello.capacity();
+        Assertions.assertEquals(SSLClientHello.INCOMPLETE, SSLClientHello.firstRecordLength(hello, length - 1));
+        Assertions.assertEquals(length, SSLClientHello.firstRecordLength(hello, length));
+        Assertions.assertEquals("ab.io", SSLClientHello.serverName(hello, length));
+        Assertions.assertEquals(SSLClientHello.NOT_TLS,
+                SSLClientHello.firstRecordLength(ByteBuffer.wrap("GET ".getBytes(StandardCharsets.US_ASCII)), 4));
+    }
+
+    private static SSLSocket connect(String serverName, String applicationProtocol) throws Exception {
+        // Fresh context, a resumed session would carry the server name of the previous connection
+        SSLSocket socket = (SSLSocket) TestSupport.clientContext().getSocketFactory().createSocket("127.0.0.1", port);
+        socket.setSoTimeout(5000);
+        SSLParameters sslParameters = socket.getSSLParameters();
+        if (serverName != null) {
+            sslParameters.setServerNames(Collections.singletonList(new SNIHostName(serverName)));
+        }
+        sslParameters.setApplicationProtocols(new String[]{applicationProtocol});
+        socket.setSSLParameters(sslParameters);
+        socket.startHandshake();
+        return socket;
+    }
+
+    private static String peerName(SSLSocket socket) throws Exception {
+        return ((X509Certificate) socket.getSession().getPeerCertificates()[0]).getSubjectX500Principal().getName();
+    }
+
+    private static String get(SSLSocket socket) throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write("GET / HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        byte[] buff = new byte[8192];
+        int read;
+        while ((read = in.read(buff)) != -1) {
+            received.write(buff, 0, read);
+        }
+        return received.toString(StandardCharsets.UTF_8.name());
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingStallDetectorTest {
+    private static Channeling channeling;
+    private static final List<ChannelingStall> stalls = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 15 * 1000);
+        channeling.enableStallDetector(50, stalls::add);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testSlowCallbackReportedOnce() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            CompletableFuture<ChannelingSocket> done = new CompletableFuture<>();
+            ChannelingSocket cs = channeling.wrap("slow-context");
+            cs.withConnect(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()))
+                    .when(Channeling.whenConnected)
+                    .then(socket -> {
+                        slowCallback();
+                        socket.close(done::complete);
+                    }, (sc, e) -> done.completeExceptionally(e));
+            done.get(10, TimeUnit.SECONDS);
+        }
+        // Last sample may still be on the way
+        Thread.sleep(50);
+
+        Assertions.assertEquals(1, stalls.size());
+        ChannelingStall stall = stalls.get(0);
+        Assertions.assertEquals(0, stall.getWorkerIndex());
+        Assertions.assertEquals("DO_CONNECT", stall.getTask());
+        Assertions.assertEquals("slow-context", stall.getSocket().getContext());
+        Assertions.assertTrue(stall.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assertions.assertTrue(Arrays.stream(stall.getStackTrace()).anyMatch(e -> e.getMethodName().equals("slowCallback")));
+        Assertions.assertEquals(1, channeling.getWorkers()[0].getMetrics().getStalls());
+        Assertions.assertTrue(channeling.getWorkers()[0].getMetrics().getCallbackTimeMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    private static void slowCallback() {
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+
+public class ChannelingTimeoutFeatureTest {
+    private ChannelingTimeoutFeature timeouts;
+    private List<TimeoutException> fired;
+    private ChannelRunner socket;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        timeouts = new ChannelingTimeoutFeature(100, 200, 300, 10);
+        fired = new ArrayList<>();
+        socket = new ChannelRunner(SocketChannel.open(), null, 16, new ConcurrentLinkedQueue<>());
+    }
+
+    @Test
+    public void testConnectTimeout() {
+        socket.withConnect("127.0.0.1", 1).then(sc -> {
+        });
+        long now = socket.getActionTime();
+        timeouts.arm(socket);
+
+        timeouts.expire(now + 50, (sc, e) -> fired.add(e));
+        Assertions.assertTrue(fired.isEmpty());
+
+        timeouts.expire(now + 110, (sc, e) -> fired.add(e));
+        Assertions.assertEquals(1, fired.size());
+        Assertions.assertTrue(fired.get(0).getMessage().startsWith("Connecting timeout"));
+        Assertions.assertTrue(timeouts.isEmpty());
+    }
+
+    @Test
+    public void testRearmOnNewTask() throws InterruptedException {
+        socket.withConnect("127.0.0.1", 1).then(sc -> {
+        });
+        long armedAt = socket.getActionTime();
+        timeouts.arm(socket);
+
+        Thread.sleep(20);
+        // Moved on to read without the processor re-arming yet, must be re-armed lazily instead of fired
+        socket.withRead().then(sc -> {
+        });
+        timeouts.expire(armedAt + 110, (sc, e) -> fired.add(e));
+        Assertions.assertTrue(fired.isEmpty());
+        Assertions.assertFalse(timeouts.isEmpty());
+
+        timeouts.expire(socket.getActionTime() + 210, (sc, e) -> fired.add(e));
+        Assertions.assertEquals(1, fired.size());
+        Assertions.assertTrue(fired.get(0).getMessage().startsWith("Read / Writing timeout"));
+    }
+
+    @Test
+    public void testIdleTimeout() {
+        socket.setIoTask(ChannelingTask.DO_IDLE);
+        long now = System.currentTimeMillis();
+        timeouts.armIdle(socket, now);
+
+        timeouts.expire(now + 250, (sc, e) -> fired.add(e));
+        Assertions.assertTrue(fired.isEmpty());
+
+        timeouts.expire(now + 310, (sc, e) -> fired.add(e));
+        Assertions.assertEquals(1, fired.size());
+        Assertions.assertTrue(fired.get(0).getMessage().startsWith("Idle timeout"));
+    }
+
+    @Test
+    public void testCancel() {
+        socket.withRead().then(sc -> {
+        });
+        timeouts.arm(socket);
+        timeouts.cancel(socket);
+        Assertions.assertTrue(timeouts.isEmpty());
+
+        timeouts.expire(socket.getActionTime() + 10_000, (sc, e) -> fired.add(e));
+        Assertions.assertTrue(fired.isEmpty());
+    }
+
+    @Test
+    public void testBeyondOneWheelTurn() {
+        ChannelingTimeoutFeature longTimeouts = new ChannelingTimeoutFeature(100, 60_000, 0, 10);
+        socket.withRead().then(sc -> {
+        });
+        long now = socket.getActionTime();
+        longTimeouts.arm(socket);
+
+        // 512 buckets * 10ms, the slot is visited several times before its deadline
+        for (long t = now; t < now + 59_990; t += 1000) {
+            longTimeouts.expire(t, (sc, e) -> fired.add(e));
+        }
+        Assertions.assertTrue(fired.isEmpty());
+
+        longTimeouts.expire(now + 60_010, (sc, e) -> fired.add(e));
+        Assertions.assertEquals(1, fired.size());
+    }
+}
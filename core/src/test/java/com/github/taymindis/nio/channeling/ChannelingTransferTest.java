@@ -0,0 +1,115 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ChannelingTransferTest {
+    private static Channeling channeling;
+    private static Path file;
+    private static byte[] content;
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        channeling = Channeling.startNewChanneling(1, 2 * 1000, 15 * 1000);
+        content = new byte[8 * 1024 * 1024 + 7];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        file = Files.createTempFile("channeling-transfer", ".bin");
+        Files.write(file, content);
+    }
+
+    @AfterAll
+    public static void afterAll() throws IOException {
+        channeling.shutdownNow();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testTransferRegion() throws Exception {
+        int offset = 1000, count = content.length - 2000;
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CompletableFuture<byte[]> received = CompletableFuture.supplyAsync(() -> readAll(serverSocket));
+
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Exception> error = new AtomicReference<>();
+            ChannelingSocket cs = channeling.wrap(null);
+            cs.withConnect("127.0.0.1", serverSocket.getLocalPort())
+                    .when(Channeling.whenConnected)
+                    .then(socket -> socket.withTransfer(fileChannel, offset, count)
+                            .when(Channeling.whenNoMoreToTransfer)
+                            .then(sc -> {
+                                Assertions.assertEquals(offset + count, sc.getTransferPosition());
+                                sc.close(s -> done.countDown());
+                            }, (sc, e) -> {
+                                error.set(e);
+                                done.countDown();
+                            }), (sc, e) -> {
+                        error.set(e);
+                        done.countDown();
+                    });
+
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assertions.assertNull(error.get());
+            Assertions.assertArrayEquals(Arrays.copyOfRange(content, offset, offset + count),
+                    received.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testTransferBeyondEndOfFile() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0);
+             FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CompletableFuture.runAsync(() -> readAll(serverSocket));
+
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicReference<Exception> error = new AtomicReference<>();
+            ChannelingSocket cs = channeling.wrap(null);
+            cs.withConnect("127.0.0.1", serverSocket.getLocalPort())
+                    .when(Channeling.whenConnected)
+                    .then(socket -> socket.transfer(fileChannel, content.length - 10, 20, sc -> {
+                        if (sc.getTransferRemaining() > 0) {
+                            sc.transfer(fileChannel, sc.getTransferPosition(), sc.getTransferRemaining(), s -> done.countDown(), (s, e) -> {
+                                error.set(e);
+                                s.close(c -> done.countDown());
+                            });
+                        }
+                    }));
+
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assertions.assertNotNull(error.get());
+        }
+    }
+
+    private static byte[] readAll(ServerSocket serverSocket) {
+        try (Socket socket = serverSocket.accept(); InputStream in = socket.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buff = new byte[8192];
+            int read;
+            while ((read = in.read(buff)) != -1) {
+                out.write(buff, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingWaitStrategyTest {
+
+    @Test
+    public void testEchoWithEachStrategy() throws Exception {
+        for (String name : new String[]{"busySpin", "sleeping", "spinThenYield", "blocking"}) {
+            Channeling channeling = Channeling.startNewChanneling(1, ChannelingWaitStrategy.of(name), 2 * 1000, 15 * 1000);
+            try {
+                for (int i = 0; i < 3; i++) {
+                    Assertions.assertEquals("wait ping " + i, echo(channeling, "wait ping " + i), name);
+                }
+            } finally {
+                channeling.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void testBlockingWokenUpByQueuedSocket() throws Exception {
+        // Timeout far longer than the exchange, a queued socket must wakeup the blocked selector
+        Channeling channeling = Channeling.startNewChanneling(1, ChannelingWaitStrategy.blocking(0, 60 * 1000), 2 * 1000, 15 * 1000);
+        try {
+            Thread.sleep(200);
+            Assertions.assertEquals("wakeup", echo(channeling, "wakeup"));
+        } finally {
+            channeling.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOf() {
+        Assertions.assertEquals(0, ChannelingWaitStrategy.of("busySpin").idle(Integer.MAX_VALUE));
+        Assertions.assertEquals(0, ChannelingWaitStrategy.of("sleeping").idle(Integer.MAX_VALUE));
+        Assertions.assertEquals(0, ChannelingWaitStrategy.of("spinThenYield").idle(Integer.MAX_VALUE));
+        Assertions.assertEquals(0, ChannelingWaitStrategy.of("blocking").idle(0));
+        Assertions.assertEquals(ChannelingWaitStrategy.DEFAULT_BLOCKING_TIMEOUT_IN_MS,
+                ChannelingWaitStrategy.of("blocking").idle(ChannelingWaitStrategy.DEFAULT_SPIN_TURNS));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChannelingWaitStrategy.of("parking"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ChannelingWaitStrategy.blocking(0, 0));
+    }
+
+    private static String echo(Channeling channeling, String message) throws Exception {
+        byte[] bytes = message.getBytes();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            // Let the worker go idle before the read is ready
+            CompletableFuture.runAsync(() -> TestSupport.echo(serverSocket, bytes.length, 50));
+
+            CompletableFuture<String> echoed = new CompletableFuture<>();
+            ChannelingSocket cs = channeling.wrap(null);
+            cs.withConnect(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()))
+                    .when(Channeling.whenConnected)
+                    .then(socket -> socket.write(ByteBuffer.wrap(bytes), written -> written.read(read -> {
+                                ByteBuffer readBuffer = read.getReadBuffer();
+                                readBuffer.flip();
+                                byte[] received = new byte[readBuffer.remaining()];
+                                readBuffer.get(received);
+                                read.close(closed -> echoed.complete(new String(received)));
+                            }, (sc, e) -> echoed.completeExceptionally(e)), (sc, e) -> echoed.completeExceptionally(e)),
+                            (sc, e) -> echoed.completeExceptionally(e));
+
+            return echoed.get(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class ChannelingWorkerMetricsTest {
+    private static Channeling channeling;
+
+    @BeforeAll
+    public static void beforeAll() throws IOException {
+        channeling = Channeling.startNewChanneling(2, 2 * 1000, 15 * 1000);
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        channeling.shutdownNow();
+    }
+
+    @Test
+    public void testDisabledByDefault() throws IOException {
+        Channeling disabled = Channeling.startNewChanneling(1, 2 * 1000, 15 * 1000);
+        try {
+            Assertions.assertNull(disabled.getMetrics());
+            Assertions.assertNull(disabled.getWorkers()[0].getMetrics());
+        } finally {
+            disabled.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCountersOfEcho() throws Exception {
+        ChannelingWorkerMetrics[] metrics = channeling.enableMetrics();
+        Assertions.assertEquals(2, metrics.length);
+        Assertions.assertSame(metrics[1], channeling.getWorkers()[1].getMetrics());
+        long readBefore = metrics[0].getBytesRead() + metrics[1].getBytesRead();
+        long writtenBefore = metrics[0].getBytesWritten() + metrics[1].getBytesWritten();
+        long callbacksBefore = metrics[0].getCallbacks() + metrics[1].getCallbacks();
+
+        byte[] message = "metrics ping".getBytes();
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            CompletableFuture.runAsync(() -> TestSupport.echo(serverSocket, message.length, 0));
+
+            CompletableFuture<Integer> echoed = new CompletableFuture<>();
+            ChannelingSocket cs = channeling.wrap(null);
+            cs.withConnect(new InetSocketAddress("127.0.0.1", serverSocket.getLocalPort()))
+                    .when(Channeling.whenConnected)
+                    .then(socket -> socket.write(ByteBuffer.wrap(message), written -> written.read(read -> {
+                                int readBytes = read.getLastProcessedBytes();
+                                read.close(closed -> echoed.complete(readBytes));
+                            }, (sc, e) -> echoed.completeExceptionally(e)), (sc, e) -> echoed.completeExceptionally(e)),
+                            (sc, e) -> echoed.completeExceptionally(e));
+
+            Assertions.assertEquals(message.length, (int) echoed.get(10, TimeUnit.SECONDS));
+        }
+
+        Assertions.assertEquals(message.length, metrics[0].getBytesRead() + metrics[1].getBytesRead() - readBefore);
+        Assertions.assertEquals(message.length, metrics[0].getBytesWritten() + metrics[1].getBytesWritten() - writtenBefore);
+        // connect, write and read, close callback is counted once it returns
+        Assertions.assertTrue(metrics[0].getCallbacks() + metrics[1].getCallbacks() - callbacksBefore >= 3);
+        Assertions.assertTrue(metrics[0].getSelects() + metrics[1].getSelects() > 0);
+        Assertions.assertTrue(metrics[0].getCallbackTime().getCount() + metrics[1].getCallbackTime().getCount() >= 3);
+        Assertions.assertEquals(0, metrics[0].getErrors() + metrics[1].getErrors());
+    }
+
+    @Test
+    public void testMBeans() throws Exception {
+        channeling.registerMetricsMBeans("metrics-test");
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.github.taymindis.nio.channeling:type=ChannelingWorker,name=\"metrics-test\",worker=1");
+        try {
+            Assertions.assertEquals(1, mBeanServer.getAttribute(objectName, "WorkerIndex"));
+            Assertions.assertTrue((Long) mBeanServer.getAttribute(objectName, "LastTurnTimeMillis") > 0);
+        } finally {
+            channeling.disableMetrics();
+        }
+        Assertions.assertFalse(mBeanServer.isRegistered(objectName));
+        Assertions.assertNull(channeling.getMetrics());
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        ChannelingLatencyHistogram histogram = new ChannelingLatencyHistogram();
+        Assertions.assertEquals(0, histogram.getPercentileInNanos(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(1023, histogram.getPercentileInNanos(50));
+        Assertions.assertEquals(1023, histogram.getPercentileInNanos(99));
+        Assertions.assertEquals(1_000_000, histogram.getPercentileInNanos(100));
+        Assertions.assertEquals(1_000_000, histogram.getMaxInNanos());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.getPercentileInNanos(101));
+    }
+}
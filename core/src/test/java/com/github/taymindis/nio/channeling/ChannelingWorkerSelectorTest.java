@@ -0,0 +1,63 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+
+public class ChannelingWorkerSelectorTest {
+
+    private static ChannelingQueue[] workers(int n) throws IOException {
+        ChannelingQueue[] workers = new ChannelingQueue[n];
+        for (int i = 0; i < n; i++) {
+            workers[i] = new ChannelingQueue(i, Selector.open());
+        }
+        return workers;
+    }
+
+    @Test
+    public void testRoundRobinSpreadEvenly() throws IOException {
+        ChannelingQueue[] workers = workers(4);
+        ChannelingWorkerSelector selector = ChannelingWorkerSelector.roundRobin();
+        for (int i = 0; i < 400; i++) {
+            workers[selector.select(workers, null)].assigned();
+        }
+        for (ChannelingQueue worker : workers) {
+            Assertions.assertEquals(100, worker.getRegisteredSockets());
+        }
+    }
+
+    @Test
+    public void testLeastRegistered() throws IOException {
+        ChannelingQueue[] workers = workers(3);
+        workers[0].assigned();
+        workers[0].assigned();
+        workers[2].assigned();
+        ChannelingWorkerSelector selector = ChannelingWorkerSelector.leastRegistered();
+        Assertions.assertEquals(1, selector.select(workers, null));
+
+        workers[1].assigned();
+        workers[1].assigned();
+        workers[0].released();
+        workers[0].released();
+        Assertions.assertEquals(0, selector.select(workers, null));
+    }
+
+    @Test
+    public void testLeastPendingBytes() throws IOException {
+        ChannelingQueue[] workers = workers(3);
+        workers[0].addPendingBytes(4096);
+        workers[1].addPendingBytes(128);
+        workers[2].addPendingBytes(1024);
+        Assertions.assertEquals(1, ChannelingWorkerSelector.leastPendingBytes().select(workers, null));
+    }
+
+    @Test
+    public void testRemoteAddressHashFallback() throws IOException {
+        ChannelingQueue[] workers = workers(2);
+        ChannelingWorkerSelector selector = ChannelingWorkerSelector.remoteAddressHash();
+        // Not connected yet, behave as round robin
+        Assertions.assertNotEquals(selector.select(workers, null), selector.select(workers, null));
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.ContentEncodingType;
+import com.github.taymindis.nio.channeling.http.HttpBodyDecoder;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpStreamRequest;
+import com.github.taymindis.nio.channeling.http.HttpStreamRequestCallback;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class HttpBodyDecoderTest {
+    // Larger than the decode buffer so several slices are handed out
+    private static final byte[] CONTENT = content(200 * 1024);
+
+    @Test
+    public void testGzipChunkedSplitAcrossReads() throws IOException {
+        byte[] body = chunked(gzip(CONTENT), 1000);
+        HttpBodyDecoder decoder = new HttpBodyDecoder(true, ContentEncodingType.GZIP);
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        boolean done = false;
+        for (int i = 0; i < body.length; i += 7) {
+            Assertions.assertFalse(done);
+            done = decoder.decode(ByteBuffer.wrap(body, i, Math.min(7, body.length - i)), (bytes, offset, length) -> {
+                Assertions.assertTrue(length <= HttpBodyDecoder.DEFAULT_BUFFER_SIZE);
+                decoded.write(bytes, offset, length);
+                return true;
+            });
+        }
+        Assertions.assertTrue(done);
+        decoder.finish();
+        Assertions.assertArrayEquals(CONTENT, decoded.toByteArray());
+    }
+
+    @Test
+    public void testGzipMultipleMembers() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(gzip("hello ".getBytes(StandardCharsets.US_ASCII)));
+        body.write(gzip("world".getBytes(StandardCharsets.US_ASCII)));
+        Assertions.assertEquals("hello world", decode(new HttpBodyDecoder(false, ContentEncodingType.GZIP), body.toByteArray()));
+    }
+
+    @Test
+    public void testDeflateZlibAndRaw() throws IOException {
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(zlib)) {
+            out.write(CONTENT);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(CONTENT);
+        }
+        String expected = new String(CONTENT, StandardCharsets.US_ASCII);
+        Assertions.assertEquals(expected, decode(new HttpBodyDecoder(false, ContentEncodingType.DEFLATE), zlib.toByteArray()));
+        Assertions.assertEquals(expected, decode(new HttpBodyDecoder(false, ContentEncodingType.DEFLATE), raw.toByteArray()));
+    }
+
+    @Test
+    public void testTruncatedGzip() throws IOException {
+        byte[] body = gzip(CONTENT);
+        HttpBodyDecoder decoder = new HttpBodyDecoder(false, ContentEncodingType.GZIP);
+        decoder.decode(ByteBuffer.wrap(Arrays.copyOf(body, body.length - 4)), (bytes, offset, length) -> true);
+        Assertions.assertThrows(EOFException.class, decoder::finish);
+    }
+
+    @Test
+    public void testStreamRequestDecompression() throws Exception {
+        Channeling channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ChannelingServer server = new ChannelingServer(channeling, "127.0.0.1", port);
+        byte[] body = chunked(gzip(CONTENT), 4096);
+        new Thread(() -> server.listen((HttpRequestMessage request, ResponseCallback callback) -> {
+            callback.streamWrite(ByteBuffer.wrap(("HTTP/1.1 200 OK\r\nContent-Encoding: gzip\r\nTransfer-Encoding: chunked\r\n" +
+                    "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.streamWrite(ByteBuffer.wrap(body), sc -> {
+            });
+            callback.end();
+        })).start();
+        Thread.sleep(300);
+        try {
+            CompletableFuture<byte[]> received = new CompletableFuture<>();
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+            new HttpStreamRequest(channeling.wrap(null), "127.0.0.1", port,
+                    "GET /feed HTTP/1.1\r\nHost: 127.0.0.1\r\nAccept-Encoding: gzip\r\n\r\n", 1024, true)
+                    .execute(new HttpStreamRequestCallback() {
+                        @Override
+                        public void headerAccept(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                        }
+
+                        @Override
+                        public void accept(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                            decoded.write(chunked, offset, length);
+                        }
+
+                        @Override
+                        public void last(byte[] chunked, int offset, int length, ChannelingSocket socket) {
+                            decoded.write(chunked, offset, length);
+                            received.complete(decoded.toByteArray());
+                        }
+
+                        @Override
+                        public void error(Exception e, ChannelingSocket socket) {
+                            received.completeExceptionally(e);
+                        }
+                    });
+            Assertions.assertArrayEquals(CONTENT, received.get(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+            channeling.shutdownNow();
+        }
+    }
+
+    private static String decode(HttpBodyDecoder decoder, byte[] body) throws IOException {
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        decoder.decode(ByteBuffer.wrap(body), (bytes, offset, length) -> {
+            decoded.write(bytes, offset, length);
+            return true;
+        });
+        decoder.finish();
+        return new String(decoded.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] content(int size) {
+        Random random = new Random(7);
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + random.nextInt(6));
+        }
+        return content;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] chunked(byte[] content, int chunkSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < content.length; i += chunkSize) {
+            int length = Math.min(chunkSize, content.length - i);
+            out.writeBytes((Integer.toHexString(length) + ";ext=1\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(content, i, length);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.writeBytes("0\r\nX-Trailer: 1\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpChunkedDecoder;
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpResponse;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequest;
+import com.github.taymindis.nio.channeling.http.HttpSingleRequestCallback;
+import com.github.taymindis.nio.channeling.http.ResponseCallback;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class HttpChunkedDecoderTest {
+    private static final byte[] CONTENT = content(64 * 1024);
+
+    @Test
+    public void testSplitAcrossReads() throws IOException {
+        byte[] body = chunked(CONTENT, 1000, "ext=1;name=\"v\"");
+        HttpChunkedDecoder decoder = new HttpChunkedDecoder();
+        ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        boolean done = false;
+        for (int i = 0; i < body.length; i++) {
+            Assertions.assertFalse(done);
+            done = decoder.decode(ByteBuffer.wrap(body, i, 1), data -> decoded.write(data.array(),
+                    data.arrayOffset() + data.position(), data.remaining()));
+        }
+        Assertions.assertTrue(done);
+        Assertions.assertArrayEquals(CONTENT, decoded.toByteArray());
+        Assertions.assertEquals("1", decoder.getTrailers().get("X-Trailer"));
+        Assertions.assertEquals("abc", decoder.getTrailers().get("X-Checksum"));
+    }
+
+    @Test
+    public void testSlicesPointIntoInput() throws IOException {
+        byte[] body = chunked(CONTENT, 4096, null);
+        byte[] next = "HTTP/1.1 200 OK".getBytes(StandardCharsets.US_ASCII);
+        byte[] input = new byte[body.length + next.length];
+        System.arraycopy(body, 0, input, 0, body.length);
+        System.arraycopy(next, 0, input, body.length, next.length);
+
+        HttpChunkedDecoder decoder = new HttpChunkedDecoder();
+        int[] decoded = {0};
+        ByteBuffer in = ByteBuffer.wrap(input);
+        Assertions.assertTrue(decoder.decode(in, data -> {
+            Assertions.assertSame(input, data.array());
+            for (int i = data.position(); i < data.limit(); i++) {
+                Assertions.assertEquals(CONTENT[decoded[0]++], data.get(i));
+            }
+        }));
+        Assertions.assertEquals(CONTENT.length, decoded[0]);
+        // Stop right after the body, next response left untouched
+        Assertions.assertEquals(next.length, in.remaining());
+    }
+
+    @Test
+    public void testMalformed() {
+        Assertions.assertThrows(IOException.class, () -> new HttpChunkedDecoder().decode(
+                ByteBuffer.wrap("zz\r\n".getBytes(StandardCharsets.US_ASCII)), data -> {
+                }));
+        Assertions.assertThrows(IOException.class, () -> new HttpChunkedDecoder().decode(
+                ByteBuffer.wrap("3\r\nabcd\r\n".getBytes(StandardCharsets.US_ASCII)), data -> {
+                }));
+        Assertions.assertThrows(IOException.class, () -> new HttpChunkedDecoder().decode(
+                ByteBuffer.wrap("1000000000000000\r\n".getBytes(StandardCharsets.US_ASCII)), data -> {
+                }));
+    }
+
+    @Test
+    public void testSingleRequestDechunkInPlace() throws Exception {
+        Channeling channeling = Channeling.startNewChanneling(2, 2 * 1000, 5 * 1000);
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        ChannelingServer server = new ChannelingServer(channeling, "127.0.0.1", port);
+        byte[] body = chunked(CONTENT, 3000, "ext");
+        new Thread(() -> server.listen((HttpRequestMessage request, ResponseCallback callback) -> {
+            callback.streamWrite(ByteBuffer.wrap(("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n" +
+                    "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII)), sc -> {
+            });
+            callback.streamWrite(ByteBuffer.wrap(body), sc -> {
+            });
+            callback.end();
+        })).start();
+        Thread.sleep(300);
+        try {
+            CompletableFuture<HttpResponse> received = new CompletableFuture<>();
+            new HttpSingleRequest(channeling.wrap(null), "127.0.0.1", port,
+                    "GET /feed HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: close\r\n\r\n")
+                    .execute(new HttpSingleRequestCallback() {
+                        @Override
+                        public void accept(HttpResponse response, Object attachment) {
+                            received.complete(response);
+                        }
+
+                        @Override
+                        public void error(Exception e, ChannelingSocket socket) {
+                            received.completeExceptionally(e);
+                        }
+                    });
+            HttpResponse response = received.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(new String(CONTENT, StandardCharsets.US_ASCII), response.getBodyContent());
+            // Chunk framing is not retained, only head and body
+            Assertions.assertEquals(response.getBodyOffset() + CONTENT.length, response.getRawBytes().getLength());
+        } finally {
+            server.stop();
+            channeling.shutdownNow();
+        }
+    }
+
+    private static byte[] content(int size) {
+        Random random = new Random(11);
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return content;
+    }
+
+    private static byte[] chunked(byte[] content, int chunkSize, String extension) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < content.length; i += chunkSize) {
+            int length = Math.min(chunkSize, content.length - i);
+            out.writeBytes((Integer.toHexString(length) + (extension == null ? "" : ";" + extension) + "\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.write(content, i, length);
+            out.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+        out.writeBytes("0\r\nX-Trailer: 1\r\nX-Checksum: abc\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.taymindis.nio.channeling;
+
+import com.github.taymindis.nio.channeling.http.HttpRequestMessage;
+import com.github.taymindis.nio.channeling.http.HttpRequestParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HttpRequestParserTest {
+
+    private static final String REQUEST = "POST /submit?q=1 HTTP/1.1\r\n" +
+            "Host: localhost:8080\r\n" +
+            "content-LENGTH:  5 \r\n" +
+            "X-Empty:\r\n" +
+            "\r\n" +
+            "hello";
+
+    private static boolean feed(HttpRequestParser parser, String part) throws IOException {
+        parser.writeBytes(ByteBuffer.wrap(part.getBytes(StandardCharsets.UTF_8)));
+        return parser.parse();
+    }
+
+    @Test
+    public void testParseSplitAcrossReads() throws IOException {
+        HttpRequestParser parser = new HttpRequestParser();
+        // every split point must resume correctly
+        for (int i = 0; i < REQUEST.length(); i++) {
+            if (feed(parser, REQUEST.substring(i, i + 1))) {
+                Assertions.assertEquals(REQUEST.length() - 5, i + 1);
+                break;
+            }
+        }
+        Assertions.assertTrue(parser.isDoneParsed());
+        Assertions.assertEquals(REQUEST.length() - 5, parser.getBodyOffset());
+        Assertions.assertEquals(REQUEST.length(), parser.getExpectedLen());
+        Assertions.assertEquals(5, parser.getContentLength());
+
+        Assertions.assertEquals("POST", parser.getMethod());
+        Assertions.assertEquals("/submit?q=1", parser.getPath());
+        Assertions.assertEquals("HTTP/1.1", parser.getHttpVersion());
+        Assertions.assertEquals(3, parser.getHeaderCount());
+        Assertions.assertEquals("content-LENGTH", parser.getHeaderName(1));
+        Assertions.assertEquals("5", parser.getHeaderValue(1));
+        Assertions.assertEquals("localhost:8080", parser.getHeader("HOST"));
+        Assertions.assertEquals("", parser.getHeader("x-empty"));
+        Assertions.assertNull(parser.getHeader("Accept"));
+    }
+
+    @Test
+    public void testBareLineFeedWithoutContentLength() throws IOException {
+        HttpRequestParser parser = new HttpRequestParser();
+        Assertions.assertFalse(feed(parser, "GET / HTTP/1.0\nAccept: */*\n"));
+        Assertions.assertTrue(feed(parser, "\n"));
+        Assertions.assertEquals(-1, parser.getExpectedLen());
+        Assertions.assertEquals("HTTP/1.0", parser.getHttpVersion());
+        Assertions.assertEquals("*/*", parser.getHeader("accept"));
+        Assertions.assertEquals("GET / HTTP/1.0\nAccept: */*\n\n", parser.getHeaderContent());
+    }
+
+    @Test
+    public void testMalformedRequest() {
+        Assertions.assertThrows(IOException.class, () -> feed(new HttpRequestParser(), "GET /\r\n\r\n"));
+        Assertions.assertThrows(IOException.class, () -> feed(new HttpRequestParser(), "GET / HTTP/1.1\r\nNoColon\r\n\r\n"));
+        Assertions.assertThrows(IOException.class, () -> feed(new HttpRequestParser(), "GET / HTTP/1.1\r\nContent-Length: 1x\r\n\r\n"));
+        Assertions.assertThrows(IOException.class,
+                () -> feed(new HttpRequestParser(), "GET / HTTP/1.1\r\nContent-Length: 1\r\nContent-Length: 2\r\n\r\n"));
+        // Whitespace before colon and obs-fold, RFC 7230 3.2.4
+        Assertions.assertThrows(IOException.class,
+                () -> feed(new HttpRequestParser(), "POST / HTTP/1.1\r\nContent-Length : 4\r\n\r\nbody"));
+        Assertions.assertThrows(IOException.class,
+                () -> feed(new HttpRequestParser(), "GET / HTTP/1.1\r\nX-Long: a\r\n\tb\r\n\r\n"));
+        Assertions.assertThrows(IOException.class,
+                () -> feed(new HttpRequestParser(), "GET / HTTP/1.1\r\n Host: x\r\n\r\n"));
+    }
+
+    @Test
+    public void testRequestMessageReadLazily() throws IOException {
+        HttpRequestParser parser = new HttpRequestParser();
+        feed(parser, REQUEST);
+        HttpRequestMessage request = new HttpRequestMessage(null);
+        request.setRequestParser(parser);
+
+        Assertions.assertEquals("localhost:8080", request.getHeader("host"));
+        Assertions.assertEquals("POST", request.getMethod());
+        Assertions.assertEquals("/submit?q=1", request.getPath());
+        Assertions.assertEquals(3, request.getHeaderMap().size());
+        Assertions.assertEquals("localhost:8080", request.getHeaderMap().get("Host"));
+        request.addHeader("X-Added", "1");
+        Assertions.assertEquals("1", request.getHeader("x-added"));
+    }
+}
@@ -108,7 +108,6 @@ public class TestServer {
         ChannelingServer channelingServer = new ChannelingServer(channeling, "localhost", 8080);
 
         channelingServer.setBuffSize(1024);
-        channelingServer.setWaitPerNano(1);
 
 
         TimeZone.setDefault(TimeZone.getTimeZone("Asia/Singapore"));
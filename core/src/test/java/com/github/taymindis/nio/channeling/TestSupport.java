@@ -0,0 +1,128 @@
+package com.github.taymindis.nio.channeling;
+
+import org.junit.jupiter.api.Assertions;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers shared by the tests, SSL contexts over the bundled or a generated keystore and a blocking echo peer
+ */
+final class TestSupport {
+    static final String KEYSTORE = "./src/main/resources/keystore.jks";
+    static final String PASSWORD = "password";
+
+    private TestSupport() {
+    }
+
+    static SSLContext serverContext() throws Exception {
+        return serverContext(KEYSTORE);
+    }
+
+    static SSLContext serverContext(String keyStorePath) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = new FileInputStream(keyStorePath)) {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, PASSWORD.toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, new SecureRandom());
+        return sslContext;
+    }
+
+    static SSLContext clientContext() throws Exception {
+        return clientContext("TLS");
+    }
+
+    /**
+     * @return context trusting any certificate
+     */
+    static SSLContext clientContext(String protocol) throws Exception {
+        SSLContext sslContext = SSLContext.getInstance(protocol);
+        sslContext.init(null, new TrustManager[]{new X509TrustManager() {
+            @Override
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        }}, new SecureRandom());
+        return sslContext;
+    }
+
+    /**
+     * One day self signed keystore made by keytool, password is {@link #PASSWORD}
+     *
+     * @param alias      alias of the key, name of the file
+     * @param dname      distinguished name, e.g. CN=localhost
+     * @param extensions extra keytool arguments, e.g. -ext SAN=dns:localhost
+     * @return path of the keystore, deleted on exit
+     */
+    static String generateKeyStore(String alias, String dname, String... extensions) throws Exception {
+        File keyStore = new File(Files.createTempDirectory("channeling-" + alias).toFile(), alias + ".jks");
+        keyStore.deleteOnExit();
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        List<String> command = new ArrayList<>(Arrays.asList(keytool, "-genkeypair", "-alias", alias, "-keyalg", "RSA",
+                "-keysize", "2048", "-dname", dname));
+        command.addAll(Arrays.asList(extensions));
+        command.addAll(Arrays.asList("-validity", "1", "-storetype", "JKS", "-keystore", keyStore.getPath(),
+                "-storepass", PASSWORD, "-keypass", PASSWORD));
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        Assertions.assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, process.exitValue());
+        return keyStore.getPath();
+    }
+
+    /**
+     * Accept one connection, read length bytes and write them back, then wait for the client to close
+     *
+     * @param delayInMs wait before writing back, e.g. to let the worker go idle, 0 for none
+     */
+    static void echo(ServerSocket serverSocket, int length, long delayInMs) {
+        try (Socket socket = serverSocket.accept(); InputStream in = socket.getInputStream(); OutputStream out = socket.getOutputStream()) {
+            byte[] buff = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(buff, read, length - read);
+                if (n < 0) {
+                    return;
+                }
+                read += n;
+            }
+            if (delayInMs > 0) {
+                Thread.sleep(delayInMs);
+            }
+            out.write(buff);
+            out.flush();
+            in.read();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}